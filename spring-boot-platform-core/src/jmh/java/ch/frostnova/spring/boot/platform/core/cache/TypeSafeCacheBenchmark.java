@@ -0,0 +1,100 @@
+package ch.frostnova.spring.boot.platform.core.cache;
+
+import ch.frostnova.spring.boot.platform.core.config.CacheConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the {@link TypeSafeCache} hot path (cache hits), run with the GC profiler: the
+ * <code>gc.alloc.rate.norm</code> of the read benchmarks is expected to be (close to) zero bytes per operation.
+ * <p>
+ * Run with: <code>gradle :spring-boot-platform-core:jmh -Pjmh.includes=TypeSafeCacheBenchmark</code>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TypeSafeCacheBenchmark {
+
+    private final static int SIZE = 1024;
+
+    private final Integer[] keys = new Integer[SIZE];
+    private AnnotationConfigApplicationContext enabledContext;
+    private AnnotationConfigApplicationContext disabledContext;
+    private BenchmarkCache cache;
+    private BenchmarkCache disabledCache;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        enabledContext = new AnnotationConfigApplicationContext(CacheConfig.class, BenchmarkCache.class);
+        disabledContext = new AnnotationConfigApplicationContext(BenchmarkCache.class);
+        cache = enabledContext.getBean(BenchmarkCache.class);
+        disabledCache = disabledContext.getBean(BenchmarkCache.class);
+        for (int i = 0; i < SIZE; i++) {
+            keys[i] = i;
+            cache.put(keys[i], "value-" + i);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        enabledContext.close();
+        disabledContext.close();
+    }
+
+    @Benchmark
+    public Object get(Cursor cursor) {
+        return cache.get(keys[cursor.next()]);
+    }
+
+    @Benchmark
+    public Object getWithProducer(Cursor cursor) {
+        return cache.get(keys[cursor.next()], BenchmarkCache::produce);
+    }
+
+    @Benchmark
+    public boolean contains(Cursor cursor) {
+        return cache.contains(keys[cursor.next()]);
+    }
+
+    @Benchmark
+    public Object getDisabled(Cursor cursor) {
+        return disabledCache.get(keys[cursor.next()]);
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        private int index;
+
+        int next() {
+            return index++ & (SIZE - 1);
+        }
+    }
+
+    public static class BenchmarkCache extends TypeSafeCache<Integer, String> {
+
+        public BenchmarkCache() {
+            super("benchmark-cache");
+        }
+
+        static String produce(Integer key) {
+            return "value-" + key;
+        }
+    }
+}
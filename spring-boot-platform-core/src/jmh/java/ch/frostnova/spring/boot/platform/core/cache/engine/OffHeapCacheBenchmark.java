@@ -0,0 +1,89 @@
+package ch.frostnova.spring.boot.platform.core.cache.engine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cache.Cache;
+import org.springframework.util.unit.DataSize;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Comparison of the on-heap {@link PlatformCache} and the {@link OffHeapCache}, holding about 512MB of large
+ * (16KB) values, under a mixed read/write load. Run with the GC profiler: the on-heap cache retains the values on the
+ * heap (and promotes them to the old generation), while the off-heap cache only allocates short-lived buffers, which
+ * shows in the <code>gc.count</code> and <code>gc.time</code> (pause) figures. Reads from the off-heap cache are
+ * slower, as the values are copied and deserialized.
+ * <p>
+ * Run with: <code>gradle :spring-boot-platform-core:jmh -Pjmh.includes=OffHeapCacheBenchmark</code>
+ * (the JVM needs a heap of at least 1GB, and the same amount of direct memory).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms1536m", "-Xmx1536m", "-XX:MaxDirectMemorySize=1g"})
+@Threads(4)
+@State(Scope.Benchmark)
+public class OffHeapCacheBenchmark {
+
+    private final static int VALUE_SIZE = 16 * 1024;
+    private final static int ENTRIES = 32 * 1024;
+
+    @Param({"on-heap", "off-heap"})
+    public String storage;
+
+    private Cache cache;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        PlatformCacheProperties.CacheSpec spec = new PlatformCacheProperties.CacheSpec();
+        if ("off-heap".equals(storage)) {
+            PlatformCacheProperties.OffHeap offHeap = new PlatformCacheProperties.OffHeap();
+            offHeap.setCapacity(DataSize.ofBytes((long) ENTRIES * (VALUE_SIZE + 64)));
+            spec.setOffHeap(offHeap);
+            cache = new OffHeapCache("benchmark", spec);
+        } else {
+            spec.setMaximumSize((long) ENTRIES);
+            cache = new PlatformCache("benchmark", spec);
+        }
+        for (int i = 0; i < ENTRIES; i++) {
+            cache.put(i, value(i));
+        }
+    }
+
+    private static byte[] value(int key) {
+        byte[] value = new byte[VALUE_SIZE];
+        value[0] = (byte) key;
+        return value;
+    }
+
+    @Benchmark
+    public Object read() {
+        Cache.ValueWrapper cached = cache.get(ThreadLocalRandom.current().nextInt(ENTRIES));
+        return cached != null ? cached.get() : null;
+    }
+
+    @Benchmark
+    public Object readMostly() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int key = random.nextInt(ENTRIES);
+        if (random.nextInt(10) == 0) {
+            cache.put(key, value(key));
+            return null;
+        }
+        Cache.ValueWrapper cached = cache.get(key);
+        return cached != null ? cached.get() : null;
+    }
+}
@@ -0,0 +1,84 @@
+package ch.frostnova.spring.boot.platform.core.scope;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Throughput of blocking I/O fan-out (subtasks which block for 1 ms) from task scopes: on the fixed pool of 8
+ * platform threads (as used in <code>TaskScopeExecutionContextTest</code>), and on virtual threads (a new virtual
+ * thread per subtask). The blocking subtasks limit the fixed pool to about 8 subtasks per millisecond, while virtual
+ * threads scale with the number of concurrent subtasks. On runtimes without virtual threads (before Java 21), the
+ * <code>virtual-threads</code> variant measures the fallback fork-join pool.
+ * <p>
+ * Run with: <code>gradle :spring-boot-platform-core:jmh -Pjmh.includes=TaskScopeExecutionBenchmark</code>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class TaskScopeExecutionBenchmark {
+
+    private final static int FIXED_POOL_SIZE = 8;
+    private final static int SUBTASKS = 100;
+    private final static Duration BLOCKING_TIME = Duration.ofMillis(1);
+
+    @Param({"fixed-pool", "virtual-threads"})
+    public String execution;
+
+    private ExecutorService fixedPool;
+    private TaskScope.ExecutionContext executionContext;
+    private List<CheckedSupplier<Integer>> subtasks;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        subtasks = IntStream.range(0, SUBTASKS)
+                .mapToObj(i -> (CheckedSupplier<Integer>) () -> {
+                    Thread.sleep(BLOCKING_TIME.toMillis());
+                    return i;
+                })
+                .collect(Collectors.toList());
+        if ("virtual-threads".equals(execution)) {
+            executionContext = TaskScope.newVirtualThreadExecutionContext();
+        } else {
+            fixedPool = Executors.newFixedThreadPool(FIXED_POOL_SIZE);
+            executionContext = TaskScope.newExecutionContext();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (fixedPool != null) {
+            fixedPool.shutdownNow();
+        }
+    }
+
+    @Benchmark
+    public List<Integer> fanOut() {
+        return fixedPool != null
+                ? executionContext.invokeAll(subtasks, fixedPool, null)
+                : executionContext.invokeAll(subtasks);
+    }
+}
@@ -0,0 +1,46 @@
+package ch.frostnova.spring.boot.platform.core.batch;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Source of messages processed by a {@link ScopedBatchProcessor}, e.g. a message broker consumer. Messages are
+ * polled in micro-batches, and acknowledged per batch once all messages of the batch have been processed. Messages
+ * which failed are rejected individually (before the batch is acknowledged), so the source can redeliver them or move
+ * them to a dead letter queue. Messages which were polled, but neither acknowledged nor rejected (because the processor
+ * was stopped) are expected to be redelivered by the source.
+ *
+ * @param <M> message type
+ * @author pwalser
+ * @since 2022-01-16
+ */
+public interface BatchSource<M> {
+
+    /**
+     * Poll the next batch of messages, waiting until at least one message is available or the timeout elapsed.
+     *
+     * @param maxMessages maximal number of messages in the batch
+     * @param timeout     maximal time to wait for the first message, required
+     * @return messages, empty if none were available within the timeout
+     * @throws InterruptedException if interrupted while waiting
+     */
+    List<M> poll(int maxMessages, Duration timeout) throws InterruptedException;
+
+    /**
+     * Acknowledge the successfully processed messages of a batch.
+     *
+     * @param messages processed messages, in the order they were polled
+     */
+    void acknowledge(List<M> messages);
+
+    /**
+     * Reject a message which could not be processed. The default implementation does nothing (the message is
+     * neither acknowledged nor redelivered).
+     *
+     * @param message message
+     * @param failure reason of the failure
+     */
+    default void reject(M message, Throwable failure) {
+
+    }
+}
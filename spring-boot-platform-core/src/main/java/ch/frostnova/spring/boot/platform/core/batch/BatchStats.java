@@ -0,0 +1,100 @@
+package ch.frostnova.spring.boot.platform.core.batch;
+
+import java.time.Duration;
+
+/**
+ * Immutable snapshot of the statistics of a {@link ScopedBatchProcessor}: number of completed batches, processed and
+ * failed messages, and the duration of the batches (from polling the batch until it was acknowledged).
+ *
+ * @author pwalser
+ * @since 2022-01-16
+ */
+public final class BatchStats {
+
+    private final String processorName;
+    private final long batchCount;
+    private final long messageCount;
+    private final long failureCount;
+    private final long totalBatchTimeNanos;
+    private final long maxBatchTimeNanos;
+    private final int queuedCount;
+
+    /**
+     * Create a snapshot.
+     *
+     * @param processorName       processor name, required
+     * @param batchCount          number of completed (acknowledged) batches
+     * @param messageCount        number of processed messages (including failed messages)
+     * @param failureCount        number of failed (rejected) messages
+     * @param totalBatchTimeNanos total duration of the completed batches, in nanoseconds
+     * @param maxBatchTimeNanos   duration of the longest batch, in nanoseconds
+     * @param queuedCount         number of messages currently waiting for a worker
+     */
+    public BatchStats(String processorName, long batchCount, long messageCount, long failureCount,
+                      long totalBatchTimeNanos, long maxBatchTimeNanos, int queuedCount) {
+        if (processorName == null) {
+            throw new IllegalArgumentException("processorName is required");
+        }
+        this.processorName = processorName;
+        this.batchCount = batchCount;
+        this.messageCount = messageCount;
+        this.failureCount = failureCount;
+        this.totalBatchTimeNanos = totalBatchTimeNanos;
+        this.maxBatchTimeNanos = maxBatchTimeNanos;
+        this.queuedCount = queuedCount;
+    }
+
+    public String getProcessorName() {
+        return processorName;
+    }
+
+    public long getBatchCount() {
+        return batchCount;
+    }
+
+    public long getMessageCount() {
+        return messageCount;
+    }
+
+    public long getFailureCount() {
+        return failureCount;
+    }
+
+    public int getQueuedCount() {
+        return queuedCount;
+    }
+
+    /**
+     * Average number of messages per batch.
+     *
+     * @return average batch size, 0 if no batch was completed yet
+     */
+    public double getAverageBatchSize() {
+        return batchCount == 0 ? 0 : (double) messageCount / batchCount;
+    }
+
+    /**
+     * Average duration of a batch.
+     *
+     * @return average batch time
+     */
+    public Duration getAverageBatchTime() {
+        return batchCount == 0 ? Duration.ZERO : Duration.ofNanos(totalBatchTimeNanos / batchCount);
+    }
+
+    /**
+     * Duration of the longest batch.
+     *
+     * @return max batch time
+     */
+    public Duration getMaxBatchTime() {
+        return Duration.ofNanos(maxBatchTimeNanos);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d batches, %d messages (%d failed), avg batch size %.1f, avg batch time %d ms, max batch time %d ms, %d queued",
+                processorName, batchCount, messageCount, failureCount, getAverageBatchSize(),
+                getAverageBatchTime().toMillis(), getMaxBatchTime().toMillis(), queuedCount);
+    }
+}
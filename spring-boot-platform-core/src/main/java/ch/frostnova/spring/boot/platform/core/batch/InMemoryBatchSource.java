@@ -0,0 +1,116 @@
+package ch.frostnova.spring.boot.platform.core.batch;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link BatchSource} backed by a bounded in-memory queue, for tests and local (non-durable) processing. Producers
+ * block when the queue is full, so a {@link ScopedBatchProcessor} which does not keep up slows them down.
+ * Acknowledged and rejected messages are recorded, and can be inspected.
+ *
+ * @param <M> message type
+ * @author pwalser
+ * @since 2022-01-16
+ */
+public class InMemoryBatchSource<M> implements BatchSource<M> {
+
+    private final BlockingQueue<M> queue;
+    private final List<M> acknowledged = Collections.synchronizedList(new ArrayList<>());
+    private final List<M> rejected = Collections.synchronizedList(new ArrayList<>());
+
+    /**
+     * Create an in-memory source.
+     *
+     * @param capacity capacity of the queue (number of messages)
+     */
+    public InMemoryBatchSource(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        queue = new LinkedBlockingQueue<>(capacity);
+    }
+
+    /**
+     * Add a message, waiting if the queue is full.
+     *
+     * @param message message, required
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void put(M message) throws InterruptedException {
+        if (message == null) {
+            throw new IllegalArgumentException("message is required");
+        }
+        queue.put(message);
+    }
+
+    /**
+     * Add a message if the queue is not full.
+     *
+     * @param message message, required
+     * @return true if the message was added, false if the queue is full
+     */
+    public boolean offer(M message) {
+        if (message == null) {
+            throw new IllegalArgumentException("message is required");
+        }
+        return queue.offer(message);
+    }
+
+    /**
+     * Number of messages waiting to be polled.
+     *
+     * @return number of messages
+     */
+    public int size() {
+        return queue.size();
+    }
+
+    /**
+     * Messages acknowledged so far.
+     *
+     * @return acknowledged messages (copy)
+     */
+    public List<M> getAcknowledged() {
+        synchronized (acknowledged) {
+            return new ArrayList<>(acknowledged);
+        }
+    }
+
+    /**
+     * Messages rejected so far.
+     *
+     * @return rejected messages (copy)
+     */
+    public List<M> getRejected() {
+        synchronized (rejected) {
+            return new ArrayList<>(rejected);
+        }
+    }
+
+    @Override
+    public List<M> poll(int maxMessages, Duration timeout) throws InterruptedException {
+        M first = queue.poll(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        if (first == null) {
+            return Collections.emptyList();
+        }
+        List<M> messages = new ArrayList<>(maxMessages);
+        messages.add(first);
+        queue.drainTo(messages, maxMessages - 1);
+        return messages;
+    }
+
+    @Override
+    public void acknowledge(List<M> messages) {
+        acknowledged.addAll(messages);
+    }
+
+    @Override
+    public void reject(M message, Throwable failure) {
+        rejected.add(message);
+    }
+}
@@ -0,0 +1,449 @@
+package ch.frostnova.spring.boot.platform.core.batch;
+
+import ch.frostnova.spring.boot.platform.api.auth.UserInfo;
+import ch.frostnova.spring.boot.platform.core.scope.CheckedConsumer;
+import ch.frostnova.spring.boot.platform.core.scope.CheckedRunnable;
+import ch.frostnova.spring.boot.platform.core.scope.TaskScope;
+import ch.frostnova.spring.boot.platform.core.security.template.SecurityContextTemplate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Processes the messages of a {@link BatchSource} on a bounded pool of worker threads:
+ * <ul>
+ *     <li>a poller thread polls micro-batches from the source, and hands the messages to the workers through a
+ *     bounded queue. When the queue is full, the poller blocks and stops polling (backpressure), so the source is only
+ *     drained as fast as the workers process the messages.</li>
+ *     <li>each message is processed in its own task scope (see {@link TaskScope#newExecutionContext()}), optionally as
+ *     the user resolved for the message (see {@link SecurityContextTemplate#runAs(UserInfo, CheckedRunnable)}).</li>
+ *     <li>failed messages are rejected, and once all messages of a batch are processed, the successful messages are
+ *     acknowledged together. Batches are processed concurrently, and may thus be acknowledged out of order.</li>
+ *     <li>when stopping times out, the workers still busy are interrupted: their batches are neither acknowledged nor
+ *     rejected (they were not processed, and will be redelivered by sources which support it), and the messages
+ *     remaining in the queue are not processed anymore.</li>
+ *     <li>statistics are recorded per batch (see {@link #getStats()}).</li>
+ * </ul>
+ * Usage:
+ * <pre>
+ * ScopedBatchProcessor&lt;Order&gt; processor = ScopedBatchProcessor.builder("orders", source, orderService::process)
+ *     .workers(8)
+ *     .batchSize(50)
+ *     .runAs(securityContextTemplate, order -&gt; order.getUserInfo())
+ *     .build();
+ * processor.start();
+ * ...
+ * processor.stop(Duration.ofSeconds(30));
+ * </pre>
+ *
+ * @param <M> message type
+ * @author pwalser
+ * @since 2022-01-16
+ */
+public class ScopedBatchProcessor<M> implements AutoCloseable {
+
+    private final static Logger logger = LoggerFactory.getLogger(ScopedBatchProcessor.class);
+    private final static Duration WORKER_POLL_INTERVAL = Duration.ofMillis(100);
+
+    private final String name;
+    private final BatchSource<M> source;
+    private final CheckedConsumer<M> handler;
+    private final SecurityContextTemplate securityContextTemplate;
+    private final Function<M, UserInfo> userResolver;
+    private final int workerCount;
+    private final int batchSize;
+    private final Duration pollTimeout;
+    private final BlockingQueue<Work<M>> queue;
+
+    private final LongAdder batchCount = new LongAdder();
+    private final LongAdder messageCount = new LongAdder();
+    private final LongAdder failureCount = new LongAdder();
+    private final LongAdder totalBatchTimeNanos = new LongAdder();
+    private final AtomicLong maxBatchTimeNanos = new AtomicLong();
+
+    private volatile boolean running;
+    private volatile boolean polling;
+    private volatile boolean aborted;
+    private Thread poller;
+    private List<Thread> workers;
+
+    private ScopedBatchProcessor(Builder<M> builder) {
+        name = builder.name;
+        source = builder.source;
+        handler = builder.handler;
+        securityContextTemplate = builder.securityContextTemplate;
+        userResolver = builder.userResolver;
+        workerCount = builder.workers;
+        batchSize = builder.batchSize;
+        pollTimeout = builder.pollTimeout;
+        queue = new ArrayBlockingQueue<>(builder.queueCapacity);
+    }
+
+    /**
+     * Create a builder for a batch processor.
+     *
+     * @param name    name of the processor (used for the thread names and logging), required
+     * @param source  message source, required
+     * @param handler message handler, required
+     * @param <M>     message type
+     * @return builder
+     */
+    public static <M> Builder<M> builder(String name, BatchSource<M> source, CheckedConsumer<M> handler) {
+        return new Builder<>(name, source, handler);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Start polling and processing messages.
+     */
+    public synchronized void start() {
+        if (running || poller != null) {
+            throw new IllegalStateException("batch processor " + name + " already started");
+        }
+        running = true;
+        polling = true;
+        aborted = false;
+        workers = new ArrayList<>(workerCount);
+        for (int i = 0; i < workerCount; i++) {
+            Thread worker = new Thread(this::work, name + "-worker-" + (i + 1));
+            worker.setDaemon(true);
+            workers.add(worker);
+            worker.start();
+        }
+        poller = new Thread(this::poll, name + "-poller");
+        poller.setDaemon(true);
+        poller.start();
+        logger.info("Batch processor {} started with {} workers", name, workerCount);
+    }
+
+    /**
+     * Stop polling, and wait until the messages already polled are processed. Workers still busy when the timeout
+     * elapsed are interrupted, and the batches they were processing are not acknowledged.
+     *
+     * @param timeout maximal time to wait, required
+     * @return true if all polled messages were processed within the timeout
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public synchronized boolean stop(Duration timeout) throws InterruptedException {
+        if (timeout == null) {
+            throw new IllegalArgumentException("timeout is required");
+        }
+        if (poller == null) {
+            return true;
+        }
+        long deadline = System.nanoTime() + timeout.toNanos();
+        running = false;
+        poller.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+        boolean completed = !poller.isAlive();
+        if (!completed) {
+            poller.interrupt();
+        }
+        for (Thread worker : workers) {
+            worker.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+        }
+        // workers still busy stop after their current message, without processing the remaining queued messages
+        aborted = true;
+        for (Thread worker : workers) {
+            if (worker.isAlive()) {
+                completed = false;
+                worker.interrupt();
+            }
+        }
+        poller = null;
+        workers = null;
+        logger.info("Batch processor {} stopped{}: {}", name, completed ? "" : " (timeout)", getStats());
+        return completed;
+    }
+
+    /**
+     * Stop the processor, waiting up to the poll timeout (and one second) for polled messages to be processed.
+     * When interrupted while waiting, the interrupt status of the thread is restored.
+     */
+    @Override
+    public void close() {
+        try {
+            stop(pollTimeout.plusSeconds(1));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Statistics of the processor.
+     *
+     * @return snapshot of the statistics
+     */
+    public BatchStats getStats() {
+        return new BatchStats(name, batchCount.sum(), messageCount.sum(), failureCount.sum(),
+                totalBatchTimeNanos.sum(), maxBatchTimeNanos.get(), queue.size());
+    }
+
+    private void poll() {
+        try {
+            while (running) {
+                List<M> messages;
+                try {
+                    messages = source.poll(batchSize, pollTimeout);
+                } catch (RuntimeException ex) {
+                    logger.warn("Batch processor {} failed to poll messages: {}", name, ex.toString());
+                    Thread.sleep(pollTimeout.toMillis());
+                    continue;
+                }
+                if (messages == null || messages.isEmpty()) {
+                    continue;
+                }
+                Batch<M> batch = new Batch<>(messages);
+                for (int i = 0; i < messages.size(); i++) {
+                    // blocks while the workers are busy (backpressure)
+                    queue.put(new Work<>(batch, i));
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            polling = false;
+        }
+    }
+
+    private void work() {
+        try {
+            while (!aborted) {
+                Work<M> work = queue.poll(WORKER_POLL_INTERVAL.toNanos(), TimeUnit.NANOSECONDS);
+                if (work != null) {
+                    process(work);
+                } else if (!polling) {
+                    return;
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void process(Work<M> work) {
+        M message = work.batch.messages.get(work.index);
+        boolean success = false;
+        try {
+            UserInfo userInfo = userResolver != null ? userResolver.apply(message) : null;
+            if (userInfo != null) {
+                securityContextTemplate.runAs(userInfo, () -> handler.accept(message));
+            } else {
+                TaskScope.newExecutionContext().execute(() -> handler.accept(message));
+            }
+            success = true;
+        } catch (Exception ex) {
+            if (aborted) {
+                // interrupted by stop(): not processed, so neither rejected nor acknowledged (the batch stays incomplete)
+                logger.debug("Batch processor {} interrupted while processing a message: {}", name, ex.toString());
+                return;
+            }
+            logger.warn("Batch processor {} failed to process message: {}", name, ex.toString());
+            try {
+                source.reject(message, ex);
+            } catch (RuntimeException rejectFailure) {
+                logger.warn("Batch processor {} failed to reject message: {}", name, rejectFailure.toString());
+            }
+        }
+        if (work.batch.completed(work.index, success)) {
+            complete(work.batch);
+        }
+    }
+
+    private void complete(Batch<M> batch) {
+        List<M> processed = new ArrayList<>(batch.messages.size());
+        for (int i = 0; i < batch.messages.size(); i++) {
+            if (batch.succeeded.get(i) != null) {
+                processed.add(batch.messages.get(i));
+            }
+        }
+        try {
+            if (!processed.isEmpty()) {
+                source.acknowledge(processed);
+            }
+        } catch (RuntimeException ex) {
+            logger.warn("Batch processor {} failed to acknowledge {} messages: {}", name, processed.size(), ex.toString());
+        }
+        long batchTimeNanos = System.nanoTime() - batch.startNanos;
+        int failed = batch.messages.size() - processed.size();
+        batchCount.increment();
+        messageCount.add(batch.messages.size());
+        failureCount.add(failed);
+        totalBatchTimeNanos.add(batchTimeNanos);
+        maxBatchTimeNanos.accumulateAndGet(batchTimeNanos, Math::max);
+        logger.debug("Batch processor {}: batch of {} messages processed in {} ms ({} failed)",
+                name, batch.messages.size(), TimeUnit.NANOSECONDS.toMillis(batchTimeNanos), failed);
+    }
+
+    private static final class Batch<M> {
+
+        private final List<M> messages;
+        private final long startNanos = System.nanoTime();
+        private final AtomicInteger pending;
+        private final AtomicReferenceArray<Boolean> succeeded;
+
+        private Batch(List<M> messages) {
+            this.messages = messages;
+            pending = new AtomicInteger(messages.size());
+            succeeded = new AtomicReferenceArray<>(messages.size());
+        }
+
+        /**
+         * Record the outcome of a message.
+         *
+         * @return true if this was the last pending message of the batch
+         */
+        private boolean completed(int index, boolean success) {
+            if (success) {
+                succeeded.set(index, Boolean.TRUE);
+            }
+            return pending.decrementAndGet() == 0;
+        }
+    }
+
+    private static final class Work<M> {
+
+        private final Batch<M> batch;
+        private final int index;
+
+        private Work(Batch<M> batch, int index) {
+            this.batch = batch;
+            this.index = index;
+        }
+    }
+
+    /**
+     * Builder for a {@link ScopedBatchProcessor}.
+     *
+     * @param <M> message type
+     */
+    public static class Builder<M> {
+
+        private final String name;
+        private final BatchSource<M> source;
+        private final CheckedConsumer<M> handler;
+        private SecurityContextTemplate securityContextTemplate;
+        private Function<M, UserInfo> userResolver;
+        private int workers = Runtime.getRuntime().availableProcessors();
+        private int batchSize = 10;
+        private int queueCapacity = -1;
+        private Duration pollTimeout = Duration.ofSeconds(1);
+
+        private Builder(String name, BatchSource<M> source, CheckedConsumer<M> handler) {
+            if (name == null) {
+                throw new IllegalArgumentException("name is required");
+            }
+            if (source == null) {
+                throw new IllegalArgumentException("source is required");
+            }
+            if (handler == null) {
+                throw new IllegalArgumentException("handler is required");
+            }
+            this.name = name;
+            this.source = source;
+            this.handler = handler;
+        }
+
+        /**
+         * Number of worker threads (default: number of processors).
+         *
+         * @param workers number of workers
+         * @return builder
+         */
+        public Builder<M> workers(int workers) {
+            if (workers <= 0) {
+                throw new IllegalArgumentException("workers must be positive");
+            }
+            this.workers = workers;
+            return this;
+        }
+
+        /**
+         * Maximal number of messages polled and acknowledged together (default: 10).
+         *
+         * @param batchSize batch size
+         * @return builder
+         */
+        public Builder<M> batchSize(int batchSize) {
+            if (batchSize <= 0) {
+                throw new IllegalArgumentException("batchSize must be positive");
+            }
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * Capacity of the queue between the poller and the workers (default: two batches per worker). The poller
+         * stops polling while the queue is full.
+         *
+         * @param queueCapacity queue capacity (number of messages)
+         * @return builder
+         */
+        public Builder<M> queueCapacity(int queueCapacity) {
+            if (queueCapacity <= 0) {
+                throw new IllegalArgumentException("queueCapacity must be positive");
+            }
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+
+        /**
+         * Maximal time to wait for messages when polling the source (default: 1 second). This also bounds the time
+         * the processor needs to notice it was stopped.
+         *
+         * @param pollTimeout poll timeout, required
+         * @return builder
+         */
+        public Builder<M> pollTimeout(Duration pollTimeout) {
+            if (pollTimeout == null || pollTimeout.isNegative()) {
+                throw new IllegalArgumentException("pollTimeout is required");
+            }
+            this.pollTimeout = pollTimeout;
+            return this;
+        }
+
+        /**
+         * Process messages as a user: the user is resolved per message, and messages for which no user is resolved
+         * (null) are processed without a user.
+         *
+         * @param securityContextTemplate security context template, required
+         * @param userResolver            resolves the user for a message, required
+         * @return builder
+         */
+        public Builder<M> runAs(SecurityContextTemplate securityContextTemplate, Function<M, UserInfo> userResolver) {
+            if (securityContextTemplate == null) {
+                throw new IllegalArgumentException("securityContextTemplate is required");
+            }
+            if (userResolver == null) {
+                throw new IllegalArgumentException("userResolver is required");
+            }
+            this.securityContextTemplate = securityContextTemplate;
+            this.userResolver = userResolver;
+            return this;
+        }
+
+        public ScopedBatchProcessor<M> build() {
+            if (queueCapacity < 0) {
+                queueCapacity = 2 * workers * batchSize;
+            }
+            return new ScopedBatchProcessor<>(this);
+        }
+    }
+}
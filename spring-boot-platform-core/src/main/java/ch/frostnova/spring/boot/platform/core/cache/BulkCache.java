@@ -0,0 +1,32 @@
+package ch.frostnova.spring.boot.platform.core.cache;
+
+import org.springframework.cache.Cache;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Optional extension of a {@link Cache} which supports native multi-key operations. The {@link TypeSafeCache}
+ * uses these operations for its bulk methods when the underlying cache implements this interface, and falls back
+ * to single-key operations otherwise.
+ *
+ * @author pwalser
+ * @since 2022-01-10
+ */
+public interface BulkCache {
+
+    /**
+     * Lookup multiple keys at once.
+     *
+     * @param keys keys, required
+     * @return cached entries (key to value wrapper) for the keys which are present in the cache, never null
+     */
+    Map<Object, Cache.ValueWrapper> getAll(Collection<?> keys);
+
+    /**
+     * Put multiple entries at once.
+     *
+     * @param entries entries to put, required
+     */
+    void putAll(Map<?, ?> entries);
+}
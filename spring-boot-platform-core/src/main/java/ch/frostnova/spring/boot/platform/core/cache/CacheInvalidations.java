@@ -0,0 +1,74 @@
+package ch.frostnova.spring.boot.platform.core.cache;
+
+import ch.frostnova.spring.boot.platform.core.cache.invalidation.CacheInvalidationBus;
+import ch.frostnova.spring.boot.platform.core.cache.invalidation.InvalidationListener;
+
+/**
+ * Connects a {@link TypeSafeCache} to the {@link CacheInvalidationBus}: publishes the local evictions and clears of
+ * the cache to the other nodes, and applies theirs to the cache. All operations are no-ops without a bus.
+ *
+ * @author pwalser
+ * @since 2022-01-16
+ */
+final class CacheInvalidations {
+
+    private final String cacheName;
+    private final CacheInvalidationBus bus;
+
+    /**
+     * Connect a cache to the invalidation bus.
+     *
+     * @param cacheName cache name, required
+     * @param bus       invalidation bus, optional (null: invalidations are not broadcast)
+     * @param listener  applies invalidations received from other nodes to the cache, required
+     */
+    CacheInvalidations(String cacheName, CacheInvalidationBus bus, InvalidationListener listener) {
+        if (cacheName == null) {
+            throw new IllegalArgumentException("cacheName is required");
+        }
+        if (listener == null) {
+            throw new IllegalArgumentException("listener is required");
+        }
+        this.cacheName = cacheName;
+        this.bus = bus;
+        if (bus != null) {
+            bus.register(cacheName, listener);
+        }
+    }
+
+    /**
+     * Publishes the eviction of an entry.
+     *
+     * @param internalKey internal key
+     */
+    void evicted(Object internalKey) {
+        if (bus != null) {
+            bus.publishEvict(cacheName, internalKey);
+        }
+    }
+
+    /**
+     * Publishes clearing the cache.
+     */
+    void cleared() {
+        if (bus != null) {
+            bus.publishClear(cacheName);
+        }
+    }
+
+    /**
+     * Publishes clearing the entries of a tenant.
+     *
+     * @param tenant tenant, optional (null: entries without tenant, which clears the whole cache on other nodes)
+     */
+    void cleared(String tenant) {
+        if (bus == null) {
+            return;
+        }
+        if (tenant != null) {
+            bus.publishClear(cacheName, tenant);
+        } else {
+            bus.publishClear(cacheName);
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package ch.frostnova.spring.boot.platform.core.cache;
+
+import ch.frostnova.spring.boot.platform.core.cache.engine.PlatformCacheProperties;
+import ch.frostnova.spring.boot.platform.core.scope.TaskScope;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Preloads the {@link TypeSafeCache}s which declare a {@link PreloadSource} on startup. The keys of each cache are
+ * split into batches, which are loaded in parallel on a bounded fork-join pool (each batch in a new task scope).
+ * <p>
+ * The preload runs when the application context is started, before the web server starts accepting requests and
+ * before the application reports ready, and blocks the startup until all caches are preloaded, or the configured
+ * timeout expires (<code>ch.frostnova.platform.cache.preload.timeout</code>, default 1 minute). Batches which are
+ * already running when the timeout expires complete in the background. Progress and durations are logged.
+ *
+ * @author pwalser
+ * @since 2022-01-16
+ */
+@Component
+public class CachePreloader implements SmartLifecycle {
+
+    private final static Logger logger = LoggerFactory.getLogger(CachePreloader.class);
+
+    /**
+     * Before the web server is started (phase <code>Integer.MAX_VALUE - 1</code>).
+     */
+    private final static int PHASE = Integer.MAX_VALUE - 2;
+    private final static long PROGRESS_LOG_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private final ObjectProvider<TypeSafeCache<?, ?>> caches;
+    private final ObjectProvider<PlatformCacheProperties> properties;
+    private volatile boolean running;
+    private long lastProgressLog;
+
+    public CachePreloader(ObjectProvider<TypeSafeCache<?, ?>> caches, ObjectProvider<PlatformCacheProperties> properties) {
+        this.caches = caches;
+        this.properties = properties;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        PlatformCacheProperties.Preload settings = properties.getIfAvailable(PlatformCacheProperties::new).getPreload();
+        if (!settings.isEnabled()) {
+            return;
+        }
+        List<CachePreload<?, ?>> preloads = caches.orderedStream()
+                .filter(TypeSafeCache::isEnabled)
+                .map(CachePreloader::preloadOf)
+                .filter(preload -> preload != null)
+                .collect(toList());
+        if (!preloads.isEmpty()) {
+            preload(preloads, settings);
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    private static <K extends Serializable, V> CachePreload<K, V> preloadOf(TypeSafeCache<K, V> cache) {
+        PreloadSource<K, V> source = cache.preloadSource();
+        return source != null ? new CachePreload<>(cache, source) : null;
+    }
+
+    /**
+     * Preloads the caches, and waits until the preload is complete, or the timeout expired.
+     *
+     * @param preloads caches to preload, with their sources
+     * @param settings preload settings
+     * @return true if the preload completed within the timeout
+     */
+    boolean preload(List<CachePreload<?, ?>> preloads, PlatformCacheProperties.Preload settings) {
+        long start = System.nanoTime();
+        long deadline = start + settings.getTimeout().toNanos();
+        int parallelism = Math.max(1, settings.getParallelism());
+        lastProgressLog = start;
+        logger.info("preloading {} cache(s) with parallelism {}", preloads.size(), parallelism);
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism, forkJoinPool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+            thread.setName("cache-preload-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+        // bounds the batches in flight, so the keys are not enumerated ahead of the loads
+        Semaphore permits = new Semaphore(parallelism * 2);
+        boolean completed = false;
+        try {
+            boolean submitted = true;
+            for (CachePreload<?, ?> preload : preloads) {
+                submitted = submitted && preload.submit(pool, permits, deadline, () -> logProgress(preloads, start));
+            }
+            completed = submitted && awaitCompletion(preloads, deadline, start);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            pool.shutdown();
+        }
+        long durationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        preloads.forEach(preload -> preload.log(start));
+        if (completed) {
+            logger.info("preloaded {} cache(s) in {} ms", preloads.size(), durationMillis);
+        } else {
+            logger.warn("preloading caches did not complete within {}, continuing startup ({} entries loaded)",
+                    settings.getTimeout(), loaded(preloads));
+        }
+        return completed;
+    }
+
+    private boolean awaitCompletion(List<CachePreload<?, ?>> preloads, long deadline, long start) throws InterruptedException {
+        CompletableFuture<Void> all = CompletableFuture.allOf(preloads.stream()
+                .flatMap(preload -> preload.batches.stream())
+                .toArray(CompletableFuture[]::new));
+        while (true) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            try {
+                all.get(Math.min(remaining, PROGRESS_LOG_INTERVAL_NANOS), TimeUnit.NANOSECONDS);
+                return true;
+            } catch (TimeoutException ex) {
+                logProgress(preloads, start);
+            } catch (ExecutionException ex) {
+                // failed batches are logged and counted per cache
+                return true;
+            }
+        }
+    }
+
+    private void logProgress(List<CachePreload<?, ?>> preloads, long start) {
+        long now = System.nanoTime();
+        if (now - lastProgressLog >= PROGRESS_LOG_INTERVAL_NANOS) {
+            lastProgressLog = now;
+            logger.info("preloading caches: {} entries loaded after {} ms", loaded(preloads), TimeUnit.NANOSECONDS.toMillis(now - start));
+        }
+    }
+
+    private static long loaded(List<CachePreload<?, ?>> preloads) {
+        return preloads.stream().mapToLong(preload -> preload.loaded.sum()).sum();
+    }
+
+    /**
+     * Preload of a cache: submits the batches, and counts the loaded entries.
+     *
+     * @param <K> key type
+     * @param <V> value type
+     */
+    static final class CachePreload<K extends Serializable, V> {
+
+        private final TypeSafeCache<K, V> cache;
+        private final PreloadSource<K, V> source;
+        private final List<CompletableFuture<Void>> batches = new ArrayList<>();
+        private final LongAdder loaded = new LongAdder();
+        private final LongAdder failedBatches = new LongAdder();
+        private volatile long completedAt;
+
+        CachePreload(TypeSafeCache<K, V> cache, PreloadSource<K, V> source) {
+            this.cache = cache;
+            this.source = source;
+        }
+
+        /**
+         * Enumerates the keys, and submits the batches.
+         *
+         * @param executor executor for the batches
+         * @param permits  limits the batches in flight
+         * @param deadline deadline (nano time), no more batches are submitted after it
+         * @param progress called after each submitted batch
+         * @return true if all batches were submitted, false if the deadline expired
+         * @throws InterruptedException if interrupted while waiting for a permit
+         */
+        boolean submit(Executor executor, Semaphore permits, long deadline, Runnable progress) throws InterruptedException {
+            int batchSize = Math.max(1, source.batchSize());
+            try (Stream<K> keys = source.keys()) {
+                Iterator<K> iterator = keys.iterator();
+                Set<K> batch = new LinkedHashSet<>();
+                while (iterator.hasNext()) {
+                    batch.add(iterator.next());
+                    if (batch.size() >= batchSize || !iterator.hasNext()) {
+                        if (!permits.tryAcquire(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                            return false;
+                        }
+                        submit(executor, permits, batch);
+                        batch = new LinkedHashSet<>();
+                        progress.run();
+                    }
+                }
+            }
+            return true;
+        }
+
+        private void submit(Executor executor, Semaphore permits, Set<K> batch) {
+            try {
+                batches.add(CompletableFuture.runAsync(() -> {
+                    try {
+                        Map<K, V> values = TaskScope.newExecutionContext().execute(() -> cache.getAll(batch, source::load));
+                        loaded.add(values.size());
+                    } catch (RuntimeException ex) {
+                        failedBatches.increment();
+                        logger.warn("cache '{}': preloading a batch of {} keys failed: {}", cache.getCacheName(), batch.size(), ex.toString());
+                    } finally {
+                        completedAt = System.nanoTime();
+                        permits.release();
+                    }
+                }, executor));
+            } catch (RejectedExecutionException ex) {
+                permits.release();
+                throw ex;
+            }
+        }
+
+        private void log(long start) {
+            long end = completedAt > 0 ? completedAt : System.nanoTime();
+            logger.info("cache '{}': preloaded {} entries in {} batches ({} failed), {} ms", cache.getCacheName(), loaded.sum(),
+                    batches.size(), failedBatches.sum(), TimeUnit.NANOSECONDS.toMillis(end - start));
+        }
+    }
+}
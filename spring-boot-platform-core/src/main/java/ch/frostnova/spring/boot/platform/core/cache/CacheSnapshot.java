@@ -0,0 +1,293 @@
+package ch.frostnova.spring.boot.platform.core.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Snapshot of the contents of a cache, written to and read from a file (through a {@link FileChannel}) in a compact
+ * binary format:
+ * <pre>
+ * header:  magic (int), format version (int), cache name (UTF), value serializer version (int), created at (long)
+ * entry:   ENTRY (byte), key (tag byte + data), written at (long, -1 if unknown), expires at (long, -1 if never),
+ *          value length (int, -1 for null), value (bytes)
+ * trailer: END (byte), number of entries (long), CRC32 of all preceding bytes (int)
+ * </pre>
+ * Keys are written with the {@link KeyCodec}, keys which are not serializable are skipped. Snapshots are written to
+ * a temporary file first, and then moved in place, so a snapshot is either complete or absent. Snapshots are only read completely (checksum verified) or not at all.
+ *
+ * @param <V> value type
+ * @author pwalser
+ * @since 2022-01-15
+ */
+final class CacheSnapshot<V> {
+
+    private final static int MAGIC = 0x54534353;
+    private final static int FORMAT_VERSION = 1;
+    private final static int BUFFER_SIZE = 64 * 1024;
+    private final static byte ENTRY = 1;
+    private final static byte END = 0;
+
+    private final long createdAt;
+    private final List<Entry<V>> entries;
+
+    private CacheSnapshot(long createdAt, List<Entry<V>> entries) {
+        this.createdAt = createdAt;
+        this.entries = entries;
+    }
+
+    /**
+     * Time when the snapshot was created.
+     *
+     * @return epoch millis
+     */
+    long createdAt() {
+        return createdAt;
+    }
+
+    /**
+     * Entries of the snapshot.
+     *
+     * @return entries
+     */
+    List<Entry<V>> entries() {
+        return entries;
+    }
+
+    /**
+     * Write a snapshot. Entries with keys which cannot be written (not serializable) are skipped.
+     *
+     * @param file       file, required
+     * @param cacheName  cache name, required
+     * @param serializer value serializer, required
+     * @param entries    supplies the entries to the given consumer, required
+     * @param <V>        value type
+     * @return number of entries written
+     * @throws IOException if the snapshot could not be written
+     */
+    static <V> long write(Path file, String cacheName, ValueSerializer<V> serializer, Consumer<Consumer<Entry<V>>> entries) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporaryFile = directory.resolve(file.getFileName() + ".tmp");
+        long count;
+        try (FileChannel channel = FileChannel.open(temporaryFile, CREATE, WRITE, TRUNCATE_EXISTING)) {
+            CRC32 checksum = new CRC32();
+            DataOutputStream out = new DataOutputStream(new CheckedOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE), checksum));
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeUTF(cacheName);
+            out.writeInt(serializer.version());
+            out.writeLong(System.currentTimeMillis());
+
+            EntryWriter<V> writer = new EntryWriter<>(out, serializer);
+            entries.accept(writer);
+            if (writer.exception != null) {
+                throw writer.exception;
+            }
+            count = writer.count;
+            out.writeByte(END);
+            out.writeLong(count);
+            out.flush();
+            out.writeInt((int) checksum.getValue());
+            out.flush();
+            channel.force(true);
+        } catch (IOException ex) {
+            Files.deleteIfExists(temporaryFile);
+            throw ex;
+        }
+        Files.move(temporaryFile, file, REPLACE_EXISTING, ATOMIC_MOVE);
+        return count;
+    }
+
+    /**
+     * Read a snapshot.
+     *
+     * @param file       file, required
+     * @param cacheName  expected cache name, required
+     * @param serializer value serializer, required
+     * @param <V>        value type
+     * @return snapshot
+     * @throws IOException if the snapshot could not be read, is corrupt, or is not compatible
+     */
+    static <V> CacheSnapshot<V> read(Path file, String cacheName, ValueSerializer<V> serializer) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, READ)) {
+            long size = channel.size();
+            CRC32 checksum = new CRC32();
+            CountingInputStream counter = new CountingInputStream(new BufferedInputStream(Channels.newInputStream(channel), BUFFER_SIZE));
+            DataInputStream in = new DataInputStream(new CheckedInputStream(counter, checksum));
+            if (in.readInt() != MAGIC) {
+                throw new IOException("not a cache snapshot");
+            }
+            int formatVersion = in.readInt();
+            if (formatVersion != FORMAT_VERSION) {
+                throw new IOException("unsupported snapshot format version " + formatVersion);
+            }
+            String snapshotCacheName = in.readUTF();
+            if (!cacheName.equals(snapshotCacheName)) {
+                throw new IOException("snapshot of another cache: " + snapshotCacheName);
+            }
+            int serializerVersion = in.readInt();
+            if (serializerVersion != serializer.version()) {
+                throw new IOException("value serializer version mismatch: expected " + serializer.version() + ", but was " + serializerVersion);
+            }
+            long createdAt = in.readLong();
+
+            List<Entry<V>> entries = new ArrayList<>();
+            byte marker;
+            while ((marker = in.readByte()) == ENTRY) {
+                Object key = KeyCodec.read(in);
+                long writtenAt = in.readLong();
+                long expiresAt = in.readLong();
+                int valueLength = in.readInt();
+                if (valueLength < -1 || valueLength > size - counter.count) {
+                    // checked before allocating, as the checksum is only verified at the end
+                    throw new IOException("corrupt snapshot (invalid value length " + valueLength + ")");
+                }
+                V value = null;
+                if (valueLength >= 0) {
+                    byte[] valueBytes = new byte[valueLength];
+                    in.readFully(valueBytes);
+                    value = serializer.read(new DataInputStream(new ByteArrayInputStream(valueBytes)));
+                }
+                entries.add(new Entry<>(key, value, writtenAt, expiresAt));
+            }
+            if (marker != END || in.readLong() != entries.size()) {
+                throw new IOException("corrupt snapshot");
+            }
+            int expectedChecksum = (int) checksum.getValue();
+            if (in.readInt() != expectedChecksum) {
+                throw new IOException("corrupt snapshot (checksum mismatch)");
+            }
+            return new CacheSnapshot<>(createdAt, entries);
+        } catch (EOFException ex) {
+            throw new IOException("truncated snapshot", ex);
+        } catch (RuntimeException ex) {
+            throw new IOException("corrupt snapshot: " + ex, ex);
+        }
+    }
+
+    /**
+     * Snapshot entry.
+     *
+     * @param <V> value type
+     */
+    static final class Entry<V> {
+
+        final Object key;
+        final V value;
+        final long writtenAt;
+        final long expiresAt;
+
+        /**
+         * Create an entry.
+         *
+         * @param key       key, required
+         * @param value     value, optional
+         * @param writtenAt epoch millis when the value was written, -1 if unknown
+         * @param expiresAt epoch millis when the value expires, -1 if it does not expire
+         */
+        Entry(Object key, V value, long writtenAt, long expiresAt) {
+            this.key = key;
+            this.value = value;
+            this.writtenAt = writtenAt;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+
+        private long count;
+
+        private CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+
+    private static final class EntryWriter<V> implements Consumer<Entry<V>> {
+
+        private final DataOutputStream out;
+        private final ValueSerializer<V> serializer;
+        private final ByteArrayOutputStream valueBuffer = new ByteArrayOutputStream();
+        private final DataOutputStream valueOut = new DataOutputStream(valueBuffer);
+        private long count;
+        private IOException exception;
+
+        private EntryWriter(DataOutputStream out, ValueSerializer<V> serializer) {
+            this.out = out;
+            this.serializer = serializer;
+        }
+
+        @Override
+        public void accept(Entry<V> entry) {
+            if (exception != null || !KeyCodec.isEncodable(entry.key)) {
+                return;
+            }
+            try {
+                valueBuffer.reset();
+                if (entry.value != null) {
+                    serializer.write(entry.value, valueOut);
+                    valueOut.flush();
+                }
+                out.writeByte(ENTRY);
+                KeyCodec.write(out, entry.key);
+                out.writeLong(entry.writtenAt);
+                out.writeLong(entry.expiresAt);
+                out.writeInt(entry.value != null ? valueBuffer.size() : -1);
+                valueBuffer.writeTo(out);
+                count++;
+            } catch (IOException ex) {
+                exception = ex;
+            }
+        }
+    }
+}
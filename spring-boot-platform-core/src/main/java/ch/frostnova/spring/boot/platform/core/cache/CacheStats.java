@@ -0,0 +1,167 @@
+package ch.frostnova.spring.boot.platform.core.cache;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable snapshot of the statistics of a {@link TypeSafeCache}: number of hits, misses, puts, evictions, and
+ * the number and duration of loads (values produced on cache misses or refreshes), including a histogram of the
+ * load time.
+ *
+ * @author pwalser
+ * @since 2022-01-14
+ */
+public final class CacheStats {
+
+    /**
+     * Upper bounds of the load time histogram buckets, the last bucket counts all loads exceeding the last bound.
+     */
+    public final static List<Duration> LOAD_TIME_BUCKETS = Collections.unmodifiableList(Arrays.asList(
+            Duration.ofNanos(10_000),
+            Duration.ofNanos(100_000),
+            Duration.ofMillis(1),
+            Duration.ofMillis(10),
+            Duration.ofMillis(100),
+            Duration.ofSeconds(1),
+            Duration.ofSeconds(10)));
+
+    private final String cacheName;
+    private final long hitCount;
+    private final long missCount;
+    private final long putCount;
+    private final long evictionCount;
+    private final long loadSuccessCount;
+    private final long loadFailureCount;
+    private final long totalLoadTimeNanos;
+    private final long[] loadTimeHistogram;
+
+    /**
+     * Create a snapshot.
+     *
+     * @param cacheName          cache name, required
+     * @param hitCount           number of cache hits
+     * @param missCount          number of cache misses
+     * @param putCount           number of values put in the cache
+     * @param evictionCount      number of values evicted (explicitly, or because they expired)
+     * @param loadSuccessCount   number of successful loads
+     * @param loadFailureCount   number of failed loads
+     * @param totalLoadTimeNanos total time spent loading, in nanoseconds
+     * @param loadTimeHistogram  number of loads per load time bucket (see {@link #LOAD_TIME_BUCKETS}), required
+     */
+    public CacheStats(String cacheName, long hitCount, long missCount, long putCount, long evictionCount,
+                      long loadSuccessCount, long loadFailureCount, long totalLoadTimeNanos, long[] loadTimeHistogram) {
+        if (cacheName == null) {
+            throw new IllegalArgumentException("cacheName is required");
+        }
+        if (loadTimeHistogram == null || loadTimeHistogram.length != LOAD_TIME_BUCKETS.size() + 1) {
+            throw new IllegalArgumentException("loadTimeHistogram with " + (LOAD_TIME_BUCKETS.size() + 1) + " buckets is required");
+        }
+        this.cacheName = cacheName;
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.putCount = putCount;
+        this.evictionCount = evictionCount;
+        this.loadSuccessCount = loadSuccessCount;
+        this.loadFailureCount = loadFailureCount;
+        this.totalLoadTimeNanos = totalLoadTimeNanos;
+        this.loadTimeHistogram = loadTimeHistogram.clone();
+    }
+
+    public String getCacheName() {
+        return cacheName;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    public long getRequestCount() {
+        return hitCount + missCount;
+    }
+
+    /**
+     * Ratio of requests which were cache hits.
+     *
+     * @return hit rate between 0 and 1, 1 if there were no requests yet
+     */
+    public double getHitRate() {
+        long requestCount = getRequestCount();
+        return requestCount == 0 ? 1.0 : (double) hitCount / requestCount;
+    }
+
+    public long getPutCount() {
+        return putCount;
+    }
+
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    public long getLoadSuccessCount() {
+        return loadSuccessCount;
+    }
+
+    public long getLoadFailureCount() {
+        return loadFailureCount;
+    }
+
+    public long getTotalLoadTimeNanos() {
+        return totalLoadTimeNanos;
+    }
+
+    /**
+     * Average time spent per load (successful or failed).
+     *
+     * @return average load time in nanoseconds, 0 if there were no loads yet
+     */
+    public long getAverageLoadTimeNanos() {
+        long loadCount = loadSuccessCount + loadFailureCount;
+        return loadCount == 0 ? 0 : totalLoadTimeNanos / loadCount;
+    }
+
+    /**
+     * Load time histogram: number of loads per bucket, keyed by the upper bound of the bucket (ISO-8601 duration),
+     * or "+Inf" for the last bucket.
+     *
+     * @return histogram, in ascending order of the buckets
+     */
+    public Map<String, Long> getLoadTimeHistogram() {
+        Map<String, Long> histogram = new LinkedHashMap<>();
+        for (int i = 0; i < loadTimeHistogram.length; i++) {
+            histogram.put(i < LOAD_TIME_BUCKETS.size() ? LOAD_TIME_BUCKETS.get(i).toString() : "+Inf", loadTimeHistogram[i]);
+        }
+        return histogram;
+    }
+
+    /**
+     * Combines these statistics with the statistics of another cache with the same name.
+     *
+     * @param other other statistics, required
+     * @return combined statistics
+     */
+    public CacheStats plus(CacheStats other) {
+        long[] histogram = new long[loadTimeHistogram.length];
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] = loadTimeHistogram[i] + other.loadTimeHistogram[i];
+        }
+        return new CacheStats(cacheName, hitCount + other.hitCount, missCount + other.missCount,
+                putCount + other.putCount, evictionCount + other.evictionCount,
+                loadSuccessCount + other.loadSuccessCount, loadFailureCount + other.loadFailureCount,
+                totalLoadTimeNanos + other.totalLoadTimeNanos, histogram);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d hits, %d misses (hit rate %.1f%%), %d puts, %d evictions, %d loads (%d failed, avg %.3f ms)",
+                cacheName, hitCount, missCount, getHitRate() * 100, putCount, evictionCount,
+                loadSuccessCount + loadFailureCount, loadFailureCount, getAverageLoadTimeNanos() / 1e6);
+    }
+}
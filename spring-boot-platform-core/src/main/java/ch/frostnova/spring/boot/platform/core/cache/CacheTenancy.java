@@ -0,0 +1,104 @@
+package ch.frostnova.spring.boot.platform.core.cache;
+
+import ch.frostnova.spring.boot.platform.core.scope.TaskScope;
+import ch.frostnova.spring.boot.platform.core.security.CurrentUserInfo;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Tenant handling of a {@link TypeSafeCache}: resolves the tenant of the current user for caches partitioned by
+ * tenant, prefixes the internal keys with it, and keeps the statistics per tenant.
+ * <p>
+ * The tenant is only resolved from the current user when the internal key is computed (on the calling thread).
+ * Operations completing later or on other threads (refresh-ahead, asynchronous loads) must use the internal key
+ * computed by the caller, which carries the tenant, as these threads have no (or another) current user.
+ *
+ * @author pwalser
+ * @since 2022-01-16
+ */
+final class CacheTenancy {
+
+    private final StatsCounter stats;
+    private final ConcurrentMap<String, StatsCounter> tenantStats = new ConcurrentHashMap<>();
+    private boolean partitioned;
+    private CurrentUserInfo currentUserInfo;
+
+    /**
+     * Create the tenant handling of a cache (not partitioned until {@link #partition(CurrentUserInfo)} is called).
+     *
+     * @param stats statistics of the cache, required
+     */
+    CacheTenancy(StatsCounter stats) {
+        if (stats == null) {
+            throw new IllegalArgumentException("stats are required");
+        }
+        this.stats = stats;
+    }
+
+    /**
+     * Partitions the cache by tenant (called when the cache is initialized).
+     *
+     * @param currentUserInfo current user, optional (if absent, all keys have no tenant)
+     */
+    void partition(CurrentUserInfo currentUserInfo) {
+        this.partitioned = true;
+        this.currentUserInfo = currentUserInfo;
+    }
+
+    /**
+     * Tenant of the current user, for caches partitioned by tenant.
+     *
+     * @return tenant, or null if the cache is not partitioned, or the current user has no tenant
+     */
+    String currentTenant() {
+        if (!partitioned || currentUserInfo == null || !TaskScope.isActive()) {
+            return null;
+        }
+        return currentUserInfo.getUserInfo().getTenant();
+    }
+
+    /**
+     * Computes the internal key, prefixed with the tenant of the current user if the cache is partitioned.
+     *
+     * @param cacheKey cache key
+     * @return internal key
+     */
+    Object internalKey(Object cacheKey) {
+        return partitioned ? new TenantKey(currentTenant(), cacheKey) : cacheKey;
+    }
+
+    /**
+     * Statistics of the tenant of an internal key (and of the cache).
+     *
+     * @param internalKey internal key
+     * @return statistics counter
+     */
+    StatsCounter stats(Object internalKey) {
+        return statsFor(internalKey instanceof TenantKey ? ((TenantKey) internalKey).getTenant() : null);
+    }
+
+    /**
+     * Statistics of a tenant (and of the cache).
+     *
+     * @param tenant tenant, optional
+     * @return statistics counter
+     */
+    StatsCounter statsFor(String tenant) {
+        return tenant != null ? tenantStats.computeIfAbsent(tenant, t -> new StatsCounter(stats)) : stats;
+    }
+
+    /**
+     * Snapshots of the statistics per tenant.
+     *
+     * @param cacheName cache name
+     * @return statistics per tenant, ordered by tenant
+     */
+    Map<String, CacheStats> snapshots(String cacheName) {
+        Map<String, CacheStats> snapshots = new TreeMap<>();
+        tenantStats.forEach((tenant, counter) -> snapshots.put(tenant, counter.snapshot(cacheName)));
+        return snapshots;
+    }
+}
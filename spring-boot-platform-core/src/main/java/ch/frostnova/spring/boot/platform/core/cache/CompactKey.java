@@ -0,0 +1,311 @@
+package ch.frostnova.spring.boot.platform.core.cache;
+
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Compact cache key: an immutable 128 or 256 bit value, held in primitive longs. Intended to be returned by
+ * {@link TypeSafeCache#cacheKey(Object)} implementations instead of (encoded) hash strings:
+ * <ul>
+ *     <li>a 128 bit key uses 32 bytes of heap, a 256 bit key 48 bytes (a Base64 encoded SHA-256 string uses about
+ *     90 bytes, plus the intermediate digest and encoding buffers)</li>
+ *     <li>the hash code is computed once, equality is checked by comparing the longs, without branches per long</li>
+ * </ul>
+ * Keys can be derived with a <b>cryptographic</b> hash ({@link #sha256(String)}, {@link #sha256x128(String)}) when
+ * an attacker could benefit from provoking collisions (e.g. keys derived from tokens or credentials), or with the
+ * much faster <b>non-cryptographic</b> 128 bit MurmurHash3 ({@link #murmur3(String)}) for trusted input.
+ *
+ * @author pwalser
+ * @since 2022-01-09
+ */
+public abstract class CompactKey implements Serializable {
+
+    private final static long MURMUR3_C1 = 0x87c37b91114253d5L;
+    private final static long MURMUR3_C2 = 0x4cf5ad432745937fL;
+
+    private final static ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> messageDigest("SHA-256"));
+
+    private final int hash;
+
+    private CompactKey(int hash) {
+        this.hash = hash;
+    }
+
+    /**
+     * Create a 128 bit key.
+     *
+     * @param high high 64 bits
+     * @param low  low 64 bits
+     * @return key
+     */
+    public static CompactKey of(long high, long low) {
+        return new Key128(high, low);
+    }
+
+    /**
+     * Create a 256 bit key.
+     *
+     * @param bits0 bits 255..192
+     * @param bits1 bits 191..128
+     * @param bits2 bits 127..64
+     * @param bits3 bits 63..0
+     * @return key
+     */
+    public static CompactKey of(long bits0, long bits1, long bits2, long bits3) {
+        return new Key256(bits0, bits1, bits2, bits3);
+    }
+
+    /**
+     * Create a key from 16 (128 bit) or 32 (256 bit) bytes, in big-endian order.
+     *
+     * @param bytes bytes, required
+     * @return key
+     */
+    public static CompactKey of(byte[] bytes) {
+        if (bytes == null) {
+            throw new IllegalArgumentException("bytes are required");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        if (bytes.length == 16) {
+            return of(buffer.getLong(), buffer.getLong());
+        }
+        if (bytes.length == 32) {
+            return of(buffer.getLong(), buffer.getLong(), buffer.getLong(), buffer.getLong());
+        }
+        throw new IllegalArgumentException("16 or 32 bytes expected, but got " + bytes.length);
+    }
+
+    /**
+     * Derive a 256 bit key from the SHA-256 hash of the (UTF-8 encoded) string.
+     *
+     * @param s string, required
+     * @return key
+     */
+    public static CompactKey sha256(String s) {
+        return of(sha256Digest(s));
+    }
+
+    /**
+     * Derive a 128 bit key from the SHA-256 hash of the (UTF-8 encoded) string, truncated to 128 bits. Finding a
+     * string matching a given key still takes 2<sup>128</sup> attempts, while the key is only 32 bytes.
+     *
+     * @param s string, required
+     * @return key
+     */
+    public static CompactKey sha256x128(String s) {
+        return of(Arrays.copyOf(sha256Digest(s), 16));
+    }
+
+    /**
+     * Derive a 128 bit key from the MurmurHash3 (x64, 128 bit, seed 0) of the (UTF-8 encoded) string.
+     * <b>Not cryptographic</b>: collisions can deliberately be provoked, only use it for trusted input.
+     *
+     * @param s string, required
+     * @return key
+     */
+    public static CompactKey murmur3(String s) {
+        return murmur3(require(s).getBytes(UTF_8));
+    }
+
+    /**
+     * Derive a 128 bit key from the MurmurHash3 (x64, 128 bit, seed 0) of the data.
+     * <b>Not cryptographic</b>: collisions can deliberately be provoked, only use it for trusted input.
+     *
+     * @param data data, required
+     * @return key
+     */
+    public static CompactKey murmur3(byte[] data) {
+        if (data == null) {
+            throw new IllegalArgumentException("data is required");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+        int length = data.length;
+        int blocks = length / 16;
+        long h1 = 0;
+        long h2 = 0;
+
+        for (int i = 0; i < blocks; i++) {
+            long k1 = buffer.getLong(i * 16);
+            long k2 = buffer.getLong(i * 16 + 8);
+
+            h1 ^= mixK1(k1);
+            h1 = Long.rotateLeft(h1, 27) + h2;
+            h1 = h1 * 5 + 0x52dce729;
+
+            h2 ^= mixK2(k2);
+            h2 = Long.rotateLeft(h2, 31) + h1;
+            h2 = h2 * 5 + 0x38495ab5;
+        }
+
+        int tail = blocks * 16;
+        long k1 = 0;
+        long k2 = 0;
+        for (int i = length - tail - 1; i >= 0; i--) {
+            long b = data[tail + i] & 0xffL;
+            if (i >= 8) {
+                k2 |= b << ((i - 8) * 8);
+            } else {
+                k1 |= b << (i * 8);
+            }
+        }
+        h1 ^= mixK1(k1);
+        h2 ^= mixK2(k2);
+
+        h1 ^= length;
+        h2 ^= length;
+        h1 += h2;
+        h2 += h1;
+        h1 = fmix64(h1);
+        h2 = fmix64(h2);
+        h1 += h2;
+        h2 += h1;
+        return of(h1, h2);
+    }
+
+    /**
+     * Number of bits of this key (128 or 256).
+     *
+     * @return bits
+     */
+    public abstract int bits();
+
+    /**
+     * Bytes of this key, in big-endian order.
+     *
+     * @return bytes (16 or 32)
+     */
+    public abstract byte[] toBytes();
+
+    @Override
+    public final int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder(bits() / 4);
+        for (byte b : toBytes()) {
+            builder.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return builder.toString();
+    }
+
+    private static int hash(long bits) {
+        // the bits are (pseudo-)random already when derived from a hash, folding is sufficient
+        return (int) (bits ^ (bits >>> 32));
+    }
+
+    private static long mixK1(long k1) {
+        k1 *= MURMUR3_C1;
+        k1 = Long.rotateLeft(k1, 31);
+        return k1 * MURMUR3_C2;
+    }
+
+    private static long mixK2(long k2) {
+        k2 *= MURMUR3_C2;
+        k2 = Long.rotateLeft(k2, 33);
+        return k2 * MURMUR3_C1;
+    }
+
+    private static long fmix64(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+
+    private static byte[] sha256Digest(String s) {
+        MessageDigest digest = SHA256.get();
+        digest.reset();
+        return digest.digest(require(s).getBytes(UTF_8));
+    }
+
+    private static MessageDigest messageDigest(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new UnsupportedOperationException(ex);
+        }
+    }
+
+    private static String require(String s) {
+        if (s == null) {
+            throw new IllegalArgumentException("string is required");
+        }
+        return s;
+    }
+
+    private final static class Key128 extends CompactKey {
+
+        private final long bits0;
+        private final long bits1;
+
+        private Key128(long bits0, long bits1) {
+            super(hash(bits0 ^ bits1));
+            this.bits0 = bits0;
+            this.bits1 = bits1;
+        }
+
+        @Override
+        public int bits() {
+            return 128;
+        }
+
+        @Override
+        public byte[] toBytes() {
+            return ByteBuffer.allocate(16).putLong(bits0).putLong(bits1).array();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key128)) {
+                return false;
+            }
+            Key128 other = (Key128) obj;
+            return ((bits0 ^ other.bits0) | (bits1 ^ other.bits1)) == 0;
+        }
+    }
+
+    private final static class Key256 extends CompactKey {
+
+        private final long bits0;
+        private final long bits1;
+        private final long bits2;
+        private final long bits3;
+
+        private Key256(long bits0, long bits1, long bits2, long bits3) {
+            super(hash(bits0 ^ bits1 ^ bits2 ^ bits3));
+            this.bits0 = bits0;
+            this.bits1 = bits1;
+            this.bits2 = bits2;
+            this.bits3 = bits3;
+        }
+
+        @Override
+        public int bits() {
+            return 256;
+        }
+
+        @Override
+        public byte[] toBytes() {
+            return ByteBuffer.allocate(32).putLong(bits0).putLong(bits1).putLong(bits2).putLong(bits3).array();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key256)) {
+                return false;
+            }
+            Key256 other = (Key256) obj;
+            return ((bits0 ^ other.bits0) | (bits1 ^ other.bits1) | (bits2 ^ other.bits2) | (bits3 ^ other.bits3)) == 0;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package ch.frostnova.spring.boot.platform.core.cache;
+
+import org.springframework.cache.Cache;
+
+import java.util.function.Consumer;
+
+/**
+ * Optional extension of a {@link Cache} which evicts entries by itself: because the cache reached its maximum size,
+ * weight or capacity, or because entries expired. The {@link TypeSafeCache} registers a listener when the
+ * underlying cache implements this interface, and counts these evictions in its statistics. Explicit evictions
+ * (evict, clear) are not reported.
+ *
+ * @author pwalser
+ * @since 2022-01-16
+ */
+public interface EvictingCache {
+
+    /**
+     * Add a listener, which is notified with the key of each entry the cache evicted by itself. Listeners are
+     * called while the cache holds internal locks: they must be fast, and must not access the cache.
+     *
+     * @param listener listener, required
+     */
+    void addEvictionListener(Consumer<Object> listener);
+}
@@ -0,0 +1,37 @@
+package ch.frostnova.spring.boot.platform.core.cache;
+
+import org.springframework.cache.Cache;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Optional extension of a {@link Cache} which supports an individual expiration time per entry. The
+ * {@link TypeSafeCache} uses these operations when an entry should expire at a specific time (see
+ * <code>TypeSafeCache.expireAfter(key, value)</code>), otherwise the cache's default expiration applies.
+ *
+ * @author pwalser
+ * @since 2022-01-12
+ */
+public interface ExpiringCache {
+
+    /**
+     * Put an entry which expires after the given duration.
+     *
+     * @param key         key, required
+     * @param value       value, optional
+     * @param expireAfter duration after which the entry expires, null for the cache's default expiration.
+     *                    Entries with a zero or negative duration are expired immediately (not cached).
+     */
+    void put(Object key, Object value, Duration expireAfter);
+
+    /**
+     * Put multiple entries, which expire after the durations provided per key.
+     *
+     * @param entries     entries to put, required
+     * @param expireAfter duration after which the entry with the given key expires, returning null for
+     *                    the cache's default expiration.
+     */
+    void putAll(Map<?, ?> entries, Function<Object, Duration> expireAfter);
+}
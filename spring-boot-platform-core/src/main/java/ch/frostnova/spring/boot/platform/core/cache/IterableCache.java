@@ -0,0 +1,39 @@
+package ch.frostnova.spring.boot.platform.core.cache;
+
+import org.springframework.cache.Cache;
+
+import java.time.Duration;
+
+/**
+ * Optional extension of a {@link Cache} whose entries can be enumerated. The {@link TypeSafeCache} uses this to
+ * write snapshots of the cache contents (see <code>TypeSafeCache.snapshotSerializer()</code>).
+ *
+ * @author pwalser
+ * @since 2022-01-15
+ */
+public interface IterableCache {
+
+    /**
+     * Visits all entries which are not expired. The iteration is weakly consistent: it reflects the state of the
+     * cache at some point at or since the start of the iteration, and does not block concurrent operations.
+     *
+     * @param visitor visitor, required
+     */
+    void forEachEntry(EntryVisitor visitor);
+
+    /**
+     * Visitor for cache entries.
+     */
+    @FunctionalInterface
+    interface EntryVisitor {
+
+        /**
+         * Visit an entry.
+         *
+         * @param key       key, never null
+         * @param value     value as it was put in the cache, may be null
+         * @param expiresIn remaining time until the entry expires, or null if the entry does not expire
+         */
+        void visit(Object key, Object value, Duration expiresIn);
+    }
+}
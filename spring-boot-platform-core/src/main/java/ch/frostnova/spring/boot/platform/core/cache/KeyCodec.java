@@ -0,0 +1,189 @@
+package ch.frostnova.spring.boot.platform.core.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.UUID;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Compact binary encoding of (internal) cache keys, used for cache snapshots and invalidation messages. Common key
+ * types (strings, integers, longs, UUIDs, {@link CompactKey}s, {@link TenantKey}s) are written natively (a type tag followed by the
+ * data), other serializable keys with Java serialization (restricted by an object input filter when read).
+ * <p>
+ * Keys from untrusted sources (such as messages received from other nodes, see {@link #readUntrusted(DataInput, int)})
+ * are only accepted when encoded natively: deserializing arbitrary classes from the network would allow remote
+ * code execution through deserialization gadgets. Lengths are always checked before allocating.
+ *
+ * @author pwalser
+ * @since 2022-01-16
+ */
+public final class KeyCodec {
+
+    private final static byte KEY_STRING = 1;
+    private final static byte KEY_INTEGER = 2;
+    private final static byte KEY_LONG = 3;
+    private final static byte KEY_UUID = 4;
+    private final static byte KEY_COMPACT = 5;
+    private final static byte KEY_SERIALIZED = 6;
+    private final static byte KEY_TENANT = 7;
+    private final static ObjectInputFilter KEY_FILTER = ObjectInputFilter.Config.createFilter("maxdepth=16;maxrefs=1024;maxbytes=65536");
+    private final static int MAXIMUM_KEY_LENGTH = 1 << 20;
+
+    private KeyCodec() {
+
+    }
+
+    /**
+     * Checks if a key can be encoded.
+     *
+     * @param key key
+     * @return true if the key can be encoded (is serializable)
+     */
+    public static boolean isEncodable(Object key) {
+        if (key instanceof TenantKey) {
+            return isEncodable(((TenantKey) key).getKey());
+        }
+        return key instanceof Serializable;
+    }
+
+    /**
+     * Checks if a key can be encoded natively (without Java serialization), as required to send it to other nodes.
+     *
+     * @param key key
+     * @return true if the key can be encoded natively
+     */
+    public static boolean isNativelyEncodable(Object key) {
+        if (key instanceof TenantKey) {
+            return isNativelyEncodable(((TenantKey) key).getKey());
+        }
+        return key instanceof String || key instanceof Integer || key instanceof Long || key instanceof UUID
+                || key instanceof CompactKey;
+    }
+
+    /**
+     * Writes a key.
+     *
+     * @param out output, required
+     * @param key key, required (must be encodable)
+     * @throws IOException if the key cannot be written
+     */
+    public static void write(DataOutput out, Object key) throws IOException {
+        if (key instanceof String) {
+            byte[] bytes = ((String) key).getBytes(UTF_8);
+            out.writeByte(KEY_STRING);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        } else if (key instanceof Integer) {
+            out.writeByte(KEY_INTEGER);
+            out.writeInt((Integer) key);
+        } else if (key instanceof Long) {
+            out.writeByte(KEY_LONG);
+            out.writeLong((Long) key);
+        } else if (key instanceof UUID) {
+            out.writeByte(KEY_UUID);
+            out.writeLong(((UUID) key).getMostSignificantBits());
+            out.writeLong(((UUID) key).getLeastSignificantBits());
+        } else if (key instanceof CompactKey) {
+            byte[] bytes = ((CompactKey) key).toBytes();
+            out.writeByte(KEY_COMPACT);
+            out.writeByte(bytes.length);
+            out.write(bytes);
+        } else if (key instanceof TenantKey) {
+            TenantKey tenantKey = (TenantKey) key;
+            out.writeByte(KEY_TENANT);
+            out.writeBoolean(tenantKey.getTenant() != null);
+            if (tenantKey.getTenant() != null) {
+                out.writeUTF(tenantKey.getTenant());
+            }
+            write(out, tenantKey.getKey());
+        } else if (key instanceof Serializable) {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            try (ObjectOutputStream objectOutputStream = new ObjectOutputStream(buffer)) {
+                objectOutputStream.writeObject(key);
+            }
+            out.writeByte(KEY_SERIALIZED);
+            out.writeInt(buffer.size());
+            out.write(buffer.toByteArray());
+        } else {
+            throw new IOException("key is not serializable: " + (key != null ? key.getClass().getName() : null));
+        }
+    }
+
+    /**
+     * Reads a key.
+     *
+     * @param in input, required
+     * @return key
+     * @throws IOException if the key cannot be read
+     */
+    public static Object read(DataInput in) throws IOException {
+        return read(in, true, MAXIMUM_KEY_LENGTH, true);
+    }
+
+    /**
+     * Reads a key from an untrusted source, such as a message received from another node. Keys encoded with Java
+     * serialization are rejected, and lengths are checked against the number of available bytes.
+     *
+     * @param in        input, required
+     * @param available number of bytes available in the input
+     * @return key
+     * @throws IOException if the key cannot be read, or is not encoded natively
+     */
+    public static Object readUntrusted(DataInput in, int available) throws IOException {
+        return read(in, true, available, false);
+    }
+
+    private static Object read(DataInput in, boolean tenantKeyAllowed, int maximumLength, boolean serializedAllowed) throws IOException {
+        byte tag = in.readByte();
+        switch (tag) {
+            case KEY_STRING:
+                return new String(readBytes(in, in.readInt(), maximumLength), UTF_8);
+            case KEY_INTEGER:
+                return in.readInt();
+            case KEY_LONG:
+                return in.readLong();
+            case KEY_UUID:
+                return new UUID(in.readLong(), in.readLong());
+            case KEY_COMPACT:
+                return CompactKey.of(readBytes(in, in.readByte(), maximumLength));
+            case KEY_SERIALIZED:
+                if (!serializedAllowed) {
+                    throw new IOException("serialized keys are not accepted from untrusted sources");
+                }
+                try (ObjectInputStream objectInputStream = new ObjectInputStream(new ByteArrayInputStream(readBytes(in, in.readInt(), maximumLength)))) {
+                    objectInputStream.setObjectInputFilter(KEY_FILTER);
+                    return objectInputStream.readObject();
+                } catch (ClassNotFoundException ex) {
+                    throw new IOException("incompatible key: " + ex.getMessage(), ex);
+                }
+            case KEY_TENANT:
+                if (!tenantKeyAllowed) {
+                    throw new IOException("nested tenant key");
+                }
+                String tenant = in.readBoolean() ? in.readUTF() : null;
+                return new TenantKey(tenant, read(in, false, maximumLength, serializedAllowed));
+            default:
+                throw new IOException("unknown key type " + tag);
+        }
+    }
+
+    private static byte[] readBytes(DataInput in, int length, int maximumLength) throws IOException {
+        if (length < 0) {
+            throw new IOException("negative length");
+        }
+        if (length > maximumLength) {
+            throw new IOException("length " + length + " exceeds the maximum of " + maximumLength);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,126 @@
+package ch.frostnova.spring.boot.platform.core.cache;
+
+import ch.frostnova.spring.boot.platform.core.cache.engine.PlatformCache;
+import ch.frostnova.spring.boot.platform.core.cache.engine.PlatformCacheProperties;
+import org.springframework.cache.Cache;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Near cache of a {@link TypeSafeCache}: a small, bounded on-heap cache with a short time to live, in front of the
+ * backing cache. Values read from the backing cache are put in the near cache, writes and evictions invalidate it.
+ * <p>
+ * Populating the near cache after a backing cache read races with concurrent writes: a reader could put a value it
+ * read before a concurrent write in the near cache after the write invalidated it, and the stale value would be
+ * served until it expires. To prevent this, each key has a version (striped, per hash of the key), which is
+ * incremented whenever the key is invalidated (and all versions when the near cache is cleared). Readers take the
+ * version before reading the backing cache, and the value they read is only kept in the near cache if the version
+ * did not change in the meantime (verified after the put, as an invalidation can race with the put itself).
+ * Collisions of the striped versions only cause spurious near cache misses.
+ *
+ * @author pwalser
+ * @since 2022-01-16
+ */
+final class NearCache {
+
+    private final static int VERSION_STRIPES = 1024;
+
+    private final PlatformCache cache;
+    private final AtomicLongArray versions = new AtomicLongArray(VERSION_STRIPES);
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * Create a near cache.
+     *
+     * @param name cache name, required
+     * @param spec near cache specification, required (all values resolved)
+     */
+    NearCache(String name, PlatformCacheProperties.CacheSpec spec) {
+        cache = new PlatformCache(name, spec);
+    }
+
+    /**
+     * The cache holding the near cache entries.
+     *
+     * @return cache
+     */
+    PlatformCache cache() {
+        return cache;
+    }
+
+    /**
+     * Reads a value from the near cache.
+     *
+     * @param key internal key
+     * @return value wrapper, or null if not present
+     */
+    Cache.ValueWrapper get(Object key) {
+        return cache.get(key);
+    }
+
+    /**
+     * Reads multiple values from the near cache.
+     *
+     * @param keys internal keys
+     * @return entries present in the near cache
+     */
+    Map<Object, Cache.ValueWrapper> getAll(Collection<Object> keys) {
+        return cache.getAll(keys);
+    }
+
+    /**
+     * Current version of the key, to be taken before reading the value from the backing cache.
+     *
+     * @param key internal key
+     * @return version
+     */
+    long version(Object key) {
+        // both counters only increase, so their sum changes whenever one of them changes
+        return versions.get(stripe(key)) + generation.get();
+    }
+
+    /**
+     * Puts a value read from the backing cache in the near cache, unless the key was invalidated since the version
+     * was taken.
+     *
+     * @param key     internal key
+     * @param value   value read from the backing cache
+     * @param version version taken before reading the backing cache
+     */
+    void populate(Object key, Object value, long version) {
+        if (version(key) != version) {
+            return;
+        }
+        cache.put(key, value);
+        if (version(key) != version) {
+            // invalidated concurrently, the invalidation may have happened before the put
+            cache.evict(key);
+        }
+    }
+
+    /**
+     * Invalidates a key: evicts it, and prevents concurrent readers from populating it with a value read before.
+     *
+     * @param key internal key
+     */
+    void invalidate(Object key) {
+        versions.incrementAndGet(stripe(key));
+        cache.evict(key);
+    }
+
+    /**
+     * Invalidates all keys.
+     */
+    void invalidateAll() {
+        generation.incrementAndGet();
+        cache.clear();
+    }
+
+    private static int stripe(Object key) {
+        int hash = key.hashCode();
+        return (hash ^ (hash >>> 16)) & (VERSION_STRIPES - 1);
+    }
+}
@@ -0,0 +1,118 @@
+package ch.frostnova.spring.boot.platform.core.cache;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded set of keys known to be absent ("not found"), with a time to live. The markers are kept in a fixed-size,
+ * direct-mapped table (one slot per hash bucket): adding a key replaces the marker of any other key in the same
+ * slot, so the size is bounded without any eviction bookkeeping. Markers are compared with the actual key, so a key
+ * is never reported as absent because of a hash collision (unlike with a Bloom filter), a collision only causes a
+ * marker to be dropped early. All operations are lock-free.
+ *
+ * @author pwalser
+ * @since 2022-01-16
+ */
+final class NegativeCache {
+
+    private final AtomicReferenceArray<Marker> markers;
+    private final int mask;
+    private final long timeToLiveNanos;
+
+    /**
+     * Create a negative cache.
+     *
+     * @param maximumSize maximum number of markers (rounded up to the next power of two), at least 1
+     * @param timeToLive  time to live of markers, required (positive)
+     */
+    NegativeCache(int maximumSize, Duration timeToLive) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("maximumSize must be at least 1");
+        }
+        if (timeToLive == null || timeToLive.isZero() || timeToLive.isNegative()) {
+            throw new IllegalArgumentException("timeToLive must be positive");
+        }
+        int capacity = Integer.highestOneBit(Math.min(maximumSize, 1 << 30));
+        if (capacity < maximumSize) {
+            capacity <<= 1;
+        }
+        this.markers = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+        this.timeToLiveNanos = timeToLive.toNanos();
+    }
+
+    private int slot(Object key) {
+        int hash = key.hashCode();
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    /**
+     * Number of slots (maximum number of markers).
+     *
+     * @return capacity
+     */
+    int capacity() {
+        return markers.length();
+    }
+
+    /**
+     * Checks if the key is marked as absent (and the marker is not expired).
+     *
+     * @param key key, required
+     * @return true if the key is known to be absent
+     */
+    boolean contains(Object key) {
+        int slot = slot(key);
+        Marker marker = markers.get(slot);
+        if (marker == null || !marker.key.equals(key)) {
+            return false;
+        }
+        if (System.nanoTime() - marker.expiresAt >= 0) {
+            markers.compareAndSet(slot, marker, null);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Marks the key as absent.
+     *
+     * @param key key, required
+     */
+    void add(Object key) {
+        markers.set(slot(key), new Marker(key, System.nanoTime() + timeToLiveNanos));
+    }
+
+    /**
+     * Removes the marker of the key (if present).
+     *
+     * @param key key, required
+     */
+    void remove(Object key) {
+        int slot = slot(key);
+        Marker marker = markers.get(slot);
+        if (marker != null && marker.key.equals(key)) {
+            markers.compareAndSet(slot, marker, null);
+        }
+    }
+
+    /**
+     * Removes all markers.
+     */
+    void clear() {
+        for (int i = 0; i < markers.length(); i++) {
+            markers.set(i, null);
+        }
+    }
+
+    private static final class Marker {
+
+        private final Object key;
+        private final long expiresAt;
+
+        private Marker(Object key, long expiresAt) {
+            this.key = key;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
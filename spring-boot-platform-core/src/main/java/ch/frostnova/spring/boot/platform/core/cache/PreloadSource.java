@@ -0,0 +1,72 @@
+package ch.frostnova.spring.boot.platform.core.cache;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Source for preloading a {@link TypeSafeCache} on startup (see {@link TypeSafeCache#preloadSource()}): the keys to
+ * preload, and a batch producer for their values. The keys are split into batches, which are loaded in parallel.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ * @author pwalser
+ * @since 2022-01-16
+ */
+public interface PreloadSource<K, V> {
+
+    /**
+     * Keys to preload. The stream is consumed sequentially, and closed after the preload.
+     *
+     * @return keys
+     */
+    Stream<K> keys();
+
+    /**
+     * Loads the values for a batch of keys (called concurrently for different batches, each in a new task scope).
+     *
+     * @param keys keys
+     * @return values (keys without value are not cached)
+     */
+    Map<K, V> load(Set<K> keys);
+
+    /**
+     * Maximum number of keys per batch. The default is 100.
+     *
+     * @return batch size
+     */
+    default int batchSize() {
+        return 100;
+    }
+
+    /**
+     * Create a preload source.
+     *
+     * @param keys          supplies the keys, required
+     * @param batchProducer loads the values for a batch of keys, required
+     * @param <K>           key type
+     * @param <V>           value type
+     * @return preload source
+     */
+    static <K, V> PreloadSource<K, V> of(Supplier<Stream<K>> keys, Function<Set<K>, Map<K, V>> batchProducer) {
+        if (keys == null) {
+            throw new IllegalArgumentException("keys are required");
+        }
+        if (batchProducer == null) {
+            throw new IllegalArgumentException("batchProducer is required");
+        }
+        return new PreloadSource<>() {
+            @Override
+            public Stream<K> keys() {
+                return keys.get();
+            }
+
+            @Override
+            public Map<K, V> load(Set<K> batch) {
+                return batchProducer.apply(batch);
+            }
+        };
+    }
+}
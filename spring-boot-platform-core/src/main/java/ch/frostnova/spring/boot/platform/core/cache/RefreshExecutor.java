@@ -0,0 +1,59 @@
+package ch.frostnova.spring.boot.platform.core.cache;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared bounded executor for asynchronous cache refreshes. The number of threads and the queue are bounded: when
+ * saturated, new refreshes are rejected, and the stale value keeps being served until a later read retries.
+ *
+ * @author pwalser
+ * @since 2022-01-11
+ */
+final class RefreshExecutor {
+
+    private final static int QUEUE_CAPACITY = 1024;
+    private final static long KEEP_ALIVE_SECONDS = 60;
+
+    private RefreshExecutor() {
+
+    }
+
+    /**
+     * Shared executor, created on first use.
+     *
+     * @return executor
+     */
+    static Executor shared() {
+        return Holder.EXECUTOR;
+    }
+
+    private static class Holder {
+
+        private final static Executor EXECUTOR = createExecutor();
+
+        private static Executor createExecutor() {
+            int threads = Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(QUEUE_CAPACITY), new DaemonThreadFactory());
+            executor.allowCoreThreadTimeOut(true);
+            return executor;
+        }
+    }
+
+    private static class DaemonThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger threadNumber = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "cache-refresh-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
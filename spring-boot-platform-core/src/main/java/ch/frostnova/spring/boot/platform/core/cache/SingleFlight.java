@@ -0,0 +1,78 @@
+package ch.frostnova.spring.boot.platform.core.cache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Deduplicates concurrent loads per key: the first caller for a key runs the loader, concurrent callers for the
+ * same key wait for and share its result (or exception). Entries are removed as soon as the load completes,
+ * successfully or not, so nothing is retained between loads.
+ *
+ * @param <V> value type
+ * @author pwalser
+ * @since 2022-01-09
+ */
+final class SingleFlight<V> {
+
+    private final ConcurrentMap<Object, Flight<V>> flights = new ConcurrentHashMap<>();
+
+    /**
+     * Runs the loader for the key, unless a load for the same key is already in progress, in which case
+     * the result of that load is awaited and returned.
+     *
+     * @param key    key, required
+     * @param loader loader, required
+     * @return loaded value
+     */
+    V execute(Object key, Supplier<V> loader) {
+        Flight<V> flight = new Flight<>();
+        Flight<V> existing = flights.putIfAbsent(key, flight);
+        if (existing != null) {
+            return await(existing);
+        }
+        try {
+            V value = loader.get();
+            flight.complete(value);
+            return value;
+        } catch (RuntimeException | Error ex) {
+            flight.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            flights.remove(key, flight);
+        }
+    }
+
+    /**
+     * Number of loads currently in progress.
+     *
+     * @return number of loads in flight
+     */
+    int size() {
+        return flights.size();
+    }
+
+    private V await(Flight<V> flight) {
+        if (flight.owner == Thread.currentThread()) {
+            throw new IllegalStateException("Recursive load of the same key");
+        }
+        try {
+            return flight.join();
+        } catch (CompletionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw ex;
+        }
+    }
+
+    private static class Flight<V> extends CompletableFuture<V> {
+        private final Thread owner = Thread.currentThread();
+    }
+}
@@ -0,0 +1,166 @@
+package ch.frostnova.spring.boot.platform.core.cache;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.springframework.cache.Cache;
+
+import java.lang.reflect.Array;
+import java.time.temporal.Temporal;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Estimates the retained heap size of common value shapes (assuming a 64 bit JVM with compressed references):
+ * strings, boxed primitives, arrays, maps, collections, Jackson trees (JsonNode), and cache value wrappers.
+ * Nested values are estimated recursively (up to a maximum depth), other objects are estimated with a fixed size.
+ * Containers (maps, collections, arrays, JSON objects and arrays) are counted once, even when they are referenced
+ * several times (shared or self-referencing), so the cost and the estimate are bounded by the size of the object graph.
+ * <p>
+ * The estimate is meant to size caches against a memory budget.
+ *
+ * @author pwalser
+ * @since 2022-01-13
+ */
+public final class SizeEstimator {
+
+    private final static int OBJECT_HEADER = 16;
+    private final static int ARRAY_HEADER = 16;
+    private final static int REFERENCE = 4;
+    private final static int STRING = 24 + ARRAY_HEADER;
+    private final static int MAP_ENTRY = 32 + REFERENCE;
+    private final static int COLLECTION_ELEMENT = 8;
+    private final static int UNKNOWN_OBJECT = 64;
+    private final static int MAX_DEPTH = 16;
+
+    private SizeEstimator() {
+
+    }
+
+    /**
+     * Estimate the retained size of the given object.
+     *
+     * @param object object, optional
+     * @return estimated size in bytes (0 for null)
+     */
+    public static long estimate(Object object) {
+        return estimate(object, 0, Collections.newSetFromMap(new IdentityHashMap<>()));
+    }
+
+    private static long estimate(Object object, int depth, Set<Object> visited) {
+        if (object == null) {
+            return 0;
+        }
+        if (depth > MAX_DEPTH) {
+            return UNKNOWN_OBJECT;
+        }
+        if (object instanceof String) {
+            // compact strings: one byte per character (Latin-1)
+            return align(STRING + ((String) object).length());
+        }
+        if (object instanceof Integer || object instanceof Short || object instanceof Byte
+                || object instanceof Character || object instanceof Float || object instanceof Boolean) {
+            return OBJECT_HEADER;
+        }
+        if (object instanceof Number || object instanceof Date || object instanceof Temporal || object instanceof UUID) {
+            return 24 + OBJECT_HEADER;
+        }
+        if (object instanceof Enum) {
+            // shared constant
+            return 0;
+        }
+        if (object instanceof CompactKey) {
+            return ((CompactKey) object).bits() == 128 ? 32 : 48;
+        }
+        if (object instanceof Cache.ValueWrapper) {
+            return OBJECT_HEADER + estimate(((Cache.ValueWrapper) object).get(), depth + 1, visited);
+        }
+        if (object instanceof JsonNode) {
+            return estimateJson((JsonNode) object, depth, visited);
+        }
+        if ((object instanceof Map || object instanceof Collection || object instanceof Object[]) && !visited.add(object)) {
+            // already counted
+            return 0;
+        }
+        if (object instanceof Map) {
+            long size = 48 + ARRAY_HEADER;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) object).entrySet()) {
+                size += MAP_ENTRY + REFERENCE + estimate(entry.getKey(), depth + 1, visited) + estimate(entry.getValue(), depth + 1, visited);
+            }
+            return align(size);
+        }
+        if (object instanceof Collection) {
+            long size = 40 + ARRAY_HEADER;
+            for (Object element : (Collection<?>) object) {
+                size += COLLECTION_ELEMENT + estimate(element, depth + 1, visited);
+            }
+            return align(size);
+        }
+        if (object.getClass().isArray()) {
+            return estimateArray(object, depth, visited);
+        }
+        return UNKNOWN_OBJECT;
+    }
+
+    private static long estimateJson(JsonNode node, int depth, Set<Object> visited) {
+        if (depth > MAX_DEPTH) {
+            return UNKNOWN_OBJECT;
+        }
+        if (node.isContainerNode() && !visited.add(node)) {
+            // already counted
+            return 0;
+        }
+        if (node.isObject()) {
+            long size = OBJECT_HEADER + 48 + ARRAY_HEADER;
+            Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                size += MAP_ENTRY + REFERENCE + estimate(field.getKey(), depth + 1, visited) + estimateJson(field.getValue(), depth + 1, visited);
+            }
+            return align(size);
+        }
+        if (node.isArray()) {
+            long size = OBJECT_HEADER + 24 + ARRAY_HEADER;
+            for (JsonNode element : node) {
+                size += REFERENCE + estimateJson(element, depth + 1, visited);
+            }
+            return align(size);
+        }
+        if (node.isTextual()) {
+            return OBJECT_HEADER + estimate(node.textValue(), depth + 1, visited);
+        }
+        if (node.isBinary()) {
+            return OBJECT_HEADER + align(ARRAY_HEADER + node.size());
+        }
+        if (node.isBigDecimal() || node.isBigInteger()) {
+            return OBJECT_HEADER + 48;
+        }
+        // numbers, booleans, null and missing nodes
+        return node.isBoolean() || node.isNull() || node.isMissingNode() ? 0 : 24;
+    }
+
+    private static long estimateArray(Object array, int depth, Set<Object> visited) {
+        if (array instanceof Object[]) {
+            Object[] elements = (Object[]) array;
+            long size = ARRAY_HEADER + (long) REFERENCE * elements.length;
+            for (Object element : elements) {
+                size += estimate(element, depth + 1, visited);
+            }
+            return align(size);
+        }
+        int length = Array.getLength(array);
+        Class<?> type = array.getClass().getComponentType();
+        int elementSize = type == long.class || type == double.class ? 8
+                : type == int.class || type == float.class ? 4
+                : type == short.class || type == char.class ? 2 : 1;
+        return align(ARRAY_HEADER + (long) elementSize * length);
+    }
+
+    private static long align(long size) {
+        return (size + 7) & ~7L;
+    }
+}
@@ -0,0 +1,108 @@
+package ch.frostnova.spring.boot.platform.core.cache;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free statistics counters of a {@link TypeSafeCache}. The counters are striped ({@link LongAdder}), so
+ * concurrent recording does not contend, and recording is cheap enough to be always enabled. Counters can have a
+ * parent (e.g. the counter of a tenant has the counter of the cache as parent), which records the same events.
+ *
+ * @author pwalser
+ * @since 2022-01-14
+ */
+final class StatsCounter {
+
+    private final static long[] LOAD_TIME_BUCKET_NANOS = CacheStats.LOAD_TIME_BUCKETS.stream()
+            .mapToLong(Duration::toNanos)
+            .toArray();
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder putCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+    private final LongAdder loadSuccessCount = new LongAdder();
+    private final LongAdder loadFailureCount = new LongAdder();
+    private final LongAdder totalLoadTime = new LongAdder();
+    private final LongAdder[] loadTimeHistogram = new LongAdder[LOAD_TIME_BUCKET_NANOS.length + 1];
+    private final StatsCounter parent;
+
+    StatsCounter() {
+        this(null);
+    }
+
+    /**
+     * Create a counter.
+     *
+     * @param parent parent counter, optional
+     */
+    StatsCounter(StatsCounter parent) {
+        this.parent = parent;
+        for (int i = 0; i < loadTimeHistogram.length; i++) {
+            loadTimeHistogram[i] = new LongAdder();
+        }
+    }
+
+    void recordHits(int count) {
+        hitCount.add(count);
+        if (parent != null) {
+            parent.recordHits(count);
+        }
+    }
+
+    void recordMisses(int count) {
+        missCount.add(count);
+        if (parent != null) {
+            parent.recordMisses(count);
+        }
+    }
+
+    void recordPuts(int count) {
+        putCount.add(count);
+        if (parent != null) {
+            parent.recordPuts(count);
+        }
+    }
+
+    void recordEvictions(int count) {
+        evictionCount.add(count);
+        if (parent != null) {
+            parent.recordEvictions(count);
+        }
+    }
+
+    /**
+     * Record a load (successful or failed).
+     *
+     * @param loadTimeNanos load time in nanoseconds
+     * @param success       whether the load was successful
+     */
+    void recordLoad(long loadTimeNanos, boolean success) {
+        (success ? loadSuccessCount : loadFailureCount).increment();
+        totalLoadTime.add(loadTimeNanos);
+        int bucket = 0;
+        while (bucket < LOAD_TIME_BUCKET_NANOS.length && loadTimeNanos > LOAD_TIME_BUCKET_NANOS[bucket]) {
+            bucket++;
+        }
+        loadTimeHistogram[bucket].increment();
+        if (parent != null) {
+            parent.recordLoad(loadTimeNanos, success);
+        }
+    }
+
+    /**
+     * Snapshot of the current statistics. The counters are read individually, concurrent updates can cause
+     * slight inconsistencies between the counters.
+     *
+     * @param cacheName cache name
+     * @return statistics
+     */
+    CacheStats snapshot(String cacheName) {
+        long[] histogram = new long[loadTimeHistogram.length];
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] = loadTimeHistogram[i].sum();
+        }
+        return new CacheStats(cacheName, hitCount.sum(), missCount.sum(), putCount.sum(), evictionCount.sum(),
+                loadSuccessCount.sum(), loadFailureCount.sum(), totalLoadTime.sum(), histogram);
+    }
+}
@@ -0,0 +1,65 @@
+package ch.frostnova.spring.boot.platform.core.cache;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Internal cache key of a tenant-partitioned {@link TypeSafeCache}: the key, prefixed with the tenant it belongs to
+ * (null for entries without tenant). The tenant is part of the key, so the same key of different tenants never
+ * collides, and the tenant of an entry is known wherever the key is used (partition routing, snapshots and
+ * invalidation messages).
+ *
+ * @author pwalser
+ * @since 2022-01-16
+ */
+public final class TenantKey implements Serializable {
+
+    private final String tenant;
+    private final Object key;
+    private final int hash;
+
+    /**
+     * Create a tenant key.
+     *
+     * @param tenant tenant, optional
+     * @param key    key, required
+     */
+    public TenantKey(String tenant, Object key) {
+        if (key == null) {
+            throw new IllegalArgumentException("key is required");
+        }
+        this.tenant = tenant;
+        this.key = key;
+        this.hash = 31 * Objects.hashCode(tenant) + key.hashCode();
+    }
+
+    public String getTenant() {
+        return tenant;
+    }
+
+    public Object getKey() {
+        return key;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof TenantKey)) {
+            return false;
+        }
+        TenantKey other = (TenantKey) o;
+        return hash == other.hash && Objects.equals(tenant, other.tenant) && key.equals(other.key);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return tenant + ":" + key;
+    }
+}
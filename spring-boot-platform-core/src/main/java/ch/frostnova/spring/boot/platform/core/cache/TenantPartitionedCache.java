@@ -0,0 +1,276 @@
+package ch.frostnova.spring.boot.platform.core.cache;
+
+import org.springframework.cache.Cache;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Cache partitioned by tenant: entries are stored in a separate cache (partition) per tenant, so each tenant has its
+ * own eviction budget, and a tenant filling its partition does not evict the entries of other tenants. The keys
+ * are {@link TenantKey}s, which determine the partition. Entries without tenant are stored in a shared partition.
+ * <p>
+ * The extension interfaces ({@link BulkCache}, {@link ExpiringCache}, {@link IterableCache}, {@link WeightedCache},
+ * {@link EvictingCache}) are delegated to the partitions supporting them, with the same fallbacks as in
+ * {@link TypeSafeCache} otherwise.
+ *
+ * @author pwalser
+ * @since 2022-01-16
+ */
+final class TenantPartitionedCache implements Cache, BulkCache, ExpiringCache, IterableCache, WeightedCache, EvictingCache {
+
+    private final String name;
+    private final Function<String, Cache> partitionFactory;
+    private final Cache sharedPartition;
+    private final ConcurrentMap<String, Cache> partitions = new ConcurrentHashMap<>();
+    private final List<Consumer<Object>> evictionListeners = new CopyOnWriteArrayList<>();
+    private final Set<Cache> observedPartitions = Collections.newSetFromMap(new IdentityHashMap<>());
+    private volatile Weigher<Object> weigher;
+
+    /**
+     * Create a tenant-partitioned cache.
+     *
+     * @param name             cache name, required
+     * @param partitionFactory creates the partition for a tenant (null: the shared partition), required
+     */
+    TenantPartitionedCache(String name, Function<String, Cache> partitionFactory) {
+        if (name == null) {
+            throw new IllegalArgumentException("name is required");
+        }
+        if (partitionFactory == null) {
+            throw new IllegalArgumentException("partitionFactory is required");
+        }
+        this.name = name;
+        this.partitionFactory = partitionFactory;
+        this.sharedPartition = partitionFactory.apply(null);
+        observeEvictions(sharedPartition);
+    }
+
+    /**
+     * Tenants with a partition.
+     *
+     * @return tenants
+     */
+    Set<String> tenants() {
+        return Collections.unmodifiableSet(partitions.keySet());
+    }
+
+    /**
+     * Clears the partition of a tenant.
+     *
+     * @param tenant tenant, optional (null: shared partition)
+     */
+    void clear(String tenant) {
+        Optional.ofNullable(tenant != null ? partitions.get(tenant) : sharedPartition).ifPresent(Cache::clear);
+    }
+
+    private Cache partition(String tenant) {
+        if (tenant == null) {
+            return sharedPartition;
+        }
+        return partitions.computeIfAbsent(tenant, t -> {
+            Cache partition = partitionFactory.apply(t);
+            applyWeigher(partition);
+            observeEvictions(partition);
+            return partition;
+        });
+    }
+
+    private Cache partitionOf(Object key) {
+        if (!(key instanceof TenantKey)) {
+            throw new IllegalArgumentException("tenant key required, but was " + key);
+        }
+        return partition(((TenantKey) key).getTenant());
+    }
+
+    /**
+     * Distinct partitions (tenants may share a partition, when the cache manager could not provide a separate one).
+     *
+     * @return partitions
+     */
+    private Collection<Cache> distinctPartitions() {
+        Set<Cache> distinct = Collections.newSetFromMap(new IdentityHashMap<>());
+        distinct.add(sharedPartition);
+        distinct.addAll(partitions.values());
+        return distinct;
+    }
+
+    private <T> Map<Cache, Map<Object, T>> byPartition(Map<?, T> entries) {
+        Map<Cache, Map<Object, T>> result = new IdentityHashMap<>();
+        entries.forEach((key, value) -> result.computeIfAbsent(partitionOf(key), p -> new LinkedHashMap<>()).put(key, value));
+        return result;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return this;
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        return partitionOf(key).get(key);
+    }
+
+    @Override
+    public <T> T get(Object key, Class<T> type) {
+        return partitionOf(key).get(key, type);
+    }
+
+    @Override
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        return partitionOf(key).get(key, valueLoader);
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        partitionOf(key).put(key, value);
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        return partitionOf(key).putIfAbsent(key, value);
+    }
+
+    @Override
+    public void evict(Object key) {
+        partitionOf(key).evict(key);
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        return partitionOf(key).evictIfPresent(key);
+    }
+
+    @Override
+    public void clear() {
+        distinctPartitions().forEach(Cache::clear);
+    }
+
+    @Override
+    public boolean invalidate() {
+        boolean invalidated = false;
+        for (Cache partition : distinctPartitions()) {
+            invalidated |= partition.invalidate();
+        }
+        return invalidated;
+    }
+
+    @Override
+    public Map<Object, ValueWrapper> getAll(Collection<?> keys) {
+        Map<Object, Object> keyMap = new LinkedHashMap<>();
+        keys.forEach(key -> keyMap.put(key, key));
+        Map<Object, ValueWrapper> result = new LinkedHashMap<>();
+        byPartition(keyMap).forEach((partition, partitionKeys) -> {
+            if (partition instanceof BulkCache) {
+                result.putAll(((BulkCache) partition).getAll(partitionKeys.keySet()));
+            } else {
+                partitionKeys.keySet().forEach(key -> Optional.ofNullable(partition.get(key)).ifPresent(value -> result.put(key, value)));
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public void putAll(Map<?, ?> entries) {
+        byPartition(entries).forEach((partition, partitionEntries) -> {
+            if (partition instanceof BulkCache) {
+                ((BulkCache) partition).putAll(partitionEntries);
+            } else {
+                partitionEntries.forEach(partition::put);
+            }
+        });
+    }
+
+    @Override
+    public void put(Object key, Object value, Duration expireAfter) {
+        Cache partition = partitionOf(key);
+        if (partition instanceof ExpiringCache) {
+            ((ExpiringCache) partition).put(key, value, expireAfter);
+        } else {
+            partition.put(key, value);
+        }
+    }
+
+    @Override
+    public void putAll(Map<?, ?> entries, Function<Object, Duration> expireAfter) {
+        byPartition(entries).forEach((partition, partitionEntries) -> {
+            if (partition instanceof ExpiringCache) {
+                ((ExpiringCache) partition).putAll(partitionEntries, expireAfter);
+            } else {
+                partitionEntries.forEach(partition::put);
+            }
+        });
+    }
+
+    @Override
+    public void forEachEntry(EntryVisitor visitor) {
+        distinctPartitions().stream()
+                .filter(partition -> partition instanceof IterableCache)
+                .forEach(partition -> ((IterableCache) partition).forEachEntry(visitor));
+    }
+
+    @Override
+    public boolean isWeighted() {
+        return sharedPartition instanceof WeightedCache && ((WeightedCache) sharedPartition).isWeighted();
+    }
+
+    @Override
+    public void setWeigher(Weigher<Object> weigher) {
+        this.weigher = weigher;
+        distinctPartitions().forEach(this::applyWeigher);
+    }
+
+    private void applyWeigher(Cache partition) {
+        Weigher<Object> currentWeigher = weigher;
+        if (currentWeigher != null && partition instanceof WeightedCache && ((WeightedCache) partition).isWeighted()) {
+            ((WeightedCache) partition).setWeigher(currentWeigher);
+        }
+    }
+
+    @Override
+    public void addEvictionListener(Consumer<Object> listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("listener is required");
+        }
+        evictionListeners.add(listener);
+    }
+
+    /**
+     * Forwards the evictions of a partition to the eviction listeners (once per distinct partition).
+     *
+     * @param partition partition
+     */
+    private void observeEvictions(Cache partition) {
+        if (!(partition instanceof EvictingCache)) {
+            return;
+        }
+        synchronized (observedPartitions) {
+            if (!observedPartitions.add(partition)) {
+                return;
+            }
+        }
+        ((EvictingCache) partition).addEvictionListener(key -> {
+            for (Consumer<Object> listener : evictionListeners) {
+                listener.accept(key);
+            }
+        });
+    }
+}
@@ -0,0 +1,54 @@
+package ch.frostnova.spring.boot.platform.core.cache;
+
+import org.springframework.cache.Cache;
+
+import java.io.Serializable;
+
+/**
+ * Cached value with the time it was written, stored by a {@link TypeSafeCache} in refresh-ahead mode to determine
+ * whether the value is stale (needs to be refreshed) or expired (must no longer be returned).
+ *
+ * @param <V> value type
+ * @author pwalser
+ * @since 2022-01-11
+ */
+final class TimestampedValue<V> implements Cache.ValueWrapper, Serializable {
+
+    private final V value;
+    private final long writtenAt;
+
+    /**
+     * Create a timestamped value.
+     *
+     * @param value     value, optional
+     * @param writtenAt epoch millis when the value was written
+     */
+    TimestampedValue(V value, long writtenAt) {
+        this.value = value;
+        this.writtenAt = writtenAt;
+    }
+
+    @Override
+    public V get() {
+        return value;
+    }
+
+    /**
+     * Time when the value was written.
+     *
+     * @return epoch millis
+     */
+    long writtenAt() {
+        return writtenAt;
+    }
+
+    /**
+     * Age of the value in milliseconds.
+     *
+     * @param now current epoch millis
+     * @return age in milliseconds
+     */
+    long age(long now) {
+        return now - writtenAt;
+    }
+}
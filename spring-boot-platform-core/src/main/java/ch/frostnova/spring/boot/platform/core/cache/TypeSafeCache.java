@@ -1,29 +1,124 @@
 package ch.frostnova.spring.boot.platform.core.cache;
 
+import ch.frostnova.spring.boot.platform.core.cache.invalidation.CacheInvalidationBus;
+import ch.frostnova.spring.boot.platform.core.cache.invalidation.InvalidationListener;
+import ch.frostnova.spring.boot.platform.core.cache.engine.PlatformCacheProperties;
+import ch.frostnova.spring.boot.platform.core.scope.TaskScope;
+import ch.frostnova.spring.boot.platform.core.security.CurrentUserInfo;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheDecorator;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
 import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.unmodifiableSet;
 
 /**
  * A type-safe cache wrapper around the {@link CacheManager}.
+ * <p>
+ * Optionally, the cache can operate in <b>refresh-ahead</b> mode (see {@link #refreshAfter()}): values older than
+ * the refresh age are still returned, but trigger an asynchronous reload, keeping the load latency off the
+ * request path.
+ * <p>
+ * The cache is resolved once on initialization: all operations access it directly (without looking it up by name
+ * again), and are no-op operations when caching is disabled. Cache hits do not allocate, as long as the cache key
+ * and the underlying cache do not.
+ * <p>
+ * Values can also be produced asynchronously (see {@link #getAsync(Serializable, Function)}): the future of a value
+ * being produced is shared by concurrent callers, and the value is cached when the future completes, without holding
+ * a lock or blocking a thread while the value is being produced.
+ * <p>
+ * Optionally, absent values ("not found", produced as null) are remembered in a separate <b>negative cache</b>
+ * (see {@link #negativeCacheTimeToLive()}), with its own, short time to live and size limit, so repeated lookups of
+ * missing keys do not call the producer every time, without competing with the cached values.
+ * <p>
+ * Each cache records statistics (hits, misses, puts, evictions and load times, see {@link #snapshot()}) with
+ * lock-free counters. Evictions include the entries the underlying cache evicted by itself (size limit or expiry),
+ * when it reports them (see {@link EvictingCache}).
+ * <p>
+ * Caches shared by several tenants can be <b>partitioned by tenant</b> (see {@link #tenantPartitioned()}): the
+ * internal keys are prefixed with the tenant of the current user, and each tenant's entries are kept in a separate
+ * cache with its own eviction budget, so a tenant cannot evict the entries of other tenants. Statistics are also
+ * recorded per tenant (see {@link #tenantSnapshots()}), and the entries of a tenant can be cleared separately.
+ * <p>
+ * Optionally, the cache contents can be persisted in a <b>warm-start snapshot</b> (see {@link #snapshotSerializer()}):
+ * the entries are written to a local file on shutdown, and loaded again on startup (while the application context
+ * is initialized, before the application is ready), so a restarted application does not start with an empty cache.
+ * <p>
+ * When a <b>near cache</b> is configured for the cache name (see {@link PlatformCacheProperties#getNearCaches()}),
+ * a small, bounded on-heap cache with a short time to live is placed in front of the cache provided by the cache
+ * manager (e.g. a shared or off-heap cache), so hot keys are served without accessing (and deserializing from) the
+ * backing cache. Writes, evictions and clearing the cache invalidate the near cache of this node (also when they race
+ * with a concurrent read populating the near cache, see {@link NearCache}). Changes made by other nodes to a shared
+ * backing cache become visible after the near cache's time to live at the latest.
+ * <p>
+ * When the {@link CacheInvalidationBus} is enabled, evicting entries and clearing the cache are broadcast to the
+ * other nodes, which apply them to their local caches (backing and near cache), so node-local caches do not serve
+ * stale values after an explicit invalidation. Publishing is asynchronous and does not block the caller.
  *
  * @author pwalser
  * @since 2021-11-14
  */
 public abstract class TypeSafeCache<K extends Serializable, V> {
 
+    private final static long TIMESTAMPED_VALUE_OVERHEAD = 24;
+
     private final boolean required;
     private final Logger logger = LoggerFactory.getLogger(getClass());
     private final String cacheName;
+    private final SingleFlight<V> loads = new SingleFlight<>();
+    private final ConcurrentMap<Object, CompletableFuture<V>> asyncLoads = new ConcurrentHashMap<>();
+    private final StatsCounter stats = new StatsCounter();
+    private final CacheTenancy tenancy = new CacheTenancy(stats);
+    private final Set<Object> refreshing = ConcurrentHashMap.newKeySet();
+    private long refreshAfterMillis;
+    private long expireAfterWriteMillis;
     @Autowired(required = false)
     private CacheManager cacheManager;
+    @Autowired(required = false)
+    private PlatformCacheProperties cacheProperties;
+    @Autowired(required = false)
+    private CacheInvalidationBus invalidationBus;
+    @Autowired(required = false)
+    private CurrentUserInfo currentUserInfo;
+    @Value("${ch.frostnova.platform.cache.snapshot-directory:${java.io.tmpdir}/cache-snapshots}")
+    private String snapshotDirectory;
+    private Cache cache;
+    private Cache targetCache;
+    private NearCache nearCache;
+    private NegativeCache negativeCache;
+    private TenantPartitionedCache partitionedCache;
+    private CacheInvalidations invalidations;
 
 
     /**
@@ -49,14 +144,95 @@ public abstract class TypeSafeCache<K extends Serializable, V> {
         this.required = required;
     }
 
+    private static long toMillis(Duration duration) {
+        return duration != null && !duration.isNegative() && !duration.isZero() ? duration.toMillis() : 0;
+    }
+
     @PostConstruct
     private void checkCacheEnabled() {
+        refreshAfterMillis = toMillis(refreshAfter());
+        expireAfterWriteMillis = toMillis(expireAfterWrite());
+        if (refreshAfterMillis > 0 && expireAfterWriteMillis > 0 && refreshAfterMillis >= expireAfterWriteMillis) {
+            throw new IllegalStateException("refreshAfter must be shorter than expireAfterWrite");
+        }
+        cache = cacheManager != null ? cacheManager.getCache(cacheName) : null;
+        if (cache != null && tenantPartitioned()) {
+            Cache sharedCache = cache;
+            partitionedCache = new TenantPartitionedCache(cacheName, tenant -> tenant == null ? targetCache(sharedCache)
+                    : targetCache(Optional.ofNullable(cacheManager.getCache(PlatformCacheProperties.partitionName(cacheName, tenant))).orElse(sharedCache)));
+            cache = sharedCache instanceof TransactionAwareCacheDecorator ? new TransactionAwareCacheDecorator(partitionedCache) : partitionedCache;
+            tenancy.partition(currentUserInfo);
+        }
+        targetCache = cache != null ? targetCache(cache) : null;
+        PlatformCacheProperties.CacheSpec nearCacheSpec = cache != null && cacheProperties != null ? cacheProperties.resolveNearCache(cacheName) : null;
+        nearCache = nearCacheSpec != null ? new NearCache(cacheName, nearCacheSpec) : null;
+        Duration negativeCacheTimeToLive = negativeCacheTimeToLive();
+        negativeCache = cache != null && toMillis(negativeCacheTimeToLive) > 0
+                ? new NegativeCache(negativeCacheMaximumSize(), negativeCacheTimeToLive) : null;
+        if (targetCache instanceof EvictingCache) {
+            ((EvictingCache) targetCache).addEvictionListener(key -> stats(key).recordEvictions(1));
+        }
+        Weigher<? super V> weigher = weigher();
+        if (weigher != null) {
+            for (Cache weightedCache : new Cache[]{targetCache, nearCache != null ? nearCache.cache() : null}) {
+                if (weightedCache instanceof WeightedCache && ((WeightedCache) weightedCache).isWeighted()) {
+                    ((WeightedCache) weightedCache).setWeigher(storeValueWeigher(weigher));
+                }
+            }
+        }
         boolean enabled = isEnabled();
         if (required && !enabled) {
             logger.error("cache {} is required but unavailable", cacheName);
             throw new IllegalStateException("caching is required but disabled");
         }
-        logger.info("cache '{}' {}", cacheName, enabled ? "enabled" : "disabled");
+        logger.info("cache '{}' {}", cacheName, !enabled ? "disabled" : nearCache == null ? "enabled"
+                : "enabled, with near cache (time to live " + nearCacheSpec.getTimeToLive() + ")");
+        invalidations = new CacheInvalidations(cacheName, enabled ? invalidationBus : null, new InvalidationListener() {
+            @Override
+            public void invalidate(Object key) {
+                if (evictInternal(key)) {
+                    stats(key).recordEvictions(1);
+                }
+            }
+
+            @Override
+            public void invalidateAll() {
+                clearLocal();
+            }
+
+            @Override
+            public void invalidatePartition(String partition) {
+                clearLocal(partition);
+            }
+        });
+        ValueSerializer<V> serializer = snapshotSerializer();
+        if (enabled && serializer != null && snapshotDirectory != null) {
+            loadSnapshot(serializer);
+        }
+    }
+
+    @PreDestroy
+    private void writeSnapshot() {
+        ValueSerializer<V> serializer = snapshotSerializer();
+        if (serializer == null || snapshotDirectory == null || !(targetCache instanceof IterableCache)) {
+            return;
+        }
+        Path file = snapshotFile();
+        try {
+            long count = CacheSnapshot.write(file, cacheName, serializer, snapshotEntries((IterableCache) targetCache));
+            logger.info("cache '{}': wrote {} entries to snapshot {}", cacheName, count, file);
+        } catch (IOException | RuntimeException ex) {
+            logger.warn("cache '{}': failed to write snapshot {}: {}", cacheName, file, ex.toString());
+        }
+    }
+
+    /**
+     * Name of the cache.
+     *
+     * @return cache name
+     */
+    public String getCacheName() {
+        return cacheName;
     }
 
     /**
@@ -66,12 +242,13 @@ public abstract class TypeSafeCache<K extends Serializable, V> {
      * @return caching enabled
      */
     public boolean isEnabled() {
-        return optionalCache().isPresent();
+        return cache != null;
     }
 
     /**
      * Calculates the internal cache key for the provided key. By default, the internal key is the same as the external.
-     * For more compact keys (which use less memory, and are faster to check for equality), this method can be overridden.
+     * For more compact keys (which use less memory, and are faster to check for equality), this method can be overridden,
+     * e.g. returning a {@link CompactKey} derived from the key.
      *
      * @param key external key (used when working with this cache), never null
      * @return internally used cache key, never null
@@ -93,13 +270,129 @@ public abstract class TypeSafeCache<K extends Serializable, V> {
     }
 
     /**
-     * Internal cache access, caching may be disabled (no cache manager),
-     * or the requested cache may not be configured.
+     * Soft refresh age, enables the refresh-ahead mode. When a value older than this age is read using
+     * <code>get(key, producer)</code>, the stale value is returned immediately, and one asynchronous reload is
+     * triggered (on the {@link #refreshExecutor()}, in a new task scope). When the reload fails, the stale value
+     * is kept. By default, refresh-ahead is disabled (null).
      *
-     * @return optional cache.
+     * @return refresh age, or null to disable refresh-ahead
      */
-    private Optional<Cache> optionalCache() {
-        return Optional.ofNullable(cacheManager).map(cm -> cm.getCache(cacheName));
+    protected Duration refreshAfter() {
+        return null;
+    }
+
+    /**
+     * Hard expiry of values, after which a value is no longer returned, even when it could not be refreshed.
+     * By default, values only expire according to the configuration of the underlying cache (null).
+     *
+     * @return maximum age of values, or null to rely on the underlying cache's expiry
+     */
+    protected Duration expireAfterWrite() {
+        return null;
+    }
+
+    /**
+     * Determines after which duration a value should expire, which allows individual expiration times per entry
+     * (for example, based on an expiration timestamp of the value). By default, this is the
+     * <code>expireAfterWrite()</code> duration.
+     * <p>
+     * Individual expiration is supported by caches implementing {@link ExpiringCache} (such as the platform caches),
+     * which remove expired entries proactively. Other caches apply their own expiration configuration instead.
+     *
+     * @param key   key, never null
+     * @param value value to cache
+     * @return duration after which the value expires (zero or negative: do not cache), or null to apply the cache's
+     * default expiration
+     */
+    protected Duration expireAfter(K key, V value) {
+        return expireAfterWrite();
+    }
+
+    /**
+     * Weigher for the entries of this cache, used when the underlying cache is bounded by weight (a memory budget,
+     * see {@link WeightedCache}). By default (null), the cache's default weigher is used, which estimates the size
+     * of common value shapes (see {@link SizeEstimator}). Overriding this method allows more accurate estimates
+     * for specific value types.
+     *
+     * @return weigher, or null for the cache's default weigher
+     */
+    protected Weigher<? super V> weigher() {
+        return null;
+    }
+
+    /**
+     * Serializer for the values, enables <b>warm-start snapshots</b>: on shutdown, the (not expired) entries are
+     * written to a snapshot file <code>&lt;snapshot-directory&gt;/&lt;cache name&gt;.snapshot</code>, and loaded
+     * again on startup (with their remaining expiry). The directory is configured with
+     * <code>ch.frostnova.platform.cache.snapshot-directory</code> (default: <code>cache-snapshots</code> in the
+     * temp directory). Snapshots which are corrupt or were written with another serializer version are skipped.
+     * <p>
+     * Snapshots are written from caches which can enumerate their entries ({@link IterableCache}, such as the
+     * platform caches). The internal keys (see {@link #cacheKey(Object)}) are written, keys which are not
+     * serializable are skipped. By default, snapshots are disabled (null).
+     *
+     * @return value serializer, or null to disable snapshots
+     */
+    protected ValueSerializer<V> snapshotSerializer() {
+        return null;
+    }
+
+    /**
+     * Time to live of the markers of the <b>negative cache</b>, which remembers keys for which the producer returned
+     * null (and null is not cached, see {@link #shouldCacheValue(Object)}). The negative cache is consulted before
+     * calling the producer, and markers are removed when a value is put or the key is evicted. By default, the
+     * negative cache is disabled (null).
+     *
+     * @return time to live of absent-key markers, or null to disable the negative cache
+     */
+    protected Duration negativeCacheTimeToLive() {
+        return null;
+    }
+
+    /**
+     * Maximum number of absent-key markers kept by the negative cache (see {@link #negativeCacheTimeToLive()}).
+     * When full, new markers replace older ones. The default is 1000.
+     *
+     * @return maximum number of markers
+     */
+    protected int negativeCacheMaximumSize() {
+        return 1000;
+    }
+
+    /**
+     * Enables partitioning by tenant: the internal keys are prefixed with the tenant of the current user (from the
+     * task-scoped {@link CurrentUserInfo}, if the task scope is active), and the entries of each tenant are stored
+     * in a separate cache <code>{cache name}@{tenant}</code> provided by the cache manager. Unless configured
+     * explicitly, the tenant caches have the settings of the cache, so each tenant gets the configured budget.
+     * Entries without tenant are stored in the cache itself. By default, caches are not partitioned (false).
+     *
+     * @return true to partition the cache by tenant
+     */
+    protected boolean tenantPartitioned() {
+        return false;
+    }
+
+    /**
+     * Source for <b>preloading</b> the cache on startup: the keys to preload and a batch producer. Caches with a
+     * preload source are filled in parallel by the {@link CachePreloader} while the application starts, before it
+     * reports ready (or until the preload timeout expires), so the first requests do not hit a cold cache.
+     * Only missing values are loaded (e.g. when the cache was already filled from a snapshot). By default, caches
+     * are not preloaded (null).
+     *
+     * @return preload source, or null to disable preloading
+     */
+    protected PreloadSource<K, V> preloadSource() {
+        return null;
+    }
+
+    /**
+     * Executor used for asynchronous refreshes in refresh-ahead mode. By default, a shared bounded executor is
+     * used, which skips refreshes when saturated.
+     *
+     * @return executor
+     */
+    protected Executor refreshExecutor() {
+        return RefreshExecutor.shared();
     }
 
     /**
@@ -110,11 +403,8 @@ public abstract class TypeSafeCache<K extends Serializable, V> {
      * @param value value, optional
      */
     public void put(K key, V value) {
-        if (!isEnabled()) {
-            return;
-        }
-        if (shouldCacheValue(value)) {
-            optionalCache().ifPresent(cache -> cache.put(internalKey(key), value));
+        if (cache != null) {
+            put(key, internalKey(key), value);
         }
     }
 
@@ -125,9 +415,7 @@ public abstract class TypeSafeCache<K extends Serializable, V> {
      * @return true if value for that key is currently cached.
      */
     public boolean contains(K key) {
-        return optionalCache()
-                .map(cache -> cache.get(internalKey(key)))
-                .isPresent();
+        return cache != null && read(internalKey(key)) != null;
     }
 
     /**
@@ -143,6 +431,9 @@ public abstract class TypeSafeCache<K extends Serializable, V> {
     /**
      * Lookup the cached value for the given key, or produces and caches it if not yet cached.
      * Returns null if not cached, or null was cached or produced.
+     * <p>
+     * Concurrent calls for the same key are coalesced: only the first caller runs the producer, the other callers
+     * wait for and share its result (or exception), so an expired hot key does not cause a cache stampede.
      *
      * @param key      key, required
      * @param producer optional producer for missing values.
@@ -150,17 +441,192 @@ public abstract class TypeSafeCache<K extends Serializable, V> {
      */
     @SuppressWarnings("unchecked")
     public V get(K key, Function<K, V> producer) {
-        return (V) optionalCache()
-                .map(cache -> cache.get(internalKey(key)))
-                .map(Cache.ValueWrapper.class::cast)
-                .map(Cache.ValueWrapper::get)
-                .orElseGet(() -> Optional.ofNullable(producer)
-                        .map(p -> p.apply(key))
-                        .map(v -> {
-                            put(key, v);
-                            return v;
-                        })
-                        .orElse(null));
+        if (cache == null) {
+            require(key);
+            return producer != null ? producer.apply(key) : null;
+        }
+        Object internalKey = internalKey(key);
+        Cache.ValueWrapper cached = read(internalKey);
+        if (cached != null) {
+            stats(internalKey).recordHits(1);
+            if (producer != null && cached instanceof TimestampedValue) {
+                refreshIfStale(key, internalKey, (TimestampedValue<V>) cached, producer);
+            }
+            return (V) cached.get();
+        }
+        if (producer != null && isAbsent(internalKey)) {
+            stats(internalKey).recordHits(1);
+            return null;
+        }
+        stats(internalKey).recordMisses(1);
+        if (producer == null) {
+            return null;
+        }
+        return loads.execute(internalKey, () -> {
+            // another caller may have produced the value in the meantime
+            Cache.ValueWrapper current = read(internalKey);
+            if (current != null) {
+                return (V) current.get();
+            }
+            if (isAbsent(internalKey)) {
+                return null;
+            }
+            V value = load(stats(internalKey), () -> producer.apply(key));
+            cacheProduced(key, internalKey, value, false);
+            return value;
+        });
+    }
+
+    /**
+     * Asynchronous lookup of the cached value for the given key, or produces and caches it if not yet cached.
+     * Concurrent callers for the same key share the future of the value being produced, so the producer is called
+     * only once. The value is cached when the future completes successfully, failed futures are discarded (and not
+     * cached). No lock is held while the value is being produced. In refresh-ahead mode, stale values are returned
+     * immediately and refreshed asynchronously.
+     *
+     * @param key      key, required
+     * @param producer produces the value asynchronously, optional
+     * @return future of the cached or produced value (completed with null if not cached and no producer is given)
+     */
+    @SuppressWarnings("unchecked")
+    public CompletableFuture<V> getAsync(K key, Function<K, CompletableFuture<V>> producer) {
+        if (cache == null) {
+            require(key);
+            return producer != null ? produceAsync(key, producer) : CompletableFuture.completedFuture(null);
+        }
+        Object internalKey = internalKey(key);
+        Cache.ValueWrapper cached = read(internalKey);
+        if (cached != null) {
+            stats(internalKey).recordHits(1);
+            if (producer != null && isStale(cached)) {
+                loadAsync(key, internalKey, producer, true);
+            }
+            return CompletableFuture.completedFuture((V) cached.get());
+        }
+        if (producer != null && isAbsent(internalKey)) {
+            stats(internalKey).recordHits(1);
+            return CompletableFuture.completedFuture(null);
+        }
+        stats(internalKey).recordMisses(1);
+        if (producer == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        // callers get a copy, so completing or cancelling it does not affect the other callers
+        return loadAsync(key, internalKey, producer, false).copy();
+    }
+
+    /**
+     * Snapshot of the statistics of this cache.
+     *
+     * @return statistics, never null
+     */
+    public CacheStats snapshot() {
+        return stats.snapshot(cacheName);
+    }
+
+    /**
+     * Snapshots of the statistics per tenant (only recorded for caches partitioned by tenant), which are also
+     * contained in the statistics of the cache (see {@link #snapshot()}).
+     *
+     * @return statistics per tenant, never null
+     */
+    public Map<String, CacheStats> tenantSnapshots() {
+        return tenancy.snapshots(cacheName);
+    }
+
+    /**
+     * Number of values currently being produced.
+     *
+     * @return number of loads in flight
+     */
+    int loadsInFlight() {
+        return loads.size() + asyncLoads.size();
+    }
+
+    /**
+     * Lookup the cached values for the given keys, and produces and caches the missing values in one batch.
+     * The producer is called at most once, with only the keys which are not cached yet. Backends supporting
+     * multi-key operations ({@link BulkCache}) are accessed with a single bulk operation.
+     * <p>
+     * The returned map contains the entries for the requested keys which are cached or were produced (in the
+     * iteration order of the requested keys). Keys which are neither cached nor produced are not contained.
+     *
+     * @param keys     keys, required (each key is required)
+     * @param producer optional batch producer for missing values, returning the values for the given keys.
+     * @return map of keys to potentially cached values, never null.
+     */
+    @SuppressWarnings("unchecked")
+    public Map<K, V> getAll(Collection<K> keys, Function<Set<K>, Map<K, V>> producer) {
+        if (keys == null) {
+            throw new IllegalArgumentException("Keys are required");
+        }
+        Map<K, Object> internalKeys = new LinkedHashMap<>();
+        keys.forEach(key -> internalKeys.put(key, internalKey(key)));
+        StatsCounter counter = tenancy.statsFor(tenancy.currentTenant());
+
+        Map<K, V> result = new LinkedHashMap<>();
+        Set<K> missing = new LinkedHashSet<>();
+        if (cache == null) {
+            missing.addAll(internalKeys.keySet());
+        } else {
+            Map<Object, Cache.ValueWrapper> cached = bulkGet(internalKeys.values());
+            internalKeys.forEach((key, internalKey) -> {
+                Cache.ValueWrapper valueWrapper = valid(internalKey, cached.get(internalKey));
+                if (valueWrapper != null) {
+                    result.put(key, (V) valueWrapper.get());
+                } else if (producer == null || !isAbsent(internalKey)) {
+                    missing.add(key);
+                }
+            });
+            counter.recordHits(internalKeys.size() - missing.size());
+            counter.recordMisses(missing.size());
+        }
+        if (missing.isEmpty() || producer == null) {
+            return result;
+        }
+        Map<K, V> produced = Optional.ofNullable(load(counter, () -> producer.apply(unmodifiableSet(missing)))).orElse(emptyMap());
+        putAll(produced);
+        missing.stream()
+                .filter(produced::containsKey)
+                .forEach(key -> result.put(key, produced.get(key)));
+        if (negativeCache != null) {
+            missing.stream()
+                    .filter(key -> produced.get(key) == null && !shouldCacheValue(null))
+                    .forEach(key -> negativeCache.add(internalKeys.get(key)));
+        }
+        return result;
+    }
+
+    /**
+     * Puts multiple values in the cache. Whether each value is actually cached is decided by the
+     * <code>shouldCacheValue(value)</code> method.
+     *
+     * @param entries entries (key to value), required (each key is required)
+     */
+    public void putAll(Map<K, V> entries) {
+        if (entries == null) {
+            throw new IllegalArgumentException("Entries are required");
+        }
+        if (cache == null) {
+            return;
+        }
+        Map<Object, Object> internalEntries = new LinkedHashMap<>();
+        Map<Object, Duration> expiration = new HashMap<>();
+        entries.forEach((key, value) -> {
+            Object internalKey = internalKey(key);
+            forgetAbsent(internalKey);
+            if (shouldCacheValue(value)) {
+                internalEntries.put(internalKey, storeValue(value));
+                Duration expireAfter = expireAfter(key, value);
+                if (expireAfter != null) {
+                    expiration.put(internalKey, expireAfter);
+                }
+            }
+        });
+        if (!internalEntries.isEmpty()) {
+            bulkPut(internalEntries, expiration);
+            tenancy.statsFor(tenancy.currentTenant()).recordPuts(internalEntries.size());
+        }
     }
 
     /**
@@ -169,14 +635,553 @@ public abstract class TypeSafeCache<K extends Serializable, V> {
      * @param key key, required
      */
     public void evict(K key) {
-        optionalCache().ifPresent(cache -> cache.evictIfPresent(internalKey(key)));
+        if (cache != null) {
+            evictAndPublish(internalKey(key));
+        }
     }
 
     /**
-     * Clears the cache, evicting all cached values.
+     * Clears the cache, evicting all cached values. When a transaction is active, the cache is cleared (and the
+     * other nodes are notified) after the commit.
      */
     public void clear() {
-        optionalCache().ifPresent(Cache::clear);
+        if (cache != null) {
+            clearLocal();
+            afterCommit(cache, invalidations::cleared);
+        }
+    }
+
+    /**
+     * Clears the entries of a tenant (for caches partitioned by tenant, see {@link #tenantPartitioned()}).
+     * For caches not partitioned by tenant, the whole cache is cleared. When a transaction is active, the entries
+     * are cleared (and the other nodes are notified) after the commit.
+     *
+     * @param tenant tenant, optional (null: entries without tenant)
+     */
+    public void clear(String tenant) {
+        if (partitionedCache == null) {
+            clear();
+            return;
+        }
+        clearLocal(tenant);
+        afterCommit(cache, () -> invalidations.cleared(tenant));
+    }
+
+    /**
+     * Clears the entries of a tenant of a partitioned cache. The near cache and the negative cache are cleared
+     * completely, as they are small and short-lived. When a transaction is active, they are cleared together with
+     * the partition after the commit.
+     *
+     * @param tenant tenant
+     */
+    private void clearLocal(String tenant) {
+        if (partitionedCache == null) {
+            clearLocal();
+            return;
+        }
+        afterCommit(cache, () -> {
+            partitionedCache.clear(tenant);
+            clearNearAndNegative();
+        });
+    }
+
+    /**
+     * Clears the backing cache, the near cache and the negative cache (after the commit when a transaction is
+     * active, so concurrent readers cannot repopulate the near cache with the values to clear).
+     */
+    private void clearLocal() {
+        afterCommit(cache, () -> {
+            targetCache.clear();
+            clearNearAndNegative();
+        });
+    }
+
+    private void clearNearAndNegative() {
+        if (negativeCache != null) {
+            negativeCache.clear();
+        }
+        if (nearCache != null) {
+            nearCache.invalidateAll();
+        }
+    }
+
+    /**
+     * Converts a value to the representation stored in the cache.
+     *
+     * @param value value
+     * @return stored value
+     */
+    private Object storeValue(V value) {
+        if (refreshAfterMillis > 0 || expireAfterWriteMillis > 0) {
+            return new TimestampedValue<>(value, System.currentTimeMillis());
+        }
+        return value;
+    }
+
+    /**
+     * Reads the valid (not expired) cached value.
+     *
+     * @param internalKey internal key
+     * @return value wrapper, or null when not cached or expired
+     */
+    private Cache.ValueWrapper read(Object internalKey) {
+        if (nearCache == null) {
+            return valid(internalKey, cache.get(internalKey));
+        }
+        Cache.ValueWrapper cached = nearCache.get(internalKey);
+        if (cached == null) {
+            long version = nearCache.version(internalKey);
+            cached = cache.get(internalKey);
+            if (cached != null) {
+                nearCache.populate(internalKey, cached.get(), version);
+            }
+        }
+        return valid(internalKey, cached);
+    }
+
+    /**
+     * Checks if a cached value is valid, and evicts it if it expired.
+     *
+     * @param internalKey internal key
+     * @param cached      cached value wrapper, optional
+     * @return value wrapper, or null when not cached or expired
+     */
+    private Cache.ValueWrapper valid(Object internalKey, Cache.ValueWrapper cached) {
+        if (cached == null) {
+            return null;
+        }
+        Object value = cached.get();
+        if (!(value instanceof TimestampedValue)) {
+            return cached;
+        }
+        TimestampedValue<?> timestampedValue = (TimestampedValue<?>) value;
+        if (expireAfterWriteMillis > 0 && timestampedValue.age(System.currentTimeMillis()) >= expireAfterWriteMillis) {
+            if (evictInternal(internalKey)) {
+                stats(internalKey).recordEvictions(1);
+            }
+            return null;
+        }
+        return timestampedValue;
+    }
+
+    /**
+     * Loads the entries of the snapshot (if present) into the cache, skipping expired entries.
+     *
+     * @param serializer value serializer
+     */
+    private void loadSnapshot(ValueSerializer<V> serializer) {
+        Path file = snapshotFile();
+        if (!Files.isRegularFile(file)) {
+            return;
+        }
+        CacheSnapshot<V> snapshot;
+        try {
+            snapshot = CacheSnapshot.read(file, cacheName, serializer);
+        } catch (IOException | RuntimeException ex) {
+            logger.warn("cache '{}': skipped snapshot {}: {}", cacheName, file, ex.toString());
+            return;
+        }
+        long now = System.currentTimeMillis();
+        boolean timestamped = refreshAfterMillis > 0 || expireAfterWriteMillis > 0;
+        Map<Object, Object> entries = new LinkedHashMap<>();
+        Map<Object, Duration> expiration = new HashMap<>();
+        for (CacheSnapshot.Entry<V> entry : snapshot.entries()) {
+            long writtenAt = entry.writtenAt >= 0 ? entry.writtenAt : snapshot.createdAt();
+            if (entry.expiresAt >= 0 && entry.expiresAt <= now) {
+                continue;
+            }
+            if (expireAfterWriteMillis > 0 && now - writtenAt >= expireAfterWriteMillis) {
+                continue;
+            }
+            entries.put(entry.key, timestamped ? new TimestampedValue<>(entry.value, writtenAt) : entry.value);
+            if (entry.expiresAt >= 0) {
+                expiration.put(entry.key, Duration.ofMillis(entry.expiresAt - now));
+            }
+        }
+        if (!entries.isEmpty()) {
+            bulkPut(entries, expiration);
+        }
+        logger.info("cache '{}': loaded {} of {} entries from snapshot {}", cacheName, entries.size(), snapshot.entries().size(), file);
+    }
+
+    /**
+     * Supplies the entries of the cache for a snapshot.
+     *
+     * @param iterableCache cache
+     * @return entry supplier
+     */
+    @SuppressWarnings("unchecked")
+    private static <V> Consumer<Consumer<CacheSnapshot.Entry<V>>> snapshotEntries(IterableCache iterableCache) {
+        return consumer -> iterableCache.forEachEntry((key, value, expiresIn) -> {
+            long now = System.currentTimeMillis();
+            long expiresAt = expiresIn != null ? now + expiresIn.toMillis() : -1;
+            if (value instanceof TimestampedValue) {
+                TimestampedValue<V> timestampedValue = (TimestampedValue<V>) value;
+                consumer.accept(new CacheSnapshot.Entry<>(key, timestampedValue.get(), timestampedValue.writtenAt(), expiresAt));
+            } else {
+                consumer.accept(new CacheSnapshot.Entry<>(key, (V) value, -1, expiresAt));
+            }
+        });
+    }
+
+    /**
+     * Snapshot file of this cache.
+     *
+     * @return snapshot file
+     */
+    private Path snapshotFile() {
+        return Paths.get(snapshotDirectory, cacheName + ".snapshot");
+    }
+
+    /**
+     * Triggers an asynchronous refresh if the value is stale and no refresh is running for that key yet.
+     * The refresh is executed in a new task scope, so task-scoped beans can be used in the producer.
+     *
+     * @param key         key
+     * @param internalKey internal key
+     * @param value       cached value
+     * @param producer    producer
+     */
+    private void refreshIfStale(K key, Object internalKey, TimestampedValue<V> value, Function<K, V> producer) {
+        if (!isStale(value) || !refreshing.add(internalKey)) {
+            return;
+        }
+        if (!isStale(read(internalKey))) {
+            // refreshed in the meantime
+            refreshing.remove(internalKey);
+            return;
+        }
+        try {
+            refreshExecutor().execute(() -> {
+                try {
+                    TaskScope.newExecutionContext().execute(() -> {
+                        V refreshed = load(stats(internalKey), () -> producer.apply(key));
+                        cacheProduced(key, internalKey, refreshed, true);
+                    });
+                } catch (Exception ex) {
+                    logger.warn("refresh of cache '{}' failed, keeping stale value: {}", cacheName, ex.toString());
+                } finally {
+                    refreshing.remove(internalKey);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            refreshing.remove(internalKey);
+            logger.debug("refresh of cache '{}' skipped, executor saturated", cacheName);
+        }
+    }
+
+    /**
+     * Produces a value asynchronously, unless the value for the same key is already being produced, in which case
+     * the future of that production is returned. The value is cached before the future completes, and the future is
+     * removed (also when it failed), so later callers either find the cached value or start a new production.
+     *
+     * @param key         key
+     * @param internalKey internal key
+     * @param producer    producer
+     * @param refresh     true if a stale value is refreshed (and evicted if the refreshed value is not cacheable)
+     * @return future of the produced value
+     */
+    @SuppressWarnings("unchecked")
+    private CompletableFuture<V> loadAsync(K key, Object internalKey, Function<K, CompletableFuture<V>> producer, boolean refresh) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> existing = asyncLoads.putIfAbsent(internalKey, flight);
+        if (existing != null) {
+            return existing;
+        }
+        // another caller may have produced the value in the meantime
+        Cache.ValueWrapper current = read(internalKey);
+        if (current != null && !isStale(current)) {
+            asyncLoads.remove(internalKey, flight);
+            flight.complete((V) current.get());
+            return flight;
+        }
+        long start = System.nanoTime();
+        produceAsync(key, producer).whenComplete((value, ex) -> {
+            stats(internalKey).recordLoad(System.nanoTime() - start, ex == null);
+            try {
+                if (ex == null) {
+                    cacheProduced(key, internalKey, value, refresh);
+                } else if (refresh) {
+                    logger.warn("refresh of cache '{}' failed, keeping stale value: {}", cacheName, ex.toString());
+                }
+            } catch (RuntimeException cacheException) {
+                logger.warn("cache '{}': failed to cache produced value: {}", cacheName, cacheException.toString());
+            } finally {
+                asyncLoads.remove(internalKey, flight);
+            }
+            if (ex == null) {
+                flight.complete(value);
+            } else {
+                flight.completeExceptionally(ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex);
+            }
+        });
+        return flight;
+    }
+
+    /**
+     * Calls an asynchronous producer, converting exceptions thrown by the producer into a failed future.
+     *
+     * @param key      key
+     * @param producer producer
+     * @return future of the produced value
+     */
+    private CompletableFuture<V> produceAsync(K key, Function<K, CompletableFuture<V>> producer) {
+        try {
+            CompletableFuture<V> future = producer.apply(key);
+            return future != null ? future : CompletableFuture.failedFuture(new IllegalStateException("producer returned no future"));
+        } catch (RuntimeException ex) {
+            return CompletableFuture.failedFuture(ex);
+        }
+    }
+
+    /**
+     * Checks if a cached value is due for a refresh.
+     *
+     * @param cached cached value, optional
+     * @return true if the value is older than the refresh age
+     */
+    private boolean isStale(Cache.ValueWrapper cached) {
+        return refreshAfterMillis > 0 && cached instanceof TimestampedValue
+                && ((TimestampedValue<?>) cached).age(System.currentTimeMillis()) >= refreshAfterMillis;
+    }
+
+    /**
+     * Runs a load (producer call), recording its load time.
+     *
+     * @param counter statistics to record the load in
+     * @param loader  loader
+     * @return loaded value
+     */
+    private <T> T load(StatsCounter counter, Supplier<T> loader) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            T value = loader.get();
+            success = true;
+            return value;
+        } finally {
+            counter.recordLoad(System.nanoTime() - start, success);
+        }
+    }
+
+    /**
+     * Multi-key lookup, natively if supported by the cache.
+     *
+     * @param keys internal keys
+     * @return cached entries
+     */
+    private Map<Object, Cache.ValueWrapper> bulkGet(Collection<Object> keys) {
+        if (nearCache == null) {
+            return backendGet(keys);
+        }
+        Map<Object, Cache.ValueWrapper> result = nearCache.getAll(keys);
+        if (result.size() < keys.size()) {
+            Map<Object, Long> missing = new LinkedHashMap<>();
+            keys.stream().filter(key -> !result.containsKey(key)).forEach(key -> missing.put(key, nearCache.version(key)));
+            backendGet(missing.keySet()).forEach((key, value) -> {
+                nearCache.populate(key, value.get(), missing.get(key));
+                result.put(key, value);
+            });
+        }
+        return result;
+    }
+
+    /**
+     * Multi-key lookup in the backing cache, natively if supported by the cache.
+     *
+     * @param keys internal keys
+     * @return cached entries
+     */
+    private Map<Object, Cache.ValueWrapper> backendGet(Collection<Object> keys) {
+        if (targetCache instanceof BulkCache) {
+            return ((BulkCache) targetCache).getAll(keys);
+        }
+        Map<Object, Cache.ValueWrapper> result = new LinkedHashMap<>();
+        keys.forEach(key -> Optional.ofNullable(cache.get(key)).ifPresent(value -> result.put(key, value)));
+        return result;
+    }
+
+    /**
+     * Writes a value, with an individual expiration if requested and supported by the cache.
+     *
+     * @param internalKey internal key
+     * @param storeValue  value to store
+     * @param expireAfter individual expiration, optional
+     */
+    private void write(Object internalKey, Object storeValue, Duration expireAfter) {
+        if (expireAfter != null && targetCache instanceof ExpiringCache) {
+            ExpiringCache expiringCache = (ExpiringCache) targetCache;
+            afterCommit(cache, () -> {
+                expiringCache.put(internalKey, storeValue, expireAfter);
+                evictNear(internalKey);
+            });
+        } else if (nearCache != null) {
+            afterCommit(cache, () -> {
+                targetCache.put(internalKey, storeValue);
+                evictNear(internalKey);
+            });
+        } else {
+            cache.put(internalKey, storeValue);
+        }
+    }
+
+    /**
+     * Multi-key put, natively if supported by the cache.
+     *
+     * @param entries    entries with internal keys
+     * @param expiration individual expiration per internal key (if requested)
+     */
+    private void bulkPut(Map<Object, Object> entries, Map<Object, Duration> expiration) {
+        if (!expiration.isEmpty() && targetCache instanceof ExpiringCache) {
+            ExpiringCache expiringCache = (ExpiringCache) targetCache;
+            afterCommit(cache, () -> {
+                expiringCache.putAll(entries, expiration::get);
+                entries.keySet().forEach(this::evictNear);
+            });
+        } else if (targetCache instanceof BulkCache) {
+            BulkCache bulkCache = (BulkCache) targetCache;
+            afterCommit(cache, () -> {
+                bulkCache.putAll(entries);
+                entries.keySet().forEach(this::evictNear);
+            });
+        } else {
+            entries.forEach((key, value) -> write(key, value, null));
+        }
+    }
+
+    /**
+     * Evicts an entry from the backing cache and the near cache.
+     *
+     * @param internalKey internal key
+     * @return true if the entry was present in the backing cache
+     */
+    private boolean evictInternal(Object internalKey) {
+        forgetAbsent(internalKey);
+        evictNear(internalKey);
+        return cache.evictIfPresent(internalKey);
+    }
+
+    /**
+     * Puts a value in the cache (if it should be cached), using the given internal key.
+     *
+     * @param key         key
+     * @param internalKey internal key
+     * @param value       value
+     */
+    private void put(K key, Object internalKey, V value) {
+        forgetAbsent(internalKey);
+        if (shouldCacheValue(value)) {
+            write(internalKey, storeValue(value), expireAfter(key, value));
+            stats(internalKey).recordPuts(1);
+        }
+    }
+
+    /**
+     * Evicts an entry, and publishes the eviction to the other nodes.
+     *
+     * @param internalKey internal key
+     */
+    private void evictAndPublish(Object internalKey) {
+        if (evictInternal(internalKey)) {
+            stats(internalKey).recordEvictions(1);
+        }
+        invalidations.evicted(internalKey);
+    }
+
+    /**
+     * Caches a produced value. Values which are not cached are evicted when refreshing, and null values are
+     * remembered in the negative cache (if enabled). The value is cached with the internal key computed by the
+     * caller, as values may be produced on other threads (refresh-ahead, asynchronous loads), which do not have the
+     * tenant of the caller.
+     *
+     * @param key         key
+     * @param internalKey internal key
+     * @param value       produced value
+     * @param refresh     true if a cached value was refreshed
+     */
+    private void cacheProduced(K key, Object internalKey, V value, boolean refresh) {
+        if (shouldCacheValue(value)) {
+            put(key, internalKey, value);
+            return;
+        }
+        if (refresh) {
+            evictAndPublish(internalKey);
+        }
+        if (value == null && negativeCache != null) {
+            negativeCache.add(internalKey);
+        }
+    }
+
+    /**
+     * Checks if the key is known to be absent (negative cache).
+     *
+     * @param internalKey internal key
+     * @return true if the key is known to be absent
+     */
+    private boolean isAbsent(Object internalKey) {
+        return negativeCache != null && negativeCache.contains(internalKey);
+    }
+
+    /**
+     * Removes the absent-key marker of the key (if present) from the negative cache.
+     *
+     * @param internalKey internal key
+     */
+    private void forgetAbsent(Object internalKey) {
+        if (negativeCache != null) {
+            negativeCache.remove(internalKey);
+        }
+    }
+
+    /**
+     * Evicts an entry from the near cache (if present).
+     *
+     * @param internalKey internal key
+     */
+    private void evictNear(Object internalKey) {
+        if (nearCache != null) {
+            nearCache.invalidate(internalKey);
+        }
+    }
+
+    /**
+     * Runs a write operation on the target cache. Just like the transaction-aware cache decorator,
+     * the write is deferred until after the commit when a transaction is active.
+     *
+     * @param cache cache (potentially transaction-aware)
+     * @param write write operation on the target cache
+     */
+    private static void afterCommit(Cache cache, Runnable write) {
+        if (cache instanceof TransactionAwareCacheDecorator && TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    write.run();
+                }
+            });
+        } else {
+            write.run();
+        }
+    }
+
+    /**
+     * Adapts a weigher for values to the stored values (which may be timestamped).
+     *
+     * @param weigher weigher for values
+     * @return weigher for stored values
+     */
+    private static <V> Weigher<Object> storeValueWeigher(Weigher<? super V> weigher) {
+        return new StoreValueWeigher<>(weigher);
+    }
+
+    /**
+     * Unwraps the transaction-aware decorator (if present).
+     *
+     * @param cache cache
+     * @return target cache
+     */
+    private static Cache targetCache(Cache cache) {
+        return cache instanceof TransactionAwareCacheDecorator ? ((TransactionAwareCacheDecorator) cache).getTargetCache() : cache;
     }
 
     /**
@@ -185,7 +1190,17 @@ public abstract class TypeSafeCache<K extends Serializable, V> {
      * @return internal cache key.
      */
     private Object internalKey(K key) {
-        return cacheKey(require(key));
+        return tenancy.internalKey(cacheKey(require(key)));
+    }
+
+    /**
+     * Statistics of the tenant of an internal key (and of the cache).
+     *
+     * @param internalKey internal key
+     * @return statistics counter
+     */
+    private StatsCounter stats(Object internalKey) {
+        return tenancy.stats(internalKey);
     }
 
     /**
@@ -200,4 +1215,38 @@ public abstract class TypeSafeCache<K extends Serializable, V> {
         }
         return key;
     }
+
+    /**
+     * Weigher for stored values (which may be timestamped), delegating to the weigher of the cache. Weighers
+     * delegating to weighers of the same type are equal, so several instances of the same cache class can share a
+     * weighted cache, while caches with different weighers cannot.
+     *
+     * @param <V> value type
+     */
+    private static final class StoreValueWeigher<V> implements Weigher<Object> {
+
+        private final Weigher<? super V> weigher;
+
+        private StoreValueWeigher(Weigher<? super V> weigher) {
+            this.weigher = weigher;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public long weigh(Object key, Object value) {
+            return value instanceof TimestampedValue
+                    ? TIMESTAMPED_VALUE_OVERHEAD + weigher.weigh(key, (V) ((TimestampedValue<?>) value).get())
+                    : weigher.weigh(key, (V) value);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof StoreValueWeigher && ((StoreValueWeigher<?>) o).weigher.getClass() == weigher.getClass();
+        }
+
+        @Override
+        public int hashCode() {
+            return weigher.getClass().hashCode();
+        }
+    }
 }
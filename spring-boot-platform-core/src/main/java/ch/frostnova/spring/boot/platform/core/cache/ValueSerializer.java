@@ -0,0 +1,122 @@
+package ch.frostnova.spring.boot.platform.core.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Serializer for cache values, used to write and read snapshots of a {@link TypeSafeCache}
+ * (see <code>TypeSafeCache.snapshotSerializer()</code>).
+ *
+ * @param <V> value type
+ * @author pwalser
+ * @since 2022-01-15
+ */
+public interface ValueSerializer<V> {
+
+    /**
+     * Serializer for string values (UTF-8).
+     *
+     * @return serializer
+     */
+    static ValueSerializer<String> strings() {
+        return new ValueSerializer<>() {
+            @Override
+            public void write(String value, DataOutput out) throws IOException {
+                byte[] bytes = value.getBytes(UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+
+            @Override
+            public String read(DataInput in) throws IOException {
+                return new String(readBytes(in), UTF_8);
+            }
+        };
+    }
+
+    /**
+     * Serializer using Java serialization. Simple, but neither compact nor fast, a custom serializer is preferable
+     * for large caches.
+     *
+     * @param <V> value type
+     * @return serializer
+     */
+    static <V extends Serializable> ValueSerializer<V> serializable() {
+        return new ValueSerializer<>() {
+            @Override
+            public void write(V value, DataOutput out) throws IOException {
+                ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+                try (ObjectOutputStream objectOutputStream = new ObjectOutputStream(buffer)) {
+                    objectOutputStream.writeObject(value);
+                }
+                out.writeInt(buffer.size());
+                out.write(buffer.toByteArray());
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public V read(DataInput in) throws IOException {
+                try (ObjectInputStream objectInputStream = new ObjectInputStream(new ByteArrayInputStream(readBytes(in)))) {
+                    return (V) objectInputStream.readObject();
+                } catch (ClassNotFoundException | ClassCastException ex) {
+                    throw new IOException("incompatible value: " + ex.getMessage(), ex);
+                }
+            }
+        };
+    }
+
+    /**
+     * Version of the serialized format. Snapshots written with a different version are skipped, so the version
+     * needs to be changed whenever the format changes in an incompatible way.
+     *
+     * @return version
+     */
+    default int version() {
+        return 1;
+    }
+
+    /**
+     * Write a value.
+     *
+     * @param value value, never null
+     * @param out   output
+     * @throws IOException if the value cannot be written
+     */
+    void write(V value, DataOutput out) throws IOException;
+
+    /**
+     * Read a value.
+     *
+     * @param in input (a {@link java.io.DataInputStream} over the bytes of the value when reading a snapshot)
+     * @return value
+     * @throws IOException if the value cannot be read
+     */
+    V read(DataInput in) throws IOException;
+
+    /**
+     * Read a length-prefixed byte array. The length is checked before allocating the array (negative, or exceeding
+     * the remaining bytes of the input if known), as it may be corrupt.
+     *
+     * @param in input
+     * @return bytes
+     * @throws IOException if the bytes cannot be read, or the length is invalid
+     */
+    private static byte[] readBytes(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || (in instanceof InputStream && length > ((InputStream) in).available())) {
+            throw new IOException("invalid length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+}
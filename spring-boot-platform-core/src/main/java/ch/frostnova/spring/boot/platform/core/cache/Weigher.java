@@ -0,0 +1,32 @@
+package ch.frostnova.spring.boot.platform.core.cache;
+
+/**
+ * Calculates the weight (estimated retained size in bytes) of cache entries, for caches bounded by weight (see
+ * {@link WeightedCache}).
+ *
+ * @param <V> value type
+ * @author pwalser
+ * @since 2022-01-13
+ */
+@FunctionalInterface
+public interface Weigher<V> {
+
+    /**
+     * Default weigher, estimating the size of the key and value with the {@link SizeEstimator}.
+     *
+     * @param <V> value type
+     * @return default weigher
+     */
+    static <V> Weigher<V> estimating() {
+        return (key, value) -> SizeEstimator.estimate(key) + SizeEstimator.estimate(value);
+    }
+
+    /**
+     * Weigh a cache entry.
+     *
+     * @param key   (internal) cache key, never null
+     * @param value value, may be null
+     * @return weight in bytes, must not be negative
+     */
+    long weigh(Object key, V value);
+}
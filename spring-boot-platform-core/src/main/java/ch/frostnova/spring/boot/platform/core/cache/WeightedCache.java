@@ -0,0 +1,31 @@
+package ch.frostnova.spring.boot.platform.core.cache;
+
+import org.springframework.cache.Cache;
+
+/**
+ * Optional extension of a {@link Cache} which is bounded by the total weight of its entries (such as a memory
+ * budget in bytes) instead of the number of entries. The {@link TypeSafeCache} registers its weigher (see
+ * <code>TypeSafeCache.weigher()</code>) when the underlying cache implements this interface.
+ *
+ * @author pwalser
+ * @since 2022-01-13
+ */
+public interface WeightedCache {
+
+    /**
+     * Whether the cache is bounded by weight. If not, the weigher is not used.
+     *
+     * @return weighted
+     */
+    boolean isWeighted();
+
+    /**
+     * Set the weigher used to weigh entries put in the cache from now on. Values are passed to the weigher as they
+     * were put in the cache. A cache has at most one weigher: setting a weigher which is not equal to the weigher set
+     * before (e.g. by another {@link TypeSafeCache} sharing the same cache) is rejected.
+     *
+     * @param weigher weigher, required
+     * @throws IllegalStateException if a different weigher was already set
+     */
+    void setWeigher(Weigher<Object> weigher);
+}
@@ -0,0 +1,87 @@
+package ch.frostnova.spring.boot.platform.core.cache.controller;
+
+import ch.frostnova.spring.boot.platform.core.cache.CacheStats;
+import ch.frostnova.spring.boot.platform.core.cache.TypeSafeCache;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.TreeMap;
+
+import static java.util.Collections.emptyList;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toMap;
+
+/**
+ * Exposes the statistics of all {@link TypeSafeCache}s, per cache name (statistics of caches sharing the same name
+ * are combined), and per tenant for caches partitioned by tenant. Enabled with <code>ch.frostnova.platform.cache.stats-endpoint.enabled: true</code>.
+ *
+ * @author pwalser
+ * @since 2022-01-14
+ */
+@RestController
+@ConditionalOnProperty(value = "ch.frostnova.platform.cache.stats-endpoint.enabled", havingValue = "true")
+@Api(value = "Cache statistics controller")
+@RequestMapping(path = "caches")
+public class CacheStatsController {
+
+    @Autowired(required = false)
+    private List<TypeSafeCache<?, ?>> caches;
+
+    @ApiOperation(value = "Statistics of all caches", response = CacheStats.class, responseContainer = "List")
+    @ApiResponses({
+            @ApiResponse(code = 200, message = "ok")
+    })
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public Collection<CacheStats> getCacheStats() {
+        return Optional.ofNullable(caches).orElse(emptyList()).stream()
+                .map(TypeSafeCache::snapshot)
+                .collect(toMap(CacheStats::getCacheName, stats -> stats, CacheStats::plus, TreeMap::new))
+                .values();
+    }
+
+    @ApiOperation(value = "Statistics of the cache with the given name", response = CacheStats.class)
+    @ApiResponses({
+            @ApiResponse(code = 200, message = "ok"),
+            @ApiResponse(code = 404, message = "cache not found")
+    })
+    @GetMapping(path = "{cacheName}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public CacheStats getCacheStats(@PathVariable("cacheName") String cacheName) {
+        return getCacheStats().stream()
+                .filter(stats -> stats.getCacheName().equals(cacheName))
+                .findFirst()
+                .orElseThrow(() -> new NoSuchElementException("cache '" + cacheName + "' not found"));
+    }
+
+    @ApiOperation(value = "Statistics per tenant of the cache with the given name (for caches partitioned by tenant)",
+            response = CacheStats.class, responseContainer = "Map")
+    @ApiResponses({
+            @ApiResponse(code = 200, message = "ok"),
+            @ApiResponse(code = 404, message = "cache not found")
+    })
+    @GetMapping(path = "{cacheName}/tenants", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Map<String, CacheStats> getTenantCacheStats(@PathVariable("cacheName") String cacheName) {
+        List<TypeSafeCache<?, ?>> namedCaches = Optional.ofNullable(caches).orElse(emptyList()).stream()
+                .filter(cache -> cache.getCacheName().equals(cacheName))
+                .collect(toList());
+        if (namedCaches.isEmpty()) {
+            throw new NoSuchElementException("cache '" + cacheName + "' not found");
+        }
+        Map<String, CacheStats> result = new TreeMap<>();
+        namedCaches.forEach(cache -> cache.tenantSnapshots().forEach((tenant, stats) -> result.merge(tenant, stats, CacheStats::plus)));
+        return result;
+    }
+}
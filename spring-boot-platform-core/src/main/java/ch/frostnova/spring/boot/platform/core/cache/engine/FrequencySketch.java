@@ -0,0 +1,123 @@
+package ch.frostnova.spring.boot.platform.core.cache.engine;
+
+/**
+ * Count-min sketch estimating the access frequency of keys, used as the admission filter (TinyLFU) of the
+ * {@link WindowTinyLfuPolicy}. Each key maps to four 4-bit counters (saturating at 15) spread over a table of longs.
+ * After a sample period of 10 &times; maximum size increments, all counters are halved, so the sketch reflects
+ * recent popularity instead of all-time popularity. When the number of entries is not known in advance (caches bounded
+ * by weight), the sketch grows with the number of entries.
+ * <p>
+ * Not thread-safe, only accessed while holding the policy lock.
+ *
+ * @author pwalser
+ * @since 2022-01-08
+ */
+final class FrequencySketch {
+
+    private final static long[] SEEDS = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+    private final static long RESET_MASK = 0x7777777777777777L;
+    private final static long ONE_MASK = 0x1111111111111111L;
+
+    private long[] table;
+    private int tableMask;
+    private int sampleSize;
+    private int size;
+
+    /**
+     * Create a sketch sized for the given maximum number of entries.
+     *
+     * @param maximumSize maximum number of entries of the cache
+     */
+    FrequencySketch(long maximumSize) {
+        int capacity = (int) Math.max(1, Math.min(maximumSize, 1 << 30));
+        table = new long[ceilingPowerOfTwo(capacity)];
+        tableMask = table.length - 1;
+        sampleSize = (int) Math.min(10L * Math.max(1, maximumSize), Integer.MAX_VALUE);
+    }
+
+    /**
+     * Grows the sketch (discarding the current frequencies) if it is too small for the given number of entries.
+     *
+     * @param maximumSize number of entries of the cache
+     */
+    void ensureCapacity(long maximumSize) {
+        int capacity = (int) Math.max(1, Math.min(maximumSize, 1 << 30));
+        if (table.length >= capacity) {
+            return;
+        }
+        table = new long[ceilingPowerOfTwo(capacity)];
+        tableMask = table.length - 1;
+        sampleSize = (int) Math.min(10L * capacity, Integer.MAX_VALUE);
+        size = 0;
+    }
+
+    private static int ceilingPowerOfTwo(int x) {
+        return x <= 1 ? 1 : 1 << (Integer.SIZE - Integer.numberOfLeadingZeros(x - 1));
+    }
+
+    private static int spread(int x) {
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        return (x >>> 16) ^ x;
+    }
+
+    /**
+     * Estimated frequency of the key, between 0 and 15.
+     *
+     * @param key key, required
+     * @return estimated frequency
+     */
+    int frequency(Object key) {
+        int hash = spread(key.hashCode());
+        int start = (hash & 3) << 2;
+        int frequency = Integer.MAX_VALUE;
+        for (int i = 0; i < 4; i++) {
+            long counters = table[indexOf(hash, i)];
+            int count = (int) ((counters >>> ((start + i) << 2)) & 0xfL);
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+
+    /**
+     * Record an access of the key, periodically aging all counters.
+     *
+     * @param key key, required
+     */
+    void increment(Object key) {
+        int hash = spread(key.hashCode());
+        int start = (hash & 3) << 2;
+        boolean added = false;
+        for (int i = 0; i < 4; i++) {
+            added |= incrementAt(indexOf(hash, i), start + i);
+        }
+        if (added && ++size >= sampleSize) {
+            reset();
+        }
+    }
+
+    private boolean incrementAt(int index, int counter) {
+        int offset = counter << 2;
+        long mask = 0xfL << offset;
+        if ((table[index] & mask) != mask) {
+            table[index] += 1L << offset;
+            return true;
+        }
+        return false;
+    }
+
+    private void reset() {
+        int odd = 0;
+        for (int i = 0; i < table.length; i++) {
+            odd += Long.bitCount(table[i] & ONE_MASK);
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        size = (size >>> 1) - (odd >>> 2);
+    }
+
+    private int indexOf(int hash, int depth) {
+        long h = (hash + SEEDS[depth]) * SEEDS[depth];
+        h += h >>> 32;
+        return ((int) h) & tableMask;
+    }
+}
@@ -0,0 +1,67 @@
+package ch.frostnova.spring.boot.platform.core.cache.engine;
+
+import org.springframework.cache.Cache;
+
+/**
+ * Cache entry of a {@link PlatformCache}. The value and expiration time are read lock-free, the links and queue
+ * membership are owned by the {@link WindowTinyLfuPolicy} and the {@link TimerWheel}, and only modified while
+ * holding the eviction lock. The value is held in an immutable value wrapper, which is created once when the value
+ * is written, and returned as is on reads (so cache hits do not allocate).
+ *
+ * @author pwalser
+ * @since 2022-01-08
+ */
+final class Node {
+
+    /**
+     * Expiration time of nodes which do not expire.
+     */
+    final static long NEVER = Long.MAX_VALUE;
+
+    final Object key;
+    volatile Cache.ValueWrapper value;
+    volatile long expiresAt = NEVER;
+    long weight = 1;
+
+    Queue queue = Queue.NONE;
+    Node previous;
+    Node next;
+    Node previousInWheel;
+    Node nextInWheel;
+
+    Node(Object key, Cache.ValueWrapper value) {
+        this.key = key;
+        this.value = value;
+    }
+
+    /**
+     * Whether the node is expired at the given time.
+     *
+     * @param nanos current time (as in {@link System#nanoTime()})
+     * @return expired
+     */
+    boolean isExpired(long nanos) {
+        long expiration = expiresAt;
+        return expiration != NEVER && expiration - nanos <= 0;
+    }
+
+    /**
+     * Whether the node is still part of the cache (not evicted or removed).
+     *
+     * @return alive
+     */
+    boolean isAlive() {
+        return queue != Queue.DEAD;
+    }
+
+    /**
+     * Queue (region) of the policy a node belongs to.
+     */
+    enum Queue {
+        NONE,
+        WINDOW,
+        PROBATION,
+        PROTECTED,
+        DEAD
+    }
+}
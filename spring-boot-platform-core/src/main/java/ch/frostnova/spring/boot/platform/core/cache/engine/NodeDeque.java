@@ -0,0 +1,87 @@
+package ch.frostnova.spring.boot.platform.core.cache.engine;
+
+/**
+ * Intrusive doubly-linked deque of {@link Node}s in access order (head: least recently used, tail: most recently used).
+ * Linking is intrusive, so moving a node does not allocate. Besides the number of nodes, the deque keeps track of the
+ * total weight of its nodes (the weight of a node must not change while it is linked). Not thread-safe.
+ *
+ * @author pwalser
+ * @since 2022-01-08
+ */
+final class NodeDeque {
+
+    private Node head;
+    private Node tail;
+    private long size;
+    private long weight;
+
+    Node peekFirst() {
+        return head;
+    }
+
+    long size() {
+        return size;
+    }
+
+    long weight() {
+        return weight;
+    }
+
+    boolean isEmpty() {
+        return head == null;
+    }
+
+    void addLast(Node node) {
+        node.previous = tail;
+        node.next = null;
+        if (tail == null) {
+            head = node;
+        } else {
+            tail.next = node;
+        }
+        tail = node;
+        size++;
+        weight += node.weight;
+    }
+
+    void moveToBack(Node node) {
+        if (node != tail) {
+            unlink(node);
+            addLast(node);
+        }
+    }
+
+    Node pollFirst() {
+        Node node = head;
+        if (node != null) {
+            unlink(node);
+        }
+        return node;
+    }
+
+    void unlink(Node node) {
+        Node previous = node.previous;
+        Node next = node.next;
+        if (previous == null) {
+            head = next;
+        } else {
+            previous.next = next;
+        }
+        if (next == null) {
+            tail = previous;
+        } else {
+            next.previous = previous;
+        }
+        node.previous = null;
+        node.next = null;
+        size--;
+        weight -= node.weight;
+    }
+
+    void clear() {
+        head = null;
+        tail = null;
+        size = 0;
+        weight = 0;
+    }
+}
@@ -0,0 +1,511 @@
+package ch.frostnova.spring.boot.platform.core.cache.engine;
+
+import ch.frostnova.spring.boot.platform.core.cache.BulkCache;
+import ch.frostnova.spring.boot.platform.core.cache.EvictingCache;
+import ch.frostnova.spring.boot.platform.core.cache.ExpiringCache;
+import ch.frostnova.spring.boot.platform.core.cache.IterableCache;
+import ch.frostnova.spring.boot.platform.core.cache.engine.PlatformCacheProperties.CacheSpec;
+import ch.frostnova.spring.boot.platform.core.cache.engine.PlatformCacheProperties.OffHeap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Bounded {@link org.springframework.cache.Cache} which stores its values serialized outside the heap, in fixed-size
+ * {@link Slab}s of direct or memory-mapped {@link ByteBuffer}s. Only a small index entry per key is kept on the heap
+ * (use compact keys, such as {@link ch.frostnova.spring.boot.platform.core.cache.CompactKey}s, to keep the index
+ * small), so large values do not add to the heap size and GC work.
+ * <p>
+ * Values are serialized with Java serialization when they are written (values which are not serializable are not
+ * cached), and appended to the current slab. When all slabs are full, the oldest slab is recycled: its entries are
+ * evicted, except recently read entries, which are given a second chance and are copied to the recycled slab (up to
+ * half of its capacity). Values larger than half a slab are not cached.
+ * <p>
+ * Reads are lock-free: the value bytes are copied from the slab, and deserialized lazily when the value is accessed.
+ * Writes acquire the write lock. Entries expire (after the default time to live, or after an individual duration
+ * per entry), expired entries are no longer returned and are removed when read or when their slab is recycled.
+ * Entries evicted when their slab is recycled, and expired entries, are reported to the eviction listeners
+ * (see {@link EvictingCache}).
+ *
+ * @author pwalser
+ * @since 2022-01-16
+ */
+public class OffHeapCache extends AbstractValueAdaptingCache implements BulkCache, ExpiringCache, IterableCache, EvictingCache {
+
+    private final static Logger logger = LoggerFactory.getLogger(OffHeapCache.class);
+
+    private final static int LOAD_LOCK_STRIPES = 64;
+    private final static long MAXIMUM_EXPIRE_AFTER_NANOS = Long.MAX_VALUE / 2;
+    private final static long MAXIMUM_SLAB_SIZE = 1L << 30;
+
+    private final String name;
+    private final ConcurrentHashMap<Object, SlabEntry> index = new ConcurrentHashMap<>();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final Slab[] slabs;
+    private final int slabSize;
+    private final boolean memoryMapped;
+    private final long timeToLiveNanos;
+    private final Object[] loadLocks = new Object[LOAD_LOCK_STRIPES];
+    private final List<Consumer<Object>> evictionListeners = new CopyOnWriteArrayList<>();
+    private int currentSlab;
+    private volatile boolean notSerializableLogged;
+
+    /**
+     * Create an off-heap cache which allows null values.
+     *
+     * @param name cache name, required
+     * @param spec cache specification, required (all values resolved, with off-heap settings)
+     */
+    public OffHeapCache(String name, CacheSpec spec) {
+        super(true);
+        if (name == null || name.isBlank()) {
+            throw new IllegalArgumentException("name is required");
+        }
+        OffHeap offHeap = spec.getOffHeap();
+        if (offHeap == null || offHeap.getCapacity() == null) {
+            throw new IllegalArgumentException("off-heap capacity is required");
+        }
+        long slabSize = offHeap.getSlabSize().toBytes();
+        if (slabSize <= 0 || slabSize > MAXIMUM_SLAB_SIZE) {
+            throw new IllegalArgumentException("slab size must be between 1 byte and 1GB");
+        }
+        long slabCount = offHeap.getCapacity().toBytes() / slabSize;
+        if (slabCount < 2) {
+            throw new IllegalArgumentException("off-heap capacity must be at least two slabs (" + 2 * slabSize + " bytes)");
+        }
+        this.name = name;
+        this.slabSize = (int) slabSize;
+        this.slabs = new Slab[Math.toIntExact(slabCount)];
+        this.memoryMapped = offHeap.getDirectory() != null;
+        this.timeToLiveNanos = spec.getTimeToLive() != null ? spec.getTimeToLive().toNanos() : 0;
+        if (memoryMapped) {
+            mapSlabs(offHeap.getDirectory());
+        } else {
+            for (int i = 0; i < slabs.length; i++) {
+                slabs[i] = new Slab(ByteBuffer.allocateDirect(this.slabSize));
+            }
+        }
+        for (int i = 0; i < loadLocks.length; i++) {
+            loadLocks[i] = new Object();
+        }
+    }
+
+    private void mapSlabs(Path directory) {
+        try {
+            Files.createDirectories(directory);
+            Path file = directory.resolve(name + "-" + System.nanoTime() + ".slabs");
+            try (FileChannel channel = FileChannel.open(file, CREATE_NEW, READ, WRITE)) {
+                for (int i = 0; i < slabs.length; i++) {
+                    MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, (long) i * slabSize, slabSize);
+                    slabs[i] = new Slab(buffer);
+                }
+            } finally {
+                // the mapping remains valid until the buffers are garbage collected
+                try {
+                    Files.delete(file);
+                } catch (IOException ex) {
+                    file.toFile().deleteOnExit();
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("could not map off-heap storage for cache '" + name + "' in " + directory, ex);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return this;
+    }
+
+    /**
+     * Total capacity of the off-heap storage.
+     *
+     * @return capacity in bytes
+     */
+    public long getCapacity() {
+        return (long) slabs.length * slabSize;
+    }
+
+    /**
+     * Whether the storage is memory-mapped (or direct buffers).
+     *
+     * @return memory-mapped
+     */
+    public boolean isMemoryMapped() {
+        return memoryMapped;
+    }
+
+    /**
+     * Current number of entries of this cache (may include expired entries not removed yet).
+     *
+     * @return size
+     */
+    public long size() {
+        return index.size();
+    }
+
+    @Override
+    public void addEvictionListener(Consumer<Object> listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("listener is required");
+        }
+        evictionListeners.add(listener);
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        SlabEntry entry = index.get(key);
+        if (entry == null) {
+            return null;
+        }
+        byte[] bytes = read(entry);
+        return bytes != null ? new SerializedValueWrapper(bytes) : null;
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        SlabEntry entry = index.get(key);
+        if (entry == null) {
+            return null;
+        }
+        byte[] bytes = read(entry);
+        return bytes != null ? deserialize(bytes) : null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        ValueWrapper cached = get(key);
+        if (cached != null) {
+            return (T) cached.get();
+        }
+        synchronized (loadLocks[(key.hashCode() & 0x7fffffff) % LOAD_LOCK_STRIPES]) {
+            cached = get(key);
+            if (cached != null) {
+                return (T) cached.get();
+            }
+            T value;
+            try {
+                value = valueLoader.call();
+            } catch (Throwable ex) {
+                throw new ValueRetrievalException(key, valueLoader, ex);
+            }
+            put(key, value);
+            return value;
+        }
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        put(key, value, null);
+    }
+
+    @Override
+    public void put(Object key, Object value, Duration expireAfter) {
+        byte[] bytes = serialize(value);
+        writeLock.lock();
+        try {
+            putLocked(key, bytes, expireAfter);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public Map<Object, ValueWrapper> getAll(Collection<?> keys) {
+        Map<Object, ValueWrapper> result = new LinkedHashMap<>();
+        for (Object key : keys) {
+            ValueWrapper cached = get(key);
+            if (cached != null) {
+                result.put(key, cached);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void putAll(Map<?, ?> entries) {
+        putAll(entries, key -> null);
+    }
+
+    @Override
+    public void putAll(Map<?, ?> entries, Function<Object, Duration> expireAfter) {
+        Map<Object, byte[]> serialized = new LinkedHashMap<>();
+        entries.forEach((key, value) -> serialized.put(key, serialize(value)));
+        writeLock.lock();
+        try {
+            serialized.forEach((key, bytes) -> putLocked(key, bytes, expireAfter.apply(key)));
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        byte[] bytes = serialize(value);
+        writeLock.lock();
+        try {
+            ValueWrapper existing = get(key);
+            if (existing != null) {
+                return existing;
+            }
+            putLocked(key, bytes, null);
+            return null;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void evict(Object key) {
+        evictIfPresent(key);
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        SlabEntry entry = index.remove(key);
+        return entry != null && !entry.isExpired(System.nanoTime());
+    }
+
+    @Override
+    public void clear() {
+        invalidate();
+    }
+
+    @Override
+    public boolean invalidate() {
+        writeLock.lock();
+        try {
+            boolean notEmpty = !index.isEmpty();
+            index.clear();
+            for (Slab slab : slabs) {
+                slab.recycle();
+            }
+            currentSlab = 0;
+            return notEmpty;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void forEachEntry(EntryVisitor visitor) {
+        if (visitor == null) {
+            throw new IllegalArgumentException("visitor is required");
+        }
+        for (SlabEntry entry : index.values()) {
+            long now = System.nanoTime();
+            if (entry.isExpired(now)) {
+                continue;
+            }
+            byte[] bytes = entry.slab.read(entry);
+            if (bytes != null) {
+                visitor.visit(entry.key, fromStoreValue(deserialize(bytes)),
+                        entry.expiresAt != SlabEntry.NEVER ? Duration.ofNanos(entry.expiresAt - now) : null);
+            }
+        }
+    }
+
+    private byte[] read(SlabEntry entry) {
+        if (entry.isExpired(System.nanoTime())) {
+            removeEvicted(entry);
+            return null;
+        }
+        byte[] bytes = entry.slab.read(entry);
+        if (bytes == null) {
+            // slab was recycled concurrently
+            removeEvicted(entry);
+            return null;
+        }
+        if (!entry.accessed) {
+            entry.accessed = true;
+        }
+        return bytes;
+    }
+
+    private void putLocked(Object key, byte[] bytes, Duration expireAfter) {
+        long expiresAt = expiresAt(expireAfter);
+        if (bytes == null || bytes.length > slabSize / 2 || (expiresAt != SlabEntry.NEVER && expiresAt - System.nanoTime() <= 0)) {
+            // not serializable, too large, or already expired
+            index.remove(key);
+            return;
+        }
+        index.put(key, allocate(bytes.length).append(key, bytes, expiresAt));
+    }
+
+    /**
+     * Provides a slab with enough remaining capacity, recycling the oldest slab if required.
+     *
+     * @param length required capacity
+     * @return slab
+     */
+    private Slab allocate(int length) {
+        Slab slab = slabs[currentSlab];
+        if (slab.remaining() >= length) {
+            return slab;
+        }
+        currentSlab = (currentSlab + 1) % slabs.length;
+        slab = slabs[currentSlab];
+        recycle(slab, true);
+        if (slab.remaining() < length) {
+            // the retained entries leave too little room for the value
+            recycle(slab, false);
+        }
+        return slab;
+    }
+
+    /**
+     * Recycles a slab: evicts its entries, and optionally copies recently read entries to the recycled slab (second
+     * chance), up to half of its capacity.
+     *
+     * @param slab         slab
+     * @param secondChance whether to retain recently read entries
+     */
+    private void recycle(Slab slab, boolean secondChance) {
+        long now = System.nanoTime();
+        List<SlabEntry> retained = new ArrayList<>();
+        List<byte[]> retainedBytes = new ArrayList<>();
+        long retainedLength = 0;
+        for (SlabEntry entry : slab.entries()) {
+            if (index.get(entry.key) != entry) {
+                // overwritten or removed
+                continue;
+            }
+            if (secondChance && entry.accessed && !entry.isExpired(now) && retainedLength + entry.length <= slabSize / 2) {
+                byte[] bytes = slab.read(entry);
+                if (bytes != null) {
+                    retained.add(entry);
+                    retainedBytes.add(bytes);
+                    retainedLength += entry.length;
+                    continue;
+                }
+            }
+            removeEvicted(entry);
+        }
+        slab.recycle();
+        for (int i = 0; i < retained.size(); i++) {
+            SlabEntry entry = retained.get(i);
+            SlabEntry copy = slab.append(entry.key, retainedBytes.get(i), entry.expiresAt);
+            index.replace(entry.key, entry, copy);
+        }
+    }
+
+    private void removeEvicted(SlabEntry entry) {
+        if (index.remove(entry.key, entry)) {
+            for (Consumer<Object> listener : evictionListeners) {
+                listener.accept(entry.key);
+            }
+        }
+    }
+
+    private long expiresAt(Duration expireAfter) {
+        long expireAfterNanos;
+        if (expireAfter != null) {
+            expireAfterNanos = saturatedNanos(expireAfter);
+        } else if (timeToLiveNanos > 0) {
+            expireAfterNanos = timeToLiveNanos;
+        } else {
+            return SlabEntry.NEVER;
+        }
+        long now = System.nanoTime();
+        if (expireAfterNanos <= 0) {
+            return now;
+        }
+        long expiresAt = now + Math.min(expireAfterNanos, MAXIMUM_EXPIRE_AFTER_NANOS);
+        return expiresAt == SlabEntry.NEVER ? expiresAt - 1 : expiresAt;
+    }
+
+    private static long saturatedNanos(Duration duration) {
+        try {
+            return duration.toNanos();
+        } catch (ArithmeticException ex) {
+            return duration.isNegative() ? 0 : MAXIMUM_EXPIRE_AFTER_NANOS;
+        }
+    }
+
+    /**
+     * Serializes a value (as stored value, so null values are supported).
+     *
+     * @param value value
+     * @return serialized value, or null if the value is not serializable
+     */
+    private byte[] serialize(Object value) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(buffer)) {
+            out.writeObject(toStoreValue(value));
+        } catch (IOException ex) {
+            if (!notSerializableLogged) {
+                notSerializableLogged = true;
+                logger.warn("cache '{}' can only store serializable values off-heap, value not cached: {}", name, ex.toString());
+            }
+            return null;
+        }
+        return buffer.toByteArray();
+    }
+
+    private static Object deserialize(byte[] bytes) {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return in.readObject();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        } catch (ClassNotFoundException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Value wrapper holding the serialized value, which is deserialized when it is first accessed.
+     */
+    private final class SerializedValueWrapper implements ValueWrapper {
+
+        private final byte[] bytes;
+        private Object value;
+        private volatile boolean deserialized;
+
+        private SerializedValueWrapper(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        public Object get() {
+            if (!deserialized) {
+                value = fromStoreValue(deserialize(bytes));
+                deserialized = true;
+            }
+            return value;
+        }
+    }
+}
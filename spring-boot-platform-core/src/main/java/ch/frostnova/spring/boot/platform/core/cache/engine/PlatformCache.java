@@ -0,0 +1,477 @@
+package ch.frostnova.spring.boot.platform.core.cache.engine;
+
+import ch.frostnova.spring.boot.platform.core.cache.BulkCache;
+import ch.frostnova.spring.boot.platform.core.cache.EvictingCache;
+import ch.frostnova.spring.boot.platform.core.cache.ExpiringCache;
+import ch.frostnova.spring.boot.platform.core.cache.IterableCache;
+import ch.frostnova.spring.boot.platform.core.cache.Weigher;
+import ch.frostnova.spring.boot.platform.core.cache.WeightedCache;
+import ch.frostnova.spring.boot.platform.core.cache.engine.PlatformCacheProperties.CacheSpec;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Bounded in-memory {@link org.springframework.cache.Cache} with W-TinyLFU eviction ({@link WindowTinyLfuPolicy}).
+ * <p>
+ * Reads are lock-free: the entry is looked up in a {@link ConcurrentHashMap}, and the access is recorded in a
+ * {@link ReadBuffer} which is replayed against the policy later. A cache hit does not allocate, as the value wrapper
+ * is created when the value is written. Writes (put, evict, clear) acquire the eviction lock
+ * and apply the policy immediately, so the cache never grows over its maximum size. Bulk writes acquire the lock
+ * only once for all entries.
+ * <p>
+ * The cache is bounded either by the number of entries, or by the total weight of the entries (their estimated
+ * memory size in bytes, plus a fixed overhead per entry), calculated by a {@link Weigher}. Entries are weighed before
+ * the eviction lock is acquired.
+ * <p>
+ * Entries can expire after a default time to live, or after an individual duration per entry. Expired entries are
+ * no longer returned, and are removed by a {@link TimerWheel} whenever the eviction lock is held, so they don't
+ * occupy memory until they are evicted by size. Entries evicted by size or weight, and expired entries, are reported
+ * to the eviction listeners (see {@link EvictingCache}).
+ *
+ * @author pwalser
+ * @since 2022-01-08
+ */
+public class PlatformCache extends AbstractValueAdaptingCache implements BulkCache, ExpiringCache, WeightedCache, IterableCache, EvictingCache {
+
+    private final static int LOAD_LOCK_STRIPES = 64;
+    private final static long MAXIMUM_EXPIRE_AFTER_NANOS = Long.MAX_VALUE / 2;
+    private final static long ENTRY_OVERHEAD = 96;
+
+    private final String name;
+    private final ConcurrentHashMap<Object, Node> data = new ConcurrentHashMap<>();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final ReadBuffer readBuffer = new ReadBuffer();
+    private final WindowTinyLfuPolicy policy;
+    private final TimerWheel timerWheel = new TimerWheel(System.nanoTime());
+    private final long timeToLiveNanos;
+    private final boolean weighted;
+    private volatile Weigher<Object> weigher = Weigher.estimating();
+    private boolean customWeigher;
+    private final Object[] loadLocks = new Object[LOAD_LOCK_STRIPES];
+    private final List<Consumer<Object>> evictionListeners = new CopyOnWriteArrayList<>();
+    private final Consumer<Node> applyRead = this::applyRead;
+    private final Consumer<Node> removeExpired = this::removeExpired;
+
+    /**
+     * Create a cache which allows null values, and whose entries do not expire by default.
+     *
+     * @param name        cache name, required
+     * @param maximumSize maximum number of entries
+     */
+    public PlatformCache(String name, long maximumSize) {
+        this(name, spec(maximumSize));
+    }
+
+    /**
+     * Create a cache which allows null values.
+     *
+     * @param name cache name, required
+     * @param spec cache specification, required (all values resolved)
+     */
+    public PlatformCache(String name, CacheSpec spec) {
+        super(true);
+        if (name == null || name.isBlank()) {
+            throw new IllegalArgumentException("name is required");
+        }
+        this.name = name;
+        this.weighted = spec.getMaximumWeight() != null;
+        long maximum = weighted ? spec.getMaximumWeight().toBytes() : spec.getMaximumSize();
+        this.policy = new WindowTinyLfuPolicy(maximum, weighted, this::removeEvicted);
+        this.timeToLiveNanos = spec.getTimeToLive() != null ? spec.getTimeToLive().toNanos() : 0;
+        for (int i = 0; i < loadLocks.length; i++) {
+            loadLocks[i] = new Object();
+        }
+    }
+
+    private static CacheSpec spec(long maximumSize) {
+        CacheSpec spec = new CacheSpec();
+        spec.setMaximumSize(maximumSize);
+        return spec;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return this;
+    }
+
+    /**
+     * Maximum number of entries of this cache.
+     *
+     * @return maximum size, or -1 if the cache is bounded by weight
+     */
+    public long getMaximumSize() {
+        return weighted ? -1 : policy.maximum();
+    }
+
+    /**
+     * Maximum total weight of the entries of this cache.
+     *
+     * @return maximum weight in bytes, or -1 if the cache is bounded by the number of entries
+     */
+    public long getMaximumWeight() {
+        return weighted ? policy.maximum() : -1;
+    }
+
+    /**
+     * Current total weight of the entries of this cache.
+     *
+     * @return weight in bytes, or the number of entries if the cache is bounded by the number of entries
+     */
+    public long weightedSize() {
+        evictionLock.lock();
+        try {
+            return policy.weightedSize();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isWeighted() {
+        return weighted;
+    }
+
+    @Override
+    public synchronized void setWeigher(Weigher<Object> weigher) {
+        if (weigher == null) {
+            throw new IllegalArgumentException("weigher is required");
+        }
+        if (customWeigher && !this.weigher.equals(weigher)) {
+            throw new IllegalStateException("cache '" + name + "' already has a different weigher");
+        }
+        this.weigher = weigher;
+        customWeigher = true;
+    }
+
+    @Override
+    public void addEvictionListener(Consumer<Object> listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("listener is required");
+        }
+        evictionListeners.add(listener);
+    }
+
+    /**
+     * Current number of entries of this cache (may include expired entries not removed yet).
+     *
+     * @return size
+     */
+    public long size() {
+        return data.size();
+    }
+
+    /**
+     * Performs pending maintenance: applies buffered reads, and removes expired entries. Maintenance is done
+     * automatically on writes and periodically on reads, calling this method is only required to remove
+     * expired entries from an idle cache.
+     */
+    public void cleanUp() {
+        evictionLock.lock();
+        try {
+            maintenance();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    @Override
+    public void forEachEntry(EntryVisitor visitor) {
+        if (visitor == null) {
+            throw new IllegalArgumentException("visitor is required");
+        }
+        for (Node node : data.values()) {
+            long now = System.nanoTime();
+            long expiresAt = node.expiresAt;
+            if (expiresAt != Node.NEVER && expiresAt - now <= 0) {
+                continue;
+            }
+            visitor.visit(node.key, node.value.get(), expiresAt != Node.NEVER ? Duration.ofNanos(expiresAt - now) : null);
+        }
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        Node node = data.get(key);
+        if (node == null) {
+            return null;
+        }
+        if (node.expiresAt != Node.NEVER && node.isExpired(System.nanoTime())) {
+            return null;
+        }
+        recordRead(node);
+        return node.value;
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        ValueWrapper valueWrapper = get(key);
+        return valueWrapper != null ? toStoreValue(valueWrapper.get()) : null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        ValueWrapper cached = get(key);
+        if (cached != null) {
+            return (T) cached.get();
+        }
+        synchronized (loadLocks[(key.hashCode() & 0x7fffffff) % LOAD_LOCK_STRIPES]) {
+            cached = get(key);
+            if (cached != null) {
+                return (T) cached.get();
+            }
+            T value;
+            try {
+                value = valueLoader.call();
+            } catch (Throwable ex) {
+                throw new ValueRetrievalException(key, valueLoader, ex);
+            }
+            put(key, value);
+            return value;
+        }
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        put(key, value, null);
+    }
+
+    @Override
+    public void put(Object key, Object value, Duration expireAfter) {
+        long weight = weigh(key, value);
+        evictionLock.lock();
+        try {
+            maintenance();
+            putLocked(key, value, expireAfter, weight);
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    @Override
+    public Map<Object, ValueWrapper> getAll(Collection<?> keys) {
+        Map<Object, ValueWrapper> result = new LinkedHashMap<>();
+        for (Object key : keys) {
+            ValueWrapper cached = get(key);
+            if (cached != null) {
+                result.put(key, cached);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void putAll(Map<?, ?> entries) {
+        putAll(entries, key -> null);
+    }
+
+    @Override
+    public void putAll(Map<?, ?> entries, Function<Object, Duration> expireAfter) {
+        Map<Object, Long> weights = new HashMap<>();
+        if (weighted) {
+            entries.forEach((key, value) -> weights.put(key, weigh(key, value)));
+        }
+        evictionLock.lock();
+        try {
+            maintenance();
+            entries.forEach((key, value) -> putLocked(key, value, expireAfter.apply(key), weights.getOrDefault(key, 1L)));
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        long weight = weigh(key, value);
+        evictionLock.lock();
+        try {
+            maintenance();
+            Node existing = data.get(key);
+            if (existing != null && !existing.isExpired(System.nanoTime())) {
+                policy.onAccess(existing);
+                return existing.value;
+            }
+            putLocked(key, value, null, weight);
+            return null;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    @Override
+    public void evict(Object key) {
+        evictIfPresent(key);
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        evictionLock.lock();
+        try {
+            maintenance();
+            return removeLocked(key);
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        invalidate();
+    }
+
+    @Override
+    public boolean invalidate() {
+        evictionLock.lock();
+        try {
+            drainReadBuffer();
+            boolean notEmpty = !data.isEmpty();
+            data.clear();
+            policy.clear();
+            timerWheel.clear();
+            return notEmpty;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private void putLocked(Object key, Object value, Duration expireAfter, long weight) {
+        long expiresAt = expiresAt(expireAfter);
+        if (expiresAt != Node.NEVER && expiresAt - System.nanoTime() <= 0) {
+            // already expired
+            removeLocked(key);
+            return;
+        }
+        if (weight > policy.maximum()) {
+            // too large to be cached at all
+            removeLocked(key);
+            return;
+        }
+        ValueWrapper valueWrapper = new SimpleValueWrapper(value);
+        Node node = data.get(key);
+        if (node != null) {
+            node.value = valueWrapper;
+            policy.onUpdate(node, weight);
+        } else {
+            node = new Node(key, valueWrapper);
+            node.weight = weight;
+            data.put(key, node);
+            policy.onAdd(node);
+        }
+        if (!node.isAlive()) {
+            // not admitted by the policy
+            return;
+        }
+        node.expiresAt = expiresAt;
+        if (expiresAt != Node.NEVER) {
+            timerWheel.schedule(node);
+        } else {
+            timerWheel.deschedule(node);
+        }
+    }
+
+    private long weigh(Object key, Object value) {
+        if (!weighted) {
+            return 1;
+        }
+        return ENTRY_OVERHEAD + Math.max(0, weigher.weigh(key, value));
+    }
+
+    private long expiresAt(Duration expireAfter) {
+        long expireAfterNanos;
+        if (expireAfter != null) {
+            expireAfterNanos = saturatedNanos(expireAfter);
+        } else if (timeToLiveNanos > 0) {
+            expireAfterNanos = timeToLiveNanos;
+        } else {
+            return Node.NEVER;
+        }
+        long now = System.nanoTime();
+        if (expireAfterNanos <= 0) {
+            return now;
+        }
+        long expiresAt = now + Math.min(expireAfterNanos, MAXIMUM_EXPIRE_AFTER_NANOS);
+        return expiresAt == Node.NEVER ? expiresAt - 1 : expiresAt;
+    }
+
+    private static long saturatedNanos(Duration duration) {
+        try {
+            return duration.toNanos();
+        } catch (ArithmeticException ex) {
+            return duration.isNegative() ? 0 : MAXIMUM_EXPIRE_AFTER_NANOS;
+        }
+    }
+
+    private boolean removeLocked(Object key) {
+        Node node = data.remove(key);
+        if (node != null) {
+            policy.onRemove(node);
+            timerWheel.deschedule(node);
+            return true;
+        }
+        return false;
+    }
+
+    private void removeEvicted(Node node) {
+        boolean removed = data.remove(node.key, node);
+        timerWheel.deschedule(node);
+        if (removed) {
+            notifyEvicted(node.key);
+        }
+    }
+
+    private void removeExpired(Node node) {
+        if (data.remove(node.key, node)) {
+            policy.onRemove(node);
+            notifyEvicted(node.key);
+        }
+    }
+
+    private void notifyEvicted(Object key) {
+        for (Consumer<Object> listener : evictionListeners) {
+            listener.accept(key);
+        }
+    }
+
+    private void recordRead(Node node) {
+        if (readBuffer.offer(node) && evictionLock.tryLock()) {
+            try {
+                maintenance();
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    private void maintenance() {
+        drainReadBuffer();
+        timerWheel.advance(System.nanoTime(), removeExpired);
+    }
+
+    private void drainReadBuffer() {
+        readBuffer.drainTo(applyRead);
+    }
+
+    private void applyRead(Node node) {
+        if (node.isAlive()) {
+            policy.onAccess(node);
+        }
+    }
+}
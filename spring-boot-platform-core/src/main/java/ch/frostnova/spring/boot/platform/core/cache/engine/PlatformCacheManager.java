@@ -0,0 +1,63 @@
+package ch.frostnova.spring.boot.platform.core.cache.engine;
+
+import ch.frostnova.spring.boot.platform.core.cache.engine.PlatformCacheProperties.CacheSpec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * {@link CacheManager} providing bounded {@link PlatformCache}s. Caches are created on demand, configured by the
+ * {@link PlatformCacheProperties} for the requested cache name (or the defaults when the cache is not explicitly
+ * configured). Caches configured with an off-heap capacity are provided as {@link OffHeapCache}s.
+ *
+ * @author pwalser
+ * @since 2022-01-08
+ */
+public class PlatformCacheManager implements CacheManager {
+
+    private final static Logger logger = LoggerFactory.getLogger(PlatformCacheManager.class);
+
+    private final PlatformCacheProperties properties;
+    private final ConcurrentMap<String, Cache> caches = new ConcurrentHashMap<>();
+
+    /**
+     * Create the cache manager. All caches configured in the properties are created eagerly.
+     *
+     * @param properties cache properties, required
+     */
+    public PlatformCacheManager(PlatformCacheProperties properties) {
+        if (properties == null) {
+            throw new IllegalArgumentException("properties are required");
+        }
+        this.properties = properties;
+        properties.getCaches().keySet().forEach(this::getCache);
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        return caches.computeIfAbsent(name, this::createCache);
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return Collections.unmodifiableSet(caches.keySet());
+    }
+
+    private Cache createCache(String name) {
+        CacheSpec spec = properties.resolve(name);
+        if (spec.getOffHeap() != null) {
+            logger.debug("creating off-heap cache '{}' with capacity {} ({}), time to live {}", name, spec.getOffHeap().getCapacity(),
+                    spec.getOffHeap().getDirectory() != null ? "memory-mapped in " + spec.getOffHeap().getDirectory() : "direct", spec.getTimeToLive());
+            return new OffHeapCache(name, spec);
+        }
+        logger.debug("creating cache '{}' with maximum {}, time to live {}", name,
+                spec.getMaximumWeight() != null ? spec.getMaximumWeight() : spec.getMaximumSize() + " entries", spec.getTimeToLive());
+        return new PlatformCache(name, spec);
+    }
+}
@@ -0,0 +1,330 @@
+package ch.frostnova.spring.boot.platform.core.cache.engine;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Configuration of the {@link PlatformCacheManager}: defaults for all caches, which can be overridden per cache name.
+ * Caches are bounded either by the maximum number of entries, or (if configured) by the maximum weight, which is the
+ * estimated memory size of the entries (see {@link ch.frostnova.spring.boot.platform.core.cache.Weigher}).
+ * <p>
+ * Example:
+ * <pre>
+ * ch.frostnova.platform.cache:
+ *   maximum-size: 10000
+ *   caches:
+ *     jwt-cache:
+ *       maximum-weight: 64MB
+ *       time-to-live: 5m
+ *     report-cache:
+ *       off-heap:
+ *         capacity: 1GB
+ * </pre>
+ * Caches with an <code>off-heap</code> capacity store their values serialized outside the heap
+ * (see {@link OffHeapCache}).
+ * <p>
+ * Near caches (small, short-lived on-heap caches in front of the caches provided by any cache manager, used by the
+ * {@link ch.frostnova.spring.boot.platform.core.cache.TypeSafeCache}) are configured per cache name:
+ * <pre>
+ * ch.frostnova.platform.cache:
+ *   near-caches:
+ *     jwt-cache:
+ *       maximum-size: 1000
+ *       time-to-live: 10s
+ * </pre>
+ * Tenant-partitioned caches use a separate cache per tenant, named <code>{cache name}@{tenant}</code> (see
+ * {@link #partitionName(String, String)}), which has the settings of the cache unless configured explicitly, so each
+ * tenant gets the configured budget.
+ *
+ * @author pwalser
+ * @since 2022-01-08
+ */
+@ConfigurationProperties("ch.frostnova.platform.cache")
+public class PlatformCacheProperties {
+
+    private final static long DEFAULT_MAXIMUM_SIZE = 10_000;
+    private final static long DEFAULT_NEAR_CACHE_MAXIMUM_SIZE = 1000;
+    private final static Duration DEFAULT_NEAR_CACHE_TIME_TO_LIVE = Duration.ofSeconds(10);
+    private final static char PARTITION_SEPARATOR = '@';
+
+    private long maximumSize = DEFAULT_MAXIMUM_SIZE;
+    private DataSize maximumWeight;
+    private Duration timeToLive;
+    private Map<String, CacheSpec> caches = new LinkedHashMap<>();
+    private Map<String, CacheSpec> nearCaches = new LinkedHashMap<>();
+    private Preload preload = new Preload();
+
+    public long getMaximumSize() {
+        return maximumSize;
+    }
+
+    public void setMaximumSize(long maximumSize) {
+        this.maximumSize = maximumSize;
+    }
+
+    public DataSize getMaximumWeight() {
+        return maximumWeight;
+    }
+
+    public void setMaximumWeight(DataSize maximumWeight) {
+        this.maximumWeight = maximumWeight;
+    }
+
+    public Duration getTimeToLive() {
+        return timeToLive;
+    }
+
+    public void setTimeToLive(Duration timeToLive) {
+        this.timeToLive = timeToLive;
+    }
+
+    public Map<String, CacheSpec> getCaches() {
+        return caches;
+    }
+
+    public void setCaches(Map<String, CacheSpec> caches) {
+        this.caches = Optional.ofNullable(caches).orElseGet(LinkedHashMap::new);
+    }
+
+    public Map<String, CacheSpec> getNearCaches() {
+        return nearCaches;
+    }
+
+    public void setNearCaches(Map<String, CacheSpec> nearCaches) {
+        this.nearCaches = Optional.ofNullable(nearCaches).orElseGet(LinkedHashMap::new);
+    }
+
+    public Preload getPreload() {
+        return preload;
+    }
+
+    public void setPreload(Preload preload) {
+        this.preload = Optional.ofNullable(preload).orElseGet(Preload::new);
+    }
+
+    /**
+     * Resolves the effective specification for the near cache of a cache, if configured. Near caches are bounded
+     * to 1000 entries, and expire entries after 10 seconds by default.
+     *
+     * @param cacheName cache name, required
+     * @return effective specification, or null if no near cache is configured for the cache
+     */
+    public CacheSpec resolveNearCache(String cacheName) {
+        CacheSpec spec = nearCaches.get(cacheName);
+        if (spec == null) {
+            return null;
+        }
+        CacheSpec resolved = new CacheSpec();
+        resolved.setMaximumSize(Optional.ofNullable(spec.getMaximumSize()).orElse(DEFAULT_NEAR_CACHE_MAXIMUM_SIZE));
+        resolved.setMaximumWeight(spec.getMaximumWeight());
+        resolved.setTimeToLive(Optional.ofNullable(spec.getTimeToLive()).orElse(DEFAULT_NEAR_CACHE_TIME_TO_LIVE));
+        return resolved;
+    }
+
+    /**
+     * Name of the cache for a partition (e.g. a tenant) of a cache.
+     *
+     * @param cacheName cache name, required
+     * @param partition partition, required
+     * @return partition cache name
+     */
+    public static String partitionName(String cacheName, String partition) {
+        return cacheName + PARTITION_SEPARATOR + partition;
+    }
+
+    /**
+     * Name of the cache a partition cache belongs to (see {@link #partitionName(String, String)}).
+     *
+     * @param cacheName cache name, required
+     * @return base cache name, or the cache name itself if it is not a partition cache
+     */
+    public static String baseName(String cacheName) {
+        int separator = cacheName.indexOf(PARTITION_SEPARATOR);
+        return separator > 0 ? cacheName.substring(0, separator) : cacheName;
+    }
+
+    /**
+     * Resolves the effective specification for a cache, using the defaults for any setting not configured for
+     * that cache. Partition caches which are not configured explicitly use the settings of their cache.
+     *
+     * @param cacheName cache name, required
+     * @return effective specification, never null
+     */
+    public CacheSpec resolve(String cacheName) {
+        CacheSpec spec = Optional.ofNullable(caches.get(cacheName))
+                .or(() -> Optional.ofNullable(caches.get(baseName(cacheName))))
+                .orElseGet(CacheSpec::new);
+        CacheSpec resolved = new CacheSpec();
+        resolved.setMaximumSize(Optional.ofNullable(spec.getMaximumSize()).orElse(maximumSize));
+        resolved.setMaximumWeight(Optional.ofNullable(spec.getMaximumWeight()).orElse(maximumWeight));
+        resolved.setTimeToLive(Optional.ofNullable(spec.getTimeToLive()).orElse(timeToLive));
+        resolved.setOffHeap(spec.getOffHeap());
+        return resolved;
+    }
+
+    /**
+     * Per-cache settings, unset values fall back to the defaults.
+     */
+    public static class CacheSpec {
+
+        private Long maximumSize;
+        private DataSize maximumWeight;
+        private Duration timeToLive;
+        private OffHeap offHeap;
+
+        public Long getMaximumSize() {
+            return maximumSize;
+        }
+
+        public void setMaximumSize(Long maximumSize) {
+            this.maximumSize = maximumSize;
+        }
+
+        /**
+         * Maximum weight (estimated memory size) of all entries. If set, the cache is bounded by weight instead of
+         * the number of entries.
+         *
+         * @return maximum weight, or null if bounded by the number of entries
+         */
+        public DataSize getMaximumWeight() {
+            return maximumWeight;
+        }
+
+        public void setMaximumWeight(DataSize maximumWeight) {
+            this.maximumWeight = maximumWeight;
+        }
+
+        /**
+         * Default time to live of entries (after they were written), null if entries do not expire by default.
+         *
+         * @return time to live
+         */
+        public Duration getTimeToLive() {
+            return timeToLive;
+        }
+
+        public void setTimeToLive(Duration timeToLive) {
+            this.timeToLive = timeToLive;
+        }
+
+        /**
+         * Off-heap storage of the values, null to store the values on the heap.
+         *
+         * @return off-heap settings
+         */
+        public OffHeap getOffHeap() {
+            return offHeap;
+        }
+
+        public void setOffHeap(OffHeap offHeap) {
+            this.offHeap = offHeap;
+        }
+    }
+
+    /**
+     * Off-heap storage settings of a cache.
+     */
+    public static class OffHeap {
+
+        private final static DataSize DEFAULT_SLAB_SIZE = DataSize.ofMegabytes(4);
+
+        private DataSize capacity;
+        private DataSize slabSize = DEFAULT_SLAB_SIZE;
+        private Path directory;
+
+        /**
+         * Total capacity of the off-heap storage (required).
+         *
+         * @return capacity
+         */
+        public DataSize getCapacity() {
+            return capacity;
+        }
+
+        public void setCapacity(DataSize capacity) {
+            this.capacity = capacity;
+        }
+
+        /**
+         * Size of the slabs the storage is divided into (default: 4MB). Serialized values larger than half a
+         * slab are not cached.
+         *
+         * @return slab size
+         */
+        public DataSize getSlabSize() {
+            return slabSize;
+        }
+
+        public void setSlabSize(DataSize slabSize) {
+            this.slabSize = Optional.ofNullable(slabSize).orElse(DEFAULT_SLAB_SIZE);
+        }
+
+        /**
+         * Directory for memory-mapped storage files. If set, the values are stored in memory-mapped files (which
+         * the operating system can page out), otherwise in direct buffers.
+         *
+         * @return directory, or null for direct buffers
+         */
+        public Path getDirectory() {
+            return directory;
+        }
+
+        public void setDirectory(Path directory) {
+            this.directory = directory;
+        }
+    }
+
+    /**
+     * Settings for preloading caches on startup (see
+     * {@link ch.frostnova.spring.boot.platform.core.cache.PreloadSource}).
+     */
+    public static class Preload {
+
+        private final static Duration DEFAULT_TIMEOUT = Duration.ofMinutes(1);
+
+        private boolean enabled = true;
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+        private Duration timeout = DEFAULT_TIMEOUT;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        /**
+         * Number of batches loaded in parallel (default: number of processors).
+         *
+         * @return parallelism
+         */
+        public int getParallelism() {
+            return parallelism;
+        }
+
+        public void setParallelism(int parallelism) {
+            this.parallelism = parallelism;
+        }
+
+        /**
+         * Maximum time the startup waits for the preload to complete (default: 1 minute). Preloading continues in
+         * the background when the timeout is exceeded.
+         *
+         * @return timeout
+         */
+        public Duration getTimeout() {
+            return timeout;
+        }
+
+        public void setTimeout(Duration timeout) {
+            this.timeout = Optional.ofNullable(timeout).orElse(DEFAULT_TIMEOUT);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package ch.frostnova.spring.boot.platform.core.cache.engine;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Lossy ring buffer recording reads, so cache hits don't need to acquire the eviction lock. The buffered reads are
+ * replayed against the policy in batches by whichever thread holds the lock. When readers outpace draining, older
+ * records are overwritten - losing some access information is acceptable for a frequency-based policy.
+ *
+ * @author pwalser
+ * @since 2022-01-08
+ */
+final class ReadBuffer {
+
+    private final static int SIZE = 128;
+    private final static int MASK = SIZE - 1;
+    private final static int DRAIN_THRESHOLD_MASK = 31;
+
+    private final AtomicReferenceArray<Node> buffer = new AtomicReferenceArray<>(SIZE);
+    private final AtomicLong writeCounter = new AtomicLong();
+    private long readCounter;
+
+    /**
+     * Records a read of the node.
+     *
+     * @param node node which was read
+     * @return true if the buffer should be drained now
+     */
+    boolean offer(Node node) {
+        long index = writeCounter.getAndIncrement();
+        buffer.lazySet((int) index & MASK, node);
+        return (index & DRAIN_THRESHOLD_MASK) == DRAIN_THRESHOLD_MASK;
+    }
+
+    /**
+     * Drains all recorded reads. Must only be called while holding the eviction lock.
+     *
+     * @param consumer consumer for the recorded nodes
+     */
+    void drainTo(Consumer<Node> consumer) {
+        long end = writeCounter.get();
+        for (long i = Math.max(readCounter, end - SIZE); i < end; i++) {
+            Node node = buffer.getAndSet((int) i & MASK, null);
+            if (node != null) {
+                consumer.accept(node);
+            }
+        }
+        readCounter = end;
+    }
+}
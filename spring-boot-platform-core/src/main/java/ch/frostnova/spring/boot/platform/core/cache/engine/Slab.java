@@ -0,0 +1,122 @@
+package ch.frostnova.spring.boot.platform.core.cache.engine;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Fixed-size region of off-heap memory (a direct or memory-mapped {@link ByteBuffer}) of an {@link OffHeapCache}.
+ * Values are appended to the slab, until it is full. When the slab is recycled, its generation is incremented, which
+ * invalidates all entries written to the slab before.
+ * <p>
+ * Appending and recycling is done by the cache's writer (holding the cache's write lock). Reads are lock-free
+ * (optimistic): the bytes are copied, and are only used if the slab was not recycled in the meantime.
+ *
+ * @author pwalser
+ * @since 2022-01-16
+ */
+final class Slab {
+
+    private final ByteBuffer buffer;
+    private final ByteBuffer writeView;
+    private final StampedLock lock = new StampedLock();
+    private final List<SlabEntry> entries = new ArrayList<>();
+    private volatile int generation;
+    private int position;
+
+    /**
+     * Create a slab.
+     *
+     * @param buffer buffer, required
+     */
+    Slab(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.writeView = buffer.duplicate();
+    }
+
+    /**
+     * Remaining capacity (writer only).
+     *
+     * @return remaining capacity in bytes
+     */
+    int remaining() {
+        return buffer.capacity() - position;
+    }
+
+    /**
+     * Entries appended since the slab was recycled (writer only).
+     *
+     * @return entries
+     */
+    List<SlabEntry> entries() {
+        return entries;
+    }
+
+    /**
+     * Appends a value (writer only, the value must fit in the remaining capacity).
+     *
+     * @param key       key
+     * @param bytes     serialized value
+     * @param expiresAt expiration time (as in {@link System#nanoTime()}), or {@link SlabEntry#NEVER}
+     * @return entry
+     */
+    SlabEntry append(Object key, byte[] bytes, long expiresAt) {
+        writeView.position(position);
+        writeView.put(bytes);
+        SlabEntry entry = new SlabEntry(key, this, generation, position, bytes.length, expiresAt);
+        position += bytes.length;
+        entries.add(entry);
+        return entry;
+    }
+
+    /**
+     * Reads the value of an entry.
+     *
+     * @param entry entry, required
+     * @return serialized value, or null if the slab was recycled since the entry was written
+     */
+    byte[] read(SlabEntry entry) {
+        byte[] bytes = new byte[entry.length];
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            boolean valid = generation == entry.generation;
+            if (valid) {
+                copy(entry.offset, bytes);
+            }
+            if (lock.validate(stamp)) {
+                return valid ? bytes : null;
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            if (generation != entry.generation) {
+                return null;
+            }
+            copy(entry.offset, bytes);
+            return bytes;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Recycles the slab, invalidating all entries (writer only).
+     */
+    void recycle() {
+        long stamp = lock.writeLock();
+        try {
+            generation++;
+            position = 0;
+            entries.clear();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private void copy(int offset, byte[] bytes) {
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset);
+        view.get(bytes);
+    }
+}
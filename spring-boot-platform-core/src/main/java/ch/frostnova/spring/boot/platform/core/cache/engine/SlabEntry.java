@@ -0,0 +1,43 @@
+package ch.frostnova.spring.boot.platform.core.cache.engine;
+
+/**
+ * On-heap index entry of an {@link OffHeapCache}: the location of a serialized value in a {@link Slab}. The entry is
+ * only valid as long as the slab was not recycled (same generation).
+ *
+ * @author pwalser
+ * @since 2022-01-16
+ */
+final class SlabEntry {
+
+    /**
+     * Expiration time of entries which do not expire.
+     */
+    final static long NEVER = Long.MAX_VALUE;
+
+    final Object key;
+    final Slab slab;
+    final int generation;
+    final int offset;
+    final int length;
+    final long expiresAt;
+    volatile boolean accessed;
+
+    SlabEntry(Object key, Slab slab, int generation, int offset, int length, long expiresAt) {
+        this.key = key;
+        this.slab = slab;
+        this.generation = generation;
+        this.offset = offset;
+        this.length = length;
+        this.expiresAt = expiresAt;
+    }
+
+    /**
+     * Whether the entry is expired at the given time.
+     *
+     * @param nanos current time (as in {@link System#nanoTime()})
+     * @return expired
+     */
+    boolean isExpired(long nanos) {
+        return expiresAt != NEVER && expiresAt - nanos <= 0;
+    }
+}
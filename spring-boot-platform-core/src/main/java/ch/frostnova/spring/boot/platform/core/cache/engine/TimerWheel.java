@@ -0,0 +1,169 @@
+package ch.frostnova.spring.boot.platform.core.cache.engine;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timer wheel for per-entry expiration of a {@link PlatformCache}. Nodes are placed in buckets by their
+ * expiration time, with coarser buckets (seconds, minutes, hours, days) for later expiration times. When time
+ * advances, only the buckets whose time span has passed are visited: expired nodes are removed, the others are
+ * rescheduled into finer buckets. Scheduling and descheduling are O(1).
+ * <p>
+ * Not thread-safe, all methods must be called while holding the cache's eviction lock.
+ *
+ * @author pwalser
+ * @since 2022-01-12
+ */
+final class TimerWheel {
+
+    private final static int[] BUCKETS = {64, 64, 32, 4, 1};
+    private final static long[] SPANS = {
+            ceilingPowerOfTwo(TimeUnit.SECONDS.toNanos(1)), // 1.07s
+            ceilingPowerOfTwo(TimeUnit.MINUTES.toNanos(1)), // 1.14m
+            ceilingPowerOfTwo(TimeUnit.HOURS.toNanos(1)),   // 1.22h
+            ceilingPowerOfTwo(TimeUnit.DAYS.toNanos(1)),    // 1.63d
+            BUCKETS[3] * ceilingPowerOfTwo(TimeUnit.DAYS.toNanos(1)), // 6.5d
+            BUCKETS[3] * ceilingPowerOfTwo(TimeUnit.DAYS.toNanos(1)), // 6.5d
+    };
+    private final static long[] SHIFT = {
+            Long.numberOfTrailingZeros(SPANS[0]),
+            Long.numberOfTrailingZeros(SPANS[1]),
+            Long.numberOfTrailingZeros(SPANS[2]),
+            Long.numberOfTrailingZeros(SPANS[3]),
+            Long.numberOfTrailingZeros(SPANS[4]),
+    };
+
+    private final Node[][] wheel;
+    private long nanos;
+
+    /**
+     * Create a timer wheel.
+     *
+     * @param nanos current time (as in {@link System#nanoTime()})
+     */
+    TimerWheel(long nanos) {
+        this.nanos = nanos;
+        wheel = new Node[BUCKETS.length][];
+        for (int i = 0; i < wheel.length; i++) {
+            wheel[i] = new Node[BUCKETS[i]];
+            for (int j = 0; j < wheel[i].length; j++) {
+                wheel[i][j] = sentinel();
+            }
+        }
+    }
+
+    private static long ceilingPowerOfTwo(long x) {
+        return 1L << -Long.numberOfLeadingZeros(x - 1);
+    }
+
+    private static Node sentinel() {
+        Node sentinel = new Node(null, null);
+        sentinel.previousInWheel = sentinel;
+        sentinel.nextInWheel = sentinel;
+        return sentinel;
+    }
+
+    /**
+     * Schedules a node for expiration at its {@link Node#expiresAt} time, or reschedules it if it was already
+     * scheduled.
+     *
+     * @param node node
+     */
+    void schedule(Node node) {
+        deschedule(node);
+        Node sentinel = findBucket(node.expiresAt);
+        node.previousInWheel = sentinel.previousInWheel;
+        node.nextInWheel = sentinel;
+        sentinel.previousInWheel.nextInWheel = node;
+        sentinel.previousInWheel = node;
+    }
+
+    /**
+     * Removes the node from the wheel, if it was scheduled.
+     *
+     * @param node node
+     */
+    void deschedule(Node node) {
+        if (node.nextInWheel != null) {
+            node.nextInWheel.previousInWheel = node.previousInWheel;
+            node.previousInWheel.nextInWheel = node.nextInWheel;
+            node.nextInWheel = null;
+            node.previousInWheel = null;
+        }
+    }
+
+    /**
+     * Advances the wheel to the current time, expiring all nodes whose expiration time has passed.
+     *
+     * @param currentNanos current time (as in {@link System#nanoTime()})
+     * @param expired      callback for expired nodes, which are descheduled already
+     */
+    void advance(long currentNanos, Consumer<Node> expired) {
+        long previousNanos = nanos;
+        nanos = currentNanos;
+        for (int i = 0; i < SHIFT.length; i++) {
+            long previousTicks = previousNanos >>> SHIFT[i];
+            long currentTicks = currentNanos >>> SHIFT[i];
+            long delta = currentTicks - previousTicks;
+            if (delta <= 0) {
+                break;
+            }
+            expire(i, previousTicks, delta, expired);
+        }
+    }
+
+    /**
+     * Removes all nodes from the wheel.
+     */
+    void clear() {
+        for (Node[] buckets : wheel) {
+            for (Node sentinel : buckets) {
+                Node node = sentinel.nextInWheel;
+                while (node != sentinel) {
+                    Node next = node.nextInWheel;
+                    node.previousInWheel = null;
+                    node.nextInWheel = null;
+                    node = next;
+                }
+                sentinel.previousInWheel = sentinel;
+                sentinel.nextInWheel = sentinel;
+            }
+        }
+    }
+
+    private void expire(int level, long previousTicks, long delta, Consumer<Node> expired) {
+        Node[] buckets = wheel[level];
+        int mask = buckets.length - 1;
+        int steps = (int) Math.min(1 + delta, buckets.length);
+        int start = (int) (previousTicks & mask);
+        for (int i = start; i < start + steps; i++) {
+            Node sentinel = buckets[i & mask];
+            Node node = sentinel.nextInWheel;
+            sentinel.previousInWheel = sentinel;
+            sentinel.nextInWheel = sentinel;
+            while (node != sentinel) {
+                Node next = node.nextInWheel;
+                node.previousInWheel = null;
+                node.nextInWheel = null;
+                if (node.expiresAt - nanos <= 0) {
+                    expired.accept(node);
+                } else {
+                    schedule(node);
+                }
+                node = next;
+            }
+        }
+    }
+
+    private Node findBucket(long time) {
+        long duration = time - nanos;
+        int last = wheel.length - 1;
+        for (int i = 0; i < last; i++) {
+            if (duration < SPANS[i + 1]) {
+                long ticks = time >>> SHIFT[i];
+                return wheel[i][(int) (ticks & (wheel[i].length - 1))];
+            }
+        }
+        return wheel[last][0];
+    }
+}
@@ -0,0 +1,243 @@
+package ch.frostnova.spring.boot.platform.core.cache.engine;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+
+import static ch.frostnova.spring.boot.platform.core.cache.engine.Node.Queue.DEAD;
+import static ch.frostnova.spring.boot.platform.core.cache.engine.Node.Queue.PROBATION;
+import static ch.frostnova.spring.boot.platform.core.cache.engine.Node.Queue.PROTECTED;
+import static ch.frostnova.spring.boot.platform.core.cache.engine.Node.Queue.WINDOW;
+
+/**
+ * W-TinyLFU eviction policy: new entries enter a small LRU admission window (1% of the capacity). Entries leaving the
+ * window compete with the least recently used entry of the main region, and are only admitted if their estimated
+ * access frequency ({@link FrequencySketch}) is higher. The main region is a segmented LRU: entries accessed again
+ * are promoted from the probation to the protected segment (80% of the main region).
+ * <p>
+ * This keeps one-hit wonders (such as scans over many distinct keys) from flushing frequently used entries, so the
+ * hit ratio stays stable regardless of the number of distinct keys.
+ * <p>
+ * The regions are bounded by the total weight of their nodes: each node weighs 1 for caches bounded by the number of
+ * entries, or its estimated size in bytes for caches bounded by weight.
+ * <p>
+ * Not thread-safe, all methods must be called while holding the cache's eviction lock.
+ *
+ * @author pwalser
+ * @since 2022-01-08
+ */
+final class WindowTinyLfuPolicy {
+
+    private final static double WINDOW_RATIO = 0.01;
+    private final static double PROTECTED_RATIO = 0.8;
+    private final static int ADMIT_HASHDOS_THRESHOLD = 5;
+    private final static int INITIAL_WEIGHTED_SKETCH_SIZE = 64;
+
+    private final long maximum;
+    private final long windowMaximum;
+    private final long protectedMaximum;
+    private final boolean weighted;
+
+    private final NodeDeque window = new NodeDeque();
+    private final NodeDeque probation = new NodeDeque();
+    private final NodeDeque protectedQueue = new NodeDeque();
+    private final FrequencySketch sketch;
+    private final Consumer<Node> evictionListener;
+
+    /**
+     * Create the policy.
+     *
+     * @param maximum          maximum number of entries (or maximum total weight, if weighted)
+     * @param weighted         whether the nodes are weighted (otherwise, each node weighs 1)
+     * @param evictionListener callback for evicted nodes, which need to be removed from the cache's data map.
+     */
+    WindowTinyLfuPolicy(long maximum, boolean weighted, Consumer<Node> evictionListener) {
+        if (maximum < 0) {
+            throw new IllegalArgumentException("maximum must not be negative");
+        }
+        this.maximum = maximum;
+        this.windowMaximum = Math.min(maximum, Math.max(1, (long) (maximum * WINDOW_RATIO)));
+        this.protectedMaximum = (long) ((maximum - windowMaximum) * PROTECTED_RATIO);
+        this.weighted = weighted;
+        this.sketch = new FrequencySketch(weighted ? Math.min(maximum, INITIAL_WEIGHTED_SKETCH_SIZE) : maximum);
+        this.evictionListener = evictionListener;
+    }
+
+    long maximum() {
+        return maximum;
+    }
+
+    long size() {
+        return window.size() + probation.size() + protectedQueue.size();
+    }
+
+    long weightedSize() {
+        return window.weight() + probation.weight() + protectedQueue.weight();
+    }
+
+    /**
+     * A new node was added to the cache. Evicts nodes if the cache grew over its maximum size.
+     *
+     * @param node new node
+     */
+    void onAdd(Node node) {
+        if (weighted) {
+            sketch.ensureCapacity(size() + 1);
+        }
+        sketch.increment(node.key);
+        node.queue = WINDOW;
+        window.addLast(node);
+        evict();
+    }
+
+    /**
+     * A node was read or updated.
+     *
+     * @param node node
+     */
+    void onAccess(Node node) {
+        sketch.increment(node.key);
+        switch (node.queue) {
+            case WINDOW:
+                window.moveToBack(node);
+                break;
+            case PROBATION:
+                probation.unlink(node);
+                node.queue = PROTECTED;
+                protectedQueue.addLast(node);
+                demoteProtected();
+                break;
+            case PROTECTED:
+                protectedQueue.moveToBack(node);
+                break;
+            default:
+                // removed concurrently, ignore
+        }
+    }
+
+    /**
+     * The value of a node was updated, which may change its weight. Evicts nodes if the cache grew over its maximum
+     * size (which can include the updated node itself).
+     *
+     * @param node   node
+     * @param weight new weight of the node
+     */
+    void onUpdate(Node node, long weight) {
+        NodeDeque deque = deque(node.queue);
+        if (deque == null) {
+            // removed concurrently, ignore
+            return;
+        }
+        if (node.weight != weight) {
+            deque.unlink(node);
+            node.weight = weight;
+            deque.addLast(node);
+        }
+        onAccess(node);
+        evict();
+    }
+
+    /**
+     * A node was explicitly removed from the cache.
+     *
+     * @param node node
+     */
+    void onRemove(Node node) {
+        unlink(node);
+        node.queue = DEAD;
+    }
+
+    /**
+     * Removes all nodes from the policy.
+     */
+    void clear() {
+        for (NodeDeque deque : new NodeDeque[]{window, probation, protectedQueue}) {
+            Node node;
+            while ((node = deque.pollFirst()) != null) {
+                node.queue = DEAD;
+            }
+        }
+    }
+
+    private void demoteProtected() {
+        while (protectedQueue.weight() > protectedMaximum) {
+            Node demoted = protectedQueue.pollFirst();
+            demoted.queue = PROBATION;
+            probation.addLast(demoted);
+        }
+    }
+
+    private void evict() {
+        Node candidate = null;
+        while (window.weight() > windowMaximum) {
+            Node node = window.pollFirst();
+            node.queue = PROBATION;
+            probation.addLast(node);
+            if (candidate == null) {
+                candidate = node;
+            }
+        }
+        while (weightedSize() > maximum) {
+            Node victim = firstNonNull(probation.peekFirst(), protectedQueue.peekFirst(), window.peekFirst());
+            if (candidate == null || candidate == victim || victim.queue != PROBATION) {
+                if (candidate == victim) {
+                    candidate = victim.next;
+                }
+                evictNode(victim);
+            } else if (admit(candidate.key, victim.key)) {
+                evictNode(victim);
+            } else {
+                Node next = candidate.next;
+                evictNode(candidate);
+                candidate = next;
+            }
+        }
+    }
+
+    private boolean admit(Object candidateKey, Object victimKey) {
+        int victimFrequency = sketch.frequency(victimKey);
+        int candidateFrequency = sketch.frequency(candidateKey);
+        if (candidateFrequency > victimFrequency) {
+            return true;
+        }
+        if (candidateFrequency <= ADMIT_HASHDOS_THRESHOLD) {
+            return false;
+        }
+        // randomly admit warm candidates, so an attacker can't keep a hot victim pinned with colliding keys
+        return ThreadLocalRandom.current().nextInt(128) == 0;
+    }
+
+    private void evictNode(Node node) {
+        onRemove(node);
+        evictionListener.accept(node);
+    }
+
+    private void unlink(Node node) {
+        NodeDeque deque = deque(node.queue);
+        if (deque != null) {
+            deque.unlink(node);
+        }
+    }
+
+    private NodeDeque deque(Node.Queue queue) {
+        switch (queue) {
+            case WINDOW:
+                return window;
+            case PROBATION:
+                return probation;
+            case PROTECTED:
+                return protectedQueue;
+            default:
+                // not linked
+                return null;
+        }
+    }
+
+    private static Node firstNonNull(Node... nodes) {
+        for (Node node : nodes) {
+            if (node != null) {
+                return node;
+            }
+        }
+        throw new IllegalStateException("no node to evict");
+    }
+}
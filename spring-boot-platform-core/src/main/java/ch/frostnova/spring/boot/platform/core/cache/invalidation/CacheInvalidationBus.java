@@ -0,0 +1,261 @@
+package ch.frostnova.spring.boot.platform.core.cache.invalidation;
+
+import ch.frostnova.spring.boot.platform.core.cache.engine.PlatformCacheProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Cluster-wide cache invalidation: evictions and clears of a {@link ch.frostnova.spring.boot.platform.core.cache.TypeSafeCache}
+ * are broadcast to the other nodes (through an {@link InvalidationTransport}), which apply them to their local caches.
+ * Enabled with <code>ch.frostnova.platform.cache.invalidation.enabled: true</code>.
+ * <p>
+ * Publishing never blocks the caller: invalidations are queued (lock-free), and sent in batches by a background
+ * thread after a short window (see {@link CacheInvalidationProperties#getBatchWindow()}), with duplicate invalidations
+ * within the window coalesced. When more invalidations are pending than allowed, the affected caches are cleared on
+ * the other nodes instead.
+ *
+ * @author pwalser
+ * @since 2022-01-16
+ */
+@Component
+@ConditionalOnProperty(value = "ch.frostnova.platform.cache.invalidation.enabled", havingValue = "true")
+@EnableConfigurationProperties(CacheInvalidationProperties.class)
+public class CacheInvalidationBus {
+
+    private final static Logger logger = LoggerFactory.getLogger(CacheInvalidationBus.class);
+
+    private final UUID nodeId = UUID.randomUUID();
+    private final CacheInvalidationProperties properties;
+    private final InvalidationTransport transport;
+    private final Map<String, List<InvalidationListener>> listeners = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Invalidation> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final Set<String> overflowed = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "cache-invalidation-publisher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Create the invalidation bus.
+     *
+     * @param properties properties, required
+     * @param transport  custom transport (optional), if not provided, the configured transport is used
+     */
+    public CacheInvalidationBus(CacheInvalidationProperties properties, ObjectProvider<InvalidationTransport> transport) {
+        if (properties == null) {
+            throw new IllegalArgumentException("properties are required");
+        }
+        this.properties = properties;
+        this.transport = transport.getIfAvailable(() -> createTransport(properties));
+    }
+
+    private static InvalidationTransport createTransport(CacheInvalidationProperties properties) {
+        if (properties.getTransport() == CacheInvalidationProperties.Transport.LOOPBACK) {
+            return new LoopbackInvalidationTransport(properties.getLoopback().getGroup());
+        }
+        CacheInvalidationProperties.Udp udp = properties.getUdp();
+        if (udp.getBindAddress() == null || udp.getBindAddress().isBlank()) {
+            throw new IllegalStateException("bind address of the UDP invalidation transport is required");
+        }
+        List<InetSocketAddress> peers = udp.getPeers().stream()
+                .map(String::trim)
+                .filter(peer -> !peer.isEmpty())
+                .map(peer -> peerAddress(peer, udp.getPort()))
+                .collect(toList());
+        byte[] secret = udp.getSecret() != null ? udp.getSecret().getBytes(UTF_8) : null;
+        return new UdpInvalidationTransport(new InetSocketAddress(udp.getBindAddress(), udp.getPort()), peers, udp.getMaximumMessageSize(), secret);
+    }
+
+    private static InetSocketAddress peerAddress(String peer, int defaultPort) {
+        int separator = peer.lastIndexOf(':');
+        if (separator < 0) {
+            return new InetSocketAddress(peer, defaultPort);
+        }
+        return new InetSocketAddress(peer.substring(0, separator), Integer.parseInt(peer.substring(separator + 1)));
+    }
+
+    @PostConstruct
+    private void start() throws IOException {
+        transport.start(this::receive);
+        long windowMillis = Math.max(1, properties.getBatchWindow().toMillis());
+        scheduler.scheduleWithFixedDelay(this::flush, windowMillis, windowMillis, TimeUnit.MILLISECONDS);
+        logger.info("cache invalidation bus started (node {}, transport {})", nodeId, transport.getClass().getSimpleName());
+    }
+
+    @PreDestroy
+    private void stop() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        transport.stop();
+    }
+
+    /**
+     * Id of this node, used to ignore its own invalidations when they are received.
+     *
+     * @return node id
+     */
+    public UUID getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Registers a listener for the invalidations of a cache received from other nodes.
+     *
+     * @param cacheName cache name, required
+     * @param listener  listener, required
+     */
+    public void register(String cacheName, InvalidationListener listener) {
+        if (cacheName == null) {
+            throw new IllegalArgumentException("cacheName is required");
+        }
+        if (listener == null) {
+            throw new IllegalArgumentException("listener is required");
+        }
+        listeners.computeIfAbsent(cacheName, name -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
+    /**
+     * Publishes the eviction of an entry to the other nodes (non-blocking).
+     *
+     * @param cacheName cache name, required
+     * @param key       internal cache key, required
+     */
+    public void publishEvict(String cacheName, Object key) {
+        enqueue(new Invalidation(cacheName, key));
+    }
+
+    /**
+     * Publishes clearing a cache to the other nodes (non-blocking).
+     *
+     * @param cacheName cache name, required
+     */
+    public void publishClear(String cacheName) {
+        enqueue(new Invalidation(cacheName, null));
+    }
+
+    /**
+     * Publishes clearing a partition (e.g. a tenant) of a cache to the other nodes (non-blocking).
+     *
+     * @param cacheName cache name, required
+     * @param partition partition, required
+     */
+    public void publishClear(String cacheName, String partition) {
+        if (partition == null) {
+            throw new IllegalArgumentException("partition is required");
+        }
+        enqueue(new Invalidation(PlatformCacheProperties.partitionName(cacheName, partition), null));
+    }
+
+    private void enqueue(Invalidation invalidation) {
+        if (pendingCount.incrementAndGet() > properties.getMaximumPending()) {
+            pendingCount.decrementAndGet();
+            overflowed.add(invalidation.cacheName);
+            return;
+        }
+        pending.offer(invalidation);
+    }
+
+    /**
+     * Sends the pending invalidations, coalescing duplicates.
+     */
+    void flush() {
+        Set<String> clears = new LinkedHashSet<>();
+        Map<String, Set<Object>> keys = new LinkedHashMap<>();
+        for (String cacheName : overflowed) {
+            overflowed.remove(cacheName);
+            clears.add(cacheName);
+        }
+        Invalidation invalidation;
+        while ((invalidation = pending.poll()) != null) {
+            pendingCount.decrementAndGet();
+            if (invalidation.key == null) {
+                clears.add(invalidation.cacheName);
+            } else if (!clears.contains(invalidation.cacheName)) {
+                keys.computeIfAbsent(invalidation.cacheName, name -> new LinkedHashSet<>()).add(invalidation.key);
+            }
+        }
+        if (clears.isEmpty() && keys.isEmpty()) {
+            return;
+        }
+        keys.keySet().removeAll(clears);
+        try {
+            for (byte[] message : InvalidationMessage.encode(nodeId, clears, keys, transport.maximumMessageSize())) {
+                transport.send(message);
+            }
+        } catch (IOException | RuntimeException ex) {
+            logger.warn("failed to publish cache invalidations: {}", ex.toString());
+        }
+    }
+
+    private void receive(byte[] message) {
+        InvalidationMessage invalidations;
+        try {
+            invalidations = InvalidationMessage.decode(message);
+        } catch (IOException ex) {
+            logger.warn("ignoring invalid cache invalidation message: {}", ex.getMessage());
+            return;
+        }
+        if (nodeId.equals(invalidations.nodeId())) {
+            return;
+        }
+        invalidations.clears().forEach(this::clear);
+        invalidations.keys().forEach((cacheName, cacheKeys) ->
+                listeners.getOrDefault(cacheName, List.of()).forEach(listener -> cacheKeys.forEach(listener::invalidate)));
+    }
+
+    private void clear(String cacheName) {
+        String baseName = PlatformCacheProperties.baseName(cacheName);
+        if (baseName.equals(cacheName) || listeners.containsKey(cacheName)) {
+            listeners.getOrDefault(cacheName, List.of()).forEach(InvalidationListener::invalidateAll);
+        } else {
+            String partition = cacheName.substring(baseName.length() + 1);
+            listeners.getOrDefault(baseName, List.of()).forEach(listener -> listener.invalidatePartition(partition));
+        }
+    }
+
+    private static final class Invalidation {
+
+        private final String cacheName;
+        private final Object key;
+
+        private Invalidation(String cacheName, Object key) {
+            if (cacheName == null) {
+                throw new IllegalArgumentException("cacheName is required");
+            }
+            this.cacheName = cacheName;
+            this.key = key;
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package ch.frostnova.spring.boot.platform.core.cache.invalidation;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Configuration of the {@link CacheInvalidationBus}.
+ * <p>
+ * Example:
+ * <pre>
+ * ch.frostnova.platform.cache.invalidation:
+ *   enabled: true
+ *   transport: udp
+ *   udp:
+ *     port: 4446
+ *     peers: node1:4446, node2:4446, node3:4446
+ * </pre>
+ *
+ * @author pwalser
+ * @since 2022-01-16
+ */
+@ConfigurationProperties("ch.frostnova.platform.cache.invalidation")
+public class CacheInvalidationProperties {
+
+    private final static Duration DEFAULT_BATCH_WINDOW = Duration.ofMillis(20);
+    private final static int DEFAULT_MAXIMUM_PENDING = 10_000;
+
+    private boolean enabled;
+    private Transport transport = Transport.UDP;
+    private Duration batchWindow = DEFAULT_BATCH_WINDOW;
+    private int maximumPending = DEFAULT_MAXIMUM_PENDING;
+    private Udp udp = new Udp();
+    private Loopback loopback = new Loopback();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Transport getTransport() {
+        return transport;
+    }
+
+    public void setTransport(Transport transport) {
+        this.transport = Optional.ofNullable(transport).orElse(Transport.UDP);
+    }
+
+    /**
+     * Time window in which invalidations are collected (and duplicates coalesced) before they are sent as a batch.
+     *
+     * @return batch window
+     */
+    public Duration getBatchWindow() {
+        return batchWindow;
+    }
+
+    public void setBatchWindow(Duration batchWindow) {
+        this.batchWindow = Optional.ofNullable(batchWindow).orElse(DEFAULT_BATCH_WINDOW);
+    }
+
+    /**
+     * Maximum number of pending invalidations per batch window. When exceeded, further invalidations are sent as
+     * clearing the affected caches instead.
+     *
+     * @return maximum pending invalidations
+     */
+    public int getMaximumPending() {
+        return maximumPending;
+    }
+
+    public void setMaximumPending(int maximumPending) {
+        this.maximumPending = maximumPending;
+    }
+
+    public Udp getUdp() {
+        return udp;
+    }
+
+    public void setUdp(Udp udp) {
+        this.udp = Optional.ofNullable(udp).orElseGet(Udp::new);
+    }
+
+    public Loopback getLoopback() {
+        return loopback;
+    }
+
+    public void setLoopback(Loopback loopback) {
+        this.loopback = Optional.ofNullable(loopback).orElseGet(Loopback::new);
+    }
+
+    /**
+     * Transport types.
+     */
+    public enum Transport {
+        /**
+         * In-process transport (see {@link LoopbackInvalidationTransport}), for tests.
+         */
+        LOOPBACK,
+        /**
+         * UDP transport (see {@link UdpInvalidationTransport}).
+         */
+        UDP
+    }
+
+    /**
+     * Settings of the UDP transport.
+     */
+    public static class Udp {
+
+        private final static int DEFAULT_PORT = 4446;
+        private final static int DEFAULT_MAXIMUM_MESSAGE_SIZE = 1400;
+
+        private String bindAddress;
+        private int port = DEFAULT_PORT;
+        private List<String> peers = new ArrayList<>();
+        private int maximumMessageSize = DEFAULT_MAXIMUM_MESSAGE_SIZE;
+        private String secret;
+
+        /**
+         * Local address to receive invalidations on, required (no default, so the receiver is never exposed on all
+         * interfaces by accident).
+         *
+         * @return bind address
+         */
+        public String getBindAddress() {
+            return bindAddress;
+        }
+
+        public void setBindAddress(String bindAddress) {
+            this.bindAddress = bindAddress;
+        }
+
+        public int getPort() {
+            return port;
+        }
+
+        public void setPort(int port) {
+            this.port = port;
+        }
+
+        /**
+         * Peers to send invalidations to (<code>host:port</code>, or <code>host</code> for the default port).
+         *
+         * @return peers
+         */
+        public List<String> getPeers() {
+            return peers;
+        }
+
+        public void setPeers(List<String> peers) {
+            this.peers = Optional.ofNullable(peers).orElseGet(ArrayList::new);
+        }
+
+        public int getMaximumMessageSize() {
+            return maximumMessageSize;
+        }
+
+        public void setMaximumMessageSize(int maximumMessageSize) {
+            this.maximumMessageSize = maximumMessageSize;
+        }
+
+        /**
+         * Secret shared by all peers to sign the invalidations (at least 16 characters), optional.
+         *
+         * @return secret
+         */
+        public String getSecret() {
+            return secret;
+        }
+
+        public void setSecret(String secret) {
+            this.secret = secret;
+        }
+    }
+
+    /**
+     * Settings of the loopback transport.
+     */
+    public static class Loopback {
+
+        private String group = "default";
+
+        public String getGroup() {
+            return group;
+        }
+
+        public void setGroup(String group) {
+            this.group = group;
+        }
+    }
+}
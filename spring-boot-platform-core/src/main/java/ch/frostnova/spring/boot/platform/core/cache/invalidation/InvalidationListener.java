@@ -0,0 +1,32 @@
+package ch.frostnova.spring.boot.platform.core.cache.invalidation;
+
+/**
+ * Listener for invalidations received from other nodes, registered per cache name on the {@link CacheInvalidationBus}.
+ * Invalidations are applied to the local cache only (they are not published again).
+ *
+ * @author pwalser
+ * @since 2022-01-16
+ */
+public interface InvalidationListener {
+
+    /**
+     * Invalidates the entry with the given key.
+     *
+     * @param key internal cache key
+     */
+    void invalidate(Object key);
+
+    /**
+     * Invalidates all entries.
+     */
+    void invalidateAll();
+
+    /**
+     * Invalidates all entries of a partition (e.g. a tenant). By default, all entries are invalidated.
+     *
+     * @param partition partition
+     */
+    default void invalidatePartition(String partition) {
+        invalidateAll();
+    }
+}
@@ -0,0 +1,262 @@
+package ch.frostnova.spring.boot.platform.core.cache.invalidation;
+
+import ch.frostnova.spring.boot.platform.core.cache.KeyCodec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Batch of cache invalidations sent by a node, and its binary encoding:
+ * <pre>
+ * header:  magic (int), version (byte), node id (2 longs), number of sections (int)
+ * section: cache name (UTF), clear (boolean), number of keys (int), keys (see {@link KeyCodec})
+ * </pre>
+ * A batch is split into as many messages as required to stay within the maximum message size of the transport.
+ * Only keys which can be encoded natively are sent (see {@link KeyCodec#isNativelyEncodable(Object)}), caches with
+ * other keys are cleared instead. Received messages are decoded as untrusted input: keys encoded with Java
+ * serialization are rejected, and counts and lengths are checked against the size of the message.
+ *
+ * @author pwalser
+ * @since 2022-01-16
+ */
+final class InvalidationMessage {
+
+    private final static int MAGIC = 0x54534349;
+    private final static byte VERSION = 1;
+    private final static int HEADER_SIZE = 4 + 1 + 16 + 4;
+    private final static int SECTION_HEADER_SIZE = 2 + 1 + 4;
+
+    private final UUID nodeId;
+    private final Set<String> clears;
+    private final Map<String, List<Object>> keys;
+
+    private InvalidationMessage(UUID nodeId, Set<String> clears, Map<String, List<Object>> keys) {
+        this.nodeId = nodeId;
+        this.clears = clears;
+        this.keys = keys;
+    }
+
+    /**
+     * Node which sent the invalidations.
+     *
+     * @return node id
+     */
+    UUID nodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Names of the caches to clear.
+     *
+     * @return cache names
+     */
+    Set<String> clears() {
+        return clears;
+    }
+
+    /**
+     * Keys to invalidate, per cache name.
+     *
+     * @return keys per cache name
+     */
+    Map<String, List<Object>> keys() {
+        return keys;
+    }
+
+    /**
+     * Encodes a batch of invalidations into messages. Caches whose keys cannot be encoded natively (e.g. keys
+     * which require Java serialization, or keys larger than a message) are cleared instead.
+     *
+     * @param nodeId             node id, required
+     * @param clears             names of the caches to clear, required
+     * @param keys               keys to invalidate, per cache name, required
+     * @param maximumMessageSize maximum message size
+     * @return messages
+     */
+    static List<byte[]> encode(UUID nodeId, Collection<String> clears, Map<String, ? extends Collection<Object>> keys, int maximumMessageSize) {
+        Set<String> clearedCaches = new LinkedHashSet<>(clears);
+        Map<String, List<byte[]>> encodedKeys = new LinkedHashMap<>();
+        int maximumKeySize = maximumMessageSize - HEADER_SIZE - SECTION_HEADER_SIZE;
+        keys.forEach((cacheName, cacheKeys) -> {
+            if (clearedCaches.contains(cacheName)) {
+                return;
+            }
+            int maximumKeySizeForCache = maximumKeySize - utfLength(cacheName);
+            List<byte[]> encoded = new ArrayList<>();
+            for (Object key : cacheKeys) {
+                byte[] bytes = encodeKey(key);
+                if (bytes == null || bytes.length > maximumKeySizeForCache) {
+                    clearedCaches.add(cacheName);
+                    return;
+                }
+                encoded.add(bytes);
+            }
+            encodedKeys.put(cacheName, encoded);
+        });
+        encodedKeys.keySet().removeAll(clearedCaches);
+
+        MessageBuilder builder = new MessageBuilder(nodeId, maximumMessageSize);
+        clearedCaches.forEach(cacheName -> builder.section(cacheName, true));
+        encodedKeys.forEach((cacheName, cacheKeys) -> {
+            builder.section(cacheName, false);
+            cacheKeys.forEach(key -> builder.key(cacheName, key));
+        });
+        return builder.build();
+    }
+
+    /**
+     * Decodes a message.
+     *
+     * @param message message, required
+     * @return decoded invalidations
+     * @throws IOException if the message is malformed
+     */
+    static InvalidationMessage decode(byte[] message) throws IOException {
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(message));
+            if (in.readInt() != MAGIC) {
+                throw new IOException("not an invalidation message");
+            }
+            byte version = in.readByte();
+            if (version != VERSION) {
+                throw new IOException("unsupported invalidation message version " + version);
+            }
+            UUID nodeId = new UUID(in.readLong(), in.readLong());
+            int sections = in.readInt();
+            if (sections < 0 || sections > in.available()) {
+                throw new IOException("invalid number of sections: " + sections);
+            }
+            Set<String> clears = new LinkedHashSet<>();
+            Map<String, List<Object>> keys = new LinkedHashMap<>();
+            for (int i = 0; i < sections; i++) {
+                String cacheName = in.readUTF();
+                boolean clear = in.readBoolean();
+                int keyCount = in.readInt();
+                if (keyCount < 0 || keyCount > in.available()) {
+                    throw new IOException("invalid number of keys: " + keyCount);
+                }
+                if (clear) {
+                    clears.add(cacheName);
+                }
+                List<Object> cacheKeys = keys.computeIfAbsent(cacheName, name -> new ArrayList<>());
+                for (int k = 0; k < keyCount; k++) {
+                    cacheKeys.add(KeyCodec.readUntrusted(in, in.available()));
+                }
+            }
+            keys.values().removeIf(List::isEmpty);
+            return new InvalidationMessage(nodeId, clears, keys);
+        } catch (RuntimeException ex) {
+            throw new IOException("malformed invalidation message: " + ex, ex);
+        }
+    }
+
+    private static byte[] encodeKey(Object key) {
+        if (!KeyCodec.isNativelyEncodable(key)) {
+            return null;
+        }
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(buffer)) {
+            KeyCodec.write(out, key);
+        } catch (IOException ex) {
+            return null;
+        }
+        return buffer.toByteArray();
+    }
+
+    private static int utfLength(String s) {
+        return s.getBytes(UTF_8).length;
+    }
+
+    /**
+     * Builds messages from sections and keys, starting a new message whenever the maximum size would be exceeded.
+     */
+    private static final class MessageBuilder {
+
+        private final UUID nodeId;
+        private final int maximumMessageSize;
+        private final List<byte[]> messages = new ArrayList<>();
+        private final List<Section> sections = new ArrayList<>();
+        private int size = HEADER_SIZE;
+
+        private MessageBuilder(UUID nodeId, int maximumMessageSize) {
+            this.nodeId = nodeId;
+            this.maximumMessageSize = maximumMessageSize;
+        }
+
+        void section(String cacheName, boolean clear) {
+            int sectionSize = SECTION_HEADER_SIZE + utfLength(cacheName);
+            if (size + sectionSize > maximumMessageSize) {
+                flush();
+            }
+            sections.add(new Section(cacheName, clear));
+            size += sectionSize;
+        }
+
+        void key(String cacheName, byte[] key) {
+            if (size + key.length > maximumMessageSize) {
+                flush();
+                section(cacheName, false);
+            }
+            sections.get(sections.size() - 1).keys.add(key);
+            size += key.length;
+        }
+
+        List<byte[]> build() {
+            flush();
+            return messages;
+        }
+
+        private void flush() {
+            if (sections.isEmpty()) {
+                return;
+            }
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(size);
+            try (DataOutputStream out = new DataOutputStream(buffer)) {
+                out.writeInt(MAGIC);
+                out.writeByte(VERSION);
+                out.writeLong(nodeId.getMostSignificantBits());
+                out.writeLong(nodeId.getLeastSignificantBits());
+                out.writeInt(sections.size());
+                for (Section section : sections) {
+                    out.writeUTF(section.cacheName);
+                    out.writeBoolean(section.clear);
+                    out.writeInt(section.keys.size());
+                    for (byte[] key : section.keys) {
+                        out.write(key);
+                    }
+                }
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            messages.add(buffer.toByteArray());
+            sections.clear();
+            size = HEADER_SIZE;
+        }
+    }
+
+    private static final class Section {
+
+        private final String cacheName;
+        private final boolean clear;
+        private final List<byte[]> keys = new ArrayList<>();
+
+        private Section(String cacheName, boolean clear) {
+            this.cacheName = cacheName;
+            this.clear = clear;
+        }
+    }
+}
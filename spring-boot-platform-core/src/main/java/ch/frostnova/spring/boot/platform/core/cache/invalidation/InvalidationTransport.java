@@ -0,0 +1,46 @@
+package ch.frostnova.spring.boot.platform.core.cache.invalidation;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * Transport of cache invalidation messages between the nodes of a cluster, used by the {@link CacheInvalidationBus}.
+ * Messages are opaque byte arrays (encoded and decoded by the bus), which are broadcast to all peers. Delivery is
+ * best-effort: messages may be lost, duplicated or reordered, and a node may receive its own messages.
+ * <p>
+ * Provide a bean implementing this interface to use a custom transport, otherwise the transport configured in the
+ * {@link CacheInvalidationProperties} is used.
+ *
+ * @author pwalser
+ * @since 2022-01-16
+ */
+public interface InvalidationTransport {
+
+    /**
+     * Maximum size of a message. Larger batches of invalidations are split into multiple messages.
+     *
+     * @return maximum message size in bytes
+     */
+    int maximumMessageSize();
+
+    /**
+     * Starts receiving messages from peers.
+     *
+     * @param receiver receiver for messages, called on a thread of the transport, required
+     * @throws IOException if the transport cannot be started
+     */
+    void start(Consumer<byte[]> receiver) throws IOException;
+
+    /**
+     * Broadcasts a message to all peers.
+     *
+     * @param message message, required
+     * @throws IOException if the message could not be sent
+     */
+    void send(byte[] message) throws IOException;
+
+    /**
+     * Stops the transport, releasing all resources.
+     */
+    void stop();
+}
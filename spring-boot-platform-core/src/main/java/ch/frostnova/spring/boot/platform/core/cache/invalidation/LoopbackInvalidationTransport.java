@@ -0,0 +1,82 @@
+package ch.frostnova.spring.boot.platform.core.cache.invalidation;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * In-process {@link InvalidationTransport}: messages are delivered to all transports of the same group within the
+ * same JVM (including the sender), asynchronously on a delivery thread per transport. Intended for tests, where each
+ * application context represents a node.
+ *
+ * @author pwalser
+ * @since 2022-01-16
+ */
+public class LoopbackInvalidationTransport implements InvalidationTransport {
+
+    private final static int MAXIMUM_MESSAGE_SIZE = 64 * 1024;
+    private final static Map<String, Set<LoopbackInvalidationTransport>> groups = new ConcurrentHashMap<>();
+
+    private final String group;
+    private volatile Consumer<byte[]> receiver;
+    private volatile ExecutorService delivery;
+
+    /**
+     * Create a loopback transport.
+     *
+     * @param group group name, required
+     */
+    public LoopbackInvalidationTransport(String group) {
+        if (group == null || group.isBlank()) {
+            throw new IllegalArgumentException("group is required");
+        }
+        this.group = group;
+    }
+
+    @Override
+    public int maximumMessageSize() {
+        return MAXIMUM_MESSAGE_SIZE;
+    }
+
+    @Override
+    public void start(Consumer<byte[]> receiver) {
+        if (receiver == null) {
+            throw new IllegalArgumentException("receiver is required");
+        }
+        this.receiver = receiver;
+        this.delivery = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cache-invalidation-loopback-" + group);
+            thread.setDaemon(true);
+            return thread;
+        });
+        groups.computeIfAbsent(group, name -> ConcurrentHashMap.newKeySet()).add(this);
+    }
+
+    @Override
+    public void send(byte[] message) {
+        groups.getOrDefault(group, Set.of()).forEach(peer -> peer.deliver(message.clone()));
+    }
+
+    @Override
+    public void stop() {
+        groups.getOrDefault(group, Set.of()).remove(this);
+        if (delivery != null) {
+            delivery.shutdown();
+        }
+    }
+
+    private void deliver(byte[] message) {
+        ExecutorService executor = delivery;
+        if (executor != null) {
+            try {
+                executor.execute(() -> receiver.accept(message));
+            } catch (RejectedExecutionException ex) {
+                // stopped in the meantime
+            }
+        }
+    }
+}
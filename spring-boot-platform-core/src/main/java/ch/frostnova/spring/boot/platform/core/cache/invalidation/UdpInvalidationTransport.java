@@ -0,0 +1,218 @@
+package ch.frostnova.spring.boot.platform.core.cache.invalidation;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * {@link InvalidationTransport} sending messages as UDP datagrams to a static list of peers (unicast, so it also
+ * works in networks without multicast support). Each node binds to a local port to receive the messages of its
+ * peers. The list of peers may include the node itself (messages of a node are ignored by its bus), so all nodes
+ * can share the same configuration.
+ * <p>
+ * Only datagrams sent from the addresses of the configured peers are accepted. With a shared secret, messages are
+ * additionally signed (HMAC-SHA256 over the message and a timestamp), and messages with an invalid signature or a
+ * timestamp too far off are discarded. Source addresses of UDP datagrams can be spoofed, so configure a secret
+ * unless the network is trusted.
+ * <p>
+ * UDP delivery is unreliable: invalidations may be lost, so caches using the invalidation bus still need an
+ * expiration as a fallback. Keep the maximum message size below the network MTU to avoid IP fragmentation.
+ *
+ * @author pwalser
+ * @since 2022-01-16
+ */
+public class UdpInvalidationTransport implements InvalidationTransport {
+
+    private final static Logger logger = LoggerFactory.getLogger(UdpInvalidationTransport.class);
+
+    private final static int MAXIMUM_DATAGRAM_SIZE = 65507;
+    private final static String SIGNATURE_ALGORITHM = "HmacSHA256";
+    private final static int SIGNATURE_SIZE = Long.BYTES + 32;
+    private final static int MINIMUM_SECRET_LENGTH = 16;
+    private final static long MAXIMUM_CLOCK_SKEW_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    private final InetSocketAddress bindAddress;
+    private final List<InetSocketAddress> peers;
+    private final int maximumMessageSize;
+    private final SecretKeySpec secret;
+    private volatile DatagramChannel channel;
+
+    /**
+     * Create a UDP transport without signing (only accepting messages from the addresses of the peers).
+     *
+     * @param bindAddress        local address to receive messages on, required (port 0: ephemeral port)
+     * @param peers              peers to send messages to and receive messages from, required
+     * @param maximumMessageSize maximum message (datagram payload) size in bytes
+     */
+    public UdpInvalidationTransport(InetSocketAddress bindAddress, List<InetSocketAddress> peers, int maximumMessageSize) {
+        this(bindAddress, peers, maximumMessageSize, null);
+    }
+
+    /**
+     * Create a UDP transport.
+     *
+     * @param bindAddress        local address to receive messages on, required (port 0: ephemeral port)
+     * @param peers              peers to send messages to and receive messages from, required
+     * @param maximumMessageSize maximum message (datagram payload) size in bytes
+     * @param secret             secret shared by all peers to sign the messages (at least 16 bytes), optional
+     */
+    public UdpInvalidationTransport(InetSocketAddress bindAddress, List<InetSocketAddress> peers, int maximumMessageSize, byte[] secret) {
+        if (bindAddress == null) {
+            throw new IllegalArgumentException("bindAddress is required");
+        }
+        if (peers == null) {
+            throw new IllegalArgumentException("peers are required");
+        }
+        if (maximumMessageSize < 512 || maximumMessageSize > MAXIMUM_DATAGRAM_SIZE) {
+            throw new IllegalArgumentException("maximumMessageSize must be between 512 and " + MAXIMUM_DATAGRAM_SIZE);
+        }
+        if (secret != null && secret.length < MINIMUM_SECRET_LENGTH) {
+            throw new IllegalArgumentException("secret must have at least " + MINIMUM_SECRET_LENGTH + " bytes");
+        }
+        this.bindAddress = bindAddress;
+        this.peers = List.copyOf(peers);
+        this.maximumMessageSize = maximumMessageSize;
+        this.secret = secret != null ? new SecretKeySpec(secret, SIGNATURE_ALGORITHM) : null;
+    }
+
+    /**
+     * Local port the transport receives messages on (once started).
+     *
+     * @return port
+     * @throws IOException if the port cannot be determined
+     */
+    public int getLocalPort() throws IOException {
+        return ((InetSocketAddress) channel.getLocalAddress()).getPort();
+    }
+
+    @Override
+    public int maximumMessageSize() {
+        return secret != null ? maximumMessageSize - SIGNATURE_SIZE : maximumMessageSize;
+    }
+
+    @Override
+    public void start(Consumer<byte[]> receiver) throws IOException {
+        if (receiver == null) {
+            throw new IllegalArgumentException("receiver is required");
+        }
+        Set<InetAddress> peerAddresses = peers.stream()
+                .map(InetSocketAddress::getAddress)
+                .filter(address -> address != null)
+                .collect(Collectors.toSet());
+        if (peerAddresses.size() < peers.size()) {
+            logger.warn("could not resolve all peers, messages of unresolved peers are not accepted: {}", peers);
+        }
+        channel = DatagramChannel.open();
+        channel.bind(bindAddress);
+        Thread thread = new Thread(() -> receive(channel, peerAddresses, receiver), "cache-invalidation-receiver");
+        thread.setDaemon(true);
+        thread.start();
+        logger.info("receiving cache invalidations on {}, peers: {}", channel.getLocalAddress(), peers);
+        if (secret == null) {
+            logger.warn("cache invalidations are not signed, configure a secret unless the network is trusted");
+        }
+    }
+
+    @Override
+    public void send(byte[] message) throws IOException {
+        DatagramChannel datagramChannel = channel;
+        if (datagramChannel == null) {
+            throw new IllegalStateException("transport not started");
+        }
+        byte[] datagram = secret != null ? sign(message) : message;
+        for (InetSocketAddress peer : peers) {
+            datagramChannel.send(ByteBuffer.wrap(datagram), peer);
+        }
+    }
+
+    @Override
+    public void stop() {
+        DatagramChannel datagramChannel = channel;
+        if (datagramChannel != null) {
+            try {
+                datagramChannel.close();
+            } catch (IOException ex) {
+                logger.debug("failed to close channel: {}", ex.toString());
+            }
+        }
+    }
+
+    private void receive(DatagramChannel channel, Set<InetAddress> peerAddresses, Consumer<byte[]> receiver) {
+        ByteBuffer buffer = ByteBuffer.allocate(MAXIMUM_DATAGRAM_SIZE);
+        while (channel.isOpen()) {
+            try {
+                buffer.clear();
+                SocketAddress source = channel.receive(buffer);
+                if (!(source instanceof InetSocketAddress) || !peerAddresses.contains(((InetSocketAddress) source).getAddress())) {
+                    logger.debug("discarding cache invalidation from {}: not a peer", source);
+                    continue;
+                }
+                buffer.flip();
+                byte[] datagram = new byte[buffer.remaining()];
+                buffer.get(datagram);
+                byte[] message = secret != null ? verify(datagram) : datagram;
+                if (message == null) {
+                    logger.warn("discarding cache invalidation from {}: invalid or expired signature", source);
+                    continue;
+                }
+                receiver.accept(message);
+            } catch (ClosedChannelException ex) {
+                return;
+            } catch (IOException | RuntimeException ex) {
+                logger.warn("failed to receive cache invalidation: {}", ex.toString());
+            }
+        }
+    }
+
+    private byte[] sign(byte[] message) {
+        byte[] datagram = Arrays.copyOf(message, message.length + SIGNATURE_SIZE);
+        ByteBuffer.wrap(datagram, message.length, Long.BYTES).putLong(System.currentTimeMillis());
+        byte[] signature = signature(datagram, message.length + Long.BYTES);
+        System.arraycopy(signature, 0, datagram, message.length + Long.BYTES, signature.length);
+        return datagram;
+    }
+
+    private byte[] verify(byte[] datagram) {
+        int length = datagram.length - SIGNATURE_SIZE;
+        if (length < 0) {
+            return null;
+        }
+        byte[] signature = Arrays.copyOfRange(datagram, length + Long.BYTES, datagram.length);
+        if (!MessageDigest.isEqual(signature, signature(datagram, length + Long.BYTES))) {
+            return null;
+        }
+        long timestamp = ByteBuffer.wrap(datagram, length, Long.BYTES).getLong();
+        if (Math.abs(System.currentTimeMillis() - timestamp) > MAXIMUM_CLOCK_SKEW_MILLIS) {
+            return null;
+        }
+        return Arrays.copyOf(datagram, length);
+    }
+
+    private byte[] signature(byte[] data, int length) {
+        try {
+            Mac mac = Mac.getInstance(SIGNATURE_ALGORITHM);
+            mac.init(secret);
+            mac.update(data, 0, length);
+            return mac.doFinal();
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException("failed to sign cache invalidation", ex);
+        }
+    }
+}
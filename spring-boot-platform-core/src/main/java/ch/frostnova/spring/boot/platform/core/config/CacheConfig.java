@@ -1,18 +1,21 @@
 package ch.frostnova.spring.boot.platform.core.config;
 
+import ch.frostnova.spring.boot.platform.core.cache.engine.PlatformCacheManager;
+import ch.frostnova.spring.boot.platform.core.cache.engine.PlatformCacheProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
-import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
 import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 @Configuration
 @EnableCaching
+@EnableConfigurationProperties(PlatformCacheProperties.class)
 public class CacheConfig {
 
     @Bean
-    public CacheManager cacheManager() {
-        return new TransactionAwareCacheManagerProxy(new ConcurrentMapCacheManager());
+    public CacheManager cacheManager(PlatformCacheProperties cacheProperties) {
+        return new TransactionAwareCacheManagerProxy(new PlatformCacheManager(cacheProperties));
     }
 }
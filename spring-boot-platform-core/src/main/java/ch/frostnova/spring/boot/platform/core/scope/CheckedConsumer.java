@@ -0,0 +1,33 @@
+package ch.frostnova.spring.boot.platform.core.scope;
+
+import java.util.function.Consumer;
+
+/**
+ * Functional interface for a consumer which can throw a checked exception (same as {@link Consumer}).
+ */
+@FunctionalInterface
+public interface CheckedConsumer<T> {
+
+    /**
+     * Functional contract
+     *
+     * @param value value
+     * @throws Exception optional exception
+     */
+    void accept(T value) throws Throwable;
+
+    /**
+     * Unchecked execution: execute checked and rethrow any exception as {@link RuntimeException}.
+     *
+     * @param value value
+     */
+    default void acceptUnchecked(T value) {
+        try {
+            accept(value);
+        } catch (RuntimeException ex) {
+            throw ex;
+        } catch (Throwable ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+}
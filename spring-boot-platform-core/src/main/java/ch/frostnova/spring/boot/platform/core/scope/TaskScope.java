@@ -4,12 +4,29 @@ import org.springframework.beans.factory.ObjectFactory;
 import org.springframework.beans.factory.config.Scope;
 import org.springframework.web.context.annotation.RequestScope;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static java.util.stream.Collectors.toList;
 
 /**
  * A scope for beans living withing a task context. Contrary to the {@link RequestScope}, the task scope is not limited to HTTP requests, but can be used for:
@@ -23,6 +40,22 @@ import java.util.concurrent.ExecutorService;
  * opened and closed (by the {@link TaskScopeRequestScopeFilter}), making this scope behave like the {@link RequestScope}.
  * Task scopes are thread-bound, but nesting of task scopes within the same thread is possible using the {@link ExecutionContext} functionality.
  * <p>
+ * A task scope can be shared by parallel workers (see {@link #currentExecutionContext()}): each scoped bean is created
+ * exactly once per scope, and is read without locking once created.
+ * <p>
+ * Task-scoped beans are assigned dense slots (indices) when the scope is registered (see {@link TaskScopeConfig}), and
+ * are stored in small arrays indexed by slot, so accessing a task-scoped bean (through its scoped proxy) does not
+ * need a map per scope.
+ * <p>
+ * Task scopes are activated lazily: initializing a task scope only marks the thread as scope-capable, the storage for
+ * the scoped beans and the conversation id are only created when first needed. Destroying a task scope in which no
+ * beans were created is (almost) free, so requests which never touch a task-scoped bean (health checks, static
+ * resources) do not pay for the scope.
+ * <p>
+ * The scope instance is bound to the executing thread (platform or virtual thread, not to the carrier thread of a
+ * virtual thread), and unbound again when the execution ends, so short-lived (virtual) threads leave no binding
+ * behind. Execution contexts can launch their executions on virtual threads (see
+ * {@link #newVirtualThreadExecutionContext()}).
  *
  * @author pwalser
  * @since 2019-11-01
@@ -32,6 +65,31 @@ public class TaskScope implements Scope {
     public final static String NAME = "task";
 
     private final static ThreadLocal<ScopeInstance> scopeInstance = new ThreadLocal<>();
+    private final static ThreadLocal<Long> currentDeadline = new ThreadLocal<>();
+    private final static ExecutionContext DEDICATED_EXECUTION_CONTEXT = new ExecutionContext();
+    private final static ConcurrentMap<String, Integer> slots = new ConcurrentHashMap<>();
+
+    /**
+     * Assigns a slot to a task-scoped bean. Slots are assigned once per bean name, and are shared by all
+     * application contexts (as the scope instances are bound to threads, not to an application context). Beans
+     * which were not assigned a slot when the scope was registered are assigned one on first access.
+     *
+     * @param name bean name, required
+     * @return slot
+     */
+    static int slot(String name) {
+        Integer slot = slots.get(name);
+        if (slot != null) {
+            return slot;
+        }
+        synchronized (slots) {
+            return slots.computeIfAbsent(name, x -> slots.size());
+        }
+    }
+
+    private static int slotCount() {
+        return slots.size();
+    }
 
     /**
      * Initialize the scope and bind it to the current thread.
@@ -52,13 +110,44 @@ public class TaskScope implements Scope {
         scopeInstance.remove();
     }
 
+    /**
+     * Unbind the scope from the current thread, without destroying it, e.g. when the processing of a request
+     * continues asynchronously on other threads. The scope can be bound to a thread again with
+     * {@link #resume(ExecutionContext)}, and can be used on other threads with the returned execution context.
+     * Throws an {@link IllegalStateException} if the scope was not active on that thread.
+     *
+     * @return execution context of the suspended scope
+     */
+    static ExecutionContext suspend() {
+        ExecutionContext executionContext = scopeInstance().executionContext();
+        scopeInstance.remove();
+        return executionContext;
+    }
+
+    /**
+     * Bind a suspended scope to the current thread again (until {@link #suspend()} or {@link #destroy()} is called).
+     * Throws an {@link IllegalStateException} if a scope is already active on that thread, or if the suspended scope
+     * is no longer active.
+     *
+     * @param executionContext execution context of the suspended scope, required
+     */
+    static void resume(ExecutionContext executionContext) {
+        if (executionContext == null || executionContext.scope == null) {
+            throw new IllegalArgumentException("Execution context of a scope is required");
+        }
+        checkScopeNotActive();
+        executionContext.checkScopeActive();
+        scopeInstance.set(executionContext.scope);
+    }
+
     /**
      * Check if the scope is active on the current thread.
      *
      * @return active
      */
     public static boolean isActive() {
-        return Optional.ofNullable(scopeInstance.get()).map(ScopeInstance::isActive).orElse(false);
+        ScopeInstance instance = scopeInstance.get();
+        return instance != null && instance.isActive();
     }
 
     /**
@@ -70,6 +159,27 @@ public class TaskScope implements Scope {
         return Optional.ofNullable(scopeInstance.get()).map(ScopeInstance::conversationId).orElse(null);
     }
 
+    /**
+     * Check if the scope active on the current thread was used, i.e. scoped beans were created in it, or its
+     * conversation id was requested.
+     *
+     * @return used
+     */
+    static boolean isUsed() {
+        return Optional.ofNullable(scopeInstance.get()).map(ScopeInstance::isUsed).orElse(false);
+    }
+
+    /**
+     * Returns the time remaining until the deadline of the subtasks currently executed on this thread (see
+     * {@link ExecutionContext#invokeAll(Collection, Executor, Duration)}), e.g. to limit the timeout of remote calls.
+     *
+     * @return remaining time (zero if the deadline passed), or null if there is no deadline
+     */
+    public static Duration remainingTime() {
+        Long deadline = currentDeadline.get();
+        return deadline != null ? Duration.ofNanos(Math.max(0, deadline - System.nanoTime())) : null;
+    }
+
     private static void checkScopeActive() {
         if (!isActive()) {
             throw new IllegalStateException("Test scope not active (activate with TestScope.init(), deactivate with TestScope.destroy()");
@@ -94,7 +204,7 @@ public class TaskScope implements Scope {
      * @throws IllegalStateException when no current task scope is active.
      */
     public static ExecutionContext currentExecutionContext() {
-        return new ExecutionContext(scopeInstance());
+        return scopeInstance().executionContext();
     }
 
     /**
@@ -103,24 +213,48 @@ public class TaskScope implements Scope {
      * @return new execution context with dedicated task scopes per execution.
      */
     public static ExecutionContext newExecutionContext() {
-        return new ExecutionContext();
+        return DEDICATED_EXECUTION_CONTEXT;
+    }
+
+    /**
+     * Creates a new {@link ExecutionContext} which executes code within a dedicated task scope (per execution), and
+     * launches executions and subtasks (see {@link ExecutionContext#submit(CheckedSupplier)} and
+     * {@link ExecutionContext#invokeAll(Collection)}) on virtual threads (a new virtual thread per execution), when
+     * the runtime supports them, or on a fork-join pool of platform threads otherwise.
+     *
+     * @return new execution context with dedicated task scopes per execution, launching executions on virtual threads.
+     */
+    public static ExecutionContext newVirtualThreadExecutionContext() {
+        return DEDICATED_EXECUTION_CONTEXT.onVirtualThreads();
     }
 
     @Override
     public Object get(String name, ObjectFactory<?> objectFactory) {
-        TaskScope.checkScopeActive();
-        return scopeInstance().scopedObjects().computeIfAbsent(name, x -> objectFactory.getObject());
+        ScopeInstance instance = scopeInstance.get();
+        if (instance == null) {
+            checkScopeActive();
+        }
+        return instance.get(slot(name), objectFactory);
     }
 
     @Override
     public Object remove(String name) {
-        scopeInstance().destructionCallbacks().remove(name);
-        return scopeInstance().scopedObjects().remove(name);
+        return scopeInstance().remove(slot(name));
     }
 
+    /**
+     * Registers the destruction callback of a scoped object, which is called while the object is created. The
+     * callback is registered on the scope instance bound to the current thread even if the scope was destroyed in the
+     * meantime (by another thread sharing it): the object being created then receives its callback right after its
+     * creation, instead of failing without being destroyed.
+     */
     @Override
     public void registerDestructionCallback(String name, Runnable callback) {
-        scopeInstance().destructionCallbacks().put(name, callback);
+        ScopeInstance instance = scopeInstance.get();
+        if (instance == null) {
+            checkScopeActive();
+        }
+        instance.registerDestructionCallback(slot(name), callback);
     }
 
     @Override
@@ -138,35 +272,143 @@ public class TaskScope implements Scope {
      * for those objects, to be called when the scope is destroyed.
      * Calling the destruction callbacks will have the dependency injection framework invoke
      * the pre-destroy lifecycle hooks before the scoped objects are disposed of.
+     * <p>
+     * Scoped objects are stored in an array indexed by slot, allocated when the first scoped object is created (sized
+     * to the slots assigned at that time, and grown when a bean is assigned a slot later). The conversation id is
+     * also only created when requested. The scope instance is safe for concurrent use by the
+     * threads sharing it: scoped objects are read without locking (a single array load), and created exactly once
+     * under a lock per slot (not a lock on the scope instance, as creating an object can recursively create other
+     * scoped objects). All writes to the arrays are guarded by the scope instance, and only hold its lock briefly.
+     * When the scope is destroyed while other threads are still executing in it, these threads still get the objects
+     * created before, but cannot create new ones. The destruction callback of each object is run exactly once.
      */
     private static class ScopeInstance {
-        private final Map<String, Object> scopedObjects = new HashMap<>();
-        private final Map<String, Runnable> destructionCallbacks = new HashMap<>();
-        private String conversationId = UUID.randomUUID().toString();
+        private volatile String conversationId;
+        private volatile AtomicReferenceArray<Object> scopedObjects;
+        private Slot[] slots;
+        private ExecutionContext executionContext;
+        private volatile boolean active = true;
+
+        private synchronized ExecutionContext executionContext() {
+            if (executionContext == null) {
+                executionContext = new ExecutionContext(this);
+            }
+            return executionContext;
+        }
+
+        private Object get(int slot, ObjectFactory<?> objectFactory) {
+            AtomicReferenceArray<Object> objects = scopedObjects;
+            Object scopedObject = objects != null && slot < objects.length() ? objects.get(slot) : null;
+            if (scopedObject != null) {
+                return scopedObject;
+            }
+            synchronized (slot(slot)) {
+                scopedObject = scopedObjects.get(slot);
+                if (scopedObject != null) {
+                    return scopedObject;
+                }
+                if (!active) {
+                    throw new IllegalStateException("Scope is no longer active");
+                }
+                scopedObject = objectFactory.getObject();
+                Runnable destructionCallback = null;
+                synchronized (this) {
+                    scopedObjects.set(slot, scopedObject);
+                    if (!active) {
+                        // destroyed while the object was created
+                        destructionCallback = slots[slot].takeDestructionCallback();
+                    }
+                }
+                Optional.ofNullable(destructionCallback).ifPresent(Runnable::run);
+            }
+            return scopedObject;
+        }
+
+        private synchronized Object remove(int slot) {
+            if (slots == null || slot >= slots.length) {
+                return null;
+            }
+            Optional.ofNullable(slots[slot]).ifPresent(Slot::takeDestructionCallback);
+            return scopedObjects.getAndSet(slot, null);
+        }
+
+        private synchronized void registerDestructionCallback(int slot, Runnable callback) {
+            slot(slot).destructionCallback = callback;
+        }
 
         private void destroy() {
-            scopedObjects.keySet().forEach(name ->
-                    Optional.ofNullable(destructionCallbacks.get(name))
-                            .ifPresent(Runnable::run));
-            scopedObjects.clear();
-            destructionCallbacks.clear();
-            conversationId = null;
+            List<Runnable> destructionCallbacks = new ArrayList<>();
+            synchronized (this) {
+                active = false;
+                for (int i = 0; slots != null && i < slots.length; i++) {
+                    if (slots[i] != null && scopedObjects.get(i) != null) {
+                        Optional.ofNullable(slots[i].takeDestructionCallback()).ifPresent(destructionCallbacks::add);
+                    }
+                }
+            }
+            destructionCallbacks.forEach(Runnable::run);
+        }
+
+        /**
+         * Get or create the slot state (the lock for creating its scoped object, and its destruction callback),
+         * allocating the arrays on first use, or growing them if the slot was assigned after they were allocated.
+         */
+        private synchronized Slot slot(int slot) {
+            if (slots == null) {
+                int length = Math.max(slot + 1, slotCount());
+                slots = new Slot[length];
+                scopedObjects = new AtomicReferenceArray<>(length);
+            } else if (slot >= slots.length) {
+                int length = Math.max(slot + 1, slotCount());
+                AtomicReferenceArray<Object> objects = new AtomicReferenceArray<>(length);
+                for (int i = 0; i < scopedObjects.length(); i++) {
+                    objects.set(i, scopedObjects.get(i));
+                }
+                Slot[] grownSlots = new Slot[length];
+                System.arraycopy(slots, 0, grownSlots, 0, slots.length);
+                slots = grownSlots;
+                scopedObjects = objects;
+            }
+            if (slots[slot] == null) {
+                slots[slot] = new Slot();
+            }
+            return slots[slot];
         }
 
         private boolean isActive() {
-            return conversationId != null;
+            return active;
+        }
+
+        private boolean isUsed() {
+            return scopedObjects != null || conversationId != null;
         }
 
         private String conversationId() {
+            if (!active) {
+                return null;
+            }
+            if (conversationId == null) {
+                synchronized (this) {
+                    if (conversationId == null) {
+                        conversationId = UUID.randomUUID().toString();
+                    }
+                }
+            }
             return conversationId;
         }
+    }
 
-        private Map<String, Object> scopedObjects() {
-            return scopedObjects;
-        }
+    /**
+     * State of a slot in a scope instance, guarded by the scope instance. Also serves as the lock for creating the
+     * scoped object of the slot.
+     */
+    private static class Slot {
+        private Runnable destructionCallback;
 
-        private Map<String, Runnable> destructionCallbacks() {
-            return destructionCallbacks;
+        private Runnable takeDestructionCallback() {
+            Runnable callback = destructionCallback;
+            destructionCallback = null;
+            return callback;
         }
     }
 
@@ -175,20 +417,83 @@ public class TaskScope implements Scope {
      * {@link CheckedRunnable} or {@link CheckedSupplier}).
      * Particularly useful for asynchronous or parallel processing (using {@link ExecutorService},
      * or parallel streams), where code can be executed in a shared or dedicated task scope.
+     * <p>
+     * Work can also be fanned out to parallel subtasks with {@link #invokeAll(Collection, Executor, Duration)} and
+     * {@link #forEach(Collection, CheckedConsumer, Executor, Duration)}, which execute the subtasks in the task scope of
+     * the execution context (shared for the {@link TaskScope#currentExecutionContext()}, and dedicated per subtask for
+     * a {@link TaskScope#newExecutionContext()}), and wait until all subtasks completed.
      */
     public static class ExecutionContext {
 
         private final ScopeInstance scope;
+        private final Executor executor;
 
         private ExecutionContext() {
             this(null);
         }
 
         private ExecutionContext(ScopeInstance scope) {
+            this(scope, null);
+        }
+
+        private ExecutionContext(ScopeInstance scope, Executor executor) {
             this.scope = scope;
+            this.executor = executor;
             checkScopeActive();
         }
 
+        /**
+         * Returns an execution context with the same task scope, which launches executions and subtasks on virtual
+         * threads (a new virtual thread per execution) when the runtime supports them, or on a fork-join pool of
+         * platform threads otherwise.
+         *
+         * @return execution context launching executions on virtual threads
+         */
+        public ExecutionContext onVirtualThreads() {
+            return new ExecutionContext(scope, VirtualThreads.executor());
+        }
+
+        /**
+         * Launch the execution of a {@link CheckedSupplier} in the task scope of the execution context, on the
+         * executor of the execution context (virtual threads, see {@link #onVirtualThreads()}, or the common fork-join
+         * pool).
+         *
+         * @param <T>      generic type
+         * @param supplier supplier, required
+         * @return future of the supplied value
+         */
+        public <T> CompletableFuture<T> submit(CheckedSupplier<T> supplier) {
+            if (supplier == null) {
+                throw new IllegalArgumentException("Supplier is required");
+            }
+            checkScopeActive();
+            Long deadline = currentDeadline.get();
+            return CompletableFuture.supplyAsync(() -> executeSubtask(supplier, deadline), executor());
+        }
+
+        private Executor executor() {
+            return executor != null ? executor : ForkJoinPool.commonPool();
+        }
+
+        /**
+         * Check if the task scope of this execution context is still active (always true for dedicated task scopes).
+         *
+         * @return active
+         */
+        boolean isActive() {
+            return scope == null || scope.isActive();
+        }
+
+        /**
+         * Destroy the task scope of this execution context (if it is shared, and still active), e.g. when an
+         * asynchronous request completed.
+         */
+        void destroy() {
+            if (scope != null) {
+                scope.destroy();
+            }
+        }
+
         private void checkScopeActive() {
             if (scope != null && !scope.isActive()) {
                 throw new IllegalStateException("Scope is no longer active");
@@ -229,11 +534,206 @@ public class TaskScope implements Scope {
             try {
                 return supplier.supplyUnchecked();
             } finally {
-                TaskScope.scopeInstance.set(backupScope);
+                if (backupScope != null) {
+                    TaskScope.scopeInstance.set(backupScope);
+                } else {
+                    TaskScope.scopeInstance.remove();
+                }
                 if (scope == null) {
                     executionScope.destroy();
                 }
             }
         }
+
+        /**
+         * Execute subtasks in parallel on the executor of the execution context (virtual threads, see
+         * {@link #onVirtualThreads()}, or the common fork-join pool), without a timeout (other than the deadline of the
+         * subtask this is called from). See {@link #invokeAll(Collection, Executor, Duration)}.
+         *
+         * @param <T>   result type
+         * @param tasks subtasks, required
+         * @return results, in the order of the subtasks
+         */
+        public <T> List<T> invokeAll(Collection<? extends CheckedSupplier<? extends T>> tasks) {
+            return invokeAll(tasks, executor(), null);
+        }
+
+        /**
+         * Execute subtasks in parallel in the task scope of this execution context, and wait until all completed.
+         * When a subtask fails, or the deadline passes, the remaining subtasks are cancelled (interrupted), and the
+         * failure is rethrown (checked exceptions as {@link RuntimeException}, a timeout as {@link RuntimeException}
+         * caused by a {@link TimeoutException}).
+         * <p>
+         * The deadline is the timeout from now, or the deadline of the subtask this is called from (if earlier), and
+         * is propagated to the subtasks (see {@link TaskScope#remainingTime()}), and to subtasks they fan out to.
+         * <p>
+         * Waiting for the subtasks is a managed block (see {@link ForkJoinPool#managedBlock(ForkJoinPool.ManagedBlocker)}):
+         * when called from a fork-join worker (e.g. a subtask fanning out again on the common pool), the pool adds a
+         * spare worker while the caller waits, so nested fan-outs cannot exhaust the pool and deadlock.
+         *
+         * @param <T>      result type
+         * @param tasks    subtasks, required
+         * @param executor executor running the subtasks (use a dedicated executor for blocking subtasks), required
+         * @param timeout  timeout, optional
+         * @return results, in the order of the subtasks
+         */
+        public <T> List<T> invokeAll(Collection<? extends CheckedSupplier<? extends T>> tasks, Executor executor, Duration timeout) {
+            if (tasks == null) {
+                throw new IllegalArgumentException("Tasks are required");
+            }
+            if (executor == null) {
+                throw new IllegalArgumentException("Executor is required");
+            }
+            checkScopeActive();
+            Long deadline = deadline(timeout);
+            BlockingQueue<Future<T>> completed = new LinkedBlockingQueue<>();
+            List<FutureTask<T>> subtasks = new ArrayList<>(tasks.size());
+            try {
+                for (CheckedSupplier<? extends T> task : tasks) {
+                    if (task == null) {
+                        throw new IllegalArgumentException("Task is required");
+                    }
+                    FutureTask<T> subtask = new FutureTask<>(() -> executeSubtask(task, deadline)) {
+                        @Override
+                        protected void done() {
+                            completed.add(this);
+                        }
+                    };
+                    subtasks.add(subtask);
+                    executor.execute(subtask);
+                }
+                for (int i = 0; i < subtasks.size(); i++) {
+                    Future<T> subtask = awaitCompletion(completed, deadline);
+                    if (subtask == null) {
+                        throw new RuntimeException(new TimeoutException("Subtasks did not complete before the deadline"));
+                    }
+                    result(subtask);
+                }
+                return subtasks.stream().map(ExecutionContext::result).collect(toList());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(ex);
+            } finally {
+                subtasks.forEach(subtask -> subtask.cancel(true));
+            }
+        }
+
+        /**
+         * Execute an action for each item in parallel on the executor of the execution context (virtual threads, see
+         * {@link #onVirtualThreads()}, or the common fork-join pool), without a timeout (other than the deadline of the
+         * subtask this is called from). See {@link #invokeAll(Collection, Executor, Duration)}.
+         *
+         * @param <E>    item type
+         * @param items  items, required
+         * @param action action, required
+         */
+        public <E> void forEach(Collection<? extends E> items, CheckedConsumer<? super E> action) {
+            forEach(items, action, executor(), null);
+        }
+
+        /**
+         * Execute an action for each item in parallel in the task scope of this execution context, and wait until
+         * all completed. See {@link #invokeAll(Collection, Executor, Duration)}.
+         *
+         * @param <E>      item type
+         * @param items    items, required
+         * @param action   action, required
+         * @param executor executor running the actions, required
+         * @param timeout  timeout, optional
+         */
+        public <E> void forEach(Collection<? extends E> items, CheckedConsumer<? super E> action, Executor executor, Duration timeout) {
+            if (items == null) {
+                throw new IllegalArgumentException("Items are required");
+            }
+            if (action == null) {
+                throw new IllegalArgumentException("Action is required");
+            }
+            invokeAll(items.stream().map(item -> (CheckedSupplier<Void>) () -> {
+                action.accept(item);
+                return null;
+            }).collect(toList()), executor, timeout);
+        }
+
+        private <T> T executeSubtask(CheckedSupplier<? extends T> task, Long deadline) {
+            Long previousDeadline = currentDeadline.get();
+            currentDeadline.set(deadline);
+            try {
+                return execute((CheckedSupplier<T>) task::supply);
+            } finally {
+                if (previousDeadline != null) {
+                    currentDeadline.set(previousDeadline);
+                } else {
+                    currentDeadline.remove();
+                }
+            }
+        }
+
+        private static Long deadline(Duration timeout) {
+            Long inheritedDeadline = currentDeadline.get();
+            if (timeout == null) {
+                return inheritedDeadline;
+            }
+            long deadline = System.nanoTime() + timeout.toNanos();
+            return inheritedDeadline != null && inheritedDeadline - deadline < 0 ? inheritedDeadline : deadline;
+        }
+
+        private static <T> Future<T> awaitCompletion(BlockingQueue<Future<T>> completed, Long deadline) throws InterruptedException {
+            CompletionBlocker<T> blocker = new CompletionBlocker<>(completed, deadline);
+            ForkJoinPool.managedBlock(blocker);
+            return blocker.completed;
+        }
+
+        private static <T> T result(Future<T> subtask) {
+            try {
+                return subtask.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(ex);
+            } catch (ExecutionException ex) {
+                Throwable cause = ex.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new RuntimeException(cause);
+            }
+        }
+    }
+
+    /**
+     * Waits for the next completed subtask of {@link ExecutionContext#invokeAll(Collection, Executor, Duration)}, as a
+     * managed block, so fork-join pools can compensate for the blocked worker.
+     *
+     * @param <T> result type
+     */
+    private static class CompletionBlocker<T> implements ForkJoinPool.ManagedBlocker {
+
+        private final BlockingQueue<Future<T>> queue;
+        private final Long deadline;
+        private Future<T> completed;
+
+        private CompletionBlocker(BlockingQueue<Future<T>> queue, Long deadline) {
+            this.queue = queue;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public boolean block() throws InterruptedException {
+            if (completed == null) {
+                completed = deadline != null ? queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS) : queue.take();
+            }
+            // done, also when the deadline passed (no subtask completed)
+            return true;
+        }
+
+        @Override
+        public boolean isReleasable() {
+            if (completed == null) {
+                completed = queue.poll();
+            }
+            return completed != null || (deadline != null && deadline - System.nanoTime() <= 0);
+        }
     }
 }
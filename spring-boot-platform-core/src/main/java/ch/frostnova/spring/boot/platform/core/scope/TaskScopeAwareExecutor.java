@@ -0,0 +1,38 @@
+package ch.frostnova.spring.boot.platform.core.scope;
+
+import java.util.concurrent.Executor;
+
+/**
+ * {@link Executor} which executes the tasks on a delegate executor, decorated with a {@link TaskScopeTaskDecorator}:
+ * in the task scope of the submitter (or a dedicated task scope), and with the submitter's tenant and user in the MDC.
+ *
+ * @author pwalser
+ * @since 2022-01-16
+ */
+public class TaskScopeAwareExecutor implements Executor {
+
+    private final Executor delegate;
+    private final TaskScopeTaskDecorator taskDecorator;
+
+    /**
+     * Create a task scope aware executor.
+     *
+     * @param delegate      executor running the tasks, required
+     * @param taskDecorator task decorator, required
+     */
+    public TaskScopeAwareExecutor(Executor delegate, TaskScopeTaskDecorator taskDecorator) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("delegate is required");
+        }
+        if (taskDecorator == null) {
+            throw new IllegalArgumentException("taskDecorator is required");
+        }
+        this.delegate = delegate;
+        this.taskDecorator = taskDecorator;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        delegate.execute(taskDecorator.decorate(command));
+    }
+}
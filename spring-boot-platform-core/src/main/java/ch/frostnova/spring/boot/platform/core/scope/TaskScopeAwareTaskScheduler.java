@@ -0,0 +1,63 @@
+package ch.frostnova.spring.boot.platform.core.scope;
+
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.Trigger;
+
+import java.util.Date;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * {@link TaskScheduler} which schedules the tasks on a delegate scheduler, decorated with a
+ * {@link TaskScopeTaskDecorator}, so <code>@Scheduled</code> methods are executed in a dedicated task scope per
+ * execution. Scheduled tasks do not share the task scope of the submitter, as they usually outlive it.
+ *
+ * @author pwalser
+ * @since 2022-01-16
+ */
+public class TaskScopeAwareTaskScheduler implements TaskScheduler {
+
+    private final TaskScheduler delegate;
+    private final TaskScopeTaskDecorator taskDecorator = new TaskScopeTaskDecorator(TaskScopeProperties.Propagation.DEDICATED);
+
+    /**
+     * Create a task scope aware scheduler.
+     *
+     * @param delegate scheduler running the tasks, required
+     */
+    public TaskScopeAwareTaskScheduler(TaskScheduler delegate) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("delegate is required");
+        }
+        this.delegate = delegate;
+    }
+
+    @Override
+    public ScheduledFuture<?> schedule(Runnable task, Trigger trigger) {
+        return delegate.schedule(taskDecorator.decorate(task), trigger);
+    }
+
+    @Override
+    public ScheduledFuture<?> schedule(Runnable task, Date startTime) {
+        return delegate.schedule(taskDecorator.decorate(task), startTime);
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable task, Date startTime, long period) {
+        return delegate.scheduleAtFixedRate(taskDecorator.decorate(task), startTime, period);
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable task, long period) {
+        return delegate.scheduleAtFixedRate(taskDecorator.decorate(task), period);
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable task, Date startTime, long delay) {
+        return delegate.scheduleWithFixedDelay(taskDecorator.decorate(task), startTime, delay);
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable task, long delay) {
+        return delegate.scheduleWithFixedDelay(taskDecorator.decorate(task), delay);
+    }
+}
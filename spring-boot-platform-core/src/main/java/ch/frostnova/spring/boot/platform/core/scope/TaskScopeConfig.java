@@ -1,21 +1,60 @@
 package ch.frostnova.spring.boot.platform.core.scope;
 
+import ch.frostnova.spring.boot.platform.core.security.CurrentUserInfo;
 import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+
+import javax.servlet.DispatcherType;
+
+import static java.lang.Integer.MIN_VALUE;
 
 /**
- * Registers the {@link TaskScope} as scope in the {@link BeanFactory}.
+ * Registers the {@link TaskScope} as scope in the {@link BeanFactory}, and assigns the slots of the task-scoped beans.
+ * Also registers the {@link TaskScopeTaskDecorator} (applied by Spring Boot to the executor of <code>@Async</code>
+ * methods), executes <code>@Scheduled</code> methods in a dedicated task scope per execution, and registers the
+ * {@link TaskScopeRequestScopeFilter} (also for async dispatches).
  *
  * @author pwalser
  * @since 2019-11-03
  */
 @Configuration
+@EnableConfigurationProperties(TaskScopeProperties.class)
 public class TaskScopeConfig {
 
     @Bean
     public static BeanFactoryPostProcessor beanFactoryPostProcessor() {
-        return beanFactory -> beanFactory.registerScope(TaskScope.NAME, new TaskScope());
+        return beanFactory -> {
+            for (String beanName : beanFactory.getBeanDefinitionNames()) {
+                if (TaskScope.NAME.equals(beanFactory.getBeanDefinition(beanName).getScope())) {
+                    TaskScope.slot(beanName);
+                }
+            }
+            beanFactory.registerScope(TaskScope.NAME, new TaskScope());
+        };
+    }
+
+    @Bean
+    public FilterRegistrationBean<TaskScopeRequestScopeFilter> taskScopeRequestScopeFilter() {
+        FilterRegistrationBean<TaskScopeRequestScopeFilter> registration = new FilterRegistrationBean<>(new TaskScopeRequestScopeFilter());
+        registration.setDispatcherTypes(DispatcherType.REQUEST, DispatcherType.ASYNC);
+        registration.setOrder(MIN_VALUE);
+        return registration;
+    }
+
+    @Bean
+    public TaskScopeTaskDecorator taskScopeTaskDecorator(TaskScopeProperties taskScopeProperties, ObjectProvider<CurrentUserInfo> currentUserInfo) {
+        return new TaskScopeTaskDecorator(taskScopeProperties.getPropagation(), currentUserInfo.getIfAvailable());
+    }
+
+    @Bean
+    public SchedulingConfigurer taskScopeSchedulingConfigurer(ObjectProvider<TaskScheduler> taskScheduler) {
+        return registrar -> taskScheduler.ifUnique(scheduler -> registrar.setTaskScheduler(new TaskScopeAwareTaskScheduler(scheduler)));
     }
 }
@@ -0,0 +1,51 @@
+package ch.frostnova.spring.boot.platform.core.scope;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.Optional;
+
+/**
+ * Configuration of the task scope propagation to asynchronous tasks (see {@link TaskScopeTaskDecorator}).
+ * <p>
+ * Example:
+ * <pre>
+ * ch.frostnova.platform.task-scope:
+ *   propagation: shared
+ * </pre>
+ *
+ * @author pwalser
+ * @since 2022-01-16
+ */
+@ConfigurationProperties("ch.frostnova.platform.task-scope")
+public class TaskScopeProperties {
+
+    private Propagation propagation = Propagation.DEDICATED;
+
+    /**
+     * Task scope in which asynchronous tasks are executed, default: dedicated.
+     *
+     * @return propagation
+     */
+    public Propagation getPropagation() {
+        return propagation;
+    }
+
+    public void setPropagation(Propagation propagation) {
+        this.propagation = Optional.ofNullable(propagation).orElse(Propagation.DEDICATED);
+    }
+
+    /**
+     * Propagation types.
+     */
+    public enum Propagation {
+        /**
+         * Tasks are executed in the task scope of the submitter (if still active when the task starts, otherwise in a
+         * dedicated task scope with the user of the submitter).
+         */
+        SHARED,
+        /**
+         * Tasks are executed in a dedicated task scope per task, with the user of the submitter.
+         */
+        DEDICATED
+    }
+}
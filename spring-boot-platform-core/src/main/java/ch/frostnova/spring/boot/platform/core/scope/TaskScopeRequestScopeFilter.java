@@ -2,9 +2,10 @@ package ch.frostnova.spring.boot.platform.core.scope;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.core.annotation.Order;
-import org.springframework.stereotype.Component;
 
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.DispatcherType;
 import javax.servlet.Filter;
 import javax.servlet.FilterChain;
 import javax.servlet.FilterConfig;
@@ -13,20 +14,41 @@ import javax.servlet.ServletRequest;
 import javax.servlet.ServletResponse;
 import java.io.IOException;
 
-import static java.lang.Integer.MIN_VALUE;
-
 /**
- * Servlet filter which activates the task scope on request level.
+ * Servlet filter which activates the task scope on request level. The task scope is activated lazily (see
+ * {@link TaskScope}), so requests which do not use task-scoped beans do not allocate any scope storage.
+ * <p>
+ * Asynchronous requests (controllers returning a <code>CompletableFuture</code> or <code>DeferredResult</code>) keep
+ * their task scope until the request completes: when the request thread returns with the async processing started,
+ * the scope is only unbound from the thread, and bound again for the async dispatch. It is destroyed when the async
+ * processing completes, times out or fails (see {@link AsyncListener}). Threads completing the response can execute
+ * code in the task scope of the request with {@link #executionContext(ServletRequest)}, which is published before the
+ * request is processed, so it is also available to threads started while the request is being processed.
+ * <p>
+ * Registered by the {@link TaskScopeConfig} for the {@link DispatcherType#REQUEST} and {@link DispatcherType#ASYNC}
+ * dispatcher types.
  *
  * @author pwalser
  * @since 2019-11-03
  */
-@Component
-@Order(MIN_VALUE)
 public class TaskScopeRequestScopeFilter implements Filter {
 
     private final static Logger logger = LoggerFactory.getLogger(TaskScopeRequestScopeFilter.class);
 
+    private final static String EXECUTION_CONTEXT_ATTRIBUTE = TaskScopeRequestScopeFilter.class.getName() + ".EXECUTION_CONTEXT";
+
+    /**
+     * Returns the execution context of the task scope of a request, e.g. to execute code in the task scope of an
+     * asynchronous request on the thread completing the response. The task scope ends with the request (see
+     * {@link TaskScope.ExecutionContext#execute(CheckedRunnable)}, which fails once the scope is no longer active).
+     *
+     * @param request request, required
+     * @return execution context, or null if the request was not processed by this filter
+     */
+    public static TaskScope.ExecutionContext executionContext(ServletRequest request) {
+        return (TaskScope.ExecutionContext) request.getAttribute(EXECUTION_CONTEXT_ATTRIBUTE);
+    }
+
     @Override
     public void init(FilterConfig filterConfig) {
         // unused
@@ -41,18 +63,68 @@ public class TaskScopeRequestScopeFilter implements Filter {
     public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws
             IOException, ServletException {
 
-        if (TaskScope.isActive()) {
+        TaskScope.ExecutionContext requestExecutionContext = executionContext(request);
+        boolean asyncDispatch = request.getDispatcherType() == DispatcherType.ASYNC && requestExecutionContext != null;
+        if (asyncDispatch && requestExecutionContext.isActive()) {
+            // async dispatch: continue in the task scope of the request
+            TaskScope.resume(requestExecutionContext);
+        } else if (!asyncDispatch && TaskScope.isActive()) {
             chain.doFilter(request, response);
             return;
+        } else {
+            // new request, or async dispatch after the task scope of the request was destroyed (timeout)
+            TaskScope.init();
         }
-        TaskScope.init();
-        String conversationId = TaskScope.currentConversationId();
+        TaskScope.ExecutionContext executionContext = TaskScope.currentExecutionContext();
+        request.setAttribute(EXECUTION_CONTEXT_ATTRIBUTE, executionContext);
         try {
-            logger.debug("Task scope created for request: {}", conversationId);
             chain.doFilter(request, response);
         } finally {
-            TaskScope.destroy();
-            logger.debug("Task scope destroyed for request: {}", conversationId);
+            if (request.isAsyncStarted()) {
+                TaskScope.suspend();
+                if (executionContext != requestExecutionContext) {
+                    // the listener of a resumed scope was registered when the async processing was started
+                    request.getAsyncContext().addListener(new TaskScopeAsyncListener(executionContext));
+                }
+            } else {
+                if (logger.isDebugEnabled() && TaskScope.isUsed()) {
+                    logger.debug("Task scope destroyed for request: {}", TaskScope.currentConversationId());
+                }
+                TaskScope.destroy();
+            }
+        }
+    }
+
+    /**
+     * Destroys the task scope of an asynchronous request when the request completes, times out or fails.
+     */
+    private static class TaskScopeAsyncListener implements AsyncListener {
+
+        private final TaskScope.ExecutionContext executionContext;
+
+        private TaskScopeAsyncListener(TaskScope.ExecutionContext executionContext) {
+            this.executionContext = executionContext;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            executionContext.destroy();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            executionContext.destroy();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            executionContext.destroy();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // async processing restarted (e.g. in the async dispatch): listeners need to be registered again
+            event.getAsyncContext().addListener(this);
         }
     }
 }
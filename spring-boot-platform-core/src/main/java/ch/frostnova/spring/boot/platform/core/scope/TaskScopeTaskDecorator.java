@@ -0,0 +1,94 @@
+package ch.frostnova.spring.boot.platform.core.scope;
+
+import ch.frostnova.spring.boot.platform.api.auth.UserInfo;
+import ch.frostnova.spring.boot.platform.core.security.CurrentUserInfo;
+import org.slf4j.MDC;
+import org.springframework.core.task.TaskDecorator;
+
+/**
+ * {@link TaskDecorator} which executes tasks in a dedicated task scope per task, or in the task scope of the submitter
+ * (see {@link TaskScopeProperties.Propagation}), and propagates the MDC keys of the {@link CurrentUserInfo}
+ * (tenant and user) to the executing thread (restoring its previous values afterwards).
+ * <p>
+ * Dedicated task scopes get the {@link UserInfo} of the submitter. The task scope of the submitter (e.g. of a
+ * request) is usually destroyed before an asynchronous task completes, or even before it starts: tasks sharing it
+ * which start after it was destroyed are executed in a dedicated task scope with the user of the submitter instead.
+ * <p>
+ * Registered as bean by the {@link TaskScopeConfig}, so Spring Boot applies it to the executor of <code>@Async</code>
+ * methods. Other executors can be wrapped with a {@link TaskScopeAwareExecutor}.
+ *
+ * @author pwalser
+ * @since 2022-01-16
+ */
+public class TaskScopeTaskDecorator implements TaskDecorator {
+
+    private final TaskScopeProperties.Propagation propagation;
+    private final CurrentUserInfo currentUserInfo;
+
+    /**
+     * Create a task decorator which does not propagate the current user (only its MDC keys).
+     *
+     * @param propagation propagation, required
+     */
+    public TaskScopeTaskDecorator(TaskScopeProperties.Propagation propagation) {
+        this(propagation, null);
+    }
+
+    /**
+     * Create a task decorator.
+     *
+     * @param propagation     propagation, required
+     * @param currentUserInfo current user (task-scoped), optional: if present, the user of the submitter is
+     *                        propagated to dedicated task scopes
+     */
+    public TaskScopeTaskDecorator(TaskScopeProperties.Propagation propagation, CurrentUserInfo currentUserInfo) {
+        if (propagation == null) {
+            throw new IllegalArgumentException("propagation is required");
+        }
+        this.propagation = propagation;
+        this.currentUserInfo = currentUserInfo;
+    }
+
+    @Override
+    public Runnable decorate(Runnable runnable) {
+        if (runnable == null) {
+            throw new IllegalArgumentException("runnable is required");
+        }
+        boolean scopeActive = TaskScope.isActive();
+        TaskScope.ExecutionContext sharedExecutionContext = propagation == TaskScopeProperties.Propagation.SHARED && scopeActive
+                ? TaskScope.currentExecutionContext()
+                : null;
+        UserInfo userInfo = currentUserInfo != null && scopeActive ? currentUserInfo.getUserInfo() : null;
+        String tenant = MDC.get(CurrentUserInfo.MDC_KEY_TENANT);
+        String user = MDC.get(CurrentUserInfo.MDC_KEY_USER);
+        return () -> {
+            String previousTenant = MDC.get(CurrentUserInfo.MDC_KEY_TENANT);
+            String previousUser = MDC.get(CurrentUserInfo.MDC_KEY_USER);
+            setMDC(CurrentUserInfo.MDC_KEY_TENANT, tenant);
+            setMDC(CurrentUserInfo.MDC_KEY_USER, user);
+            try {
+                if (sharedExecutionContext != null && sharedExecutionContext.isActive()) {
+                    sharedExecutionContext.execute(runnable::run);
+                } else {
+                    TaskScope.newExecutionContext().execute(() -> {
+                        if (userInfo != null && userInfo.isAuthenticated()) {
+                            currentUserInfo.setUserInfo(userInfo);
+                        }
+                        runnable.run();
+                    });
+                }
+            } finally {
+                setMDC(CurrentUserInfo.MDC_KEY_TENANT, previousTenant);
+                setMDC(CurrentUserInfo.MDC_KEY_USER, previousUser);
+            }
+        };
+    }
+
+    private static void setMDC(String key, String value) {
+        if (value != null) {
+            MDC.put(key, value);
+        } else {
+            MDC.remove(key);
+        }
+    }
+}
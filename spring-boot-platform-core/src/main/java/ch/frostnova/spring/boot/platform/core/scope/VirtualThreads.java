@@ -0,0 +1,85 @@
+package ch.frostnova.spring.boot.platform.core.scope;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executor which runs each task on a new virtual thread, when the runtime supports virtual threads (Java 21+,
+ * detected by reflection, as the platform is built for Java 11). Otherwise, tasks run on a fork-join pool of
+ * platform (daemon) threads, whose threads time out when idle. The pool adds threads while its workers wait for
+ * nested subtasks (see {@link TaskScope.ExecutionContext#invokeAll(java.util.Collection)}), so nested fan-outs do
+ * not run out of threads.
+ *
+ * @author pwalser
+ * @since 2022-01-16
+ */
+final class VirtualThreads {
+
+    private final static Logger logger = LoggerFactory.getLogger(VirtualThreads.class);
+
+    /**
+     * Parallelism of the fallback pool: blocking I/O fan-out needs more threads than processors.
+     */
+    private final static int FALLBACK_POOL_SIZE = Math.max(16, 4 * Runtime.getRuntime().availableProcessors());
+    /**
+     * Maximum number of threads of the fallback pool, including the threads compensating for blocked workers (the
+     * largest size supported by the fork-join pool).
+     */
+    private final static int FALLBACK_MAXIMUM_POOL_SIZE = 0x7fff;
+    private final static long FALLBACK_KEEP_ALIVE_SECONDS = 60;
+
+    private final static boolean supported;
+    private final static Executor executor;
+
+    static {
+        Executor virtualThreadExecutor = null;
+        try {
+            virtualThreadExecutor = (Executor) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException ex) {
+            logger.debug("Virtual threads not supported, using a pool of {} platform threads", FALLBACK_POOL_SIZE);
+        }
+        supported = virtualThreadExecutor != null;
+        executor = supported ? virtualThreadExecutor : fallbackExecutor();
+    }
+
+    private VirtualThreads() {
+
+    }
+
+    /**
+     * Check if the runtime supports virtual threads.
+     *
+     * @return true if tasks run on virtual threads, false if they run on the fallback pool
+     */
+    static boolean isSupported() {
+        return supported;
+    }
+
+    /**
+     * Executor running each task on a new virtual thread (or on the fallback pool).
+     *
+     * @return executor
+     */
+    static Executor executor() {
+        return executor;
+    }
+
+    private static Executor fallbackExecutor() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ForkJoinPool.ForkJoinWorkerThreadFactory threadFactory = pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("task-scope-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return new ForkJoinPool(FALLBACK_POOL_SIZE, threadFactory, null, true,
+                0, FALLBACK_MAXIMUM_POOL_SIZE, 1, null, FALLBACK_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS);
+    }
+}
@@ -17,8 +17,8 @@ import java.util.Optional;
 @Scope(value = TaskScope.NAME, proxyMode = ScopedProxyMode.TARGET_CLASS)
 public class CurrentUserInfo implements UserInfoProvider {
 
-    private final static String MDC_KEY_TENANT = "tenant";
-    private final static String MDC_KEY_USER = "user";
+    public final static String MDC_KEY_TENANT = "tenant";
+    public final static String MDC_KEY_USER = "user";
 
     private UserInfo userInfo;
 
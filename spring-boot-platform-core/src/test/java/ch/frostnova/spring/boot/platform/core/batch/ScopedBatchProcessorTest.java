@@ -0,0 +1,190 @@
+package ch.frostnova.spring.boot.platform.core.batch;
+
+import ch.frostnova.spring.boot.platform.api.auth.UserInfo;
+import ch.frostnova.spring.boot.platform.api.auth.UserInfoProvider;
+import ch.frostnova.spring.boot.platform.core.scope.TaskScope;
+import ch.frostnova.spring.boot.platform.core.scope.TaskScopeConfig;
+import ch.frostnova.spring.boot.platform.core.scope.TaskScopedComponent;
+import ch.frostnova.spring.boot.platform.core.security.CurrentUserInfo;
+import ch.frostnova.spring.boot.platform.core.security.template.SecurityContextTemplate;
+import ch.frostnova.spring.boot.platform.core.security.template.SecurityContextTemplateImpl;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static ch.frostnova.spring.boot.platform.api.auth.UserInfo.userInfo;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for the {@link ScopedBatchProcessor}, with an {@link InMemoryBatchSource}.
+ */
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(classes = {TaskScopeConfig.class, TaskScopedComponent.class, CurrentUserInfo.class, SecurityContextTemplateImpl.class})
+public class ScopedBatchProcessorTest {
+
+    @Autowired
+    private TaskScopedComponent taskScopedComponent;
+
+    @Autowired
+    private UserInfoProvider userInfoProvider;
+
+    @Autowired
+    private SecurityContextTemplate securityContextTemplate;
+
+    @Test
+    void shouldProcessMessagesInDedicatedTaskScopes() throws Exception {
+        InMemoryBatchSource<Integer> source = new InMemoryBatchSource<>(1000);
+        IntStream.range(0, 200).forEach(source::offer);
+
+        Map<Integer, String> scopes = new ConcurrentHashMap<>();
+        Map<Integer, UserInfo> users = new ConcurrentHashMap<>();
+        ScopedBatchProcessor<Integer> processor = ScopedBatchProcessor.builder("test", source, (Integer message) -> {
+                    assertThat(TaskScope.isActive()).isTrue();
+                    scopes.put(message, taskScopedComponent.getUuid());
+                    users.put(message, userInfoProvider.getUserInfo());
+                })
+                .workers(4)
+                .batchSize(20)
+                .pollTimeout(Duration.ofMillis(50))
+                .runAs(securityContextTemplate, message -> message % 2 == 0 ? userInfo("user-" + message).build() : null)
+                .build();
+
+        processor.start();
+        awaitAcknowledged(source, 200);
+        assertThat(processor.stop(Duration.ofSeconds(5))).isTrue();
+
+        assertThat(source.getAcknowledged()).containsExactlyInAnyOrderElementsOf(
+                IntStream.range(0, 200).boxed().collect(Collectors.toList()));
+        assertThat(source.getRejected()).isEmpty();
+        assertThat(Set.copyOf(scopes.values())).hasSize(200);
+        users.forEach((message, user) -> {
+            if (message % 2 == 0) {
+                assertThat(user.getLogin()).isEqualTo("user-" + message);
+            } else {
+                assertThat(user.isAuthenticated()).isFalse();
+            }
+        });
+
+        BatchStats stats = processor.getStats();
+        assertThat(stats.getMessageCount()).isEqualTo(200);
+        assertThat(stats.getFailureCount()).isZero();
+        assertThat(stats.getBatchCount()).isBetween(10L, 200L);
+        assertThat(stats.getAverageBatchSize()).isLessThanOrEqualTo(20);
+        assertThat(stats.getMaxBatchTime()).isGreaterThanOrEqualTo(stats.getAverageBatchTime());
+    }
+
+    @Test
+    void shouldRejectFailedMessages() throws Exception {
+        InMemoryBatchSource<Integer> source = new InMemoryBatchSource<>(100);
+        IntStream.range(0, 50).forEach(source::offer);
+
+        try (ScopedBatchProcessor<Integer> processor = ScopedBatchProcessor.builder("test", source, (Integer message) -> {
+                    if (message % 10 == 0) {
+                        throw new Exception("failed: " + message);
+                    }
+                })
+                .workers(2)
+                .pollTimeout(Duration.ofMillis(50))
+                .build()) {
+
+            processor.start();
+            awaitAcknowledged(source, 45);
+
+            assertThat(source.getRejected()).containsExactlyInAnyOrder(0, 10, 20, 30, 40);
+            assertThat(source.getAcknowledged()).hasSize(45).doesNotContain(0, 10, 20, 30, 40);
+            assertThat(processor.getStats().getFailureCount()).isEqualTo(5);
+        }
+    }
+
+    @Test
+    void shouldApplyBackpressure() throws Exception {
+        InMemoryBatchSource<Integer> source = new InMemoryBatchSource<>(100);
+        IntStream.range(0, 100).forEach(source::offer);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ScopedBatchProcessor<Integer> processor = ScopedBatchProcessor.builder("test", source, (Integer message) -> release.await())
+                .workers(2)
+                .batchSize(5)
+                .queueCapacity(10)
+                .pollTimeout(Duration.ofMillis(50))
+                .build();
+        processor.start();
+        Thread.sleep(200);
+
+        // 2 messages being processed, 10 queued, at most one batch held back by the poller
+        assertThat(processor.getStats().getQueuedCount()).isEqualTo(10);
+        assertThat(source.size()).isBetween(100 - 2 - 10 - 5, 100 - 2 - 10);
+        assertThat(source.offer(100)).isTrue();
+
+        release.countDown();
+        awaitAcknowledged(source, 101);
+        assertThat(processor.stop(Duration.ofSeconds(5))).isTrue();
+        assertThat(processor.getStats().getMessageCount()).isEqualTo(101);
+    }
+
+    @Test
+    void shouldNotAcknowledgeOrRejectMessagesInterruptedByStop() throws Exception {
+        InMemoryBatchSource<Integer> source = new InMemoryBatchSource<>(100);
+        IntStream.range(0, 20).forEach(source::offer);
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicInteger invocations = new AtomicInteger();
+
+        ScopedBatchProcessor<Integer> processor = ScopedBatchProcessor.builder("test", source, (Integer message) -> {
+                    invocations.incrementAndGet();
+                    started.countDown();
+                    Thread.sleep(10_000);
+                })
+                .workers(1)
+                .batchSize(5)
+                .pollTimeout(Duration.ofMillis(50))
+                .build();
+        processor.start();
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(processor.stop(Duration.ofMillis(100))).isFalse();
+        Thread.sleep(300);
+
+        // the interrupted message was not processed, and the queued messages are not processed after the stop
+        assertThat(invocations.get()).isEqualTo(1);
+        assertThat(source.getRejected()).isEmpty();
+        assertThat(source.getAcknowledged()).isEmpty();
+        assertThat(processor.getStats().getBatchCount()).isZero();
+    }
+
+    @Test
+    void shouldValidateSettings() throws Exception {
+        InMemoryBatchSource<Integer> source = new InMemoryBatchSource<>(10);
+        assertThatThrownBy(() -> ScopedBatchProcessor.builder("test", null, message -> {
+        })).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> ScopedBatchProcessor.builder("test", source, message -> {
+        }).workers(0)).isInstanceOf(IllegalArgumentException.class);
+
+        ScopedBatchProcessor<Integer> processor = ScopedBatchProcessor.builder("test", source, message -> {
+        }).build();
+        processor.start();
+        assertThatThrownBy(processor::start).isInstanceOf(IllegalStateException.class);
+        assertThat(processor.stop(Duration.ofSeconds(5))).isTrue();
+        assertThat(processor.isRunning()).isFalse();
+    }
+
+    private static void awaitAcknowledged(InMemoryBatchSource<?> source, int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (source.getAcknowledged().size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(source.getAcknowledged()).hasSize(count);
+    }
+}
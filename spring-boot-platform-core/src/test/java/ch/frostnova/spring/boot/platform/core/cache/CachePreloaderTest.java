@@ -0,0 +1,111 @@
+package ch.frostnova.spring.boot.platform.core.cache;
+
+import ch.frostnova.spring.boot.platform.core.cache.engine.PlatformCacheProperties;
+import ch.frostnova.spring.boot.platform.core.config.CacheConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static java.util.stream.Collectors.toMap;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for preloading {@link TypeSafeCache}s on startup with the {@link CachePreloader}.
+ */
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(classes = {CacheConfig.class, CachePreloader.class, CachePreloaderTest.PreloadedCache.class})
+@TestPropertySource(properties = "ch.frostnova.platform.cache.preload.parallelism=4")
+public class CachePreloaderTest {
+
+    private final static AtomicInteger batches = new AtomicInteger();
+    private final static Set<String> threads = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    private PreloadedCache preloadedCache;
+
+    private static Map<Integer, String> load(Set<Integer> keys) {
+        batches.incrementAndGet();
+        threads.add(Thread.currentThread().getName());
+        return keys.stream().collect(toMap(Function.identity(), key -> "value-" + key));
+    }
+
+    @Test
+    void shouldPreloadOnStartup() {
+        assertThat(batches.get()).isEqualTo(10);
+        assertThat(threads).allMatch(thread -> thread.startsWith("cache-preload-"));
+        assertThat(preloadedCache.snapshot().getPutCount()).isEqualTo(1000);
+
+        IntStream.range(0, 1000).forEach(key -> assertThat(preloadedCache.get(key, k -> null)).isEqualTo("value-" + key));
+        assertThat(batches.get()).isEqualTo(10);
+    }
+
+    @Test
+    void shouldStopWaitingAfterTimeout() {
+        PreloadSource<Integer, String> slowSource = new PreloadSource<>() {
+            @Override
+            public Stream<Integer> keys() {
+                return IntStream.range(1000, 1100).boxed();
+            }
+
+            @Override
+            public Map<Integer, String> load(Set<Integer> keys) {
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                return Map.of();
+            }
+
+            @Override
+            public int batchSize() {
+                return 10;
+            }
+        };
+        PlatformCacheProperties.Preload settings = new PlatformCacheProperties.Preload();
+        settings.setParallelism(1);
+        settings.setTimeout(Duration.ofMillis(150));
+        CachePreloader cachePreloader = new CachePreloader(null, null);
+
+        long start = System.nanoTime();
+        boolean completed = cachePreloader.preload(List.of(new CachePreloader.CachePreload<>(preloadedCache, slowSource)), settings);
+
+        assertThat(completed).isFalse();
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(1));
+    }
+
+    public static class PreloadedCache extends TypeSafeCache<Integer, String> {
+
+        public PreloadedCache() {
+            super("preloaded-cache");
+        }
+
+        @Override
+        protected PreloadSource<Integer, String> preloadSource() {
+            return new PreloadSource<>() {
+                @Override
+                public Stream<Integer> keys() {
+                    return IntStream.range(0, 1000).boxed();
+                }
+
+                @Override
+                public Map<Integer, String> load(Set<Integer> keys) {
+                    return CachePreloaderTest.load(keys);
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package ch.frostnova.spring.boot.platform.core.cache;
+
+import ch.frostnova.spring.boot.platform.core.config.CacheConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for the warm-start snapshots of the {@link TypeSafeCache}.
+ */
+public class CacheSnapshotTest {
+
+    @TempDir
+    Path snapshotDirectory;
+
+    private AnnotationConfigApplicationContext start(Class<? extends TypeSafeCache<?, ?>> cacheType) {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test",
+                Map.of("ch.frostnova.platform.cache.snapshot-directory", snapshotDirectory.toString())));
+        context.register(CacheConfig.class, cacheType);
+        context.refresh();
+        return context;
+    }
+
+    @Test
+    void shouldRestoreEntriesOnRestart() {
+        try (AnnotationConfigApplicationContext context = start(SnapshotCache.class)) {
+            SnapshotCache cache = context.getBean(SnapshotCache.class);
+            IntStream.range(0, 1000).forEach(i -> cache.put("key-" + i, "value-" + i));
+            cache.put("short-lived", "gone");
+        }
+        assertThat(snapshotDirectory.resolve("snapshot-cache.snapshot")).isRegularFile();
+
+        try (AnnotationConfigApplicationContext context = start(SnapshotCache.class)) {
+            SnapshotCache cache = context.getBean(SnapshotCache.class);
+            assertThat(cache.get("key-0")).isEqualTo("value-0");
+            assertThat(cache.get("key-999")).isEqualTo("value-999");
+            assertThat(cache.get("short-lived")).isNull();
+        }
+    }
+
+    @Test
+    void shouldWriteCompactKeys() throws Exception {
+        UUID key = UUID.randomUUID();
+        try (AnnotationConfigApplicationContext context = start(CompactKeySnapshotCache.class)) {
+            context.getBean(CompactKeySnapshotCache.class).put(key.toString(), "value");
+        }
+        try (AnnotationConfigApplicationContext context = start(CompactKeySnapshotCache.class)) {
+            assertThat(context.getBean(CompactKeySnapshotCache.class).get(key.toString())).isEqualTo("value");
+        }
+    }
+
+    @Test
+    void shouldSkipCorruptSnapshot() throws Exception {
+        try (AnnotationConfigApplicationContext context = start(SnapshotCache.class)) {
+            context.getBean(SnapshotCache.class).put("key", "value");
+        }
+        Path file = snapshotDirectory.resolve("snapshot-cache.snapshot");
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 0x55;
+        Files.write(file, bytes);
+
+        try (AnnotationConfigApplicationContext context = start(SnapshotCache.class)) {
+            assertThat(context.getBean(SnapshotCache.class).get("key")).isNull();
+        }
+
+        Files.write(file, new byte[]{1, 2, 3});
+        try (AnnotationConfigApplicationContext context = start(SnapshotCache.class)) {
+            assertThat(context.getBean(SnapshotCache.class).get("key")).isNull();
+        }
+    }
+
+    @Test
+    void shouldSkipSnapshotWithCorruptLength() throws Exception {
+        try (AnnotationConfigApplicationContext context = start(SnapshotCache.class)) {
+            context.getBean(SnapshotCache.class).put("key", "value");
+        }
+        Path file = snapshotDirectory.resolve("snapshot-cache.snapshot");
+        byte[] bytes = Files.readAllBytes(file);
+        // entry: ..., value length (int), value (string length (int) + 5 bytes), trailer: END (byte), count (long), CRC32 (int)
+        int valueLengthOffset = bytes.length - 4 - 8 - 1 - 5 - 4 - 4;
+        int stringLengthOffset = valueLengthOffset + 4;
+        ValueSerializer<String> serializer = ValueSerializer.strings();
+
+        for (int offset : new int[]{valueLengthOffset, stringLengthOffset}) {
+            for (int length : new int[]{Integer.MAX_VALUE - 8, -2}) {
+                byte[] corrupt = bytes.clone();
+                ByteBuffer.wrap(corrupt, offset, Integer.BYTES).putInt(length);
+                Files.write(file, corrupt);
+
+                assertThatThrownBy(() -> CacheSnapshot.read(file, "snapshot-cache", serializer)).isInstanceOf(IOException.class);
+                try (AnnotationConfigApplicationContext context = start(SnapshotCache.class)) {
+                    assertThat(context.getBean(SnapshotCache.class).get("key")).isNull();
+                }
+            }
+        }
+    }
+
+    @Test
+    void shouldSkipSnapshotOfOtherSerializerVersion() {
+        try (AnnotationConfigApplicationContext context = start(SnapshotCache.class)) {
+            context.getBean(SnapshotCache.class).put("key", "value");
+        }
+        try (AnnotationConfigApplicationContext context = start(SnapshotCacheV2.class)) {
+            assertThat(context.getBean(SnapshotCacheV2.class).get("key")).isNull();
+        }
+    }
+
+    public static class SnapshotCache extends TypeSafeCache<String, String> {
+
+        public SnapshotCache() {
+            super("snapshot-cache");
+        }
+
+        @Override
+        protected Duration expireAfter(String key, String value) {
+            return key.startsWith("short") ? Duration.ofMillis(1) : null;
+        }
+
+        @Override
+        protected ValueSerializer<String> snapshotSerializer() {
+            return ValueSerializer.strings();
+        }
+    }
+
+    public static class SnapshotCacheV2 extends TypeSafeCache<String, String> {
+
+        public SnapshotCacheV2() {
+            super("snapshot-cache");
+        }
+
+        @Override
+        protected ValueSerializer<String> snapshotSerializer() {
+            ValueSerializer<String> serializer = ValueSerializer.strings();
+            return new ValueSerializer<>() {
+                @Override
+                public int version() {
+                    return 2;
+                }
+
+                @Override
+                public void write(String value, DataOutput out) throws IOException {
+                    serializer.write(value, out);
+                }
+
+                @Override
+                public String read(DataInput in) throws IOException {
+                    return serializer.read(in);
+                }
+            };
+        }
+    }
+
+    public static class CompactKeySnapshotCache extends TypeSafeCache<String, String> {
+
+        public CompactKeySnapshotCache() {
+            super("compact-key-snapshot-cache");
+        }
+
+        @Override
+        protected Object cacheKey(String key) {
+            return CompactKey.sha256x128(key);
+        }
+
+        @Override
+        protected ValueSerializer<String> snapshotSerializer() {
+            return ValueSerializer.serializable();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package ch.frostnova.spring.boot.platform.core.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static ch.frostnova.spring.boot.platform.core.util.StringUtils.sha256;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class CompactKeyTest {
+
+    @Test
+    void shouldCompareKeys() {
+        CompactKey key = CompactKey.of(1, 2);
+
+        assertThat(key).isEqualTo(CompactKey.of(1, 2));
+        assertThat(key).hasSameHashCodeAs(CompactKey.of(1, 2));
+        assertThat(key).isNotEqualTo(CompactKey.of(2, 1));
+        assertThat(key).isNotEqualTo(CompactKey.of(0, 0, 1, 2));
+        assertThat(key.bits()).isEqualTo(128);
+        assertThat(key.toString()).isEqualTo("00000000000000010000000000000002");
+
+        CompactKey wideKey = CompactKey.of(1, 2, 3, 4);
+        assertThat(wideKey).isEqualTo(CompactKey.of(1, 2, 3, 4));
+        assertThat(wideKey).isNotEqualTo(CompactKey.of(1, 2, 3, 5));
+        assertThat(wideKey.bits()).isEqualTo(256);
+    }
+
+    @Test
+    void shouldConvertBytes() {
+        byte[] bytes = sha256("Lorem ipsum dolor sit amet");
+
+        assertThat(CompactKey.of(bytes).toBytes()).isEqualTo(bytes);
+        assertThat(CompactKey.of(bytes)).isEqualTo(CompactKey.sha256("Lorem ipsum dolor sit amet"));
+        assertThat(CompactKey.sha256("Lorem ipsum dolor sit amet").toString())
+                .isEqualTo("16aba5393ad72c0041f5600ad3c2c52ec437a2f0c7fc08fadfc3c0fe9641d7a3");
+        assertThat(CompactKey.sha256x128("Lorem ipsum dolor sit amet").toString())
+                .isEqualTo("16aba5393ad72c0041f5600ad3c2c52e");
+        assertThatThrownBy(() -> CompactKey.of(new byte[8])).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void shouldHashWithMurmur3() {
+        // reference values of MurmurHash3_x64_128 (h1, h2)
+        assertThat(CompactKey.murmur3("")).isEqualTo(CompactKey.of(0, 0));
+        assertThat(CompactKey.murmur3("hello")).isEqualTo(CompactKey.of(0xcbd8a7b341bd9b02L, 0x5b1e906a48ae1d19L));
+        assertThat(CompactKey.murmur3("The quick brown fox jumps over the lazy dog"))
+                .isEqualTo(CompactKey.of(0xe34bbc7bbc071b6cL, 0x7a433ca9c49a9347L));
+        assertThat(CompactKey.murmur3("0123456789abcdef0123456789"))
+                .isEqualTo(CompactKey.of(0x849a02423668b6ccL, 0x6bd303df48d150afL));
+    }
+
+    @Test
+    void shouldDistributeHashCodes() {
+        Set<Integer> hashCodes = new HashSet<>();
+        IntStream.range(0, 10_000).forEach(i -> hashCodes.add(CompactKey.murmur3("key-" + i).hashCode()));
+
+        assertThat(hashCodes).hasSizeGreaterThan(9_990);
+    }
+}
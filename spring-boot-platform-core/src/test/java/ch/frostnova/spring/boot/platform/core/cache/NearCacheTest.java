@@ -0,0 +1,169 @@
+package ch.frostnova.spring.boot.platform.core.cache;
+
+import ch.frostnova.spring.boot.platform.core.cache.engine.PlatformCacheProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for the near cache of the {@link TypeSafeCache}, in front of a (simulated remote) backing cache.
+ */
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(classes = {NearCacheTest.BackingCacheConfig.class, NearCacheTest.NearCachedQuoteCache.class})
+@TestPropertySource(properties = "ch.frostnova.platform.cache.near-caches.near-cached-quote-cache.time-to-live=200ms")
+public class NearCacheTest {
+
+    private final static AtomicInteger backendReads = new AtomicInteger();
+    private static volatile Runnable afterBackendRead;
+
+    @Autowired
+    private NearCachedQuoteCache quoteCache;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @BeforeEach
+    void setup() {
+        quoteCache.clear();
+        backendReads.set(0);
+        afterBackendRead = null;
+    }
+
+    @Test
+    void shouldServeHotKeysFromNearCache() {
+        quoteCache.put("quote", "v1");
+        for (int i = 0; i < 100; i++) {
+            assertThat(quoteCache.get("quote")).isEqualTo("v1");
+        }
+        assertThat(backendReads.get()).isEqualTo(1);
+
+        assertThat(quoteCache.getAll(List.of("quote", "other"), null)).containsExactly(Map.entry("quote", "v1"));
+        assertThat(backendReads.get()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldInvalidateNearCache() {
+        quoteCache.put("quote", "v1");
+        assertThat(quoteCache.get("quote")).isEqualTo("v1");
+
+        quoteCache.put("quote", "v2");
+        assertThat(quoteCache.get("quote")).isEqualTo("v2");
+
+        quoteCache.evict("quote");
+        assertThat(quoteCache.get("quote")).isNull();
+
+        quoteCache.put("quote", "v3");
+        assertThat(quoteCache.get("quote")).isEqualTo("v3");
+        quoteCache.clear();
+        assertThat(quoteCache.get("quote")).isNull();
+    }
+
+    @Test
+    void shouldExpireNearCacheEntries() throws Exception {
+        quoteCache.put("quote", "v1");
+        assertThat(quoteCache.get("quote")).isEqualTo("v1");
+
+        // changed by another node
+        cacheManager.getCache(quoteCache.getCacheName()).put("quote", "v2");
+        assertThat(quoteCache.get("quote")).isEqualTo("v1");
+
+        Thread.sleep(250);
+        assertThat(quoteCache.get("quote")).isEqualTo("v2");
+    }
+
+    @Test
+    void shouldNotPopulateNearCacheWithValueReadBeforeWrite() throws Exception {
+        quoteCache.put("quote", "v1");
+        CountDownLatch read = new CountDownLatch(1);
+        CountDownLatch written = new CountDownLatch(1);
+        afterBackendRead = () -> {
+            read.countDown();
+            try {
+                written.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        };
+
+        // the reader reads v1 from the backing cache, and populates the near cache after v2 was written
+        CompletableFuture<String> reader = CompletableFuture.supplyAsync(() -> quoteCache.get("quote"));
+        assertThat(read.await(5, TimeUnit.SECONDS)).isTrue();
+        afterBackendRead = null;
+        quoteCache.put("quote", "v2");
+        written.countDown();
+
+        assertThat(reader.get(5, TimeUnit.SECONDS)).isEqualTo("v1");
+        assertThat(quoteCache.get("quote")).isEqualTo("v2");
+    }
+
+    @Test
+    void shouldClearNearCacheAfterCommit() throws Exception {
+        quoteCache.put("quote", "v1");
+        assertThat(quoteCache.get("quote")).isEqualTo("v1");
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            quoteCache.clear();
+            // a reader outside the transaction still sees v1 until the commit, and must not keep it in the near cache
+            assertThat(CompletableFuture.supplyAsync(() -> quoteCache.get("quote")).get(5, TimeUnit.SECONDS)).isEqualTo("v1");
+            TransactionSynchronizationUtils.triggerAfterCommit();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertThat(quoteCache.get("quote")).isNull();
+    }
+
+    @EnableConfigurationProperties(PlatformCacheProperties.class)
+    static class BackingCacheConfig {
+
+        @Bean
+        public CacheManager cacheManager() {
+            return new TransactionAwareCacheManagerProxy(new ConcurrentMapCacheManager() {
+                @Override
+                protected Cache createConcurrentMapCache(String name) {
+                    return new ConcurrentMapCache(name) {
+                        @Override
+                        protected Object lookup(Object key) {
+                            backendReads.incrementAndGet();
+                            Runnable hook = afterBackendRead;
+                            Object value = super.lookup(key);
+                            if (hook != null) {
+                                hook.run();
+                            }
+                            return value;
+                        }
+                    };
+                }
+            });
+        }
+    }
+
+    public static class NearCachedQuoteCache extends TypeSafeCache<String, String> {
+
+        public NearCachedQuoteCache() {
+            super("near-cached-quote-cache");
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package ch.frostnova.spring.boot.platform.core.cache;
+
+import ch.frostnova.spring.boot.platform.core.config.CacheConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for the negative cache of the {@link TypeSafeCache}.
+ */
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(classes = {CacheConfig.class, NegativeCacheTest.UserCache.class})
+public class NegativeCacheTest {
+
+    @Autowired
+    private UserCache userCache;
+
+    private final AtomicInteger producerCalls = new AtomicInteger();
+
+    @BeforeEach
+    void setup() {
+        userCache.clear();
+        producerCalls.set(0);
+    }
+
+    private String findUser(String login) {
+        producerCalls.incrementAndGet();
+        return login.startsWith("unknown") ? null : "User " + login;
+    }
+
+    @Test
+    void shouldBoundMarkers() {
+        NegativeCache negativeCache = new NegativeCache(100, Duration.ofMinutes(1));
+        assertThat(negativeCache.capacity()).isEqualTo(128);
+
+        IntStream.range(0, 10_000).forEach(negativeCache::add);
+        assertThat(IntStream.range(0, 10_000).filter(negativeCache::contains).count()).isLessThanOrEqualTo(128);
+        assertThat(negativeCache.contains(9999)).isTrue();
+
+        negativeCache.remove(9999);
+        assertThat(negativeCache.contains(9999)).isFalse();
+        negativeCache.clear();
+        assertThat(negativeCache.contains(9998)).isFalse();
+    }
+
+    @Test
+    void shouldRememberAbsentValues() {
+        for (int i = 0; i < 10; i++) {
+            assertThat(userCache.get("unknown", this::findUser)).isNull();
+        }
+        assertThat(producerCalls.get()).isEqualTo(1);
+        assertThat(userCache.contains("unknown")).isFalse();
+
+        assertThat(userCache.get("alice", this::findUser)).isEqualTo("User alice");
+        assertThat(userCache.get("alice", this::findUser)).isEqualTo("User alice");
+        assertThat(producerCalls.get()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldExpireAbsentValues() throws Exception {
+        assertThat(userCache.get("unknown", this::findUser)).isNull();
+        assertThat(userCache.get("unknown", this::findUser)).isNull();
+        assertThat(producerCalls.get()).isEqualTo(1);
+
+        Thread.sleep(250);
+        assertThat(userCache.get("unknown", this::findUser)).isNull();
+        assertThat(producerCalls.get()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldForgetAbsentValuesWhenPutOrEvicted() {
+        assertThat(userCache.get("unknown", this::findUser)).isNull();
+        userCache.put("unknown", "User unknown");
+        assertThat(userCache.get("unknown", this::findUser)).isEqualTo("User unknown");
+
+        userCache.evict("unknown");
+        assertThat(userCache.get("unknown", this::findUser)).isNull();
+        assertThat(userCache.get("unknown", this::findUser)).isNull();
+        assertThat(producerCalls.get()).isEqualTo(2);
+
+        userCache.clear();
+        assertThat(userCache.get("unknown", this::findUser)).isNull();
+        assertThat(producerCalls.get()).isEqualTo(3);
+    }
+
+    @Test
+    void shouldRememberAbsentValuesInBatchesAndAsyncLoads() {
+        Function<Set<String>, Map<String, String>> batchProducer = logins -> {
+            producerCalls.incrementAndGet();
+            return Map.of("bob", "User bob");
+        };
+        assertThat(userCache.getAll(List.of("bob", "unknown-1", "unknown-2"), batchProducer)).containsOnlyKeys("bob");
+        assertThat(userCache.getAll(List.of("bob", "unknown-1", "unknown-2"), batchProducer)).containsOnlyKeys("bob");
+        assertThat(producerCalls.get()).isEqualTo(1);
+
+        assertThat(userCache.getAsync("unknown-3", login -> CompletableFuture.completedFuture(findUser(login)))).isCompletedWithValue(null);
+        assertThat(userCache.getAsync("unknown-3", login -> CompletableFuture.completedFuture(findUser(login)))).isCompletedWithValue(null);
+        assertThat(producerCalls.get()).isEqualTo(2);
+    }
+
+    public static class UserCache extends TypeSafeCache<String, String> {
+
+        public UserCache() {
+            super("user-cache");
+        }
+
+        @Override
+        protected Duration negativeCacheTimeToLive() {
+            return Duration.ofMillis(200);
+        }
+
+        @Override
+        protected int negativeCacheMaximumSize() {
+            return 100;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package ch.frostnova.spring.boot.platform.core.cache;
+
+import java.time.Duration;
+
+public class QuoteCache extends TypeSafeCache<String, String> {
+
+    private final static String CACHE_NAME = "quote-cache";
+
+    public QuoteCache() {
+        super(CACHE_NAME);
+    }
+
+    @Override
+    protected Duration refreshAfter() {
+        return Duration.ofMillis(100);
+    }
+
+    @Override
+    protected Duration expireAfterWrite() {
+        return Duration.ofMillis(500);
+    }
+}
@@ -0,0 +1,105 @@
+package ch.frostnova.spring.boot.platform.core.cache;
+
+import ch.frostnova.spring.boot.platform.core.config.CacheConfig;
+import ch.frostnova.spring.boot.platform.core.scope.TaskScope;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for the refresh-ahead mode of the {@link TypeSafeCache}.
+ */
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(classes = {CacheConfig.class, QuoteCache.class})
+public class RefreshAheadCacheTest {
+
+    @Autowired
+    private QuoteCache quoteCache;
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertThat(System.currentTimeMillis()).as("condition not met in time").isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    @BeforeEach
+    void setup() {
+        quoteCache.clear();
+    }
+
+    @Test
+    void shouldServeStaleValueAndRefreshAsynchronously() throws Exception {
+        assertThat(quoteCache.get("quote", k -> "v1")).isEqualTo("v1");
+        assertThat(quoteCache.get("quote", k -> "v2")).isEqualTo("v1");
+
+        Thread.sleep(150);
+        AtomicInteger refreshes = new AtomicInteger();
+        AtomicBoolean scopeActive = new AtomicBoolean();
+        for (int i = 0; i < 10; i++) {
+            assertThat(quoteCache.get("quote", k -> {
+                refreshes.incrementAndGet();
+                scopeActive.set(TaskScope.isActive());
+                return "v2";
+            })).isIn("v1", "v2");
+        }
+        await(() -> "v2".equals(quoteCache.get("quote")));
+        assertThat(refreshes.get()).isEqualTo(1);
+        assertThat(scopeActive.get()).isTrue();
+    }
+
+    @Test
+    void shouldServeStaleValueAndRefreshAsynchronouslyWithAsyncProducer() throws Exception {
+        assertThat(quoteCache.getAsync("quote", k -> CompletableFuture.completedFuture("v1")).get()).isEqualTo("v1");
+
+        Thread.sleep(150);
+        AtomicInteger refreshes = new AtomicInteger();
+        CompletableFuture<String> refreshed = new CompletableFuture<>();
+        for (int i = 0; i < 10; i++) {
+            assertThat(quoteCache.getAsync("quote", k -> {
+                refreshes.incrementAndGet();
+                return refreshed;
+            })).isCompletedWithValue("v1");
+        }
+        refreshed.complete("v2");
+        assertThat(quoteCache.get("quote")).isEqualTo("v2");
+        assertThat(refreshes.get()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldKeepStaleValueWhenRefreshFails() throws Exception {
+        quoteCache.put("quote", "v1");
+
+        Thread.sleep(150);
+        AtomicInteger refreshes = new AtomicInteger();
+        assertThat(quoteCache.get("quote", k -> {
+            refreshes.incrementAndGet();
+            throw new IllegalStateException("backend unavailable");
+        })).isEqualTo("v1");
+        await(() -> refreshes.get() == 1);
+
+        assertThat(quoteCache.get("quote")).isEqualTo("v1");
+    }
+
+    @Test
+    void shouldExpireValue() throws Exception {
+        quoteCache.put("quote", "v1");
+        assertThat(quoteCache.contains("quote")).isTrue();
+
+        Thread.sleep(550);
+        assertThat(quoteCache.contains("quote")).isFalse();
+        assertThat(quoteCache.get("quote")).isNull();
+        assertThat(quoteCache.get("quote", k -> "v2")).isEqualTo("v2");
+    }
+}
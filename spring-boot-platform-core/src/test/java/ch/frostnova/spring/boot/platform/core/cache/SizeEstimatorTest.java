@@ -0,0 +1,72 @@
+package ch.frostnova.spring.boot.platform.core.cache;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static ch.frostnova.spring.boot.platform.core.cache.SizeEstimator.estimate;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SizeEstimatorTest {
+
+    @Test
+    void shouldEstimateSimpleValues() {
+        assertThat(estimate(null)).isZero();
+        assertThat(estimate("")).isEqualTo(40);
+        assertThat(estimate("x".repeat(100))).isEqualTo(144);
+        assertThat(estimate(42)).isEqualTo(16);
+        assertThat(estimate(42L)).isEqualTo(40);
+        assertThat(estimate(new byte[100])).isEqualTo(120);
+        assertThat(estimate(new long[10])).isEqualTo(96);
+        assertThat(estimate(CompactKey.of(1, 2))).isEqualTo(32);
+    }
+
+    @Test
+    void shouldEstimateNestedValues() {
+        String value = "x".repeat(100);
+        long list = estimate(List.of(value, value, value));
+        assertThat(list).isGreaterThan(3 * estimate(value));
+
+        long map = estimate(Map.of("a", value, "b", value));
+        assertThat(map).isGreaterThan(2 * estimate(value) + 2 * estimate("a"));
+
+        assertThat(estimate(new SimpleValueWrapper(value))).isGreaterThan(estimate(value));
+        assertThat(estimate(new Object[]{value, value})).isGreaterThan(2 * estimate(value));
+    }
+
+    @Test
+    void shouldEstimateJsonTrees() throws Exception {
+        JsonNode small = new ObjectMapper().readTree("{\"name\":\"test\"}");
+        JsonNode large = new ObjectMapper().readTree("{\"name\":\"test\",\"items\":[1,2,3,\"" + "x".repeat(1000) + "\"],\"nested\":{\"flag\":true}}");
+
+        assertThat(estimate(small)).isGreaterThan(estimate("name") + estimate("test"));
+        assertThat(estimate(large)).isGreaterThan(estimate(small) + 1000);
+    }
+
+    @Test
+    void shouldCountSharedAndSelfReferencingValuesOnce() {
+        String value = "x".repeat(100);
+        List<Object> shared = List.of(value);
+        List<Object> nested = shared;
+        for (int i = 0; i < 40; i++) {
+            // each level references the level below twice: exponential without identity tracking
+            nested = List.of(nested, nested);
+        }
+        assertThat(estimate(nested)).isLessThan(40 * 100 + estimate(shared));
+
+        List<Object> cyclic = new ArrayList<>();
+        cyclic.add(value);
+        cyclic.add(cyclic);
+        Map<String, Object> cyclicMap = new HashMap<>();
+        cyclicMap.put("self", cyclicMap);
+        cyclicMap.put("list", cyclic);
+        assertThat(estimate(cyclic)).isLessThan(2 * estimate(value));
+        assertThat(estimate(cyclicMap)).isLessThan(estimate(cyclic) + 400);
+    }
+}
@@ -0,0 +1,217 @@
+package ch.frostnova.spring.boot.platform.core.cache;
+
+import ch.frostnova.spring.boot.platform.core.cache.engine.PlatformCache;
+import ch.frostnova.spring.boot.platform.core.config.CacheConfig;
+import ch.frostnova.spring.boot.platform.core.scope.TaskScope;
+import ch.frostnova.spring.boot.platform.core.scope.TaskScopeConfig;
+import ch.frostnova.spring.boot.platform.core.security.CurrentUserInfo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheDecorator;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+import static ch.frostnova.spring.boot.platform.api.auth.UserInfo.userInfo;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link TypeSafeCache}s partitioned by tenant.
+ */
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(classes = {CacheConfig.class, TaskScopeConfig.class, CurrentUserInfo.class, TenantPartitionedCacheTest.TenantCache.class,
+        TenantPartitionedCacheTest.RefreshingTenantCache.class})
+@TestPropertySource(properties = "ch.frostnova.platform.cache.caches.tenant-cache.maximum-size=100")
+public class TenantPartitionedCacheTest {
+
+    @Autowired
+    private TenantCache tenantCache;
+
+    @Autowired
+    private RefreshingTenantCache refreshingTenantCache;
+
+    @Autowired
+    private CurrentUserInfo currentUserInfo;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    private <T> T asTenant(String tenant, Supplier<T> action) {
+        TaskScope.init();
+        try {
+            currentUserInfo.setUserInfo(userInfo("user").tenant(tenant).build());
+            return action.get();
+        } finally {
+            TaskScope.destroy();
+        }
+    }
+
+    private void asTenant(String tenant, Runnable action) {
+        asTenant(tenant, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+
+    @BeforeEach
+    void setup() {
+        tenantCache.clear();
+        refreshingTenantCache.clear();
+    }
+
+    @Test
+    void shouldPartitionEntriesByTenant() {
+        asTenant("tenant-a", () -> tenantCache.put("key", "a"));
+        asTenant("tenant-b", () -> tenantCache.put("key", "b"));
+        tenantCache.put("key", "none");
+
+        assertThat(asTenant("tenant-a", () -> tenantCache.get("key"))).isEqualTo("a");
+        assertThat(asTenant("tenant-b", () -> tenantCache.get("key"))).isEqualTo("b");
+        assertThat(asTenant("tenant-c", () -> tenantCache.get("key"))).isNull();
+        assertThat(tenantCache.get("key")).isEqualTo("none");
+    }
+
+    @Test
+    void shouldBoundEachTenantSeparately() {
+        asTenant("quiet", () -> IntStream.range(0, 10).forEach(i -> tenantCache.put("key-" + i, "quiet")));
+        asTenant("noisy", () -> IntStream.range(0, 10_000).forEach(i -> tenantCache.put("key-" + i, "noisy")));
+
+        asTenant("quiet", () -> IntStream.range(0, 10).forEach(i -> assertThat(tenantCache.get("key-" + i)).isEqualTo("quiet")));
+        PlatformCache noisyPartition = (PlatformCache) ((TransactionAwareCacheDecorator) cacheManager.getCache("tenant-cache@noisy")).getTargetCache();
+        assertThat(noisyPartition.size()).isLessThanOrEqualTo(100);
+    }
+
+    @Test
+    void shouldClearTenant() {
+        asTenant("tenant-a", () -> tenantCache.put("key", "a"));
+        asTenant("tenant-b", () -> tenantCache.put("key", "b"));
+
+        tenantCache.clear("tenant-a");
+
+        assertThat(asTenant("tenant-a", () -> tenantCache.get("key"))).isNull();
+        assertThat(asTenant("tenant-b", () -> tenantCache.get("key"))).isEqualTo("b");
+    }
+
+    @Test
+    void shouldRecordStatisticsPerTenant() {
+        CacheStats before = tenantCache.snapshot();
+        CacheStats beforeA = tenantCache.tenantSnapshots().get("stats-a");
+        assertThat(beforeA).isNull();
+
+        asTenant("stats-a", () -> {
+            tenantCache.put("key", "a");
+            tenantCache.get("key");
+            tenantCache.get("key");
+        });
+        asTenant("stats-b", () -> tenantCache.get("key"));
+
+        CacheStats statsA = tenantCache.tenantSnapshots().get("stats-a");
+        CacheStats statsB = tenantCache.tenantSnapshots().get("stats-b");
+        assertThat(statsA.getHitCount()).isEqualTo(2);
+        assertThat(statsA.getPutCount()).isEqualTo(1);
+        assertThat(statsB.getMissCount()).isEqualTo(1);
+        assertThat(tenantCache.snapshot().getHitCount() - before.getHitCount()).isEqualTo(2);
+        assertThat(tenantCache.snapshot().getMissCount() - before.getMissCount()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldCountEvictionsBySizeLimit() {
+        CacheStats before = tenantCache.snapshot();
+
+        asTenant("evicting", () -> IntStream.range(0, 1000).forEach(i -> tenantCache.put("key-" + i, "value")));
+
+        CacheStats tenantStats = tenantCache.tenantSnapshots().get("evicting");
+        assertThat(tenantStats.getPutCount()).isEqualTo(1000);
+        assertThat(tenantStats.getEvictionCount()).isGreaterThanOrEqualTo(900);
+        assertThat(tenantCache.snapshot().getEvictionCount() - before.getEvictionCount()).isEqualTo(tenantStats.getEvictionCount());
+    }
+
+    @Test
+    void shouldRefreshIntoTenantPartition() throws Exception {
+        asTenant("tenant-a", () -> refreshingTenantCache.put("key", "a-1"));
+        Thread.sleep(100);
+
+        assertThat(asTenant("tenant-a", () -> refreshingTenantCache.get("key", key -> "a-2"))).isEqualTo("a-1");
+
+        await(() -> "a-2".equals(asTenant("tenant-a", () -> refreshingTenantCache.get("key"))));
+        assertThat(refreshingTenantCache.get("key")).isNull();
+        assertThat(asTenant("tenant-b", () -> refreshingTenantCache.get("key"))).isNull();
+    }
+
+    @Test
+    void shouldProduceAsynchronouslyIntoTenantPartition() {
+        Executor delayed = CompletableFuture.delayedExecutor(50, TimeUnit.MILLISECONDS);
+
+        CompletableFuture<String> future = asTenant("tenant-a", () -> tenantCache.getAsync("async-key",
+                key -> CompletableFuture.supplyAsync(() -> "a", delayed)));
+
+        assertThat(future.join()).isEqualTo("a");
+        assertThat(asTenant("tenant-a", () -> tenantCache.get("async-key"))).isEqualTo("a");
+        assertThat(tenantCache.get("async-key")).isNull();
+        assertThat(tenantCache.tenantSnapshots().get("tenant-a").getPutCount()).isGreaterThanOrEqualTo(1);
+    }
+
+    @Test
+    void shouldEncodeTenantKeys() throws Exception {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(buffer)) {
+            KeyCodec.write(out, new TenantKey("tenant-a", "key"));
+            KeyCodec.write(out, new TenantKey(null, CompactKey.murmur3("key")));
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(buffer.toByteArray()));
+        assertThat(KeyCodec.read(in)).isEqualTo(new TenantKey("tenant-a", "key"));
+        assertThat(KeyCodec.read(in)).isEqualTo(new TenantKey(null, CompactKey.murmur3("key")));
+    }
+
+    public static class TenantCache extends TypeSafeCache<String, String> {
+
+        public TenantCache() {
+            super("tenant-cache");
+        }
+
+        @Override
+        protected boolean tenantPartitioned() {
+            return true;
+        }
+    }
+
+    public static class RefreshingTenantCache extends TypeSafeCache<String, String> {
+
+        public RefreshingTenantCache() {
+            super("refreshing-tenant-cache");
+        }
+
+        @Override
+        protected boolean tenantPartitioned() {
+            return true;
+        }
+
+        @Override
+        protected Duration refreshAfter() {
+            return Duration.ofMillis(50);
+        }
+    }
+}
@@ -9,9 +9,24 @@ import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
 import java.awt.Point;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static java.util.stream.Collectors.toMap;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 /**
  * Tests for the {@link TypeSafeCache}
@@ -140,4 +155,158 @@ public class TypeSafeCacheTest {
         assertThat(geometryCache.contains(new Point(5, 6))).isFalse();
         assertThat(geometryCache.get(new Point(5, 6))).isNull();
     }
+
+    @Test
+    void shouldCoalesceConcurrentLoads() throws Exception {
+        AtomicInteger producerCalls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        UUID value = UUID.randomUUID();
+
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        List<Future<UUID>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            futures.add(executorService.submit(() -> uuidCache.get(123, k -> {
+                producerCalls.incrementAndGet();
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    throw new RuntimeException(ex);
+                }
+                return value;
+            })));
+        }
+        Thread.sleep(100);
+        release.countDown();
+        for (Future<UUID> future : futures) {
+            assertThat(future.get(5, TimeUnit.SECONDS)).isSameAs(value);
+        }
+        executorService.shutdownNow();
+
+        assertThat(producerCalls.get()).isEqualTo(1);
+        assertThat(uuidCache.loadsInFlight()).isZero();
+    }
+
+    @Test
+    void shouldNotRetainFailedLoads() {
+        assertThatThrownBy(() -> uuidCache.get(123, k -> {
+            throw new ArithmeticException();
+        })).isInstanceOf(ArithmeticException.class);
+
+        assertThat(uuidCache.loadsInFlight()).isZero();
+        assertThat(uuidCache.contains(123)).isFalse();
+
+        UUID value = UUID.randomUUID();
+        assertThat(uuidCache.get(123, k -> value)).isSameAs(value);
+    }
+
+    @Test
+    void shouldShareInFlightAsyncLoads() throws Exception {
+        AtomicInteger producerCalls = new AtomicInteger();
+        CompletableFuture<UUID> production = new CompletableFuture<>();
+        Function<Integer, CompletableFuture<UUID>> producer = k -> {
+            producerCalls.incrementAndGet();
+            return production;
+        };
+
+        CompletableFuture<UUID> first = uuidCache.getAsync(123, producer);
+        CompletableFuture<UUID> second = uuidCache.getAsync(123, producer);
+        assertThat(first).isNotDone();
+        assertThat(second).isNotDone();
+        assertThat(uuidCache.loadsInFlight()).isEqualTo(1);
+
+        UUID value = UUID.randomUUID();
+        production.complete(value);
+        assertThat(first.get(5, TimeUnit.SECONDS)).isSameAs(value);
+        assertThat(second.get(5, TimeUnit.SECONDS)).isSameAs(value);
+        assertThat(producerCalls.get()).isEqualTo(1);
+        assertThat(uuidCache.loadsInFlight()).isZero();
+
+        assertThat(uuidCache.getAsync(123, producer)).isCompletedWithValue(value);
+        assertThat(uuidCache.get(123)).isSameAs(value);
+        assertThat(producerCalls.get()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldNotRetainFailedAsyncLoads() throws Exception {
+        CompletableFuture<UUID> failed = uuidCache.getAsync(123, k -> CompletableFuture.failedFuture(new ArithmeticException()));
+        assertThatThrownBy(failed::join).hasCauseInstanceOf(ArithmeticException.class);
+        CompletableFuture<UUID> thrown = uuidCache.getAsync(123, k -> {
+            throw new ArithmeticException();
+        });
+        assertThatThrownBy(thrown::join).hasCauseInstanceOf(ArithmeticException.class);
+
+        assertThat(uuidCache.loadsInFlight()).isZero();
+        assertThat(uuidCache.contains(123)).isFalse();
+
+        UUID value = UUID.randomUUID();
+        assertThat(uuidCache.getAsync(123, k -> CompletableFuture.supplyAsync(() -> value)).get(5, TimeUnit.SECONDS)).isSameAs(value);
+        assertThat(uuidCache.getAsync(123, null)).isCompletedWithValue(value);
+        assertThat(uuidCache.getAsync(456, null)).isCompletedWithValue(null);
+    }
+
+    @Test
+    void shouldPutAllValues() {
+        UUID value1 = UUID.randomUUID();
+        UUID value2 = UUID.randomUUID();
+        uuidCache.putAll(Map.of(123, value1, 456, value2));
+
+        assertThat(uuidCache.get(123)).isSameAs(value1);
+        assertThat(uuidCache.get(456)).isSameAs(value2);
+
+        geometryCache.putAll(Map.of(new Point(1, 2), 2d));
+        assertThat(geometryCache.contains(new Point(1, 2))).isTrue();
+    }
+
+    @Test
+    void shouldProduceMissingValuesInOneBatch() {
+        geometryCache.put(new Point(1, 2), 2d);
+        List<Set<Point>> producerCalls = new ArrayList<>();
+        Function<Set<Point>, Map<Point, Double>> producer = keys -> {
+            producerCalls.add(Set.copyOf(keys));
+            return keys.stream()
+                    .filter(k -> k.x > 0)
+                    .collect(toMap(k -> k, k -> (double) k.x * k.y));
+        };
+
+        Map<Point, Double> result = geometryCache.getAll(List.of(new Point(1, 2), new Point(3, 4), new Point(0, 5)), producer);
+
+        assertThat(result).containsOnlyKeys(new Point(1, 2), new Point(3, 4));
+        assertThat(result.get(new Point(1, 2))).isEqualTo(2d);
+        assertThat(result.get(new Point(3, 4))).isEqualTo(12d);
+        assertThat(producerCalls).containsExactly(Set.of(new Point(3, 4), new Point(0, 5)));
+        assertThat(geometryCache.contains(new Point(3, 4))).isTrue();
+        assertThat(geometryCache.contains(new Point(0, 5))).isFalse();
+
+        result = geometryCache.getAll(List.of(new Point(1, 2), new Point(3, 4)), producer);
+        assertThat(result).containsOnlyKeys(new Point(1, 2), new Point(3, 4));
+        assertThat(producerCalls).hasSize(1);
+    }
+
+    @Test
+    void shouldRecordStatistics() {
+        CacheStats before = uuidCache.snapshot();
+        UUID value = UUID.randomUUID();
+
+        uuidCache.get(123, k -> value);
+        uuidCache.get(123, k -> value);
+        uuidCache.get(456);
+        uuidCache.putAll(Map.of(456, value, 789, value));
+        uuidCache.evict(456);
+        assertThatThrownBy(() -> uuidCache.get(999, k -> {
+            throw new ArithmeticException();
+        })).isInstanceOf(ArithmeticException.class);
+
+        CacheStats after = uuidCache.snapshot();
+        assertThat(after.getCacheName()).isEqualTo("uuid-cache");
+        assertThat(after.getHitCount() - before.getHitCount()).isEqualTo(1);
+        assertThat(after.getMissCount() - before.getMissCount()).isEqualTo(3);
+        assertThat(after.getPutCount() - before.getPutCount()).isEqualTo(3);
+        assertThat(after.getEvictionCount() - before.getEvictionCount()).isEqualTo(1);
+        assertThat(after.getLoadSuccessCount() - before.getLoadSuccessCount()).isEqualTo(1);
+        assertThat(after.getLoadFailureCount() - before.getLoadFailureCount()).isEqualTo(1);
+        assertThat(after.getTotalLoadTimeNanos()).isGreaterThan(before.getTotalLoadTimeNanos());
+        assertThat(after.getLoadTimeHistogram().values().stream().mapToLong(Long::longValue).sum())
+                .isEqualTo(after.getLoadSuccessCount() + after.getLoadFailureCount());
+        assertThat(after.getHitRate()).isBetween(0.0, 1.0);
+    }
 }
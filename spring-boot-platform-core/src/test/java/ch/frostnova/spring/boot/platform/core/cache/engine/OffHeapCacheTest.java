@@ -0,0 +1,179 @@
+package ch.frostnova.spring.boot.platform.core.cache.engine;
+
+import ch.frostnova.spring.boot.platform.core.cache.CompactKey;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.cache.Cache;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for the {@link OffHeapCache}.
+ */
+public class OffHeapCacheTest {
+
+    @TempDir
+    Path directory;
+
+    private static PlatformCacheProperties.CacheSpec spec(DataSize capacity, DataSize slabSize, Path directory) {
+        PlatformCacheProperties.OffHeap offHeap = new PlatformCacheProperties.OffHeap();
+        offHeap.setCapacity(capacity);
+        offHeap.setSlabSize(slabSize);
+        offHeap.setDirectory(directory);
+        PlatformCacheProperties.CacheSpec spec = new PlatformCacheProperties.CacheSpec();
+        spec.setOffHeap(offHeap);
+        return spec;
+    }
+
+    @Test
+    void shouldCacheValues() {
+        OffHeapCache cache = new OffHeapCache("test", spec(DataSize.ofKilobytes(64), DataSize.ofKilobytes(16), null));
+        assertThat(cache.isMemoryMapped()).isFalse();
+        assertThat(cache.getCapacity()).isEqualTo(64 * 1024);
+
+        cache.put("a", 1);
+        cache.put("b", null);
+        cache.put(CompactKey.murmur3("c"), List.of("x", "y"));
+
+        assertThat(cache.get("a")).isNotNull().extracting(Cache.ValueWrapper::get).isEqualTo(1);
+        assertThat(cache.get("b")).isNotNull().extracting(Cache.ValueWrapper::get).isNull();
+        assertThat(cache.get(CompactKey.murmur3("c"))).isNotNull().extracting(Cache.ValueWrapper::get).isEqualTo(List.of("x", "y"));
+        assertThat(cache.get("d")).isNull();
+        assertThat(cache.get("a", Integer.class)).isEqualTo(1);
+        assertThat(cache.putIfAbsent("a", 2)).isNotNull().extracting(Cache.ValueWrapper::get).isEqualTo(1);
+        assertThat(cache.get("e", () -> 5)).isEqualTo(5);
+        assertThat(cache.size()).isEqualTo(4);
+
+        cache.put("a", 3);
+        assertThat(cache.get("a")).isNotNull().extracting(Cache.ValueWrapper::get).isEqualTo(3);
+        assertThat(cache.evictIfPresent("a")).isTrue();
+        assertThat(cache.evictIfPresent("a")).isFalse();
+
+        cache.put("not-serializable", new Object());
+        assertThat(cache.get("not-serializable")).isNull();
+
+        assertThat(cache.invalidate()).isTrue();
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void shouldBoundCapacity() {
+        OffHeapCache cache = new OffHeapCache("test", spec(DataSize.ofKilobytes(64), DataSize.ofKilobytes(16), null));
+        String value = "x".repeat(1000);
+
+        IntStream.range(0, 1000).forEach(i -> cache.put(i, value));
+
+        assertThat(cache.size()).isBetween(40L, 64L);
+        assertThat(cache.get(999)).isNotNull().extracting(Cache.ValueWrapper::get).isEqualTo(value);
+        assertThat(cache.get(0)).isNull();
+
+        cache.put("too-large", "x".repeat(20_000));
+        assertThat(cache.get("too-large")).isNull();
+    }
+
+    @Test
+    void shouldMakeRoomForLargeValuesInRecycledSlab() {
+        OffHeapCache cache = new OffHeapCache("test", spec(DataSize.ofKilobytes(128), DataSize.ofKilobytes(64), null));
+        String value = "x".repeat(1000);
+        String largeValue = "y".repeat(30_000);
+
+        for (int i = 0; i < 60; i++) {
+            cache.put(i, value);
+            assertThat(cache.get(i)).isNotNull();
+        }
+        IntStream.range(0, 4).forEach(i -> cache.put("large-" + i, largeValue));
+
+        assertThat(cache.get("large-3")).isNotNull().extracting(Cache.ValueWrapper::get).isEqualTo(largeValue);
+        assertThat(cache.get("large-2")).isNotNull().extracting(Cache.ValueWrapper::get).isEqualTo(largeValue);
+
+        cache.put("larger-than-half-a-slab", "z".repeat(40_000));
+        assertThat(cache.get("larger-than-half-a-slab")).isNull();
+    }
+
+    @Test
+    void shouldRetainRecentlyReadEntries() {
+        OffHeapCache cache = new OffHeapCache("test", spec(DataSize.ofKilobytes(64), DataSize.ofKilobytes(16), null));
+        String value = "x".repeat(1000);
+
+        cache.put("hot", value);
+        for (int i = 0; i < 1000; i++) {
+            cache.put(i, value);
+            assertThat(cache.get("hot")).isNotNull();
+        }
+    }
+
+    @Test
+    void shouldExpireEntries() throws Exception {
+        PlatformCacheProperties.CacheSpec spec = spec(DataSize.ofKilobytes(64), DataSize.ofKilobytes(16), null);
+        spec.setTimeToLive(Duration.ofMillis(100));
+        OffHeapCache cache = new OffHeapCache("test", spec);
+
+        cache.put("default", 1);
+        cache.put("short", 2, Duration.ofMillis(50));
+        cache.put("long", 3, Duration.ofMinutes(5));
+        cache.put("expired", 4, Duration.ZERO);
+
+        assertThat(cache.get("default")).isNotNull();
+        assertThat(cache.get("expired")).isNull();
+
+        Thread.sleep(150);
+        assertThat(cache.get("default")).isNull();
+        assertThat(cache.get("short")).isNull();
+        assertThat(cache.get("long")).isNotNull();
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldUseMemoryMappedStorage() {
+        OffHeapCache cache = new OffHeapCache("test", spec(DataSize.ofMegabytes(1), DataSize.ofKilobytes(256), directory));
+        assertThat(cache.isMemoryMapped()).isTrue();
+
+        IntStream.range(0, 1000).forEach(i -> cache.put(i, "value-" + i));
+
+        assertThat(cache.get(500)).isNotNull().extracting(Cache.ValueWrapper::get).isEqualTo("value-500");
+    }
+
+    @Test
+    void shouldReadConsistentlyUnderConcurrentWrites() throws Exception {
+        OffHeapCache cache = new OffHeapCache("test", spec(DataSize.ofKilobytes(64), DataSize.ofKilobytes(8), null));
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            futures.add(executorService.submit(() -> IntStream.range(0, 20_000).forEach(i -> {
+                int key = i % 500;
+                cache.put(key, "value-" + key);
+                Cache.ValueWrapper cached = cache.get((key + 7) % 500);
+                if (cached != null) {
+                    assertThat(cached.get()).isEqualTo("value-" + (key + 7) % 500);
+                }
+            })));
+        }
+        executorService.shutdown();
+        assertThat(executorService.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+    }
+
+    @Test
+    void shouldConfigureOffHeapCaches() {
+        PlatformCacheProperties properties = new PlatformCacheProperties();
+        properties.getCaches().put("off-heap-cache", spec(DataSize.ofMegabytes(1), DataSize.ofKilobytes(256), null));
+
+        PlatformCacheManager cacheManager = new PlatformCacheManager(properties);
+
+        assertThat(cacheManager.getCache("off-heap-cache")).isInstanceOf(OffHeapCache.class);
+        assertThat(cacheManager.getCache("other-cache")).isInstanceOf(PlatformCache.class);
+    }
+}
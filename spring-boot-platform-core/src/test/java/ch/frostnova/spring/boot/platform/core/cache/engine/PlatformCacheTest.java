@@ -0,0 +1,241 @@
+package ch.frostnova.spring.boot.platform.core.cache.engine;
+
+import ch.frostnova.spring.boot.platform.core.cache.Weigher;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for the {@link PlatformCache} and {@link PlatformCacheManager}.
+ */
+public class PlatformCacheTest {
+
+    @Test
+    void shouldCacheValues() {
+        PlatformCache cache = new PlatformCache("test", 100);
+
+        cache.put("a", 1);
+        cache.put("b", null);
+
+        assertThat(cache.get("a")).isNotNull().extracting(Cache.ValueWrapper::get).isEqualTo(1);
+        assertThat(cache.get("b")).isNotNull().extracting(Cache.ValueWrapper::get).isNull();
+        assertThat(cache.get("c")).isNull();
+        assertThat(cache.putIfAbsent("a", 2)).isNotNull().extracting(Cache.ValueWrapper::get).isEqualTo(1);
+        assertThat(cache.get("c", () -> 3)).isEqualTo(3);
+        assertThat(cache.size()).isEqualTo(3);
+
+        assertThat(cache.evictIfPresent("a")).isTrue();
+        assertThat(cache.evictIfPresent("a")).isFalse();
+        assertThat(cache.get("a")).isNull();
+
+        assertThat(cache.invalidate()).isTrue();
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void shouldBoundSize() {
+        PlatformCache cache = new PlatformCache("test", 100);
+
+        IntStream.range(0, 10_000).forEach(i -> cache.put(i, "value-" + i));
+
+        assertThat(cache.size()).isEqualTo(100);
+    }
+
+    @Test
+    void shouldRetainFrequentlyUsedEntries() {
+        PlatformCache cache = new PlatformCache("test", 1000);
+        int hotKeys = 500;
+
+        // warm up the hot keys
+        for (int round = 0; round < 10; round++) {
+            IntStream.range(0, hotKeys).forEach(i -> cache.get("hot-" + i, () -> "value"));
+        }
+
+        // scan with lots of one-hit wonders, interleaved with hot key accesses
+        for (int i = 0; i < 100_000; i++) {
+            cache.put("cold-" + i, "value");
+            cache.get("hot-" + (i % hotKeys));
+        }
+
+        long retainedHotKeys = IntStream.range(0, hotKeys).filter(i -> cache.get("hot-" + i) != null).count();
+        assertThat(cache.size()).isEqualTo(1000);
+        assertThat(retainedHotKeys).isGreaterThan(hotKeys * 9 / 10);
+    }
+
+    @Test
+    void shouldStayBoundedUnderConcurrentAccess() throws Exception {
+        PlatformCache cache = new PlatformCache("test", 500);
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++) {
+            int offset = t * 100_000;
+            executorService.submit(() -> IntStream.range(offset, offset + 20_000).forEach(i -> {
+                cache.put(i, i);
+                cache.get(i - 1);
+                cache.evict(i - 10);
+            }));
+        }
+        executorService.shutdown();
+        assertThat(executorService.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(cache.size()).isLessThanOrEqualTo(500);
+    }
+
+    @Test
+    void shouldConfigureCachesPerName() {
+        PlatformCacheProperties properties = new PlatformCacheProperties();
+        properties.setMaximumSize(200);
+        PlatformCacheProperties.CacheSpec spec = new PlatformCacheProperties.CacheSpec();
+        spec.setMaximumSize(50L);
+        properties.getCaches().put("small-cache", spec);
+
+        PlatformCacheManager cacheManager = new PlatformCacheManager(properties);
+        assertThat(cacheManager.getCacheNames()).containsExactly("small-cache");
+
+        PlatformCache smallCache = (PlatformCache) cacheManager.getCache("small-cache");
+        PlatformCache otherCache = (PlatformCache) cacheManager.getCache("other-cache");
+        assertThat(smallCache.getMaximumSize()).isEqualTo(50);
+        assertThat(otherCache.getMaximumSize()).isEqualTo(200);
+        assertThat(cacheManager.getCache("other-cache")).isSameAs(otherCache);
+        assertThat(cacheManager.getCacheNames()).containsExactlyInAnyOrder("small-cache", "other-cache");
+    }
+
+    @Test
+    void shouldExpireEntries() throws Exception {
+        PlatformCacheProperties.CacheSpec spec = new PlatformCacheProperties.CacheSpec();
+        spec.setMaximumSize(1000L);
+        spec.setTimeToLive(Duration.ofMillis(100));
+        PlatformCache cache = new PlatformCache("test", spec);
+
+        cache.put("default", 1);
+        cache.put("short", 2, Duration.ofMillis(50));
+        cache.put("long", 3, Duration.ofMinutes(5));
+        cache.put("expired", 4, Duration.ZERO);
+        IntStream.range(0, 500).forEach(i -> cache.put(i, i, Duration.ofMillis(50)));
+
+        assertThat(cache.get("default")).isNotNull();
+        assertThat(cache.get("short")).isNotNull();
+        assertThat(cache.get("expired")).isNull();
+        assertThat(cache.size()).isEqualTo(503);
+
+        Thread.sleep(60);
+        assertThat(cache.get("default")).isNotNull();
+        assertThat(cache.get("short")).isNull();
+
+        Thread.sleep(1100);
+        cache.cleanUp();
+        assertThat(cache.get("default")).isNull();
+        assertThat(cache.get("long")).isNotNull();
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldExpireInTimerWheel() {
+        long start = System.nanoTime();
+        TimerWheel timerWheel = new TimerWheel(start);
+        List<Object> expired = new ArrayList<>();
+        long[] expireAfter = {
+                Duration.ofMillis(500).toNanos(),
+                Duration.ofSeconds(30).toNanos(),
+                Duration.ofMinutes(30).toNanos(),
+                Duration.ofHours(20).toNanos(),
+                Duration.ofDays(3).toNanos(),
+                Duration.ofDays(30).toNanos()};
+        for (long nanos : expireAfter) {
+            Node node = new Node(nanos, null);
+            node.expiresAt = start + nanos;
+            timerWheel.schedule(node);
+        }
+        Node descheduled = new Node("descheduled", null);
+        descheduled.expiresAt = start + 1;
+        timerWheel.schedule(descheduled);
+        timerWheel.deschedule(descheduled);
+
+        long now = start;
+        for (int i = 0; i < expireAfter.length; i++) {
+            timerWheel.advance(start + expireAfter[i] - 1, node -> expired.add(node.key));
+            assertThat(expired).hasSize(i);
+            // advance in steps of up to one hour
+            while (now < start + expireAfter[i] + Duration.ofSeconds(2).toNanos()) {
+                now = Math.min(now + Duration.ofHours(1).toNanos(), start + expireAfter[i] + Duration.ofSeconds(2).toNanos());
+                timerWheel.advance(now, node -> expired.add(node.key));
+            }
+            assertThat(expired).hasSize(i + 1).last().isEqualTo(expireAfter[i]);
+        }
+    }
+
+    @Test
+    void shouldBoundWeight() {
+        PlatformCacheProperties.CacheSpec spec = new PlatformCacheProperties.CacheSpec();
+        spec.setMaximumSize(1000L);
+        spec.setMaximumWeight(DataSize.ofKilobytes(100));
+        PlatformCache cache = new PlatformCache("test", spec);
+        assertThat(cache.isWeighted()).isTrue();
+        assertThat(cache.getMaximumWeight()).isEqualTo(100 * 1024);
+        assertThat(cache.getMaximumSize()).isEqualTo(-1);
+
+        String largeValue = "x".repeat(1000);
+        IntStream.range(0, 1000).forEach(i -> cache.put(i, largeValue));
+        assertThat(cache.weightedSize()).isLessThanOrEqualTo(100 * 1024);
+        assertThat(cache.size()).isBetween(50L, 100L);
+
+        IntStream.range(1000, 2000).forEach(i -> cache.put(i, i));
+        assertThat(cache.weightedSize()).isLessThanOrEqualTo(100 * 1024);
+        assertThat(cache.size()).isGreaterThan(500);
+
+        cache.put("too-large", "x".repeat(200_000));
+        assertThat(cache.get("too-large")).isNull();
+
+        cache.setWeigher((key, value) -> 10 * 1024);
+        cache.put("heavy", 1);
+        cache.put("heavy", "updated");
+        assertThat(cache.get("heavy")).isNotNull().extracting(Cache.ValueWrapper::get).isEqualTo("updated");
+        assertThat(cache.weightedSize()).isLessThanOrEqualTo(100 * 1024);
+    }
+
+    @Test
+    void shouldRejectConflictingWeighers() {
+        PlatformCacheProperties.CacheSpec spec = new PlatformCacheProperties.CacheSpec();
+        spec.setMaximumWeight(DataSize.ofKilobytes(100));
+        PlatformCache cache = new PlatformCache("test", spec);
+        Weigher<Object> weigher = (key, value) -> 1024;
+
+        cache.setWeigher(weigher);
+        cache.setWeigher(weigher);
+        assertThatThrownBy(() -> cache.setWeigher((key, value) -> 2048)).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void shouldReportEvictions() throws Exception {
+        PlatformCacheProperties.CacheSpec spec = new PlatformCacheProperties.CacheSpec();
+        spec.setMaximumSize(10L);
+        PlatformCache cache = new PlatformCache("test", spec);
+        List<Object> evicted = new ArrayList<>();
+        cache.addEvictionListener(evicted::add);
+
+        IntStream.range(0, 100).forEach(i -> cache.put(i, i));
+        assertThat(evicted).hasSize(90).doesNotHaveDuplicates();
+        assertThat(cache.size()).isEqualTo(10);
+
+        // explicit evictions are not reported
+        evicted.clear();
+        cache.evict(99);
+        cache.clear();
+        assertThat(evicted).isEmpty();
+
+        cache.put("expiring", 1, Duration.ofMillis(10));
+        Thread.sleep(1100);
+        cache.cleanUp();
+        assertThat(evicted).containsExactly("expiring");
+    }
+}
@@ -0,0 +1,274 @@
+package ch.frostnova.spring.boot.platform.core.cache.invalidation;
+
+import ch.frostnova.spring.boot.platform.core.cache.TypeSafeCache;
+import ch.frostnova.spring.boot.platform.core.config.CacheConfig;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.test.util.TestPropertyValues;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for the {@link CacheInvalidationBus} and its transports.
+ */
+public class CacheInvalidationBusTest {
+
+    private final static InetAddress LOCALHOST = InetAddress.getLoopbackAddress();
+
+    private static AnnotationConfigApplicationContext node(String group) {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        TestPropertyValues.of(
+                "ch.frostnova.platform.cache.invalidation.enabled=true",
+                "ch.frostnova.platform.cache.invalidation.transport=loopback",
+                "ch.frostnova.platform.cache.invalidation.batch-window=10ms",
+                "ch.frostnova.platform.cache.invalidation.loopback.group=" + group
+        ).applyTo(context);
+        context.register(CacheConfig.class, CacheInvalidationBus.class, InvalidatedCache.class);
+        context.refresh();
+        return context;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+
+    private static <T> ObjectProvider<T> provider(T bean) {
+        return new ObjectProvider<>() {
+            @Override
+            public T getObject(Object... args) {
+                return bean;
+            }
+
+            @Override
+            public T getIfAvailable() {
+                return bean;
+            }
+
+            @Override
+            public T getIfUnique() {
+                return bean;
+            }
+
+            @Override
+            public T getObject() {
+                return bean;
+            }
+        };
+    }
+
+    @Test
+    void shouldInvalidateCachesOfOtherNodes() throws Exception {
+        String group = UUID.randomUUID().toString();
+        try (AnnotationConfigApplicationContext node1 = node(group);
+             AnnotationConfigApplicationContext node2 = node(group)) {
+            InvalidatedCache cache1 = node1.getBean(InvalidatedCache.class);
+            InvalidatedCache cache2 = node2.getBean(InvalidatedCache.class);
+            cache1.put("a", "1");
+            cache1.put("b", "1");
+            cache2.put("a", "2");
+            cache2.put("b", "2");
+
+            cache1.evict("a");
+            await(() -> cache2.get("a") == null);
+            assertThat(cache2.get("b")).isEqualTo("2");
+            assertThat(cache1.get("b")).isEqualTo("1");
+
+            cache2.clear();
+            await(() -> cache1.get("b") == null);
+        }
+    }
+
+    @Test
+    void shouldPublishClearAfterCommit() throws Exception {
+        String group = UUID.randomUUID().toString();
+        try (AnnotationConfigApplicationContext node1 = node(group);
+             AnnotationConfigApplicationContext node2 = node(group)) {
+            InvalidatedCache cache1 = node1.getBean(InvalidatedCache.class);
+            InvalidatedCache cache2 = node2.getBean(InvalidatedCache.class);
+            cache1.put("a", "1");
+            cache2.put("a", "2");
+
+            TransactionSynchronizationManager.initSynchronization();
+            try {
+                cache1.clear();
+                TransactionSynchronizationUtils.invokeAfterCompletion(TransactionSynchronizationManager.getSynchronizations(),
+                        TransactionSynchronization.STATUS_ROLLED_BACK);
+            } finally {
+                TransactionSynchronizationManager.clearSynchronization();
+            }
+            Thread.sleep(200);
+            assertThat(cache1.get("a")).isEqualTo("1");
+            assertThat(cache2.get("a")).isEqualTo("2");
+
+            TransactionSynchronizationManager.initSynchronization();
+            try {
+                cache1.clear();
+                Thread.sleep(200);
+                assertThat(cache2.get("a")).isEqualTo("2");
+                TransactionSynchronizationUtils.triggerAfterCommit();
+            } finally {
+                TransactionSynchronizationManager.clearSynchronization();
+            }
+            assertThat(cache1.get("a")).isNull();
+            await(() -> cache2.get("a") == null);
+        }
+    }
+
+    @Test
+    void shouldCoalesceInvalidations() throws Exception {
+        RecordingTransport transport = new RecordingTransport();
+        CacheInvalidationProperties properties = new CacheInvalidationProperties();
+        CacheInvalidationBus bus = new CacheInvalidationBus(properties, provider(transport));
+
+        for (int i = 0; i < 100; i++) {
+            bus.publishEvict("quotes", "a");
+            bus.publishEvict("quotes", "b");
+            bus.publishEvict("geometry", i);
+        }
+        bus.publishClear("geometry");
+        bus.flush();
+
+        assertThat(transport.sent).hasSize(1);
+        InvalidationMessage message = InvalidationMessage.decode(transport.sent.get(0));
+        assertThat(message.nodeId()).isEqualTo(bus.getNodeId());
+        assertThat(message.clears()).containsExactly("geometry");
+        assertThat(message.keys()).containsOnlyKeys("quotes");
+        assertThat(message.keys().get("quotes")).containsExactly("a", "b");
+
+        transport.sent.clear();
+        bus.flush();
+        assertThat(transport.sent).isEmpty();
+    }
+
+    @Test
+    void shouldClearCachesWhenTooManyInvalidationsArePending() throws Exception {
+        RecordingTransport transport = new RecordingTransport();
+        CacheInvalidationProperties properties = new CacheInvalidationProperties();
+        properties.setMaximumPending(10);
+        CacheInvalidationBus bus = new CacheInvalidationBus(properties, provider(transport));
+
+        for (int i = 0; i < 20; i++) {
+            bus.publishEvict("quotes", i);
+        }
+        bus.flush();
+
+        InvalidationMessage message = InvalidationMessage.decode(transport.sent.get(0));
+        assertThat(message.clears()).containsExactly("quotes");
+        assertThat(message.keys()).isEmpty();
+    }
+
+    @Test
+    void shouldSendOverUdp() throws Exception {
+        byte[] secret = "0123456789abcdef".getBytes(UTF_8);
+        BlockingQueue<byte[]> received = new LinkedBlockingQueue<>();
+        UdpInvalidationTransport receiver = udpTransport(List.of(new InetSocketAddress(LOCALHOST, 4446)), secret);
+        receiver.start(received::add);
+        UdpInvalidationTransport sender = udpTransport(List.of(new InetSocketAddress(LOCALHOST, receiver.getLocalPort())), secret);
+        sender.start(message -> {
+        });
+        try {
+            UUID nodeId = UUID.randomUUID();
+            for (byte[] message : InvalidationMessage.encode(nodeId, List.of("geometry"), Map.of("quotes", List.of("a")), sender.maximumMessageSize())) {
+                sender.send(message);
+            }
+            byte[] message = received.poll(5, TimeUnit.SECONDS);
+            assertThat(message).isNotNull();
+            InvalidationMessage invalidations = InvalidationMessage.decode(message);
+            assertThat(invalidations.nodeId()).isEqualTo(nodeId);
+            assertThat(invalidations.clears()).containsExactly("geometry");
+            assertThat(invalidations.keys().get("quotes")).containsExactly("a");
+        } finally {
+            sender.stop();
+            receiver.stop();
+        }
+    }
+
+    @Test
+    void shouldDiscardUdpMessagesFromUnknownSendersOrWithInvalidSignature() throws Exception {
+        BlockingQueue<byte[]> received = new LinkedBlockingQueue<>();
+        UdpInvalidationTransport receiver = udpTransport(List.of(new InetSocketAddress(LOCALHOST, 4446)), "0123456789abcdef".getBytes(UTF_8));
+        receiver.start(received::add);
+        InetSocketAddress receiverAddress = new InetSocketAddress(LOCALHOST, receiver.getLocalPort());
+        UdpInvalidationTransport wrongSecret = udpTransport(List.of(receiverAddress), "fedcba9876543210".getBytes(UTF_8));
+        wrongSecret.start(message -> {
+        });
+        UdpInvalidationTransport unsigned = udpTransport(List.of(receiverAddress), null);
+        unsigned.start(message -> {
+        });
+        UdpInvalidationTransport unknownSenderReceiver = udpTransport(List.of(new InetSocketAddress(InetAddress.getByName("192.0.2.1"), 4446)), null);
+        BlockingQueue<byte[]> receivedFromUnknown = new LinkedBlockingQueue<>();
+        unknownSenderReceiver.start(receivedFromUnknown::add);
+        UdpInvalidationTransport unknownSender = udpTransport(List.of(new InetSocketAddress(LOCALHOST, unknownSenderReceiver.getLocalPort())), null);
+        unknownSender.start(message -> {
+        });
+        try {
+            byte[] message = InvalidationMessage.encode(UUID.randomUUID(), List.of("geometry"), Map.of(), 1000).get(0);
+            wrongSecret.send(message);
+            unsigned.send(message);
+            unknownSender.send(message);
+
+            assertThat(received.poll(500, TimeUnit.MILLISECONDS)).isNull();
+            assertThat(receivedFromUnknown.poll(100, TimeUnit.MILLISECONDS)).isNull();
+        } finally {
+            for (UdpInvalidationTransport transport : List.of(receiver, wrongSecret, unsigned, unknownSenderReceiver, unknownSender)) {
+                transport.stop();
+            }
+        }
+    }
+
+    private static UdpInvalidationTransport udpTransport(List<InetSocketAddress> peers, byte[] secret) {
+        return new UdpInvalidationTransport(new InetSocketAddress(LOCALHOST, 0), peers, 1400, secret);
+    }
+
+    private static class RecordingTransport implements InvalidationTransport {
+
+        private final List<byte[]> sent = new CopyOnWriteArrayList<>();
+
+        @Override
+        public int maximumMessageSize() {
+            return 1400;
+        }
+
+        @Override
+        public void start(Consumer<byte[]> receiver) {
+        }
+
+        @Override
+        public void send(byte[] message) throws IOException {
+            sent.add(message);
+        }
+
+        @Override
+        public void stop() {
+        }
+    }
+
+    public static class InvalidatedCache extends TypeSafeCache<String, String> {
+
+        public InvalidatedCache() {
+            super("invalidated-cache");
+        }
+    }
+}
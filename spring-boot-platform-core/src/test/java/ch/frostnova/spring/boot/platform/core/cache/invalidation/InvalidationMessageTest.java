@@ -0,0 +1,116 @@
+package ch.frostnova.spring.boot.platform.core.cache.invalidation;
+
+import ch.frostnova.spring.boot.platform.core.cache.CompactKey;
+import ch.frostnova.spring.boot.platform.core.cache.KeyCodec;
+import ch.frostnova.spring.boot.platform.core.cache.TenantKey;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for the {@link InvalidationMessage} encoding.
+ */
+public class InvalidationMessageTest {
+
+    @Test
+    void shouldEncodeAndDecode() throws IOException {
+        UUID nodeId = UUID.randomUUID();
+        Map<String, List<Object>> keys = new LinkedHashMap<>();
+        keys.put("quotes", List.of("a", 1, 2L, nodeId, CompactKey.murmur3("c"), new TenantKey("tenant", "d")));
+
+        List<byte[]> messages = InvalidationMessage.encode(nodeId, Set.of("geometry"), keys, 1400);
+
+        assertThat(messages).hasSize(1);
+        InvalidationMessage message = InvalidationMessage.decode(messages.get(0));
+        assertThat(message.nodeId()).isEqualTo(nodeId);
+        assertThat(message.clears()).containsExactly("geometry");
+        assertThat(message.keys()).containsExactly(Map.entry("quotes", keys.get("quotes")));
+    }
+
+    @Test
+    void shouldSplitMessages() throws IOException {
+        UUID nodeId = UUID.randomUUID();
+        List<Object> keys = IntStream.range(0, 1000).mapToObj(i -> "key-" + i).collect(Collectors.toList());
+
+        List<byte[]> messages = InvalidationMessage.encode(nodeId, Set.of(), Map.of("quotes", keys), 512);
+
+        assertThat(messages.size()).isGreaterThan(1);
+        assertThat(messages).allSatisfy(message -> assertThat(message.length).isLessThanOrEqualTo(512));
+        List<Object> decoded = new ArrayList<>();
+        for (byte[] message : messages) {
+            decoded.addAll(InvalidationMessage.decode(message).keys().get("quotes"));
+        }
+        assertThat(decoded).isEqualTo(keys);
+    }
+
+    @Test
+    void shouldClearCachesWithKeysThatCannotBeSent() throws IOException {
+        Map<String, List<Object>> keys = new LinkedHashMap<>();
+        keys.put("not-serializable", List.of("a", new Object()));
+        keys.put("serialized", List.of(List.of("x", "y")));
+        keys.put("too-large", List.of("x".repeat(1000)));
+        keys.put("quotes", List.of("a"));
+
+        List<byte[]> messages = InvalidationMessage.encode(UUID.randomUUID(), Set.of(), keys, 512);
+
+        assertThat(messages).hasSize(1);
+        InvalidationMessage message = InvalidationMessage.decode(messages.get(0));
+        assertThat(message.clears()).containsExactly("not-serializable", "serialized", "too-large");
+        assertThat(message.keys()).containsExactly(Map.entry("quotes", List.of("a")));
+    }
+
+    @Test
+    void shouldRejectMalformedMessages() {
+        assertThatThrownBy(() -> InvalidationMessage.decode(new byte[]{1, 2, 3})).isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> InvalidationMessage.decode(new byte[64])).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void shouldRejectSerializedKeys() throws IOException {
+        byte[] message = message(out -> KeyCodec.write(out, List.of("x", "y")));
+
+        assertThatThrownBy(() -> InvalidationMessage.decode(message))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("serialized keys are not accepted");
+    }
+
+    @Test
+    void shouldRejectLengthsExceedingTheMessage() throws IOException {
+        byte[] message = message(out -> {
+            out.writeByte(1);
+            out.writeInt(Integer.MAX_VALUE);
+        });
+
+        assertThatThrownBy(() -> InvalidationMessage.decode(message))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("exceeds");
+    }
+
+    private static byte[] message(KeyWriter keyWriter) throws IOException {
+        byte[] valid = InvalidationMessage.encode(UUID.randomUUID(), Set.of(), Map.of("quotes", List.of("a")), 512).get(0);
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(buffer);
+        // header and section of the valid message, without its key (tag, length, 'a')
+        out.write(valid, 0, valid.length - 6);
+        keyWriter.write(out);
+        return buffer.toByteArray();
+    }
+
+    @FunctionalInterface
+    private interface KeyWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+}
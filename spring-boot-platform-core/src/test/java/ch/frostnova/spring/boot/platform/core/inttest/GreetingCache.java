@@ -0,0 +1,14 @@
+package ch.frostnova.spring.boot.platform.core.inttest;
+
+import ch.frostnova.spring.boot.platform.core.cache.TypeSafeCache;
+import org.springframework.stereotype.Component;
+
+@Component
+public class GreetingCache extends TypeSafeCache<String, String> {
+
+    private final static String CACHE_NAME = "greeting-cache";
+
+    public GreetingCache() {
+        super(CACHE_NAME);
+    }
+}
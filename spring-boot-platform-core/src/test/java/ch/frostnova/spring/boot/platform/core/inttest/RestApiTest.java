@@ -40,6 +40,9 @@ public class RestApiTest {
     @MockBean
     private AuthenticationProvider authenticationProvider;
 
+    @Autowired
+    private GreetingCache greetingCache;
+
     private String baseURL() {
         return String.format("http://localhost:%d", port);
     }
@@ -130,6 +133,21 @@ public class RestApiTest {
         assertThat(client.adminResource(baseURL(), credentialsAdminRole)).isEqualTo("admin");
     }
 
+    @Test
+    void shouldGetCacheStats() {
+        greetingCache.get("hello", key -> key + " world");
+        greetingCache.get("hello", key -> key + " world");
+
+        Map<?, ?> cacheStats = client.cacheStats(baseURL(), "greeting-cache");
+        assertThat(cacheStats.get("cacheName")).isEqualTo("greeting-cache");
+        assertThat(((Number) cacheStats.get("hitCount")).longValue()).isGreaterThanOrEqualTo(1);
+        assertThat(((Number) cacheStats.get("missCount")).longValue()).isGreaterThanOrEqualTo(1);
+        assertThat(((Number) cacheStats.get("loadSuccessCount")).longValue()).isGreaterThanOrEqualTo(1);
+        assertThat((Map<?, ?>) cacheStats.get("loadTimeHistogram")).hasSize(8);
+
+        assertThatThrownBy(() -> client.cacheStats(baseURL(), "no-such-cache")).isInstanceOf(HttpClientErrorException.NotFound.class);
+    }
+
     private String registerTestUser(UserInfo userInfo) {
         String credentials = UUID.randomUUID().toString();
         when(authenticationProvider.authenticate(eq(credentials))).thenReturn(userInfo);
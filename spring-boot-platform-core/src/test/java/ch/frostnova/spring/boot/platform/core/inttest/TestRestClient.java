@@ -8,6 +8,8 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestTemplate;
 
+import java.util.Map;
+
 import static org.springframework.http.HttpMethod.GET;
 
 @Component
@@ -37,6 +39,10 @@ public class TestRestClient {
         return getResource(String.format("%s/access/admin", baseURL), authorization, String.class);
     }
 
+    public Map<?, ?> cacheStats(String baseURL, String cacheName) {
+        return getResource(String.format("%s/caches/%s", baseURL, cacheName), null, Map.class);
+    }
+
     private <T> T getResource(String url, String authorization, Class<T> type) {
         RestTemplate restTemplate = restTemplateBuilder().build();
         HttpHeaders headers = new HttpHeaders();
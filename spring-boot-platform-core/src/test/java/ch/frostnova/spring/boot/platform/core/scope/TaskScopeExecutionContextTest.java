@@ -9,14 +9,23 @@ import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -24,6 +33,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
 
 @ExtendWith(SpringExtension.class)
 @ContextConfiguration(classes = {TaskScopeConfig.class, TaskScopedComponent.class})
@@ -126,6 +136,57 @@ public class TaskScopeExecutionContextTest {
         assertThat(results).allSatisfy(result -> assertThat(result).isEqualTo(uuid));
     }
 
+    @Test
+    public void testCreateOnceInSharedScope() throws Exception {
+        TaskScope.init();
+        TaskScope.ExecutionContext executionContext = TaskScope.currentExecutionContext();
+
+        int threads = 8;
+        CyclicBarrier barrier = new CyclicBarrier(threads);
+        ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        List<Future<String>> futures = new LinkedList<>();
+        for (int i = 0; i < threads; i++) {
+            futures.add(executorService.submit(() -> executionContext.execute(() -> {
+                barrier.await();
+                return taskScopedComponent.getUuid();
+            })));
+        }
+        Set<String> results = new HashSet<>();
+        for (Future<String> future : futures) {
+            results.add(future.get());
+        }
+        executorService.shutdownNow();
+
+        // created exactly once, concurrently accessed by all threads
+        assertThat(results).containsExactly(taskScopedComponent.getUuid());
+    }
+
+    @Test
+    public void testDestroyWhileStragglersExecute() throws Exception {
+        TaskScope.init();
+        String uuid = taskScopedComponent.getUuid();
+        AtomicInteger preDestroyed = new AtomicInteger();
+        taskScopedComponent.setPreDestroyCallback(preDestroyed::incrementAndGet);
+        TaskScope.ExecutionContext executionContext = TaskScope.currentExecutionContext();
+
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch destroyed = new CountDownLatch(1);
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        Future<String> straggler = executorService.submit(() -> executionContext.execute(() -> {
+            started.countDown();
+            destroyed.await(5, TimeUnit.SECONDS);
+            return taskScopedComponent.getUuid();
+        }));
+        started.await(5, TimeUnit.SECONDS);
+        TaskScope.destroy();
+        destroyed.countDown();
+
+        // the straggler still gets the object created before, which was destroyed exactly once
+        assertThat(straggler.get()).isEqualTo(uuid);
+        executorService.shutdownNow();
+        assertThat(preDestroyed.get()).isEqualTo(1);
+    }
+
     @Test
     public void testScopeInParallelStream() {
 
@@ -240,6 +301,173 @@ public class TaskScopeExecutionContextTest {
         assertThat(preDestroyed.size()).isEqualTo(3);
     }
 
+    @Test
+    public void testInvokeAllInSharedScope() {
+        TaskScope.init();
+        String uuid = taskScopedComponent.getUuid();
+
+        List<CheckedSupplier<String>> tasks = IntStream.range(0, 20)
+                .mapToObj(i -> (CheckedSupplier<String>) () -> {
+                    Thread.sleep(20 - i);
+                    return i + ":" + taskScopedComponent.getUuid();
+                })
+                .collect(Collectors.toList());
+        List<String> results = TaskScope.currentExecutionContext().invokeAll(tasks);
+
+        // in order of the tasks, all in the same scope
+        assertThat(results).containsExactlyElementsOf(IntStream.range(0, 20).mapToObj(i -> i + ":" + uuid).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testInvokeAllInDedicatedScopes() {
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        try {
+            List<Supplier<String>> tasks = IntStream.range(0, 20).mapToObj(i -> (Supplier<String>) taskScopedComponent::getUuid).collect(Collectors.toList());
+            List<String> results = TaskScope.newExecutionContext().invokeAll(tasks.stream()
+                    .map(task -> (CheckedSupplier<String>) task::get)
+                    .collect(Collectors.toList()), executorService, null);
+
+            // distinct components per task
+            assertThat(results).hasSize(20).doesNotHaveDuplicates();
+            assertThat(TaskScope.isActive()).isFalse();
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testInvokeAllCancelsSiblingsOnFailure() throws Exception {
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        CountDownLatch interrupted = new CountDownLatch(3);
+        try {
+            List<CheckedSupplier<String>> tasks = new LinkedList<>();
+            for (int i = 0; i < 3; i++) {
+                tasks.add(() -> {
+                    try {
+                        Thread.sleep(10_000);
+                    } catch (InterruptedException ex) {
+                        interrupted.countDown();
+                    }
+                    return "slow";
+                });
+            }
+            tasks.add(() -> {
+                Thread.sleep(50);
+                throw new IOException("failed");
+            });
+
+            long start = System.nanoTime();
+            assertThatThrownBy(() -> TaskScope.newExecutionContext().invokeAll(tasks, executorService, null))
+                    .isInstanceOf(RuntimeException.class)
+                    .hasCauseInstanceOf(IOException.class);
+            assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(5));
+            assertThat(interrupted.await(5, TimeUnit.SECONDS)).isTrue();
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testInvokeAllDeadline() {
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        try {
+            assertThat(TaskScope.remainingTime()).isNull();
+            TaskScope.ExecutionContext executionContext = TaskScope.newExecutionContext();
+
+            // deadline propagates to the subtasks, and to nested subtasks
+            CheckedSupplier<Duration> remainingTime = TaskScope::remainingTime;
+            CheckedSupplier<Duration> nestedRemainingTime = () -> executionContext.<Duration>invokeAll(List.of(remainingTime), executorService, Duration.ofHours(1)).get(0);
+            List<Duration> remaining = executionContext.invokeAll(List.of(remainingTime, nestedRemainingTime), executorService, Duration.ofSeconds(10));
+            assertThat(remaining).allSatisfy(duration -> assertThat(duration).isBetween(Duration.ofSeconds(1), Duration.ofSeconds(10)));
+            assertThat(TaskScope.remainingTime()).isNull();
+
+            long start = System.nanoTime();
+            assertThatThrownBy(() -> executionContext.invokeAll(List.of(() -> {
+                Thread.sleep(10_000);
+                return null;
+            }), executorService, Duration.ofMillis(100)))
+                    .isInstanceOf(RuntimeException.class)
+                    .hasCauseInstanceOf(TimeoutException.class);
+            assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(5));
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testNestedInvokeAllOnForkJoinPool() {
+        ForkJoinPool singleThreadPool = new ForkJoinPool(1);
+        try {
+            TaskScope.ExecutionContext executionContext = TaskScope.newExecutionContext();
+            CheckedSupplier<Integer> leaf = () -> 1;
+            CheckedSupplier<Integer> fanOut = () -> executionContext.invokeAll(List.of(leaf, leaf, leaf), singleThreadPool, null)
+                    .stream().mapToInt(Integer::intValue).sum();
+
+            // the only worker of the pool waits for nested subtasks, which need a worker as well
+            assertThat(executionContext.invokeAll(List.of(fanOut, fanOut), singleThreadPool, Duration.ofSeconds(10)))
+                    .containsExactly(3, 3);
+
+            // same on the default executor (common pool), with more outer subtasks than workers
+            int outerCount = ForkJoinPool.getCommonPoolParallelism() + 2;
+            CheckedSupplier<Integer> defaultFanOut = () -> executionContext.<Integer>invokeAll(List.of(leaf, leaf)).size();
+            List<Integer> results = assertTimeoutPreemptively(Duration.ofSeconds(10), () -> executionContext.invokeAll(
+                    IntStream.range(0, outerCount).mapToObj(i -> defaultFanOut).collect(Collectors.toList())));
+            assertThat(results).hasSize(outerCount).containsOnly(2);
+        } finally {
+            singleThreadPool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testVirtualThreadExecutionContext() throws Exception {
+        TaskScope.ExecutionContext executionContext = TaskScope.newVirtualThreadExecutionContext();
+
+        String uuid1 = executionContext.submit(taskScopedComponent::getUuid).get(5, TimeUnit.SECONDS);
+        String uuid2 = executionContext.submit(taskScopedComponent::getUuid).get(5, TimeUnit.SECONDS);
+        assertThat(uuid1).isNotEqualTo(uuid2);
+
+        List<CheckedSupplier<String>> tasks = IntStream.range(0, 100)
+                .mapToObj(i -> (CheckedSupplier<String>) taskScopedComponent::getUuid)
+                .collect(Collectors.toList());
+        assertThat(executionContext.invokeAll(tasks)).hasSize(100).doesNotHaveDuplicates();
+        assertThat(TaskScope.isActive()).isFalse();
+    }
+
+    @Test
+    public void testNestedInvokeAllOnVirtualThreads() {
+        TaskScope.ExecutionContext executionContext = TaskScope.newVirtualThreadExecutionContext();
+        CheckedSupplier<Integer> leaf = () -> 1;
+        CheckedSupplier<Integer> fanOut = () -> executionContext.<Integer>invokeAll(List.of(leaf, leaf)).size();
+
+        // more outer subtasks than threads of the fallback pool (on runtimes without virtual threads)
+        int outerCount = 4 * Runtime.getRuntime().availableProcessors() + 64;
+        List<Integer> results = assertTimeoutPreemptively(Duration.ofSeconds(10), () -> executionContext.invokeAll(
+                IntStream.range(0, outerCount).mapToObj(i -> fanOut).collect(Collectors.toList())));
+        assertThat(results).hasSize(outerCount).containsOnly(2);
+    }
+
+    @Test
+    public void testSharedScopeOnVirtualThreads() throws Exception {
+        TaskScope.init();
+        String uuid = taskScopedComponent.getUuid();
+        TaskScope.ExecutionContext executionContext = TaskScope.currentExecutionContext().onVirtualThreads();
+
+        assertThat(executionContext.submit(taskScopedComponent::getUuid).get(5, TimeUnit.SECONDS)).isEqualTo(uuid);
+        assertThat(executionContext.invokeAll(List.of(taskScopedComponent::getUuid, taskScopedComponent::getUuid)))
+                .containsExactly(uuid, uuid);
+    }
+
+    @Test
+    public void testForEach() {
+        TaskScope.init();
+        String uuid = taskScopedComponent.getUuid();
+        Set<String> results = ConcurrentHashMap.newKeySet();
+
+        TaskScope.currentExecutionContext().forEach(List.of(1, 2, 3), i -> results.add(i + ":" + taskScopedComponent.getUuid()));
+
+        assertThat(results).containsExactlyInAnyOrder("1:" + uuid, "2:" + uuid, "3:" + uuid);
+    }
+
     @Test
     public void testRequiresRunnable() {
         CheckedRunnable runnable = null;
@@ -0,0 +1,139 @@
+package ch.frostnova.spring.boot.platform.core.scope;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.DispatcherType;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for the {@link TaskScopeRequestScopeFilter}, with synchronous and asynchronous requests.
+ */
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(classes = {TaskScopeConfig.class, TaskScopedComponent.class})
+public class TaskScopeRequestScopeFilterTest {
+
+    @Autowired
+    private TaskScopedComponent taskScopedComponent;
+
+    private final TaskScopeRequestScopeFilter filter = new TaskScopeRequestScopeFilter();
+    private final AtomicInteger preDestroyed = new AtomicInteger();
+    private final AtomicReference<String> uuid = new AtomicReference<>();
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+
+    @BeforeEach
+    @AfterEach
+    public void prepareScopeInactive() {
+        if (TaskScope.isActive()) {
+            TaskScope.destroy();
+        }
+        assertThat(TaskScope.isActive()).isFalse();
+        request = new MockHttpServletRequest();
+        request.setAsyncSupported(true);
+        response = new MockHttpServletResponse();
+    }
+
+    private void useScope() {
+        assertThat(TaskScope.isActive()).isTrue();
+        uuid.compareAndSet(null, taskScopedComponent.getUuid());
+        assertThat(taskScopedComponent.getUuid()).isEqualTo(uuid.get());
+        taskScopedComponent.setPreDestroyCallback(preDestroyed::incrementAndGet);
+    }
+
+    @Test
+    public void testSynchronousRequest() throws Exception {
+        filter.doFilter(request, response, (req, res) -> useScope());
+
+        assertThat(TaskScope.isActive()).isFalse();
+        assertThat(preDestroyed.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void testAsynchronousRequest() throws Exception {
+        filter.doFilter(request, response, (req, res) -> {
+            useScope();
+            req.startAsync();
+        });
+
+        // scope survives the request thread
+        assertThat(TaskScope.isActive()).isFalse();
+        assertThat(preDestroyed.get()).isZero();
+
+        // completing thread
+        TaskScope.ExecutionContext executionContext = TaskScopeRequestScopeFilter.executionContext(request);
+        assertThat(executionContext).isNotNull();
+        CompletableFuture.runAsync(() -> executionContext.execute(this::useScope)).get(5, TimeUnit.SECONDS);
+
+        // async dispatch
+        request.setDispatcherType(DispatcherType.ASYNC);
+        request.setAsyncStarted(false);
+        filter.doFilter(request, response, (req, res) -> useScope());
+
+        assertThat(TaskScope.isActive()).isFalse();
+        assertThat(preDestroyed.get()).isEqualTo(1);
+
+        ((MockAsyncContext) request.getAsyncContext()).complete();
+        assertThat(preDestroyed.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void testExecutionContextAvailableWhileProcessing() throws Exception {
+        AtomicReference<String> threadUuid = new AtomicReference<>();
+        filter.doFilter(request, response, (req, res) -> {
+            useScope();
+            // thread started by the controller, before the async processing is started
+            TaskScope.ExecutionContext executionContext = TaskScopeRequestScopeFilter.executionContext(req);
+            assertThat(executionContext).isNotNull();
+            try {
+                CompletableFuture.runAsync(() -> executionContext.execute(() -> threadUuid.set(taskScopedComponent.getUuid())))
+                        .get(5, TimeUnit.SECONDS);
+            } catch (Exception ex) {
+                throw new RuntimeException(ex);
+            }
+            req.startAsync();
+        });
+        assertThat(threadUuid.get()).isEqualTo(uuid.get());
+        assertThat(TaskScopeRequestScopeFilter.executionContext(request).isActive()).isTrue();
+
+        ((MockAsyncContext) request.getAsyncContext()).complete();
+        assertThat(TaskScopeRequestScopeFilter.executionContext(request).isActive()).isFalse();
+        assertThat(preDestroyed.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void testAsynchronousRequestTimeout() throws Exception {
+        filter.doFilter(request, response, (req, res) -> {
+            useScope();
+            req.startAsync();
+        });
+        assertThat(preDestroyed.get()).isZero();
+
+        MockAsyncContext asyncContext = (MockAsyncContext) request.getAsyncContext();
+        for (AsyncListener listener : asyncContext.getListeners()) {
+            listener.onTimeout(new AsyncEvent(asyncContext));
+        }
+        assertThat(preDestroyed.get()).isEqualTo(1);
+
+        // async dispatch after the timeout runs in a new scope
+        request.setDispatcherType(DispatcherType.ASYNC);
+        request.setAsyncStarted(false);
+        filter.doFilter(request, response, (req, res) -> assertThat(taskScopedComponent.getUuid()).isNotEqualTo(uuid.get()));
+        assertThat(TaskScope.isActive()).isFalse();
+    }
+}
@@ -0,0 +1,141 @@
+package ch.frostnova.spring.boot.platform.core.scope;
+
+import ch.frostnova.spring.boot.platform.core.security.CurrentUserInfo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.ConcurrentTaskScheduler;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static ch.frostnova.spring.boot.platform.api.auth.UserInfo.userInfo;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for the propagation of task scopes to asynchronous tasks.
+ */
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(classes = {TaskScopeConfig.class, TaskScopedComponent.class, CurrentUserInfo.class})
+public class TaskScopeTaskDecoratorTest {
+
+    @Autowired
+    private TaskScopedComponent taskScopedComponent;
+
+    @Autowired
+    private CurrentUserInfo currentUserInfo;
+
+    @Autowired
+    private TaskScopeTaskDecorator taskScopeTaskDecorator;
+
+    private ExecutorService executorService;
+
+    @BeforeEach
+    public void setup() {
+        executorService = Executors.newSingleThreadExecutor();
+        TaskScope.init();
+        currentUserInfo.setUserInfo(userInfo("test-user").tenant("test-tenant").build());
+    }
+
+    @AfterEach
+    public void cleanup() {
+        currentUserInfo.clear();
+        TaskScope.destroy();
+        executorService.shutdownNow();
+    }
+
+    private String execute(TaskScopeAwareExecutor executor) throws Exception {
+        CompletableFuture<String> result = new CompletableFuture<>();
+        executor.execute(() -> result.complete(taskScopedComponent.getUuid() + "|" + MDC.get("tenant") + "|" + MDC.get("user")
+                + "|" + currentUserInfo.getUserInfo().getLogin()));
+        return result.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testSharedScope() throws Exception {
+        String uuid = taskScopedComponent.getUuid();
+        TaskScopeAwareExecutor executor = new TaskScopeAwareExecutor(executorService,
+                new TaskScopeTaskDecorator(TaskScopeProperties.Propagation.SHARED, currentUserInfo));
+
+        assertThat(execute(executor)).isEqualTo(uuid + "|test-tenant|test-user|test-user");
+
+        // MDC of the executing thread is restored
+        assertThat(executorService.submit(MDC::getCopyOfContextMap).get()).isNullOrEmpty();
+    }
+
+    @Test
+    public void testDedicatedScope() throws Exception {
+        String uuid = taskScopedComponent.getUuid();
+        TaskScopeAwareExecutor executor = new TaskScopeAwareExecutor(executorService, taskScopeTaskDecorator);
+
+        String result1 = execute(executor);
+        String result2 = execute(executor);
+
+        assertThat(result1).endsWith("|test-tenant|test-user|test-user").doesNotStartWith(uuid);
+        assertThat(result2).endsWith("|test-tenant|test-user|test-user").doesNotStartWith(uuid).isNotEqualTo(result1);
+    }
+
+    @Test
+    public void testSharedScopeFallsBackToDedicatedScope() throws Exception {
+        currentUserInfo.clear();
+        TaskScope.destroy();
+        try {
+            TaskScopeAwareExecutor executor = new TaskScopeAwareExecutor(executorService,
+                    new TaskScopeTaskDecorator(TaskScopeProperties.Propagation.SHARED, currentUserInfo));
+            assertThat(execute(executor)).endsWith("|null|null|anonymous");
+        } finally {
+            TaskScope.init();
+        }
+    }
+
+    @Test
+    public void testSharedScopeDestroyedBeforeTaskStarts() throws Exception {
+        String uuid = taskScopedComponent.getUuid();
+        CountDownLatch blocked = new CountDownLatch(1);
+        executorService.execute(() -> await(blocked));
+        TaskScopeAwareExecutor executor = new TaskScopeAwareExecutor(executorService,
+                new TaskScopeTaskDecorator(TaskScopeProperties.Propagation.SHARED, currentUserInfo));
+        CompletableFuture<String> result = new CompletableFuture<>();
+        executor.execute(() -> result.complete(taskScopedComponent.getUuid() + "|" + currentUserInfo.getUserInfo().getLogin()
+                + "|" + currentUserInfo.getUserInfo().getTenant()));
+
+        // the submitter's scope ends (e.g. the request completed) while the task is still queued
+        TaskScope.destroy();
+        blocked.countDown();
+        try {
+            assertThat(result.get(5, TimeUnit.SECONDS)).doesNotStartWith(uuid).endsWith("|test-user|test-tenant");
+        } finally {
+            TaskScope.init();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    public void testScheduledTasksInDedicatedScope() throws Exception {
+        String uuid = taskScopedComponent.getUuid();
+        TaskScopeAwareTaskScheduler scheduler = new TaskScopeAwareTaskScheduler(new ConcurrentTaskScheduler(Executors.newSingleThreadScheduledExecutor()));
+
+        CompletableFuture<Map.Entry<Boolean, String>> result = new CompletableFuture<>();
+        scheduler.schedule(() -> result.complete(Map.entry(TaskScope.isActive(), taskScopedComponent.getUuid())), new Date());
+
+        assertThat(result.get(5, TimeUnit.SECONDS).getKey()).isTrue();
+        assertThat(result.get().getValue()).isNotEqualTo(uuid);
+    }
+}
@@ -9,6 +9,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -84,4 +87,92 @@ public class TaskScopeTest {
             assertThat(callbackCount.get()).isEqualTo(1);
         }
     }
+
+    @Test
+    public void testScopeActivatedLazily() {
+        TaskScope.init();
+        try {
+            assertThat(TaskScope.isActive()).isTrue();
+            assertThat(TaskScope.isUsed()).isFalse();
+
+            taskScopedComponent.getUuid();
+            assertThat(TaskScope.isUsed()).isTrue();
+        } finally {
+            TaskScope.destroy();
+        }
+
+        TaskScope.init();
+        try {
+            String conversationId = TaskScope.currentConversationId();
+            assertThat(TaskScope.isUsed()).isTrue();
+            assertThat(TaskScope.currentConversationId()).isEqualTo(conversationId);
+        } finally {
+            TaskScope.destroy();
+        }
+        assertThat(TaskScope.isUsed()).isFalse();
+    }
+
+    @Test
+    public void testSlotsAssignedOnRegistration() {
+        int slot = TaskScope.slot("scopedTarget.taskScopedComponent");
+        assertThat(TaskScope.slot("scopedTarget.taskScopedComponent")).isEqualTo(slot);
+    }
+
+    @Test
+    public void testBeanAssignedSlotAfterScopeInit() {
+        TaskScope taskScope = new TaskScope();
+        TaskScope.init();
+        try {
+            String uuid = taskScopedComponent.getUuid();
+            String lateBeanName = "late-bean-" + System.nanoTime();
+            Object lateBean = new Object();
+            AtomicInteger callbackCount = new AtomicInteger();
+
+            assertThat(taskScope.get(lateBeanName, () -> lateBean)).isSameAs(lateBean);
+            taskScope.registerDestructionCallback(lateBeanName, callbackCount::incrementAndGet);
+            assertThat(taskScope.get(lateBeanName, Object::new)).isSameAs(lateBean);
+            assertThat(taskScopedComponent.getUuid()).isEqualTo(uuid);
+
+            assertThat(taskScope.remove(lateBeanName)).isSameAs(lateBean);
+            assertThat(taskScope.get(lateBeanName, Object::new)).isNotSameAs(lateBean);
+            assertThat(callbackCount.get()).isZero();
+        } finally {
+            TaskScope.destroy();
+        }
+    }
+
+    @Test
+    public void testScopeDestroyedWhileCreatingScopedObject() throws Exception {
+        TaskScope taskScope = new TaskScope();
+        String beanName = "racing-bean-" + System.nanoTime();
+        Object bean = new Object();
+        AtomicInteger callbackCount = new AtomicInteger();
+        CountDownLatch creating = new CountDownLatch(1);
+        CountDownLatch destroyed = new CountDownLatch(1);
+
+        TaskScope.init();
+        TaskScope.ExecutionContext executionContext = TaskScope.currentExecutionContext();
+        CompletableFuture<Object> created = CompletableFuture.supplyAsync(() -> executionContext.execute(() -> taskScope.get(beanName, () -> {
+            // like the bean factory, the destruction callback is registered while the object is created
+            creating.countDown();
+            await(destroyed);
+            taskScope.registerDestructionCallback(beanName, callbackCount::incrementAndGet);
+            return bean;
+        })));
+        creating.await();
+        TaskScope.destroy();
+        destroyed.countDown();
+
+        assertThat(created.get(5, TimeUnit.SECONDS)).isSameAs(bean);
+        assertThat(callbackCount.get()).isEqualTo(1);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(ex);
+        }
+    }
 }
@@ -1,26 +1,38 @@
 package ch.frostnova.spring.boot.platform.jwt.service.impl;
 
+import ch.frostnova.spring.boot.platform.core.cache.CompactKey;
 import ch.frostnova.spring.boot.platform.core.cache.TypeSafeCache;
+import ch.frostnova.spring.boot.platform.core.cache.Weigher;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.Jws;
 import org.springframework.stereotype.Component;
 
-import java.util.Base64;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.Optional;
 
-import static ch.frostnova.spring.boot.platform.core.util.StringUtils.sha256;
+import static ch.frostnova.spring.boot.platform.core.cache.SizeEstimator.estimate;
 
 @Component
 public class JwtCache extends TypeSafeCache<String, Jws<Claims>> {
 
     private final static String CACHE_NAME = "jwt-cache";
+    private final static long JWS_OVERHEAD = 32;
 
     public JwtCache() {
         super(CACHE_NAME);
     }
 
+    /**
+     * Tokens are cached by their (cryptographic) hash, as a compact 128 bit key.
+     *
+     * @param key token
+     * @return compact key
+     */
     @Override
     protected Object cacheKey(String key) {
-        return hashedKey(key);
+        return CompactKey.sha256x128(key);
     }
 
     @Override
@@ -28,7 +40,33 @@ public class JwtCache extends TypeSafeCache<String, Jws<Claims>> {
         return true;
     }
 
-    private String hashedKey(String key) {
-        return Base64.getEncoder().encodeToString(sha256(key));
+    /**
+     * Weighs verified tokens by their header, claims and signature, for a memory budget (<code>maximum-weight</code>)
+     * of the cache.
+     *
+     * @return weigher
+     */
+    @Override
+    protected Weigher<Jws<Claims>> weigher() {
+        return (key, value) -> estimate(key) + (value == null ? 0
+                : JWS_OVERHEAD + estimate(value.getHeader()) + estimate(value.getBody()) + estimate(value.getSignature()));
+    }
+
+    /**
+     * Verified tokens expire from the cache when the token expires (<code>exp</code> claim), so the cache only
+     * retains live tokens.
+     *
+     * @param key   token
+     * @param value verified claims
+     * @return time until the token expires, or null (cache default) if the token has no expiration
+     */
+    @Override
+    protected Duration expireAfter(String key, Jws<Claims> value) {
+        return Optional.ofNullable(value)
+                .map(Jws::getBody)
+                .map(Claims::getExpiration)
+                .map(Date::toInstant)
+                .map(expiresAt -> Duration.between(Instant.now(), expiresAt))
+                .orElse(null);
     }
 }
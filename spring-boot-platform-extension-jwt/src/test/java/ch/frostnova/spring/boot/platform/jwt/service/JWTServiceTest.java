@@ -3,6 +3,7 @@ package ch.frostnova.spring.boot.platform.jwt.service;
 import ch.frostnova.spring.boot.platform.api.auth.UserInfo;
 import ch.frostnova.spring.boot.platform.jwt.TestConfig;
 import ch.frostnova.spring.boot.platform.jwt.properties.JwtProperties;
+import ch.frostnova.spring.boot.platform.jwt.service.impl.JwtCache;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.Jws;
@@ -50,6 +51,9 @@ public class JWTServiceTest {
     @Autowired(required = false)
     private CacheManager cacheManager;
 
+    @Autowired
+    private JwtCache jwtCache;
+
     @Test
     @SuppressWarnings("unchecked")
     public void testGenerateJWT() {
@@ -115,4 +119,16 @@ public class JWTServiceTest {
 
         assertThat(jwtVerificationService.verify(token)).isSameAs(value);
     }
+
+    @Test
+    public void testJWTCacheExpiresWithToken() throws Exception {
+
+        UserInfo userInfo = userInfo("test-user").tenant("test-tenant").build();
+        String token = jwtSigningService.createJWT(userInfo, OffsetDateTime.now(), Duration.of(1, SECONDS));
+        jwtVerificationService.verify(token);
+        assertThat(jwtCache.contains(token)).isTrue();
+
+        Thread.sleep(1000);
+        assertThat(jwtCache.contains(token)).isFalse();
+    }
 }